@@ -26,6 +26,14 @@ android {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
     }
+    testOptions {
+        // Code under JVM tests logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        unitTests.all {
+            // ./gradlew test -Pbenchmarks=true times the benchmark tests
+            it.systemProperty("benchmarks", project.findProperty("benchmarks") ?: "false")
+        }
+    }
 }
 
 dependencies {
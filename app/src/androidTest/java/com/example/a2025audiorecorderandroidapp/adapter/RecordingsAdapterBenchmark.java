@@ -0,0 +1,130 @@
+package com.example.a2025audiorecorderandroidapp.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.a2025audiorecorderandroidapp.R;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the layout pass that follows a playback progress tick, once with the
+ * payload update the adapter uses and once with the notifyDataSetChanged it
+ * replaced, on a phone-sized list of recordings. Checks that progress ticks
+ * never bind a row from scratch and logs the median and 95th percentile pass.
+ *
+ * The RecyclerView is laid out by hand without item animations, so the time
+ * is binding and layout only, not drawing.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RecordingsAdapterBenchmark {
+    private static final String TAG = "RecordingsAdapterBenchmark";
+    private static final int RECORDINGS = 200;
+    private static final int TICKS = 500;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2000;
+
+    private Instrumentation instrumentation;
+    private RecyclerView recyclerView;
+    private RecordingsAdapter adapter;
+    private final List<Recording> recordings = new ArrayList<>();
+
+    @Before
+    public void setUp() throws InterruptedException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = new ContextThemeWrapper(instrumentation.getTargetContext(),
+            R.style.Theme__2025audiorecorderandroidapp);
+        File directory = new File(context.getCacheDir(), "adapter-benchmark");
+        for (int i = 0; i < RECORDINGS; i++) {
+            Recording recording = new Recording(new File(directory, String.format("Recording_%03d.m4a", i)));
+            recording.setDuration(60_000L + i * 1000L);
+            recordings.add(recording);
+        }
+
+        CountDownLatch committed = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            adapter = new RecordingsAdapter(null);
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setItemAnimator(null);
+            recyclerView.setAdapter(adapter);
+            adapter.setRecordings(recordings, committed::countDown);
+        });
+        assertTrue(committed.await(10, TimeUnit.SECONDS));
+        instrumentation.runOnMainSync(this::layout);
+    }
+
+    @Test
+    public void progressTicks() {
+        Recording playing = recordings.get(3);
+        instrumentation.runOnMainSync(() -> {
+            adapter.setPlaybackState(playing, true, 0);
+            layout();
+        });
+
+        long fullBinds = adapter.getFullBindCount();
+        long partialBinds = adapter.getPartialBindCount();
+        long[] payloadNanos = new long[TICKS];
+        for (int i = 0; i < TICKS; i++) {
+            int tick = i;
+            instrumentation.runOnMainSync(() -> {
+                long start = System.nanoTime();
+                adapter.setPlaybackState(playing, true, (tick + 1) * 500);
+                layout();
+                payloadNanos[tick] = System.nanoTime() - start;
+            });
+        }
+        assertEquals(fullBinds, adapter.getFullBindCount());
+        assertEquals(partialBinds + TICKS, adapter.getPartialBindCount());
+
+        long[] legacyNanos = new long[TICKS];
+        for (int i = 0; i < TICKS; i++) {
+            int tick = i;
+            instrumentation.runOnMainSync(() -> {
+                long start = System.nanoTime();
+                adapter.notifyDataSetChanged();
+                layout();
+                legacyNanos[tick] = System.nanoTime() - start;
+            });
+        }
+        long legacyFullBinds = adapter.getFullBindCount() - fullBinds;
+
+        Log.i(TAG, "Payload update: median " + percentileMicros(payloadNanos, 50) + " us, p95 "
+            + percentileMicros(payloadNanos, 95) + " us, 0 full binds");
+        Log.i(TAG, "notifyDataSetChanged: median " + percentileMicros(legacyNanos, 50) + " us, p95 "
+            + percentileMicros(legacyNanos, 95) + " us, " + legacyFullBinds / TICKS + " full binds per tick");
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static long percentileMicros(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1000;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Logs the time to first audio of PlaybackEngine against the MediaPlayer
+ * path it replaced, which created and synchronously prepared a new player on
+ * the main thread for every play. Both are timed from the play request until
+ * the position starts advancing. Plays short AAC recordings from a scratch
+ * directory; the device's media volume doesn't matter.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlaybackEngineBenchmark {
+    private static final String TAG = "PlaybackEngineBenchmark";
+    private static final int RECORDINGS = 10;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int DURATION_MS = 3000;
+    private static final long TIMEOUT_MS = 10_000;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private File root;
+    private File[] files;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = instrumentation.getTargetContext();
+        root = new File(context.getCacheDir(), "playback-benchmark");
+        deleteRecursively(root);
+        assertTrue(root.mkdirs());
+        files = new File[RECORDINGS];
+        for (int i = 0; i < RECORDINGS; i++) {
+            files[i] = new File(root, String.format("Recording_%02d.m4a", i));
+            writeTone(files[i], 220 + i * 40);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+    @Test
+    public void timeToFirstAudio() throws Exception {
+        long mediaPlayerTotalMs = 0;
+        for (File file : files) {
+            mediaPlayerTotalMs += mediaPlayerTimeToFirstAudio(file);
+        }
+
+        Context context = instrumentation.getTargetContext();
+        PlaybackEngine[] engine = new PlaybackEngine[1];
+        instrumentation.runOnMainSync(() -> engine[0] = new PlaybackEngine(context, new PlaybackEngine.Listener() {
+            @Override
+            public void onPlaybackCompleted(Recording recording) {
+            }
+
+            @Override
+            public void onPlaybackError(Recording recording) {
+                Log.e(TAG, "Failed to play " + recording.getFileName());
+            }
+
+            @Override
+            public void onDurationResolved(Recording recording) {
+            }
+        }));
+        try {
+            for (int i = 0; i < RECORDINGS; i++) {
+                // Every other recording is queued behind the one before, the rest are loaded
+                Recording recording = new Recording(files[i]);
+                Recording next = i % 2 == 0 && i + 1 < RECORDINGS ? new Recording(files[i + 1]) : null;
+                instrumentation.runOnMainSync(() -> engine[0].play(recording, 0, next));
+                awaitPlaying(() -> {
+                    int[] position = new int[1];
+                    instrumentation.runOnMainSync(() -> position[0] = engine[0].getPosition());
+                    return position[0] > 0;
+                });
+                // Let the audio output report playout before the next request replaces it
+                SystemClock.sleep(200);
+            }
+
+            long[] averages = new long[2];
+            instrumentation.runOnMainSync(() -> {
+                averages[0] = engine[0].getAverageTimeToFirstAudioMs(false);
+                averages[1] = engine[0].getAverageTimeToFirstAudioMs(true);
+            });
+            Log.i(TAG, "Time to first audio over " + RECORDINGS + " recordings: MediaPlayer "
+                + mediaPlayerTotalMs / RECORDINGS + " ms, PlaybackEngine " + averages[0] + " ms loaded, "
+                + averages[1] + " ms queued");
+            assertTrue(averages[0] >= 0);
+            assertTrue(averages[1] >= 0);
+        } finally {
+            instrumentation.runOnMainSync(() -> engine[0].release());
+        }
+    }
+
+    /**
+     * Play a file the way the app did before PlaybackEngine
+     */
+    private long mediaPlayerTimeToFirstAudio(File file) throws Exception {
+        MediaPlayer[] player = new MediaPlayer[1];
+        long start = System.currentTimeMillis();
+        instrumentation.runOnMainSync(() -> {
+            player[0] = new MediaPlayer();
+            try {
+                player[0].setDataSource(file.getAbsolutePath());
+                player[0].prepare();
+                player[0].start();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            awaitPlaying(() -> player[0].getCurrentPosition() > 0);
+            return System.currentTimeMillis() - start;
+        } finally {
+            instrumentation.runOnMainSync(() -> player[0].release());
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void awaitPlaying(Condition playing) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (!playing.holds()) {
+            assertTrue("Playback never started", SystemClock.uptimeMillis() < deadline);
+            SystemClock.sleep(2);
+        }
+    }
+
+    private static void writeTone(File file, int frequency) throws IOException {
+        AacEncoder encoder = new AacEncoder(file, SAMPLE_RATE, 1, 64_000, new EncodeStats());
+        short[] pcm = new short[SAMPLE_RATE / 100];
+        long sample = 0;
+        for (int buffer = 0; buffer < DURATION_MS / 10; buffer++) {
+            for (int i = 0; i < pcm.length; i++, sample++) {
+                pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * frequency * sample / SAMPLE_RATE));
+            }
+            encoder.encode(pcm, 0, pcm.length);
+        }
+        encoder.finish();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.a2025audiorecorderandroidapp.audio.RecordingJournal;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans synthetic libraries of 100, 1000 and 10000 short M4A recordings and
+ * logs the time to the first batch and to completion, once with an empty
+ * index (every file is probed) and once with the index the first scan built.
+ * Uses a scratch directory and index, the app's own are not touched.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LibraryScannerBenchmark {
+    private static final String TAG = "LibraryScannerBenchmark";
+    private static final int[] LIBRARY_SIZES = { 100, 1000, 10000 };
+
+    private File root;
+    private byte[] template;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        root = new File(context.getCacheDir(), "scan-benchmark");
+        deleteRecursively(root);
+        assertTrue(root.mkdirs());
+        template = buildTemplate(new File(root, "template.m4a"));
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+    @Test
+    public void scanLibraries() throws Exception {
+        for (int size : LIBRARY_SIZES) {
+            File directory = new File(root, "library-" + size);
+            populate(directory, size);
+            RecordingIndex index = new RecordingIndex(new File(root, "index-" + size));
+            LibraryScanner scanner = new LibraryScanner(index);
+            try {
+                LibraryScanner.Scan cold = scanAndWait(scanner, directory, size);
+                LibraryScanner.Scan warm = scanAndWait(scanner, directory, size);
+                Log.i(TAG, size + " recordings: cold first batch " + cold.getTimeToFirstBatchMs()
+                    + " ms, complete " + cold.getTimeToCompleteMs() + " ms; warm first batch "
+                    + warm.getTimeToFirstBatchMs() + " ms, complete " + warm.getTimeToCompleteMs() + " ms");
+            } finally {
+                scanner.shutdown();
+            }
+        }
+    }
+
+    private static LibraryScanner.Scan scanAndWait(LibraryScanner scanner, File directory, int expected)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        int[] received = new int[1];
+        int[] total = new int[1];
+        LibraryScanner.Scan scan = scanner.scan(directory, new LibraryScanner.Listener() {
+            @Override
+            public void onBatch(List<Recording> batch, int offset) {
+                assertEquals(received[0], offset);
+                received[0] += batch.size();
+            }
+
+            @Override
+            public void onComplete(int count) {
+                total[0] = count;
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        assertEquals(expected, total[0]);
+        assertEquals(expected, received[0]);
+        return scan;
+    }
+
+    private void populate(File directory, int count) throws IOException {
+        assertTrue(directory.mkdirs());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            File file = new File(directory, String.format("Recording_%05d.m4a", i));
+            Files.write(file.toPath(), template);
+            file.setLastModified(now - i * 60_000L);
+        }
+    }
+
+    /**
+     * A complete M4A of 100 AAC frames, made the way recovery makes one:
+     * ftyp, the samples, and a moov rebuilt from a journal
+     */
+    private static byte[] buildTemplate(File file) throws IOException {
+        int frames = 100;
+        int frameSize = 200;
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            ByteBuffer header = ByteBuffer.allocate(32);
+            header.putInt(24).put(type("ftyp")).put(type("M4A ")).putInt(0).put(type("isom")).put(type("M4A "));
+            header.putInt(0).put(type("mdat"));
+            out.write(header.array());
+            out.write(new byte[frames * frameSize]);
+        }
+        File journalFile = new File(file.getPath() + ".journal");
+        RecordingJournal journal = new RecordingJournal(journalFile, 44100, 1, 64_000,
+            RecordingJournal.AAC_SAMPLES_PER_FRAME);
+        journal.writeCodecConfig(new byte[] { 0x12, 0x08 });
+        for (int i = 0; i < frames; i++) {
+            journal.addSample(frameSize);
+        }
+        journal.close();
+        Mp4Rebuilder.rebuild(file, RecordingJournal.read(journalFile));
+        journal.delete();
+        return Files.readAllBytes(file.toPath());
+    }
+
+    private static byte[] type(String type) {
+        return type.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -4,15 +4,15 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
-import android.media.AudioManager;
-import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.StatFs;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageButton;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.EditText;
@@ -26,10 +26,19 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
 import androidx.core.content.FileProvider;
+import androidx.preference.PreferenceManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.a2025audiorecorderandroidapp.adapter.RecordingsAdapter;
+import com.example.a2025audiorecorderandroidapp.audio.PlaybackEngine;
+import com.example.a2025audiorecorderandroidapp.library.LibraryScanner;
+import com.example.a2025audiorecorderandroidapp.library.LibraryWatcher;
+import com.example.a2025audiorecorderandroidapp.library.PeakBackfillJob;
+import com.example.a2025audiorecorderandroidapp.library.RecompressionJob;
+import com.example.a2025audiorecorderandroidapp.library.RecordingIndex;
+import com.example.a2025audiorecorderandroidapp.library.RecordingSearch;
+import com.example.a2025audiorecorderandroidapp.library.RecordingSorter;
 import com.example.a2025audiorecorderandroidapp.model.Recording;
 import com.example.a2025audiorecorderandroidapp.service.RecordingService;
 import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
@@ -38,19 +47,30 @@ import com.example.a2025audiorecorderandroidapp.utils.PermissionUtils;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity implements RecordingService.RecordingListener {
+    private static final String TAG = "MainActivity";
 
     private FloatingActionButton btnRecord, btnPause, btnStop, btnCancel;
     private TextView recordingStatus, recordingTimer, emptyMessage;
+    private ProgressBar levelMeter;
     private RecyclerView recordingsList;
     private RecordingsAdapter adapter;
     private List<Recording> allRecordings = new ArrayList<>();
+    private RecordingIndex recordingIndex;
+    private LibraryScanner libraryScanner;
+    private LibraryScanner.Scan currentScan;
+    private LibraryWatcher libraryWatcher;
+    private RecordingSearch recordingSearch;
+    private String currentQuery = "";
+    private RecordingSorter recordingSorter;
+    private int libraryVersion = 0; // changes whenever allRecordings does
+    private PeakBackfillJob peakBackfillJob;
+    private RecompressionJob recompressionJob;
+    private Intent pendingIntent;
     private String currentRecordingPath;
 
     private RecordingService recordingService;
@@ -59,7 +79,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     private Handler timerHandler = new Handler();
     private Runnable timerRunnable;
 
-    private MediaPlayer mediaPlayer;
+    private PlaybackEngine playbackEngine;
     private Recording currentPlayingRecording;
     private Runnable playbackUpdateRunnable;
 
@@ -87,6 +107,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
             recordingService = binder.getService();
             recordingService.setRecordingListener(MainActivity.this);
             serviceBound = true;
+            completeFinalisedRows();
             updateUI();
         }
 
@@ -107,6 +128,46 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
             getSupportActionBar().setTitle("Audio Recorder");
         }
 
+        recordingIndex = RecordingIndex.getInstance(this);
+        libraryScanner = new LibraryScanner(recordingIndex);
+        recordingSearch = new RecordingSearch();
+        recordingSorter = new RecordingSorter(this);
+        libraryWatcher = new LibraryWatcher(FileUtils.getRecordingsDirectory(this), recordingIndex,
+            new LibraryWatcher.Listener() {
+                @Override
+                public void onChanges(List<String> removedPaths, List<Recording> updated) {
+                    applyLibraryChanges(removedPaths, updated);
+                }
+
+                @Override
+                public void onOverflow() {
+                    libraryWatcher.reconcile(allRecordings);
+                }
+            });
+        libraryWatcher.start();
+        playbackEngine = new PlaybackEngine(this, new PlaybackEngine.Listener() {
+            @Override
+            public void onPlaybackCompleted(Recording recording) {
+                stopPlaybackUpdates();
+                adapter.setPlaybackState(null, false, 0);
+                currentPlayingRecording = null;
+            }
+
+            @Override
+            public void onPlaybackError(Recording recording) {
+                stopPlaybackUpdates();
+                adapter.setPlaybackState(null, false, 0);
+                currentPlayingRecording = null;
+                Toast.makeText(MainActivity.this, "Error playing recording", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onDurationResolved(Recording recording) {
+                // The list shows snapshots, resubmit it so the row picks up the duration
+                adapter.refresh();
+            }
+        });
+
         initViews();
         setupRecyclerView();
         setupClickListeners();
@@ -122,6 +183,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
         btnCancel = findViewById(R.id.btnCancel);
         recordingStatus = findViewById(R.id.recordingStatus);
         recordingTimer = findViewById(R.id.recordingTimer);
+        levelMeter = findViewById(R.id.levelMeter);
         recordingsList = findViewById(R.id.recordingsList);
         emptyMessage = findViewById(R.id.emptyMessage);
     }
@@ -142,6 +204,14 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
             public void onSeek(Recording recording, int position) {
                 seekToPosition(recording, position);
             }
+
+            @Override
+            public void onSeekPreview(Recording recording, int position) {
+                // Scrub through the loaded recording, others only start once released
+                if (currentPlayingRecording != null && currentPlayingRecording.isSameFile(recording)) {
+                    playbackEngine.seekTo(position);
+                }
+            }
         });
 
         recordingsList.setLayoutManager(new LinearLayoutManager(this));
@@ -245,6 +315,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
             btnPause.setVisibility(isRecording ? View.VISIBLE : View.GONE);
             btnStop.setVisibility(isRecording ? View.VISIBLE : View.GONE);
             btnCancel.setVisibility(isRecording ? View.VISIBLE : View.GONE);
+            levelMeter.setVisibility(isRecording && !isPaused ? View.VISIBLE : View.GONE);
 
             if (isRecording) {
                 if (isPaused) {
@@ -266,6 +337,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
             btnPause.setVisibility(View.GONE);
             btnStop.setVisibility(View.GONE);
             btnCancel.setVisibility(View.GONE);
+            levelMeter.setVisibility(View.GONE);
             recordingStatus.setText("Ready to Record");
             recordingTimer.setText("00:00");
             stopTimer();
@@ -295,48 +367,189 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void loadRecordings() {
+        if (currentScan != null) {
+            currentScan.cancel();
+        }
+        // Changes seen during the scan are applied once it is complete
+        libraryWatcher.pause();
+
         File recordingsDir = FileUtils.getRecordingsDirectory(this);
-        File[] files = recordingsDir.listFiles((dir, name) ->
-            name.toLowerCase().endsWith(FileUtils.AUDIO_FILE_EXTENSION));
-
-        allRecordings.clear();
-        if (files != null) {
-            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
-            for (File file : files) {
-                Recording recording = new Recording(file);
-                // Load duration for progress bar display
-                try {
-                    MediaPlayer mp = new MediaPlayer();
-                    mp.setDataSource(file.getAbsolutePath());
-                    mp.setAudioStreamType(AudioManager.STREAM_MUSIC);
-                    mp.prepare();
-                    recording.setDuration(mp.getDuration());
-                    mp.release();
-                } catch (IOException e) {
-                    // If we can't get duration, use 0
-                    recording.setDuration(0);
+        currentScan = libraryScanner.scan(recordingsDir,
+            new LibraryScanner.Listener() {
+                @Override
+                public void onBatch(List<Recording> batch, int offset) {
+                    // Keep the previous list on screen until the first batch arrives
+                    if (offset == 0) {
+                        allRecordings.clear();
+                    }
+                    allRecordings.addAll(batch);
+                    libraryVersion++;
+                    refreshRecordings(null);
                 }
-                allRecordings.add(recording);
-            }
+
+                @Override
+                public void onComplete(int total) {
+                    if (total == 0) {
+                        allRecordings.clear();
+                        libraryVersion++;
+                        refreshRecordings(null);
+                    } else if (!recordingSorter.isScanOrder()) {
+                        // The scan lists newest first, sort once for any other order
+                        sortLibrary(false);
+                    }
+                    if (currentScan.getRecoveredCount() > 0) {
+                        Toast.makeText(MainActivity.this, "Recovered " + currentScan.getRecoveredCount()
+                            + " interrupted recording(s)", Toast.LENGTH_LONG).show();
+                    }
+                    if (pendingIntent != null) {
+                        Intent intent = pendingIntent;
+                        pendingIntent = null;
+                        handleIntent(intent);
+                    }
+                    libraryWatcher.resume();
+                    startPeakBackfill();
+                    startRecompression();
+                }
+            });
+    }
+
+    private void startPeakBackfill() {
+        if (peakBackfillJob != null) {
+            peakBackfillJob.cancel();
+        }
+        List<File> files = new ArrayList<>(allRecordings.size());
+        for (Recording recording : allRecordings) {
+            files.add(new File(recording.getFilePath()));
         }
+        peakBackfillJob = new PeakBackfillJob(files);
+        peakBackfillJob.start();
+    }
 
-        // Ensure recordings are sorted by timestamp (newest first)
-        allRecordings.sort((r1, r2) -> Long.compare(r2.getTimestamp(), r1.getTimestamp()));
+    /**
+     * Re-encode recordings older than the archive age setting into less space.
+     * Replaced files reach the list through the library watcher.
+     */
+    private void startRecompression() {
+        if (recompressionJob != null) {
+            recompressionJob.cancel();
+            recompressionJob = null;
+        }
+        int archiveAgeDays = SettingsActivity.getArchiveAgeDays(PreferenceManager.getDefaultSharedPreferences(this));
+        if (archiveAgeDays <= 0 || (recordingService != null && recordingService.isRecording())) {
+            return;
+        }
+        List<File> files = new ArrayList<>(allRecordings.size());
+        for (Recording recording : allRecordings) {
+            files.add(new File(recording.getFilePath()));
+        }
+        recompressionJob = new RecompressionJob(this, files, archiveAgeDays * 24L * 60 * 60 * 1000, result -> {
+            if (result.recompressed > 0) {
+                Toast.makeText(this, "Compressed " + result.recompressed + " old recording(s), freed "
+                    + FileUtils.formatFileSize(result.getBytesReclaimed()), Toast.LENGTH_LONG).show();
+            }
+        });
+        recompressionJob.start();
+    }
 
-        filterRecordings("");
-        updateEmptyState();
+    /**
+     * Show allRecordings again after it changed, filtered by the current query.
+     */
+    private void refreshRecordings(Runnable onCommitted) {
+        recordingSearch.setRecordings(allRecordings);
+        recordingSearch.search(currentQuery, results -> showRecordings(results, onCommitted));
     }
 
+    /**
+     * Apply changes to single files in place instead of rescanning the library.
+     * @param removedPaths Paths of recordings to remove
+     * @param updated Recordings to add, or to replace the ones of the same
+     *                file unless size and date are unchanged
+     */
+    private void applyLibraryChanges(List<String> removedPaths, List<Recording> updated) {
+        boolean changed = false;
+        for (String path : removedPaths) {
+            Recording recording = findRecordingByPath(path);
+            if (recording != null) {
+                allRecordings.remove(recording);
+                changed = true;
+            }
+        }
+        for (Recording recording : updated) {
+            int position = indexOfFile(recording);
+            if (position >= 0) {
+                Recording current = allRecordings.get(position);
+                if (current.getFileSize() == recording.getFileSize()
+                        && current.getTimestamp() == recording.getTimestamp()) {
+                    continue;
+                }
+                allRecordings.remove(position);
+            }
+            allRecordings.add(scanOrderPosition(recording.getTimestamp()), recording);
+            changed = true;
+        }
+        if (!changed) {
+            return;
+        }
 
+        libraryVersion++;
+        if (recordingSorter.isScanOrder()) {
+            refreshRecordings(null);
+        } else {
+            sortLibrary(false);
+        }
+    }
 
-    private void filterRecordings(String query) {
-        List<Recording> filteredRecordings = new ArrayList<>();
-        for (Recording recording : allRecordings) {
-            if (recording.getFileName().toLowerCase().contains(query.toLowerCase())) {
-                filteredRecordings.add(recording);
+    private int indexOfFile(Recording recording) {
+        for (int i = 0; i < allRecordings.size(); i++) {
+            if (allRecordings.get(i).isSameFile(recording)) {
+                return i;
             }
         }
-        adapter.setRecordings(filteredRecordings);
+        return -1;
+    }
+
+    /**
+     * @return Where a recording goes in the newest first order of a scan,
+     *         meaningful while the library is in that order
+     */
+    private int scanOrderPosition(long timestamp) {
+        int low = 0;
+        int high = allRecordings.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (allRecordings.get(middle).getTimestamp() > timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void filterRecordings(String query) {
+        currentQuery = query;
+        recordingSearch.search(query, results -> showRecordings(results, null));
+    }
+
+    /**
+     * Filter as the user types, once typing pauses.
+     */
+    private void filterRecordingsDebounced(String query) {
+        currentQuery = query;
+        recordingSearch.searchDebounced(query, results -> showRecordings(results, null));
+    }
+
+    /**
+     * Show a list of recordings. The list is diffed in the background, the
+     * empty state and onCommitted follow once it is shown.
+     */
+    private void showRecordings(List<Recording> recordings, Runnable onCommitted) {
+        adapter.setRecordings(recordings, () -> {
+            updateEmptyState();
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+        });
     }
 
     private void updateEmptyState() {
@@ -348,27 +561,23 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     private void handlePlayPauseClick(Recording recording) {
         // If this recording is currently playing, pause it
         if (currentPlayingRecording != null && 
-            currentPlayingRecording.getFilePath().equals(recording.getFilePath()) && 
-            mediaPlayer != null && mediaPlayer.isPlaying()) {
+            currentPlayingRecording.isSameFile(recording) && 
+            playbackEngine.isPlaying()) {
             
-            mediaPlayer.pause();
-            // Update current position before pausing
-            currentPlayingRecording.setCurrentPosition(mediaPlayer.getCurrentPosition());
-            currentPlayingRecording.setIsPlaying(false);
+            playbackEngine.pause();
             stopPlaybackUpdates();
-            adapter.notifyDataSetChanged();
+            adapter.setPlaybackState(currentPlayingRecording, false, playbackEngine.getPosition());
             return;
         }
         
         // If this recording is paused, resume it
         if (currentPlayingRecording != null && 
-            currentPlayingRecording.getFilePath().equals(recording.getFilePath()) && 
-            mediaPlayer != null && !mediaPlayer.isPlaying()) {
+            currentPlayingRecording.isSameFile(recording) && 
+            !playbackEngine.isPlaying()) {
             
-            mediaPlayer.start();
-            currentPlayingRecording.setIsPlaying(true);
+            playbackEngine.resume();
             startPlaybackUpdates();
-            adapter.notifyDataSetChanged();
+            adapter.setPlaybackState(currentPlayingRecording, true, playbackEngine.getPosition());
             return;
         }
         
@@ -377,80 +586,16 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void startPlayingRecording(Recording recording) {
-        try {
-            // Reset position of any previously playing recording
-            if (currentPlayingRecording != null && 
-                !currentPlayingRecording.getFilePath().equals(recording.getFilePath())) {
-                currentPlayingRecording.setIsPlaying(false);
-                currentPlayingRecording.setCurrentPosition(0);
-            }
-            
-            // Stop any existing playback
-            if (mediaPlayer != null) {
-                mediaPlayer.release();
-                stopPlaybackUpdates();
-            }
-
-            mediaPlayer = new MediaPlayer();
-            mediaPlayer.setDataSource(recording.getFilePath());
-            
-            // Set audio attributes for optimal playback volume
-            mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
-            mediaPlayer.setVolume(1.0f, 1.0f); // Set volume to maximum
-            
-            mediaPlayer.prepare();
-            
-            // Set the total duration in the recording object if not already set
-            if (recording.getDuration() == 0) {
-                recording.setDuration(mediaPlayer.getDuration());
-            }
-            
-            // If this recording has a saved position, seek to it
-            if (recording.getCurrentPosition() > 0) {
-                mediaPlayer.seekTo(recording.getCurrentPosition());
-            }
-            
-            mediaPlayer.start();
-            
-            currentPlayingRecording = recording;
-            currentPlayingRecording.setIsPlaying(true);
-            startPlaybackUpdates();
-
-            Toast.makeText(this, "Playing: " + recording.getFileName(), Toast.LENGTH_SHORT).show();
-
-            mediaPlayer.setOnCompletionListener(mp -> {
-                mp.release();
-                mediaPlayer = null;
-                if (currentPlayingRecording != null) {
-                    currentPlayingRecording.setIsPlaying(false);
-                    currentPlayingRecording.setCurrentPosition(0);
-                }
-                currentPlayingRecording = null;
-                stopPlaybackUpdates();
-                adapter.notifyDataSetChanged();
-            });
-
-            adapter.notifyDataSetChanged();
-
-        } catch (IOException e) {
-            Toast.makeText(this, "Error playing recording", Toast.LENGTH_SHORT).show();
-        }
+        startPlayingRecordingAtPosition(recording, 0);
     }
 
     private void seekToPosition(Recording recording, int position) {
-        // Only allow seeking if this recording is currently loaded in the MediaPlayer
+        // Only seek within the recording that is currently loaded
         if (currentPlayingRecording != null && 
-            currentPlayingRecording.getFilePath().equals(recording.getFilePath()) && 
-            mediaPlayer != null) {
-            
-            try {
-                mediaPlayer.seekTo(position);
-                recording.setCurrentPosition(position);
-                adapter.notifyDataSetChanged();
-            } catch (IllegalStateException e) {
-                // MediaPlayer might not be in a valid state for seeking
-                Toast.makeText(this, "Cannot seek at this time", Toast.LENGTH_SHORT).show();
-            }
+            currentPlayingRecording.isSameFile(recording)) {
+
+            playbackEngine.seekTo(position);
+            adapter.setPlaybackState(recording, playbackEngine.isPlaying(), position);
         } else {
             // If the recording is not currently playing, start playing from the seek position
             startPlayingRecordingAtPosition(recording, position);
@@ -458,70 +603,25 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void startPlayingRecordingAtPosition(Recording recording, int position) {
-        try {
-            // Stop any existing playback
-            if (mediaPlayer != null) {
-                mediaPlayer.release();
-                stopPlaybackUpdates();
-            }
-
-            mediaPlayer = new MediaPlayer();
-            mediaPlayer.setDataSource(recording.getFilePath());
-            
-            // Set audio attributes for optimal playback volume
-            mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
-            mediaPlayer.setVolume(1.0f, 1.0f); // Set volume to maximum
-            
-            mediaPlayer.prepare();
-            
-            // Set the total duration in the recording object if not already set
-            if (recording.getDuration() == 0) {
-                recording.setDuration(mediaPlayer.getDuration());
-            }
-            
-            // Seek to the desired position before starting
-            mediaPlayer.seekTo(position);
-            mediaPlayer.start();
-            
-            currentPlayingRecording = recording;
-            currentPlayingRecording.setIsPlaying(true);
-            currentPlayingRecording.setCurrentPosition(position);
-            startPlaybackUpdates();
-
-            Toast.makeText(this, "Playing: " + recording.getFileName(), Toast.LENGTH_SHORT).show();
-
-            mediaPlayer.setOnCompletionListener(mp -> {
-                mp.release();
-                mediaPlayer = null;
-                if (currentPlayingRecording != null) {
-                    currentPlayingRecording.setIsPlaying(false);
-                    currentPlayingRecording.setCurrentPosition(0);
-                }
-                currentPlayingRecording = null;
-                stopPlaybackUpdates();
-                adapter.notifyDataSetChanged();
-            });
+        stopPlaybackUpdates();
+        // Prepares in the background, buffering the recording below this one as well
+        playbackEngine.play(recording, position, adapter.getRecordingAfter(recording));
+        currentPlayingRecording = recording;
+        startPlaybackUpdates();
 
-            adapter.notifyDataSetChanged();
+        Toast.makeText(this, "Playing: " + recording.getFileName(), Toast.LENGTH_SHORT).show();
 
-        } catch (IOException e) {
-            Toast.makeText(this, "Error playing recording", Toast.LENGTH_SHORT).show();
-        }
+        // Moves the overlay off any previously playing row
+        adapter.setPlaybackState(recording, true, position);
     }
 
     private void startPlaybackUpdates() {
         playbackUpdateRunnable = new Runnable() {
             @Override
             public void run() {
-                if (mediaPlayer != null && mediaPlayer.isPlaying() && currentPlayingRecording != null) {
-                    int currentPosition = mediaPlayer.getCurrentPosition();
-                    int duration = mediaPlayer.getDuration();
-                    
-                    // Update the recording object with current playback position
-                    currentPlayingRecording.setCurrentPosition(currentPosition);
-                    currentPlayingRecording.setIsPlaying(true);
-                    
-                    adapter.notifyDataSetChanged();
+                if (playbackEngine.isPlaying() && currentPlayingRecording != null) {
+                    // Only the playing row's position and seek bar change
+                    adapter.setPlaybackState(currentPlayingRecording, true, playbackEngine.getPosition());
                     timerHandler.postDelayed(this, 500);
                 }
             }
@@ -533,6 +633,9 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
         if (playbackUpdateRunnable != null) {
             timerHandler.removeCallbacks(playbackUpdateRunnable);
             playbackUpdateRunnable = null;
+            Log.d(TAG, "Adapter binds so far: " + adapter.getFullBindCount() + " full, "
+                + adapter.getPartialBindCount() + " partial; seeks " + playbackEngine.getIssuedSeekCount()
+                + " issued, " + playbackEngine.getDroppedSeekCount() + " coalesced");
         }
         // Don't reset position here - only set playing state to false
         // Position should only be reset when playback completes or a new recording starts
@@ -565,8 +668,10 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void deleteRecording(Recording recording) {
-        if (FileUtils.deleteRecording(recording.getFilePath())) {
-            loadRecordings();
+        String filePath = recording.getFilePath();
+        if (FileUtils.deleteRecording(filePath)) {
+            recordingIndex.remove(recording.getFileName());
+            applyLibraryChanges(Collections.singletonList(filePath), Collections.emptyList());
             Toast.makeText(this, "Recording deleted", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(this, "Error deleting recording", Toast.LENGTH_SHORT).show();
@@ -616,8 +721,16 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void renameRecording(Recording recording, String newName) {
-        if (FileUtils.renameRecording(recording.getFilePath(), newName)) {
-            loadRecordings();
+        String filePath = recording.getFilePath();
+        if (FileUtils.renameRecording(filePath, newName)) {
+            newName = FileUtils.getRenamedFileName(filePath, newName);
+            recordingIndex.rename(recording.getFileName(), newName);
+            // Size and date don't change, neither does the metadata
+            Recording renamed = new Recording(new File(new File(filePath).getParentFile(), newName));
+            renamed.setDuration(recording.getDuration());
+            renamed.setSampleRate(recording.getSampleRate());
+            renamed.setChannelCount(recording.getChannelCount());
+            applyLibraryChanges(Collections.singletonList(filePath), Collections.singletonList(renamed));
             Toast.makeText(this, getString(R.string.recording_renamed), Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(this, getString(R.string.error_renaming), Toast.LENGTH_SHORT).show();
@@ -627,6 +740,10 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     @Override
     protected void onStart() {
         super.onStart();
+        // Resume a scan that was cancelled when the activity stopped
+        if (currentScan != null && currentScan.isCancelled()) {
+            loadRecordings();
+        }
         Intent serviceIntent = new Intent(this, RecordingService.class);
         bindService(serviceIntent, serviceConnection, Context.BIND_AUTO_CREATE);
     }
@@ -634,7 +751,12 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     @Override
     protected void onStop() {
         super.onStop();
+        if (currentScan != null && !currentScan.isComplete()) {
+            currentScan.cancel();
+        }
         if (serviceBound) {
+            // Nothing is shown, so the service stops publishing levels
+            recordingService.setRecordingListener(null);
             unbindService(serviceConnection);
             serviceBound = false;
         }
@@ -653,6 +775,11 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
 
             if (filePath != null) {
                 Recording recording = findRecordingByPath(filePath);
+                if (recording == null && currentScan != null && !currentScan.isComplete()) {
+                    // The library is still loading, handle the intent once it's done
+                    pendingIntent = intent;
+                    return;
+                }
                 if (recording != null) {
                     switch (action) {
                         case "PLAY_RECORDING":
@@ -671,8 +798,8 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private Recording findRecordingByPath(String filePath) {
-        for (Recording recording : adapter.getRecordings()) {
-            if (recording.getFilePath().equals(filePath)) {
+        for (Recording recording : allRecordings) {
+            if (recording.hasPath(filePath)) {
                 return recording;
             }
         }
@@ -697,7 +824,7 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                filterRecordings(newText);
+                filterRecordingsDebounced(newText);
                 return true;
             }
         });
@@ -745,7 +872,8 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
 
         new AlertDialog.Builder(this)
             .setTitle("Sort Recordings By")
-            .setItems(sortOptions, (dialog, which) -> {
+            .setSingleChoiceItems(sortOptions, recordingSorter.getOrder(), (dialog, which) -> {
+                dialog.dismiss();
                 sortRecordings(which);
             })
             .setNegativeButton("Cancel", null)
@@ -753,41 +881,29 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     }
 
     private void sortRecordings(int sortOption) {
-        Comparator<Recording> comparator;
-
-        switch (sortOption) {
-            case 0: // Date (Newest First)
-                comparator = Comparator.comparingLong(Recording::getTimestamp).reversed();
-                break;
-            case 1: // Date (Oldest First)
-                comparator = Comparator.comparingLong(Recording::getTimestamp);
-                break;
-            case 2: // Name (A-Z)
-                comparator = Comparator.comparing(Recording::getFileName);
-                break;
-            case 3: // Name (Z-A)
-                comparator = Comparator.comparing(Recording::getFileName).reversed();
-                break;
-            case 4: // Size (Largest First)
-                comparator = Comparator.comparingLong(Recording::getFileSize).reversed();
-                break;
-            case 5: // Size (Smallest First)
-                comparator = Comparator.comparingLong(Recording::getFileSize);
-                break;
-            case 6: // Duration (Longest First)
-                comparator = Comparator.comparingLong(Recording::getDuration).reversed();
-                break;
-            case 7: // Duration (Shortest First)
-                comparator = Comparator.comparingLong(Recording::getDuration);
-                break;
-            default:
-                comparator = Comparator.comparingLong(Recording::getTimestamp).reversed();
-                break;
-        }
-
-        allRecordings.sort(comparator);
-        adapter.setRecordings(new ArrayList<>(allRecordings));
-        Toast.makeText(this, "Recordings sorted", Toast.LENGTH_SHORT).show();
+        recordingSorter.setOrder(sortOption);
+        sortLibrary(true);
+    }
+
+    /**
+     * Sort allRecordings in the background in the chosen order. The result
+     * is dropped if the library changed in the meantime.
+     */
+    private void sortLibrary(boolean announce) {
+        int version = libraryVersion;
+        recordingSorter.sort(allRecordings, sorted -> {
+            if (version != libraryVersion) {
+                return;
+            }
+            allRecordings.clear();
+            allRecordings.addAll(sorted);
+            libraryVersion++;
+            recordingSearch.setRecordings(allRecordings);
+            recordingSearch.search(currentQuery, results -> adapter.replaceRecordings(results, this::updateEmptyState));
+            if (announce) {
+                Toast.makeText(this, "Recordings sorted", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void showAboutDialog() {
@@ -801,36 +917,47 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        libraryScanner.shutdown();
+        libraryWatcher.stop();
+        recordingSearch.shutdown();
+        recordingSorter.shutdown();
+        if (peakBackfillJob != null) {
+            peakBackfillJob.cancel();
+        }
+        if (recompressionJob != null) {
+            recompressionJob.cancel();
+        }
         stopTimer();
         stopPlaybackUpdates();
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
+        playbackEngine.release();
     }
 
     // RecordingService.RecordingListener implementation
     @Override
     public void onRecordingStarted(String filePath) {
         currentRecordingPath = filePath;
-        runOnUiThread(this::updateUI);
+        runOnUiThread(() -> {
+            // Leave the cores to the capture, the next library load starts it again
+            if (recompressionJob != null) {
+                recompressionJob.cancel();
+                recompressionJob = null;
+            }
+            updateUI();
+        });
     }
 
     @Override
-    public void onRecordingStopped(String filePath, long duration) {
+    public void onRecordingStopped(String filePath, long duration, boolean finalising) {
         runOnUiThread(() -> {
             updateUI();
             if (!isCancelling) {
-                // Add the new recording directly to the list instead of reloading all
                 File recordingFile = new File(filePath);
-                if (recordingFile.exists()) {
-                    Recording newRecording = new Recording(recordingFile);
-                    newRecording.setDuration(duration);
-                    allRecordings.add(0, newRecording); // Add at the beginning (newest first)
-                    filterRecordings("");
-                    updateEmptyState();
-                    // Scroll to top to show the latest recording
-                    recordingsList.scrollToPosition(0);
+                if (finalising) {
+                    // Listed right away, the row shows it is being saved until the file is complete
+                    adapter.setFinalising(filePath, true);
+                    showStoppedRecording(recordingFile, duration);
+                } else if (recordingFile.exists()) {
+                    showStoppedRecording(recordingFile, duration);
                     Toast.makeText(this, "Recording saved", Toast.LENGTH_SHORT).show();
                 } else {
                     // Fallback: reload all recordings if file doesn't exist yet
@@ -847,6 +974,73 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
         currentRecordingPath = null;
     }
 
+    @Override
+    public void onRecordingFinalised(String filePath, long duration, boolean saved) {
+        runOnUiThread(() -> {
+            adapter.setFinalising(filePath, false);
+            File recordingFile = new File(filePath);
+            if (recordingFile.exists()) {
+                // Picks up the size and date of the complete file
+                showStoppedRecording(recordingFile, duration);
+                if (saved) {
+                    Toast.makeText(this, "Recording saved", Toast.LENGTH_SHORT).show();
+                }
+            } else {
+                applyLibraryChanges(Collections.singletonList(filePath), Collections.emptyList());
+            }
+        });
+    }
+
+    /**
+     * Finish the rows of recordings that completed while no listener was set
+     */
+    private void completeFinalisedRows() {
+        if (adapter == null) {
+            return;
+        }
+        for (String filePath : adapter.getFinalisingPaths()) {
+            if (!recordingService.isFinalising(filePath)) {
+                RecordingIndex.Entry entry = recordingIndex.get(new File(filePath));
+                onRecordingFinalised(filePath, entry != null ? entry.duration : 0, entry != null);
+            }
+        }
+    }
+
+    /**
+     * Add a recording that just stopped directly to the list instead of
+     * reloading all, or replace its row if it is listed already
+     */
+    private void showStoppedRecording(File recordingFile, long duration) {
+        Recording newRecording = new Recording(recordingFile);
+        newRecording.setDuration(duration);
+        RecordingIndex.Entry entry = recordingIndex.get(recordingFile);
+        if (entry != null) {
+            newRecording.setSampleRate(entry.sampleRate);
+            newRecording.setChannelCount(entry.channelCount);
+        }
+        // Listed while finalising, or by the watcher
+        int existing = indexOfFile(newRecording);
+        if (existing >= 0) {
+            allRecordings.set(existing, newRecording);
+            libraryVersion++;
+            if (recordingSorter.isScanOrder()) {
+                refreshRecordings(null);
+            } else {
+                sortLibrary(false);
+            }
+            return;
+        }
+        allRecordings.add(0, newRecording); // Add at the beginning (newest first)
+        libraryVersion++;
+        if (recordingSorter.isScanOrder()) {
+            // Scroll to top to show the latest recording once it is in the list
+            refreshRecordings(() -> recordingsList.scrollToPosition(0));
+        } else {
+            // Move it to its place in the chosen order
+            sortLibrary(false);
+        }
+    }
+
     @Override
     public void onRecordingPaused() {
         runOnUiThread(this::updateUI);
@@ -857,6 +1051,13 @@ public class MainActivity extends AppCompatActivity implements RecordingService.
         runOnUiThread(this::updateUI);
     }
 
+    @Override
+    public void onLevelChanged(float peak, float rms) {
+        // Already on the main thread, rate-limited by the service
+        levelMeter.setProgress((int) (rms * levelMeter.getMax()));
+        levelMeter.setSecondaryProgress((int) (peak * levelMeter.getMax()));
+    }
+
     @Override
     public void onRecordingError(String error) {
         runOnUiThread(() -> {
@@ -21,7 +21,15 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.preference.PreferenceManager;
 
+import com.example.a2025audiorecorderandroidapp.audio.RecordingProfile;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.util.List;
+import java.util.Locale;
+
 public class SettingsActivity extends AppCompatActivity {
+    // Indexes of R.array.archive_age_options
+    private static final int[] ARCHIVE_AGE_DAYS = { 0, 30, 90, 180, 365 };
 
     private SwitchCompat switchNotificationsEnabled;
     private LinearLayout layoutNotificationSound;
@@ -32,6 +40,8 @@ public class SettingsActivity extends AppCompatActivity {
     private CheckBox checkBoxShowShareAction;
     private CheckBox checkBoxShowDeleteAction;
     private CheckBox checkBoxShowOpenAppAction;
+    private LinearLayout layoutRecordingPreset;
+    private TextView textViewCurrentRecordingPreset;
     private LinearLayout layoutAudioFormat;
     private TextView textViewCurrentAudioFormat;
     private LinearLayout layoutRecordingsFolder;
@@ -46,10 +56,14 @@ public class SettingsActivity extends AppCompatActivity {
     private TextView textViewCurrentAudioChannels;
     private LinearLayout layoutFilenameFormat;
     private TextView textViewCurrentFilenameFormat;
+    private LinearLayout layoutArchiveAge;
+    private TextView textViewCurrentArchiveAge;
     private SwitchCompat switchVoiceFilter;
     private LinearLayout layoutRecordingVolume;
     private TextView textViewCurrentRecordingVolume;
     private SwitchCompat switchSkipSilence;
+    private LinearLayout layoutSilenceSensitivity;
+    private TextView textViewCurrentSilenceSensitivity;
     private SwitchCompat switchEncodingOnTheFly;
     private SwitchCompat switchPauseDuringCall;
     private SwitchCompat switchSilentMode;
@@ -103,6 +117,8 @@ public class SettingsActivity extends AppCompatActivity {
         checkBoxShowShareAction = findViewById(R.id.checkBoxShowShareAction);
         checkBoxShowDeleteAction = findViewById(R.id.checkBoxShowDeleteAction);
         checkBoxShowOpenAppAction = findViewById(R.id.checkBoxShowOpenAppAction);
+        layoutRecordingPreset = findViewById(R.id.layoutRecordingPreset);
+        textViewCurrentRecordingPreset = findViewById(R.id.textViewCurrentRecordingPreset);
         layoutAudioFormat = findViewById(R.id.layoutAudioFormat);
         textViewCurrentAudioFormat = findViewById(R.id.textViewCurrentAudioFormat);
         layoutRecordingsFolder = findViewById(R.id.layoutRecordingsFolder);
@@ -117,10 +133,14 @@ public class SettingsActivity extends AppCompatActivity {
         textViewCurrentAudioChannels = findViewById(R.id.textViewCurrentAudioChannels);
         layoutFilenameFormat = findViewById(R.id.layoutFilenameFormat);
         textViewCurrentFilenameFormat = findViewById(R.id.textViewCurrentFilenameFormat);
+        layoutArchiveAge = findViewById(R.id.layoutArchiveAge);
+        textViewCurrentArchiveAge = findViewById(R.id.textViewCurrentArchiveAge);
         switchVoiceFilter = findViewById(R.id.switchVoiceFilter);
         layoutRecordingVolume = findViewById(R.id.layoutRecordingVolume);
         textViewCurrentRecordingVolume = findViewById(R.id.textViewCurrentRecordingVolume);
         switchSkipSilence = findViewById(R.id.switchSkipSilence);
+        layoutSilenceSensitivity = findViewById(R.id.layoutSilenceSensitivity);
+        textViewCurrentSilenceSensitivity = findViewById(R.id.textViewCurrentSilenceSensitivity);
         switchEncodingOnTheFly = findViewById(R.id.switchEncodingOnTheFly);
         switchPauseDuringCall = findViewById(R.id.switchPauseDuringCall);
         switchSilentMode = findViewById(R.id.switchSilentMode);
@@ -144,6 +164,10 @@ public class SettingsActivity extends AppCompatActivity {
         checkBoxShowDeleteAction.setChecked(preferences.getBoolean("show_delete_action", true));
         checkBoxShowOpenAppAction.setChecked(preferences.getBoolean("show_open_app_action", true));
 
+        int recordingPresetIndex = preferences.getInt("recording_preset", 0); // Default to Custom
+        String[] recordingPresets = getResources().getStringArray(R.array.recording_preset_options);
+        textViewCurrentRecordingPreset.setText(recordingPresets[recordingPresetIndex]);
+
         int audioFormatIndex = preferences.getInt("audio_format", 1); // Default to 16-bit PCM
         String[] audioFormats = getResources().getStringArray(R.array.audio_format_options);
         textViewCurrentAudioFormat.setText(audioFormats[audioFormatIndex]);
@@ -171,10 +195,17 @@ public class SettingsActivity extends AppCompatActivity {
         String[] filenameFormats = getResources().getStringArray(R.array.filename_format_options);
         textViewCurrentFilenameFormat.setText(filenameFormats[filenameFormatIndex]);
 
+        int archiveAgeIndex = preferences.getInt("archive_age", 0); // Default to Never
+        String[] archiveAges = getResources().getStringArray(R.array.archive_age_options);
+        textViewCurrentArchiveAge.setText(archiveAges[archiveAgeIndex]);
+
         switchVoiceFilter.setChecked(preferences.getBoolean("voice_filter", false));
         int recordingVolume = preferences.getInt("recording_volume", 100);
         textViewCurrentRecordingVolume.setText(recordingVolume + "%");
         switchSkipSilence.setChecked(preferences.getBoolean("skip_silence", false));
+        int silenceSensitivityIndex = preferences.getInt("silence_sensitivity", 1); // Default to Normal
+        String[] silenceSensitivities = getResources().getStringArray(R.array.silence_sensitivity_options);
+        textViewCurrentSilenceSensitivity.setText(silenceSensitivities[silenceSensitivityIndex]);
         switchEncodingOnTheFly.setChecked(preferences.getBoolean("encoding_on_the_fly", false));
         switchPauseDuringCall.setChecked(preferences.getBoolean("pause_during_call", true));
         switchSilentMode.setChecked(preferences.getBoolean("silent_mode", false));
@@ -210,6 +241,7 @@ public class SettingsActivity extends AppCompatActivity {
             saveSetting("show_open_app_action", isChecked);
         });
 
+        layoutRecordingPreset.setOnClickListener(v -> showRecordingPresetDialog());
         layoutAudioFormat.setOnClickListener(v -> showAudioFormatDialog());
         layoutRecordingsFolder.setOnClickListener(v -> openFolderPicker());
         layoutRecordingSource.setOnClickListener(v -> showRecordingSourceDialog());
@@ -217,9 +249,11 @@ public class SettingsActivity extends AppCompatActivity {
         layoutEncoding.setOnClickListener(v -> showEncodingDialog());
         layoutAudioChannels.setOnClickListener(v -> showAudioChannelsDialog());
         layoutFilenameFormat.setOnClickListener(v -> showFilenameFormatDialog());
+        layoutArchiveAge.setOnClickListener(v -> showArchiveAgeDialog());
         switchVoiceFilter.setOnCheckedChangeListener((buttonView, isChecked) -> saveSetting("voice_filter", isChecked));
         layoutRecordingVolume.setOnClickListener(v -> showRecordingVolumeDialog());
         switchSkipSilence.setOnCheckedChangeListener((buttonView, isChecked) -> saveSetting("skip_silence", isChecked));
+        layoutSilenceSensitivity.setOnClickListener(v -> showSilenceSensitivityDialog());
         switchEncodingOnTheFly.setOnCheckedChangeListener((buttonView, isChecked) -> saveSetting("encoding_on_the_fly", isChecked));
         switchPauseDuringCall.setOnCheckedChangeListener((buttonView, isChecked) -> saveSetting("pause_during_call", isChecked));
         switchSilentMode.setOnCheckedChangeListener((buttonView, isChecked) -> saveSetting("silent_mode", isChecked));
@@ -247,6 +281,32 @@ public class SettingsActivity extends AppCompatActivity {
         folderPickerLauncher.launch(intent);
     }
 
+    private void showRecordingPresetDialog() {
+        String[] recordingPresets = getResources().getStringArray(R.array.recording_preset_options);
+        int currentSelection = preferences.getInt("recording_preset", 0);
+
+        // Show what each preset has cost in recordings made with it so far
+        String[] items = recordingPresets.clone();
+        List<RecordingProfile.Cost> costs = RecordingProfile.getCostTable(this);
+        for (int i = 0; i < items.length && i < costs.size(); i++) {
+            RecordingProfile.Cost cost = costs.get(i);
+            if (cost.recordings > 0) {
+                items[i] += String.format(Locale.getDefault(), " (%s/min, %.1f%% CPU)",
+                    FileUtils.formatFileSize((long) (cost.bytesPerSecond * 60)), cost.cpuPercent);
+            }
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Recording Preset")
+                .setSingleChoiceItems(items, currentSelection, (dialog, which) -> {
+                    saveSetting("recording_preset", which);
+                    textViewCurrentRecordingPreset.setText(recordingPresets[which]);
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void showAudioFormatDialog() {
         String[] audioFormats = getResources().getStringArray(R.array.audio_format_options);
         int currentSelection = preferences.getInt("audio_format", 1);
@@ -334,6 +394,44 @@ public class SettingsActivity extends AppCompatActivity {
                 .show();
     }
 
+    private void showArchiveAgeDialog() {
+        String[] archiveAges = getResources().getStringArray(R.array.archive_age_options);
+        int currentSelection = preferences.getInt("archive_age", 0);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Compress Old Recordings")
+                .setSingleChoiceItems(archiveAges, currentSelection, (dialog, which) -> {
+                    saveSetting("archive_age", which);
+                    textViewCurrentArchiveAge.setText(archiveAges[which]);
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * @return Age in days after which recordings are re-encoded to save space, 0 for never
+     */
+    public static int getArchiveAgeDays(SharedPreferences preferences) {
+        int index = preferences.getInt("archive_age", 0);
+        return index >= 0 && index < ARCHIVE_AGE_DAYS.length ? ARCHIVE_AGE_DAYS[index] : 0;
+    }
+
+    private void showSilenceSensitivityDialog() {
+        String[] silenceSensitivities = getResources().getStringArray(R.array.silence_sensitivity_options);
+        int currentSelection = preferences.getInt("silence_sensitivity", 1);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Silence Sensitivity")
+                .setSingleChoiceItems(silenceSensitivities, currentSelection, (dialog, which) -> {
+                    saveSetting("silence_sensitivity", which);
+                    textViewCurrentSilenceSensitivity.setText(silenceSensitivities[which]);
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void showFilenameFormatDialog() {
         String[] filenameFormats = getResources().getStringArray(R.array.filename_format_options);
         int currentSelection = preferences.getInt("filename_format", 0);
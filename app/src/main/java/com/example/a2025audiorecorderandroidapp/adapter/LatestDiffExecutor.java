@@ -0,0 +1,89 @@
+package com.example.a2025audiorecorderandroidapp.adapter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the newest diff only. A diff still queued when another list is
+ * submitted is dropped, and a running one stops at its next comparison,
+ * where the diff callback calls {@link #checkCurrent()}.
+ */
+final class LatestDiffExecutor implements Executor {
+    /**
+     * Thrown inside a diff that a newer list has made pointless.
+     */
+    static final class CancelledException extends RuntimeException {
+        CancelledException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Executor thread;
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    // Written on the main thread, checked by the diff running in the background
+    private volatile int submitGeneration = 0;
+    private volatile int runningGeneration = 0;
+
+    /**
+     * @param thread Runs the diffs, one at a time
+     */
+    LatestDiffExecutor(Executor thread) {
+        this.thread = thread;
+    }
+
+    /**
+     * A new list is about to be submitted. Called on the main thread, before
+     * the list is handed to the differ.
+     */
+    void onSubmit() {
+        submitGeneration++;
+    }
+
+    /**
+     * @throws CancelledException If a newer list was submitted since the
+     *                            running diff started
+     */
+    void checkCurrent() {
+        if (runningGeneration != submitGeneration) {
+            throw new CancelledException();
+        }
+    }
+
+    /**
+     * @return Number of diffs dropped or stopped because a newer list was submitted
+     */
+    long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        int generation = submitGeneration;
+        Runnable task = () -> runDiff(command, generation);
+        Runnable superseded = pending.getAndSet(task);
+        if (superseded == null) {
+            thread.execute(this::runPending);
+        } else {
+            cancelled.incrementAndGet();
+        }
+    }
+
+    private void runPending() {
+        Runnable task = pending.getAndSet(null);
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    private void runDiff(Runnable command, int generation) {
+        runningGeneration = generation;
+        try {
+            command.run();
+        } catch (CancelledException e) {
+            cancelled.incrementAndGet();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.a2025audiorecorderandroidapp.adapter;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,73 +9,276 @@ import android.widget.TextView;
 import android.widget.SeekBar;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.a2025audiorecorderandroidapp.R;
+import com.example.a2025audiorecorderandroidapp.audio.WaveformCache;
 import com.example.a2025audiorecorderandroidapp.model.Recording;
+import com.example.a2025audiorecorderandroidapp.utils.FormatUtils;
+import com.example.a2025audiorecorderandroidapp.view.WaveformView;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Shows the recordings list. Lists are diffed on a background thread over
+ * immutable snapshots of the recordings, so a submitted list can't change
+ * while it is being compared. Playback state is an overlay on top of the
+ * list and only ever updates the playing row.
+ *
+ * Recordings still being written are an overlay too: their rows say so in
+ * place of the size and date, and ignore taps until the file is complete.
+ *
+ * While a seek bar is dragged the row previews the target on the waveform
+ * and reports it through {@link OnRecordingClickListener#onSeekPreview};
+ * the seek itself is reported once, when the drag ends.
+ */
 public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.RecordingViewHolder> {
 
     public interface OnRecordingClickListener {
         void onPlayClick(Recording recording);
         void onLongPress(Recording recording);
         void onSeek(Recording recording, int position);
+
+        /**
+         * The seek bar is being dragged to a position.
+         */
+        void onSeekPreview(Recording recording, int position);
     }
 
-    private final List<Recording> recordings = new ArrayList<>();
+    // Seek bar steps, 0.01% of a recording, about 1 s per step for a 3 hour one
+    private static final int SEEK_STEPS = 10_000;
+
+    // Partial rebinds: only the affected views of a row are updated
+    private static final Object PAYLOAD_PROGRESS = new Object();
+    private static final Object PAYLOAD_PLAY_STATE = new Object();
+
+    // One diff thread for the process, like AsyncListDiffer's own default
+    private static final ExecutorService DIFF_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RecordingsDiff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final OnRecordingClickListener listener;
+    private final AsyncListDiffer<Row> differ;
+    private final WaveformCache waveformCache = new WaveformCache();
+    private final LatestDiffExecutor diffExecutor = new LatestDiffExecutor(DIFF_THREAD);
+
+    // Playback overlay, at most one row is playing or paused
+    private Recording playbackRecording;
+    private boolean playbackPlaying = false;
+    private int playbackPositionMs = 0;
+    private int playbackRow = RecyclerView.NO_POSITION;
+
+    // Paths of recordings still being written
+    private final List<String> finalisingPaths = new ArrayList<>();
+
+    private long fullBindCount = 0;
+    private long partialBindCount = 0;
+
+    /**
+     * Snapshot of a recording taken when a list is submitted. Name, size and
+     * date of a recording never change, so only the duration is copied;
+     * diffing compares snapshots, not the live recordings.
+     */
+    private static final class Row {
+        final Recording recording;
+        final long duration;
+        private String info; // size and date line, built on first bind
+
+        Row(Recording recording) {
+            this.recording = recording;
+            this.duration = recording.getDuration();
+        }
+
+        String getInfo(Context context) {
+            if (info == null) {
+                info = context.getString(R.string.file_info_format,
+                    recording.getFormattedFileSize(), recording.getFormattedDate());
+            }
+            return info;
+        }
+
+        boolean sameContents(Row other) {
+            return duration == other.duration
+                && recording.getFileSize() == other.recording.getFileSize()
+                && recording.getTimestamp() == other.recording.getTimestamp();
+        }
+    }
+
+    private final DiffUtil.ItemCallback<Row> diffCallback = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            diffExecutor.checkCurrent();
+            return oldItem.recording.isSameFile(newItem.recording);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.sameContents(newItem);
+        }
+    };
 
     public RecordingsAdapter(OnRecordingClickListener listener) {
         this.listener = listener;
+        this.differ = new AsyncListDiffer<>(this,
+            new AsyncDifferConfig.Builder<>(diffCallback)
+                .setBackgroundThreadExecutor(diffExecutor)
+                .build());
+        // Positions shift when a new list is committed
+        differ.addListListener((previousList, currentList) -> playbackRow = indexOf(playbackRecording));
     }
 
     public void setRecordings(List<Recording> newRecordings) {
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new RecordingDiffCallback(this.recordings, newRecordings));
-        this.recordings.clear();
-        this.recordings.addAll(newRecordings);
-        diffResult.dispatchUpdatesTo(this);
+        setRecordings(newRecordings, null);
     }
 
-    private static class RecordingDiffCallback extends DiffUtil.Callback {
-        private final List<Recording> oldList;
-        private final List<Recording> newList;
+    /**
+     * Show a new list once it has been diffed against the current one.
+     * @param newRecordings Recordings to show, copied, so the list may be reused
+     * @param onCommitted Run on the main thread when the list is shown; not
+     *                    run if a newer list is submitted first
+     */
+    public void setRecordings(List<Recording> newRecordings, Runnable onCommitted) {
+        List<Row> rows = new ArrayList<>(newRecordings.size());
+        for (Recording recording : newRecordings) {
+            rows.add(new Row(recording));
+        }
+        diffExecutor.onSubmit();
+        differ.submitList(rows, onCommitted);
+    }
 
-        public RecordingDiffCallback(List<Recording> oldList, List<Recording> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
+    /**
+     * Show a reordered list without diffing it. A re-sort moves nearly every
+     * row, which is the worst case for a diff, so the list is swapped instead.
+     * @param newRecordings Recordings to show, copied
+     * @param onCommitted Run on the main thread once the list is shown
+     */
+    public void replaceRecordings(List<Recording> newRecordings, Runnable onCommitted) {
+        List<Row> rows = new ArrayList<>(newRecordings.size());
+        for (Recording recording : newRecordings) {
+            rows.add(new Row(recording));
         }
+        // Going through an empty list commits right away, also cancelling any diff
+        diffExecutor.onSubmit();
+        differ.submitList(null);
+        diffExecutor.onSubmit();
+        differ.submitList(rows, onCommitted);
+    }
 
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
+    /**
+     * Update the playback overlay. Only the rows whose state changed are
+     * rebound, and only their playback views.
+     * @param recording Playing or paused recording, null if none
+     * @param playing Whether it is playing
+     * @param positionMs Playback position within the recording
+     */
+    public void setPlaybackState(Recording recording, boolean playing, int positionMs) {
+        boolean rowChanged = recording == null ? playbackRecording != null : !recording.isSameFile(playbackRecording);
+        boolean playStateChanged = rowChanged || playing != playbackPlaying;
+        if (!playStateChanged && positionMs == playbackPositionMs) {
+            return;
         }
 
-        @Override
-        public int getNewListSize() {
-            return newList.size();
+        int previousRow = playbackRow;
+        playbackRecording = recording;
+        playbackPlaying = playing;
+        playbackPositionMs = positionMs;
+        if (rowChanged) {
+            playbackRow = indexOf(recording);
+            if (previousRow != RecyclerView.NO_POSITION) {
+                notifyItemChanged(previousRow, PAYLOAD_PLAY_STATE);
+            }
+        }
+        if (playbackRow != RecyclerView.NO_POSITION) {
+            notifyItemChanged(playbackRow, playStateChanged ? PAYLOAD_PLAY_STATE : PAYLOAD_PROGRESS);
         }
+    }
 
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldList.get(oldItemPosition).getFilePath().equals(newList.get(newItemPosition).getFilePath());
+    /**
+     * Mark a recording as being written or complete. Only its row is rebound.
+     */
+    public void setFinalising(String filePath, boolean finalising) {
+        boolean changed = finalising
+            ? !finalisingPaths.contains(filePath) && finalisingPaths.add(filePath)
+            : finalisingPaths.remove(filePath);
+        if (!changed) {
+            return;
         }
+        List<Row> rows = differ.getCurrentList();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).recording.hasPath(filePath)) {
+                notifyItemChanged(i);
+                break;
+            }
+        }
+    }
 
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            Recording oldRecording = oldList.get(oldItemPosition);
-            Recording newRecording = newList.get(newItemPosition);
-            
-            return oldRecording.getFileName().equals(newRecording.getFileName()) &&
-                   oldRecording.getDuration() == newRecording.getDuration() &&
-                   oldRecording.getCurrentPosition() == newRecording.getCurrentPosition() &&
-                   oldRecording.isPlaying() == newRecording.isPlaying() &&
-                   oldRecording.getFileSize() == newRecording.getFileSize() &&
-                   oldRecording.getTimestamp() == newRecording.getTimestamp();
+    /**
+     * @return Paths of the recordings currently shown as being written
+     */
+    public List<String> getFinalisingPaths() {
+        return new ArrayList<>(finalisingPaths);
+    }
+
+    private boolean isFinalising(Recording recording) {
+        for (int i = 0; i < finalisingPaths.size(); i++) {
+            if (recording.hasPath(finalisingPaths.get(i))) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * @return Number of rows bound from scratch since the adapter was created
+     */
+    public long getFullBindCount() {
+        return fullBindCount;
+    }
+
+    /**
+     * @return Number of rows updated through a payload since the adapter was created
+     */
+    public long getPartialBindCount() {
+        return partialBindCount;
+    }
+
+    /**
+     * @return Number of diffs dropped or stopped because a newer list was submitted
+     */
+    public long getCancelledDiffCount() {
+        return diffExecutor.getCancelledCount();
+    }
+
+    /**
+     * @return The recording shown below one, null if it is the last or not shown
+     */
+    public Recording getRecordingAfter(Recording recording) {
+        int position = indexOf(recording);
+        List<Row> rows = differ.getCurrentList();
+        return position != RecyclerView.NO_POSITION && position + 1 < rows.size()
+            ? rows.get(position + 1).recording : null;
+    }
+
+    private int indexOf(Recording recording) {
+        if (recording == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        List<Row> rows = differ.getCurrentList();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).recording.isSameFile(recording)) {
+                return i;
+            }
+        }
+        return RecyclerView.NO_POSITION;
     }
 
     @NonNull
@@ -82,22 +286,54 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
     public RecordingsAdapter.RecordingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
             .inflate(R.layout.item_recording, parent, false);
-        return new RecordingViewHolder(view);
+        return new RecordingViewHolder(view, listener, waveformCache);
     }
 
     @Override
     public void onBindViewHolder(@NonNull RecordingsAdapter.RecordingViewHolder holder, int position) {
-        Recording recording = recordings.get(position);
-        holder.bind(recording, listener);
+        fullBindCount++;
+        Row row = differ.getCurrentList().get(position);
+        holder.bind(row, !finalisingPaths.isEmpty() && isFinalising(row.recording));
+        bindPlayback(holder, row, true);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecordingsAdapter.RecordingViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        partialBindCount++;
+        bindPlayback(holder, differ.getCurrentList().get(position), payloads.contains(PAYLOAD_PLAY_STATE));
+    }
+
+    private void bindPlayback(RecordingViewHolder holder, Row row, boolean playState) {
+        boolean active = row.recording.isSameFile(playbackRecording);
+        boolean playing = active && playbackPlaying;
+        if (playState) {
+            holder.bindPlayState(playing);
+        }
+        holder.bindProgress(playing, active ? playbackPositionMs : 0);
     }
 
     @Override
     public int getItemCount() {
-        return recordings.size();
+        return differ.getCurrentList().size();
     }
 
-    public List<Recording> getRecordings() {
-        return new ArrayList<>(recordings);
+    /**
+     * Take new snapshots of the shown recordings, so rows pick up a changed
+     * duration.
+     */
+    public void refresh() {
+        List<Row> rows = differ.getCurrentList();
+        List<Row> refreshed = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            refreshed.add(new Row(row.recording));
+        }
+        diffExecutor.onSubmit();
+        differ.submitList(refreshed);
     }
 
     public static class RecordingViewHolder extends RecyclerView.ViewHolder {
@@ -106,80 +342,134 @@ public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.Re
         private final TextView tvFileInfo;
         private final ImageView ivPlay;
         private final SeekBar seekBar;
+        private final WaveformView waveformPreview;
+        private final char[] positionText = new char[FormatUtils.TIME_BUFFER_LENGTH];
+        private Row row;
+        private boolean finalising = false;
+        private boolean userSeeking = false;
 
-        public RecordingViewHolder(@NonNull View itemView) {
+        RecordingViewHolder(@NonNull View itemView, OnRecordingClickListener listener,
+                            WaveformCache waveformCache) {
             super(itemView);
             tvFileName = itemView.findViewById(R.id.tvFileName);
             tvDuration = itemView.findViewById(R.id.tvDuration);
             tvFileInfo = itemView.findViewById(R.id.tvFileInfo);
             ivPlay = itemView.findViewById(R.id.ivPlay);
             seekBar = itemView.findViewById(R.id.seekBar);
-        }
+            waveformPreview = itemView.findViewById(R.id.waveformPreview);
+            seekBar.setMax(SEEK_STEPS);
 
-        public void bind(Recording recording, OnRecordingClickListener listener) {
-            tvFileName.setText(recording.getFileName());
-            tvDuration.setText(recording.getFormattedDuration());
-            tvFileInfo.setText(itemView.getContext().getString(R.string.file_info_format, 
-                recording.getFormattedFileSize(), recording.getFormattedDate()));
-
-            // Update play/pause icon based on playback state
-            if (recording.isPlaying()) {
-                ivPlay.setImageResource(android.R.drawable.ic_media_pause);
-            } else {
-                ivPlay.setImageResource(android.R.drawable.ic_media_play);
-            }
-            
-            // Always show seek bar and update progress
-            if (recording.getDuration() > 0) {
-                int progress = (int) ((recording.getCurrentPosition() * 100.0) / recording.getDuration());
-                seekBar.setProgress(progress);
-            } else {
-                seekBar.setProgress(0);
-            }
-
-            // Set up seek bar listener
+            // Listeners are set up once and act on whichever recording is bound
             seekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
                 @Override
                 public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                    if (fromUser && listener != null) {
-                        // Calculate position in milliseconds
-                        int position = (int) ((progress / 100.0) * recording.getDuration());
-                        listener.onSeek(recording, position);
+                    if (!fromUser || listener == null || row == null || finalising) {
+                        return;
+                    }
+                    int position = (int) ((long) progress * row.duration / SEEK_STEPS);
+                    if (userSeeking) {
+                        // Only the target moves while dragging, the seek happens on release
+                        tvDuration.setText(positionText, 0, FormatUtils.formatMinutesSeconds(position, positionText));
+                        waveformPreview.setMarker(progress / (float) SEEK_STEPS);
+                        listener.onSeekPreview(row.recording, position);
+                    } else {
+                        listener.onSeek(row.recording, position);
                     }
                 }
 
                 @Override
                 public void onStartTrackingTouch(SeekBar seekBar) {
-                    // Optional: Pause updates while user is dragging
+                    // Progress updates would fight the user's thumb
+                    userSeeking = true;
+                    if (row == null || finalising) {
+                        return;
+                    }
+                    Row previewed = row;
+                    waveformPreview.setMarker(seekBar.getProgress() / (float) SEEK_STEPS);
+                    waveformCache.get(new File(previewed.recording.getFilePath()), waveform -> {
+                        if (userSeeking && row == previewed) {
+                            waveformPreview.setWaveform(waveform);
+                            waveformPreview.setVisibility(View.VISIBLE);
+                        }
+                    });
                 }
 
                 @Override
                 public void onStopTrackingTouch(SeekBar seekBar) {
-                    // Optional: Resume updates when user stops dragging
+                    userSeeking = false;
+                    hidePreview();
+                    if (listener != null && row != null && !finalising) {
+                        listener.onSeek(row.recording, (int) ((long) seekBar.getProgress() * row.duration / SEEK_STEPS));
+                    }
                 }
             });
 
-            ivPlay.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onPlayClick(recording);
+            View.OnClickListener playClick = v -> {
+                if (listener != null && row != null && !finalising) {
+                    listener.onPlayClick(row.recording);
                 }
-            });
-
+            };
+            ivPlay.setOnClickListener(playClick);
             // Set play button click on the entire item
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onPlayClick(recording);
-                }
-            });
+            itemView.setOnClickListener(playClick);
 
             // Set long press listener on the entire item
             itemView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onLongPress(recording);
+                if (listener != null && row != null && !finalising) {
+                    listener.onLongPress(row.recording);
                     return true;
                 }
                 return false;
             });
         }
+
+        void bind(Row row, boolean finalising) {
+            if (this.row != null && !this.row.recording.isSameFile(row.recording)) {
+                userSeeking = false;
+                hidePreview();
+            }
+            this.row = row;
+            this.finalising = finalising;
+            tvFileName.setText(row.recording.getFileName());
+            // Size and date aren't known before the file is complete
+            tvFileInfo.setText(finalising
+                ? itemView.getContext().getString(R.string.file_info_finalising)
+                : row.getInfo(itemView.getContext()));
+            seekBar.setEnabled(!finalising);
+        }
+
+        void bindPlayState(boolean playing) {
+            // Update play/pause icon based on playback state
+            if (playing) {
+                ivPlay.setImageResource(android.R.drawable.ic_media_pause);
+            } else {
+                ivPlay.setImageResource(android.R.drawable.ic_media_play);
+            }
+        }
+
+        void bindProgress(boolean playing, int positionMs) {
+            if (userSeeking) {
+                // Progress updates would fight the user's thumb and the previewed target
+                return;
+            }
+            // Show the position while playing, the total duration otherwise.
+            // Both are written without allocating, this runs twice a second.
+            if (playing && positionMs > 0) {
+                tvDuration.setText(positionText, 0, FormatUtils.formatMinutesSeconds(positionMs, positionText));
+            } else {
+                tvDuration.setText(row.recording.getFormattedDuration());
+            }
+            // Always show seek bar and update progress
+            if (row.duration > 0) {
+                seekBar.setProgress((int) ((long) positionMs * SEEK_STEPS / row.duration));
+            } else {
+                seekBar.setProgress(0);
+            }
+        }
+
+        private void hidePreview() {
+            waveformPreview.setVisibility(View.GONE);
+            waveformPreview.setWaveform(null);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes 16-bit PCM to AAC-LC with MediaCodec and muxes it into an MPEG-4 file.
+ * Not thread-safe, feed it from a single thread.
+ */
+public class AacEncoder implements AudioEncoder {
+    private static final String TAG = "AacEncoder";
+    private static final long TIMEOUT_US = 10_000;
+    // How long finishing waits on a codec that produces nothing before giving up
+    private static final long END_OF_STREAM_TIMEOUT_US = 2_000_000;
+
+    private final MediaCodec codec;
+    private final MediaMuxer muxer;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private final int sampleRate;
+    private final int channelCount;
+    private final EncodeStats stats;
+    private RecordingJournal journal;
+
+    private int trackIndex = -1;
+    private boolean muxerStarted = false;
+    private long samplesQueued = 0;
+
+    /**
+     * @param outputFile MPEG-4 file to write
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels
+     * @param bitRate Target bitrate in bits per second
+     * @param stats Receives the time spent in every {@link #encode} call
+     */
+    public AacEncoder(File outputFile, int sampleRate, int channelCount, int bitRate,
+                      EncodeStats stats) throws IOException {
+        this(outputFile, sampleRate, channelCount, bitRate, stats, null);
+    }
+
+    /**
+     * @param journalFile Write-ahead journal that lets the file be recovered if
+     *                    the process dies before {@link #finish}; null for none
+     */
+    public AacEncoder(File outputFile, int sampleRate, int channelCount, int bitRate,
+                      EncodeStats stats, File journalFile) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.stats = stats;
+
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, channelCount);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+
+        codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+        try {
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            muxer = new MediaMuxer(outputFile.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        } catch (IOException | RuntimeException e) {
+            codec.release();
+            throw e;
+        }
+        if (journalFile != null) {
+            try {
+                journal = new RecordingJournal(journalFile, sampleRate, channelCount, bitRate,
+                    RecordingJournal.AAC_SAMPLES_PER_FRAME);
+            } catch (IOException e) {
+                // Recording still works, it just can't be recovered after a crash
+                Log.w(TAG, "Failed to create recording journal", e);
+            }
+        }
+    }
+
+    @Override
+    public void encode(short[] pcm, int offset, int length) {
+        long start = System.nanoTime();
+        int position = offset;
+        int end = offset + length;
+
+        while (position < end) {
+            int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+            if (inputIndex < 0) {
+                // Codec is full, make room by draining output
+                drain(0);
+                continue;
+            }
+
+            ByteBuffer input = codec.getInputBuffer(inputIndex);
+            input.clear();
+            int count = Math.min(input.remaining() / 2, end - position);
+            input.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm, position, count);
+
+            codec.queueInputBuffer(inputIndex, 0, count * 2, presentationTimeUs(), 0);
+            samplesQueued += count;
+            position += count;
+        }
+
+        drain(0);
+        stats.record(System.nanoTime() - start);
+    }
+
+    /**
+     * @throws IOException If the codec stops producing output before the end
+     *                     of stream; the file is closed with what it has
+     */
+    @Override
+    public void finish() throws IOException {
+        try {
+            long deadline = System.nanoTime() + END_OF_STREAM_TIMEOUT_US * 1000;
+            int inputIndex;
+            while ((inputIndex = codec.dequeueInputBuffer(TIMEOUT_US)) < 0) {
+                drain(0);
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IOException("AAC encoder accepts no input");
+                }
+            }
+            codec.queueInputBuffer(inputIndex, 0, 0, presentationTimeUs(), MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            if (!drain(END_OF_STREAM_TIMEOUT_US)) {
+                throw new IOException("AAC encoder never ended the stream");
+            }
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void release() {
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+            // Already stopped
+        }
+        codec.release();
+
+        boolean complete = true;
+        try {
+            if (muxerStarted) {
+                muxer.stop();
+            }
+        } catch (IllegalStateException e) {
+            // Nothing was written, or the sample tables could not be
+            complete = false;
+        }
+        muxer.release();
+        muxerStarted = false;
+
+        if (journal != null) {
+            if (complete) {
+                journal.delete();
+            } else {
+                // Leave it for the recovery pass
+                journal.close();
+            }
+            journal = null;
+        }
+    }
+
+    private void dropJournal(IOException e) {
+        Log.w(TAG, "Recording journal failed, the file can't be recovered after a crash", e);
+        journal.delete();
+        journal = null;
+    }
+
+    private long presentationTimeUs() {
+        return (samplesQueued / channelCount) * 1_000_000L / sampleRate;
+    }
+
+    /**
+     * Write the output the codec has ready
+     * @param timeoutUs How long to wait for the end of stream while no output
+     *                  comes, 0 to return as soon as none is ready
+     * @return Whether the end of stream was reached
+     */
+    private boolean drain(long timeoutUs) {
+        long deadline = System.nanoTime() + timeoutUs * 1000;
+        while (true) {
+            int outputIndex = codec.dequeueOutputBuffer(bufferInfo, timeoutUs > 0 ? TIMEOUT_US : 0);
+            if (outputIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                MediaFormat outputFormat = codec.getOutputFormat();
+                trackIndex = muxer.addTrack(outputFormat);
+                muxer.start();
+                muxerStarted = true;
+                ByteBuffer config = outputFormat.getByteBuffer("csd-0");
+                if (journal != null && config != null) {
+                    byte[] bytes = new byte[config.remaining()];
+                    config.duplicate().get(bytes);
+                    try {
+                        journal.writeCodecConfig(bytes);
+                    } catch (IOException e) {
+                        dropJournal(e);
+                    }
+                }
+            } else if (outputIndex >= 0) {
+                ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                    // Already part of the output format passed to addTrack
+                    bufferInfo.size = 0;
+                }
+                if (bufferInfo.size > 0 && muxerStarted && output != null) {
+                    output.position(bufferInfo.offset);
+                    output.limit(bufferInfo.offset + bufferInfo.size);
+                    muxer.writeSampleData(trackIndex, output, bufferInfo);
+                    if (journal != null) {
+                        try {
+                            journal.addSample(bufferInfo.size);
+                        } catch (IOException e) {
+                            dropJournal(e);
+                        }
+                    }
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return true;
+                }
+                // Waiting starts over while the codec makes progress
+                deadline = System.nanoTime() + timeoutUs * 1000;
+            }
+        }
+    }
+}
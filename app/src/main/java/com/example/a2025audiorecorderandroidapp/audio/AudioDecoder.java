@@ -0,0 +1,122 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes the audio track of a file to 16-bit PCM and hands it to a
+ * {@link PcmConsumer}, the same way the capture engine does. Runs on the
+ * calling thread.
+ */
+public class AudioDecoder {
+    private static final long TIMEOUT_US = 10_000;
+
+    public interface CancellationSignal {
+        boolean isCancelled();
+    }
+
+    /**
+     * Decode a file
+     * @param file Audio file
+     * @param consumer Receives the decoded PCM
+     * @param cancellation Checked between buffers; may be null
+     * @return false if decoding was cancelled
+     */
+    public static boolean decode(File file, PcmConsumer consumer, CancellationSignal cancellation) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                throw new IOException("No audio track in " + file.getName());
+            }
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            consumer.onCaptureStarted(format.getInteger(MediaFormat.KEY_SAMPLE_RATE), channelCount);
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            short[] samples = new short[0];
+            boolean inputDone = false;
+
+            while (true) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    return false;
+                }
+
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inputIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outputIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    int count = info.size / 2;
+                    if (count > 0 && output != null) {
+                        if (samples.length < count) {
+                            samples = new short[count];
+                        }
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        output.order(ByteOrder.nativeOrder()).asShortBuffer().get(samples, 0, count);
+                        consumer.onFrame(samples, count - count % channelCount);
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    if (outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT) != channelCount) {
+                        throw new IOException("Decoder changed channel count mid-stream");
+                    }
+                }
+            }
+
+            consumer.onCaptureStopped();
+            return true;
+        } catch (IllegalStateException e) {
+            throw new IOException("Failed to decode " + file.getName(), e);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                    // Never started
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Encodes 16-bit PCM into a compressed file. Not thread-safe, feed it from a
+ * single thread.
+ */
+public interface AudioEncoder {
+
+    interface Factory {
+        /**
+         * @param outputFile File to write
+         * @param sampleRate Sample rate in Hz
+         * @param channelCount Number of interleaved channels
+         * @param stats Receives the time spent in every {@link #encode} call
+         * @param journalFile Write-ahead journal for recovering the file after
+         *                    a crash, for formats that need one; null for none
+         */
+        AudioEncoder create(File outputFile, int sampleRate, int channelCount, EncodeStats stats,
+                            File journalFile) throws IOException;
+    }
+
+    /**
+     * Queue interleaved PCM samples and write whatever the codec has produced
+     * @param pcm Sample buffer
+     * @param offset First sample to encode
+     * @param length Number of samples to encode
+     */
+    void encode(short[] pcm, int offset, int length);
+
+    /**
+     * Signals end of stream, writes the remaining output and closes the file.
+     * The file is closed even if this throws.
+     */
+    void finish() throws IOException;
+
+    /**
+     * Releases the codec and file without finishing the stream.
+     */
+    void release();
+}
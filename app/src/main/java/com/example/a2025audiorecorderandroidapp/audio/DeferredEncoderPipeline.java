@@ -0,0 +1,207 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Writes captured PCM to a temporary WAV file and transcodes it to the output
+ * file once capture stopped. Capture only pays for a buffered file write; the
+ * encoding cost moves to {@link #finish()}.
+ *
+ * The temporary file is checkpointed like any {@link WavWriter} file, so one
+ * left behind by a crash is transcoded by {@link #recover}.
+ */
+public class DeferredEncoderPipeline implements EncoderPipeline {
+    private static final String TAG = "DeferredEncoder";
+    public static final String TEMP_SUFFIX = ".wav.tmp";
+    private static final int WAV_HEADER_SIZE = 44;
+    private static final int TRANSCODE_CHUNK_SAMPLES = 8192;
+
+    private final File outputFile;
+    private final File tempFile;
+    private final AudioEncoder.Factory encoderFactory;
+    private final EncodeStats captureStats = new EncodeStats();
+    private final EncodeStats encodeStats = new EncodeStats();
+
+    private WavWriter wavWriter;
+    private int sampleRate;
+    private int channelCount;
+    private IOException failure;
+
+    public DeferredEncoderPipeline(File outputFile, AudioEncoder.Factory encoderFactory) {
+        this.outputFile = outputFile;
+        this.tempFile = new File(outputFile.getParentFile(), outputFile.getName() + TEMP_SUFFIX);
+        this.encoderFactory = encoderFactory;
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        try {
+            wavWriter = new WavWriter(tempFile, sampleRate, channelCount);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to create temporary WAV file", e);
+            failure = e;
+        }
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        if (wavWriter == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            wavWriter.write(frame, 0, length);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write PCM", e);
+            failure = e;
+            closeWriter();
+        }
+        captureStats.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        closeWriter();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (failure != null) {
+            tempFile.delete();
+            throw failure;
+        }
+
+        AudioEncoder encoder = encoderFactory.create(outputFile, sampleRate, channelCount, encodeStats, null);
+        try {
+            transcode(tempFile, Long.MAX_VALUE, encoder);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Transcode the temporary WAV file of a pipeline that was cut off by a
+     * crash into its output file, with the encoder its extension calls for.
+     * The temporary file is deleted once it is transcoded.
+     * @param tempFile File ending in {@link #TEMP_SUFFIX}
+     * @return Duration of the recovered audio in ms, 0 if there was none
+     */
+    public static long recover(File tempFile) throws IOException {
+        String name = tempFile.getName();
+        File outputFile = new File(tempFile.getParentFile(), name.substring(0, name.length() - TEMP_SUFFIX.length()));
+        WavWriter.Header header = WavWriter.readHeader(tempFile);
+        long frames = header.dataSize / (header.channelCount * 2L);
+        if (frames == 0) {
+            // Cut off before the first checkpoint
+            tempFile.delete();
+            return 0;
+        }
+
+        // Segments are named after the recording, whose extension tells the encoding
+        RecordingProfile profile = RecordingProfile.forFile(FileUtils.getRecordingOfSegment(outputFile),
+            header.sampleRate, header.channelCount);
+        if (profile == null) {
+            throw new IOException("No encoder for " + outputFile.getName());
+        }
+        AudioEncoder encoder = profile.getEncoderFactory().create(outputFile, header.sampleRate,
+            header.channelCount, new EncodeStats(), null);
+        transcode(tempFile, header.dataSize, encoder);
+        tempFile.delete();
+        return frames * 1000 / header.sampleRate;
+    }
+
+    /**
+     * Feed the PCM of a WAV file written by {@link WavWriter} to an encoder
+     * and finish it. The encoder is released if that fails.
+     * @param dataBytes Bytes of PCM to read at most
+     */
+    private static void transcode(File wavFile, long dataBytes, AudioEncoder encoder) throws IOException {
+        byte[] bytes = new byte[TRANSCODE_CHUNK_SAMPLES * 2];
+        short[] samples = new short[TRANSCODE_CHUNK_SAMPLES];
+        boolean finished = false;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(wavFile))) {
+            skipFully(in, WAV_HEADER_SIZE);
+            long remaining = dataBytes;
+            int pending = 0;
+            int read;
+            while (remaining > 0
+                    && (read = in.read(bytes, pending, (int) Math.min(bytes.length - pending, remaining))) > 0) {
+                remaining -= read;
+                int available = pending + read;
+                int count = available / 2;
+                for (int i = 0; i < count; i++) {
+                    samples[i] = (short) ((bytes[i * 2] & 0xFF) | (bytes[i * 2 + 1] << 8));
+                }
+                encoder.encode(samples, 0, count);
+
+                // Carry an odd trailing byte over to the next read
+                pending = available - count * 2;
+                if (pending > 0) {
+                    bytes[0] = bytes[count * 2];
+                }
+            }
+            encoder.finish();
+            finished = true;
+        } finally {
+            if (!finished) {
+                encoder.release();
+            }
+        }
+    }
+
+    @Override
+    public void discard() {
+        closeWriter();
+        tempFile.delete();
+        outputFile.delete();
+    }
+
+    @Override
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public EncodeStats getCaptureStats() {
+        return captureStats;
+    }
+
+    @Override
+    public EncodeStats getEncodeStats() {
+        return encodeStats;
+    }
+
+    private void closeWriter() {
+        if (wavWriter == null) {
+            return;
+        }
+        try {
+            wavWriter.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close temporary WAV file", e);
+            failure = e;
+        }
+        wavWriter = null;
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new IOException("Temporary WAV file is truncated");
+            }
+            count -= skipped;
+        }
+    }
+}
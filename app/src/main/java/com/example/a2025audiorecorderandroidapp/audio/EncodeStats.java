@@ -0,0 +1,46 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.util.Locale;
+
+/**
+ * Per-buffer timing of an encoder pipeline. Written by one thread, safe to read from any.
+ */
+public class EncodeStats {
+    private volatile long bufferCount = 0;
+    private volatile long totalNanos = 0;
+    private volatile long maxNanos = 0;
+
+    public void record(long nanos) {
+        bufferCount++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    /**
+     * Add the buffers of another, finished pipeline. Call from the writing thread.
+     */
+    public void merge(EncodeStats other) {
+        bufferCount += other.bufferCount;
+        totalNanos += other.totalNanos;
+        if (other.maxNanos > maxNanos) {
+            maxNanos = other.maxNanos;
+        }
+    }
+
+    public long getBufferCount() { return bufferCount; }
+    public long getTotalMicros() { return totalNanos / 1000; }
+    public long getMaxMicros() { return maxNanos / 1000; }
+
+    public long getAverageMicros() {
+        long count = bufferCount;
+        return count == 0 ? 0 : totalNanos / count / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d buffers, avg %d us, max %d us, total %d ms",
+            bufferCount, getAverageMicros(), getMaxMicros(), totalNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Turns captured PCM into the final recording file. Implementations differ in
+ * when the encoding work happens: while capturing or after capture stopped.
+ */
+public interface EncoderPipeline extends PcmConsumer {
+    /**
+     * Completes the output file after capture stopped. May do all of the
+     * encoding work, so it must not be called on the main thread.
+     */
+    void finish() throws IOException;
+
+    /**
+     * Deletes the output and any temporary files, e.g. when a recording is cancelled.
+     */
+    void discard();
+
+    File getOutputFile();
+
+    /**
+     * Time spent handling each captured buffer on the capture side.
+     */
+    EncodeStats getCaptureStats();
+
+    /**
+     * Time spent encoding each buffer, whenever that happened.
+     */
+    EncodeStats getEncodeStats();
+}
@@ -0,0 +1,253 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Encodes 16-bit PCM losslessly into a native FLAC file with
+ * {@link FlacFrameEncoder}. Frames are collected into a chunk of at most a
+ * second of audio and written through a FileChannel; every time a chunk
+ * reaches the file the sample count in STREAMINFO is patched with a
+ * positional write, so a file cut off when the process dies is complete up
+ * to the last chunk. The MD5 signature is filled in when the stream ends.
+ * Not thread-safe, feed it from a single thread.
+ */
+public class FlacEncoder implements AudioEncoder {
+    private static final String TAG = "FlacEncoder";
+    // 4096 samples has its own block size code and suits every sample rate we record
+    private static final int BLOCK_SIZE = 4096;
+    private static final int STREAMINFO_OFFSET = 8;
+    private static final int STREAMINFO_SIZE = 34;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+    private static final byte[] UNKNOWN_SIGNATURE = new byte[16];
+
+    private final FileChannel channel;
+    private final FlacFrameEncoder frameEncoder;
+    private final EncodeStats stats;
+    private final int sampleRate;
+    private final int channelCount;
+    private final int[][] block;
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(MAX_CHUNK_SIZE);
+    private final ByteBuffer streamInfo = ByteBuffer.allocate(STREAMINFO_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final MessageDigest md5;
+    private final byte[] md5Bytes;
+
+    private int blockLength = 0;
+    private long frameNumber = 0;
+    private long samplesEncoded = 0; // per channel
+    private long samplesWritten = 0;
+    private int minFrameSize = Integer.MAX_VALUE;
+    private int maxFrameSize = 0;
+    private IOException writeFailure;
+    private boolean closed = false;
+
+    /**
+     * @param outputFile FLAC file to write
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount 1 or 2
+     * @param stats Receives the time spent in every {@link #encode} call
+     */
+    public FlacEncoder(File outputFile, int sampleRate, int channelCount, EncodeStats stats) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.stats = stats;
+        this.frameEncoder = new FlacFrameEncoder(sampleRate, channelCount, BLOCK_SIZE);
+        this.block = new int[channelCount][BLOCK_SIZE];
+        this.md5Bytes = new byte[BLOCK_SIZE * channelCount * 2];
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // The signature is optional, zero means unknown
+            digest = null;
+        }
+        this.md5 = digest;
+
+        RandomAccessFile file = new RandomAccessFile(outputFile, "rw");
+        this.channel = file.getChannel();
+        try {
+            channel.truncate(0);
+            writeHeader();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void encode(short[] pcm, int offset, int length) {
+        if (writeFailure != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        int frames = length / channelCount;
+        int position = offset;
+        try {
+            for (int i = 0; i < frames; i++) {
+                for (int c = 0; c < channelCount; c++) {
+                    block[c][blockLength] = pcm[position++];
+                }
+                if (++blockLength == BLOCK_SIZE) {
+                    writeFrame();
+                }
+            }
+        } catch (IOException e) {
+            // STREAMINFO covers what reached the file, that part stays playable
+            writeFailure = e;
+        }
+        stats.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void finish() {
+        if (closed || writeFailure != null) {
+            release();
+            return;
+        }
+        try {
+            if (blockLength > 0) {
+                writeFrame();
+            }
+            flushChunk();
+            byte[] signature = md5 != null ? md5.digest() : null;
+            writeStreamInfo(signature);
+        } catch (IOException e) {
+            writeFailure = e;
+        }
+        release();
+    }
+
+    @Override
+    public void release() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (writeFailure == null) {
+                // A partial block is dropped, the file ends at the last full frame
+                flushChunk();
+            }
+        } catch (IOException e) {
+            writeFailure = e;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close FLAC file", e);
+        }
+        if (writeFailure != null) {
+            Log.e(TAG, "FLAC output incomplete", writeFailure);
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        if (md5 != null) {
+            // The signature covers the samples interleaved, little-endian
+            int index = 0;
+            for (int i = 0; i < blockLength; i++) {
+                for (int c = 0; c < channelCount; c++) {
+                    int sample = block[c][i];
+                    md5Bytes[index++] = (byte) sample;
+                    md5Bytes[index++] = (byte) (sample >> 8);
+                }
+            }
+            md5.update(md5Bytes, 0, index);
+        }
+
+        byte[] frame = frameEncoder.encodeFrame(block, blockLength, frameNumber++);
+        int frameLength = frameEncoder.getFrameLength();
+        if (blockLength == BLOCK_SIZE) {
+            // The last frame may be shorter and doesn't count towards the minimum
+            minFrameSize = Math.min(minFrameSize, frameLength);
+        }
+        maxFrameSize = Math.max(maxFrameSize, frameLength);
+        int frameSamples = blockLength;
+        blockLength = 0;
+
+        if (frameLength > chunk.remaining()) {
+            flushChunk();
+        }
+        if (frameLength > chunk.remaining()) {
+            writeFully(ByteBuffer.wrap(frame, 0, frameLength));
+        } else {
+            chunk.put(frame, 0, frameLength);
+        }
+        // Only counted now, so the flush above doesn't let STREAMINFO claim this frame
+        samplesEncoded += frameSamples;
+        if (samplesEncoded - samplesWritten >= sampleRate) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        chunk.flip();
+        writeFully(chunk);
+        chunk.clear();
+        if (samplesEncoded != samplesWritten) {
+            samplesWritten = samplesEncoded;
+            writeStreamInfo(null);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(STREAMINFO_OFFSET);
+        header.put(new byte[] { 'f', 'L', 'a', 'C' })
+            .put((byte) 0x80) // last metadata block, STREAMINFO
+            .put((byte) 0)
+            .put((byte) 0)
+            .put((byte) STREAMINFO_SIZE);
+        header.flip();
+        writeFully(header);
+        buildStreamInfo(null);
+        writeFully(streamInfo);
+    }
+
+    /**
+     * Patch STREAMINFO in place to cover the frames on disk
+     * @param signature MD5 of the whole stream, null while it is still being written
+     */
+    private void writeStreamInfo(byte[] signature) throws IOException {
+        buildStreamInfo(signature);
+        while (streamInfo.hasRemaining()) {
+            channel.write(streamInfo, STREAMINFO_OFFSET + streamInfo.position());
+        }
+    }
+
+    private void buildStreamInfo(byte[] signature) {
+        streamInfo.clear();
+        streamInfo.putShort((short) BLOCK_SIZE); // minimum block size
+        streamInfo.putShort((short) BLOCK_SIZE); // maximum block size
+        int minFrame = maxFrameSize == 0 ? 0 : Math.min(minFrameSize, maxFrameSize);
+        putInt24(minFrame);
+        putInt24(maxFrameSize);
+        long packed = ((long) sampleRate << 44)
+            | ((long) (channelCount - 1) << 41)
+            | ((long) (FlacFrameEncoder.BITS_PER_SAMPLE - 1) << 36)
+            | (samplesWritten & 0xFFFFFFFFFL);
+        streamInfo.putLong(packed);
+        streamInfo.put(signature != null ? signature : UNKNOWN_SIGNATURE);
+        streamInfo.flip();
+    }
+
+    private void putInt24(int value) {
+        streamInfo.put((byte) (value >> 16));
+        streamInfo.put((byte) (value >> 8));
+        streamInfo.put((byte) value);
+    }
+}
@@ -0,0 +1,650 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.util.Arrays;
+
+/**
+ * Encodes blocks of 16-bit PCM into FLAC frames. Every channel is coded as
+ * whichever of a constant, a fixed polynomial predictor, an LPC predictor of
+ * up to {@link #MAX_LPC_ORDER} or verbatim samples comes out smallest, with a
+ * Rice-coded residual; stereo blocks also try left/side, right/side and
+ * mid/side decorrelation. Search effort is bounded per sample, so a block
+ * costs about the same no matter what it contains.
+ *
+ * Not thread-safe, frames are built in buffers owned by the encoder.
+ */
+class FlacFrameEncoder {
+    static final int BITS_PER_SAMPLE = 16;
+    static final int MAX_LPC_ORDER = 8;
+    // Coefficient precision the reference decoder can apply in 32-bit arithmetic
+    // to the 17-bit side channel at order 8
+    private static final int LPC_PRECISION = 12;
+    private static final int MAX_LPC_SHIFT = 15;
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_PARTITION_ORDER = 8;
+    private static final int MAX_RICE_PARAMETER = 14;
+
+    private static final int CHANNELS_INDEPENDENT = 0;
+    private static final int CHANNELS_LEFT_SIDE = 8;
+    private static final int CHANNELS_RIGHT_SIDE = 9;
+    private static final int CHANNELS_MID_SIDE = 10;
+
+    private static final int[] CRC8_TABLE = createCrcTable(0x07, 8);
+    private static final int[] CRC16_TABLE = createCrcTable(0x8005, 16);
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final int blockSize;
+    private final int sampleRateCode;
+    private final BitWriter out = new BitWriter();
+
+    // Scratch buffers, sized for a full block
+    private final int[] mid;
+    private final int[] side;
+    private final double[] window;
+    private final double[] windowed;
+    private final double[] autocorrelation = new double[MAX_LPC_ORDER + 1];
+    private final double[] reflected = new double[MAX_LPC_ORDER];
+    private final double[][] lpc = new double[MAX_LPC_ORDER][MAX_LPC_ORDER];
+    private final long[] fixedSums = new long[MAX_FIXED_ORDER + 1];
+    private final int[] coefficients = new int[MAX_LPC_ORDER];
+    private final int[] bestCoefficients = new int[MAX_LPC_ORDER];
+    private int[] residual;
+    private int[] bestResidual;
+    private final long[] partitionSums = new long[2 << MAX_PARTITION_ORDER];
+    private final int[] riceParameters = new int[1 << MAX_PARTITION_ORDER];
+    private final int[] bestRiceParameters = new int[1 << MAX_PARTITION_ORDER];
+    private int chosenPartitionOrder;
+    private int bestPartitionOrder;
+
+    /**
+     * @param blockSize Samples per channel in a full block
+     */
+    FlacFrameEncoder(int sampleRate, int channelCount, int blockSize) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.blockSize = blockSize;
+        this.sampleRateCode = getSampleRateCode(sampleRate);
+        this.mid = new int[blockSize];
+        this.side = new int[blockSize];
+        this.residual = new int[blockSize];
+        this.bestResidual = new int[blockSize];
+        this.windowed = new double[blockSize];
+        this.window = new double[blockSize];
+        // Welch window, tapers the block ends so they don't skew the autocorrelation
+        for (int i = 0; i < blockSize; i++) {
+            double x = (2.0 * i - (blockSize - 1)) / (blockSize + 1);
+            window[i] = 1 - x * x;
+        }
+    }
+
+    /**
+     * Encode one frame
+     * @param channels Samples of every channel
+     * @param length Samples per channel, the full block size except for the last frame
+     * @param frameNumber Index of the frame in the stream
+     * @return Buffer holding the frame, valid until the next call
+     */
+    byte[] encodeFrame(int[][] channels, int length, long frameNumber) {
+        out.reset();
+
+        int assignment = CHANNELS_INDEPENDENT;
+        int[] first = channels[0];
+        int[] second = channelCount == 2 ? channels[1] : null;
+        if (channelCount == 2) {
+            for (int i = 0; i < length; i++) {
+                mid[i] = (first[i] + second[i]) >> 1;
+                side[i] = first[i] - second[i];
+            }
+            // Order-2 residuals predict the coded size of each variant well enough
+            long left = estimateBits(first, length);
+            long right = estimateBits(second, length);
+            long midBits = estimateBits(mid, length);
+            long sideBits = estimateBits(side, length);
+            long best = left + right;
+            if (left + sideBits < best) {
+                best = left + sideBits;
+                assignment = CHANNELS_LEFT_SIDE;
+            }
+            if (sideBits + right < best) {
+                best = sideBits + right;
+                assignment = CHANNELS_RIGHT_SIDE;
+            }
+            if (midBits + sideBits < best) {
+                assignment = CHANNELS_MID_SIDE;
+            }
+        }
+
+        writeFrameHeader(length, frameNumber, assignment == CHANNELS_INDEPENDENT ? channelCount - 1 : assignment);
+        switch (assignment) {
+            case CHANNELS_LEFT_SIDE:
+                writeSubframe(first, length, BITS_PER_SAMPLE);
+                writeSubframe(side, length, BITS_PER_SAMPLE + 1);
+                break;
+            case CHANNELS_RIGHT_SIDE:
+                writeSubframe(side, length, BITS_PER_SAMPLE + 1);
+                writeSubframe(second, length, BITS_PER_SAMPLE);
+                break;
+            case CHANNELS_MID_SIDE:
+                writeSubframe(mid, length, BITS_PER_SAMPLE);
+                writeSubframe(side, length, BITS_PER_SAMPLE + 1);
+                break;
+            default:
+                for (int c = 0; c < channelCount; c++) {
+                    writeSubframe(channels[c], length, BITS_PER_SAMPLE);
+                }
+                break;
+        }
+
+        out.alignToByte();
+        int crc = crc(CRC16_TABLE, 16, out.buffer, 0, out.length());
+        out.writeBits(crc, 16);
+        return out.buffer;
+    }
+
+    /**
+     * @return Length of the frame returned by the last {@link #encodeFrame}
+     */
+    int getFrameLength() {
+        return out.length();
+    }
+
+    private void writeFrameHeader(int length, long frameNumber, int channelAssignment) {
+        out.writeBits(0x3FFE, 14); // sync code
+        out.writeBits(0, 1);
+        out.writeBits(0, 1); // fixed block size, frames are numbered
+        boolean fullBlock = length == blockSize && blockSize == 4096;
+        out.writeBits(fullBlock ? 12 : 7, 4); // 12: 4096 samples, 7: 16-bit size at the end of the header
+        out.writeBits(sampleRateCode, 4);
+        out.writeBits(channelAssignment, 4);
+        out.writeBits(4, 3); // 16 bits per sample
+        out.writeBits(0, 1);
+        writeUtf8(frameNumber);
+        if (!fullBlock) {
+            out.writeBits(length - 1, 16);
+        }
+        if (sampleRateCode == 12) {
+            out.writeBits(sampleRate / 1000, 8);
+        } else if (sampleRateCode == 13) {
+            out.writeBits(sampleRate, 16);
+        }
+        out.alignToByte();
+        out.writeBits(crc(CRC8_TABLE, 8, out.buffer, 0, out.length()), 8);
+    }
+
+    /**
+     * Frame numbers are coded like UTF-8 code points
+     */
+    private void writeUtf8(long value) {
+        if (value < 0x80) {
+            out.writeBits((int) value, 8);
+            return;
+        }
+        int extraBytes = value < 0x800 ? 1 : value < 0x10000 ? 2 : value < 0x200000 ? 3
+            : value < 0x4000000 ? 4 : 5;
+        int firstBits = 6 - extraBytes;
+        int prefix = (0xFF00 >> (extraBytes + 1)) & 0xFF;
+        out.writeBits(prefix | (int) (value >>> (6 * extraBytes)) & ((1 << firstBits) - 1), 8);
+        for (int i = extraBytes - 1; i >= 0; i--) {
+            out.writeBits(0x80 | (int) (value >>> (6 * i)) & 0x3F, 8);
+        }
+    }
+
+    private void writeSubframe(int[] samples, int length, int bitsPerSample) {
+        boolean constant = true;
+        for (int i = 1; i < length && constant; i++) {
+            constant = samples[i] == samples[0];
+        }
+        if (constant) {
+            out.writeBits(0, 8); // padding, type 000000, no wasted bits
+            out.writeBits(samples[0], bitsPerSample);
+            return;
+        }
+
+        long verbatimBits = (long) length * bitsPerSample;
+        long bestBits = verbatimBits;
+        int bestType = -1; // verbatim
+        int bestOrder = 0;
+        int bestShift = 0;
+
+        int fixedOrder = chooseFixedOrder(samples, length);
+        if (fixedOrder < length) {
+            computeFixedResidual(samples, length, fixedOrder);
+            long bits = fixedOrder * bitsPerSample + chooseRicePartitions(length, fixedOrder);
+            if (bits < bestBits) {
+                bestBits = bits;
+                bestType = 0;
+                bestOrder = fixedOrder;
+                keepResidual();
+            }
+        }
+
+        int maxLpcOrder = computeLpc(samples, length);
+        for (int order = 1; order <= maxLpcOrder; order++) {
+            int shift = quantize(lpc[order - 1], order);
+            if (shift < 0) {
+                continue;
+            }
+            computeLpcResidual(samples, length, order, shift);
+            long bits = order * (bitsPerSample + LPC_PRECISION) + 9
+                + chooseRicePartitions(length, order);
+            if (bits < bestBits) {
+                bestBits = bits;
+                bestType = 1;
+                bestOrder = order;
+                bestShift = shift;
+                System.arraycopy(coefficients, 0, bestCoefficients, 0, order);
+                keepResidual();
+            }
+        }
+
+        if (bestType < 0) {
+            out.writeBits(1 << 1, 8); // type 000001
+            for (int i = 0; i < length; i++) {
+                out.writeBits(samples[i], bitsPerSample);
+            }
+            return;
+        }
+
+        if (bestType == 0) {
+            out.writeBits((0x08 | bestOrder) << 1, 8); // type 001xxx
+        } else {
+            out.writeBits((0x20 | (bestOrder - 1)) << 1, 8); // type 1xxxxx
+        }
+        for (int i = 0; i < bestOrder; i++) {
+            out.writeBits(samples[i], bitsPerSample);
+        }
+        if (bestType == 1) {
+            out.writeBits(LPC_PRECISION - 1, 4);
+            out.writeBits(bestShift, 5);
+            for (int i = 0; i < bestOrder; i++) {
+                out.writeBits(bestCoefficients[i], LPC_PRECISION);
+            }
+        }
+        writeResidual(length, bestOrder);
+    }
+
+    private void keepResidual() {
+        int[] swap = bestResidual;
+        bestResidual = residual;
+        residual = swap;
+        bestPartitionOrder = chosenPartitionOrder;
+        System.arraycopy(riceParameters, 0, bestRiceParameters, 0, 1 << chosenPartitionOrder);
+    }
+
+    private void writeResidual(int length, int order) {
+        int partitionOrder = bestPartitionOrder;
+        int partitionSize = length >> partitionOrder;
+        out.writeBits(0, 2); // 4-bit Rice parameters
+        out.writeBits(partitionOrder, 4);
+        int position = order;
+        for (int p = 0; p < (1 << partitionOrder); p++) {
+            int parameter = bestRiceParameters[p];
+            out.writeBits(parameter, 4);
+            int end = (p + 1) * partitionSize;
+            for (; position < end; position++) {
+                int value = bestResidual[position];
+                out.writeRice((value << 1) ^ (value >> 31), parameter);
+            }
+        }
+    }
+
+    private long estimateBits(int[] samples, int length) {
+        long sum = 0;
+        for (int i = 2; i < length; i++) {
+            sum += Math.abs(samples[i] - 2 * samples[i - 1] + samples[i - 2]);
+        }
+        return riceBits(sum * 2, length);
+    }
+
+    /**
+     * Pick the fixed predictor order with the smallest residual, in one pass
+     */
+    private int chooseFixedOrder(int[] x, int length) {
+        if (length <= MAX_FIXED_ORDER) {
+            return 0;
+        }
+        long[] sums = fixedSums;
+        Arrays.fill(sums, 0);
+        int previous0 = x[MAX_FIXED_ORDER - 1];
+        int previous1 = previous0 - x[MAX_FIXED_ORDER - 2];
+        int previous2 = previous1 - (x[MAX_FIXED_ORDER - 2] - x[MAX_FIXED_ORDER - 3]);
+        int previous3 = previous2 - (x[MAX_FIXED_ORDER - 2] - 2 * x[MAX_FIXED_ORDER - 3] + x[MAX_FIXED_ORDER - 4]);
+        for (int i = MAX_FIXED_ORDER; i < length; i++) {
+            int e0 = x[i];
+            int e1 = e0 - previous0;
+            int e2 = e1 - previous1;
+            int e3 = e2 - previous2;
+            int e4 = e3 - previous3;
+            sums[0] += Math.abs(e0);
+            sums[1] += Math.abs(e1);
+            sums[2] += Math.abs(e2);
+            sums[3] += Math.abs(e3);
+            sums[4] += Math.abs(e4);
+            previous0 = e0;
+            previous1 = e1;
+            previous2 = e2;
+            previous3 = e3;
+        }
+        int best = 0;
+        for (int order = 1; order <= MAX_FIXED_ORDER; order++) {
+            if (sums[order] < sums[best]) {
+                best = order;
+            }
+        }
+        return best;
+    }
+
+    private void computeFixedResidual(int[] x, int length, int order) {
+        int[] r = residual;
+        switch (order) {
+            case 0:
+                System.arraycopy(x, 0, r, 0, length);
+                break;
+            case 1:
+                for (int i = 1; i < length; i++) {
+                    r[i] = x[i] - x[i - 1];
+                }
+                break;
+            case 2:
+                for (int i = 2; i < length; i++) {
+                    r[i] = x[i] - 2 * x[i - 1] + x[i - 2];
+                }
+                break;
+            case 3:
+                for (int i = 3; i < length; i++) {
+                    r[i] = x[i] - 3 * x[i - 1] + 3 * x[i - 2] - x[i - 3];
+                }
+                break;
+            default:
+                for (int i = 4; i < length; i++) {
+                    r[i] = x[i] - 4 * x[i - 1] + 6 * x[i - 2] - 4 * x[i - 3] + x[i - 4];
+                }
+                break;
+        }
+    }
+
+    /**
+     * Levinson-Durbin recursion on the windowed autocorrelation, filling
+     * {@link #lpc} with the predictor of every order
+     * @return Highest usable order, 0 if the block can't be predicted
+     */
+    private int computeLpc(int[] x, int length) {
+        int maxOrder = Math.min(MAX_LPC_ORDER, length - 1);
+        if (maxOrder < 1) {
+            return 0;
+        }
+        for (int i = 0; i < length; i++) {
+            windowed[i] = x[i] * window(i, length);
+        }
+        for (int lag = 0; lag <= maxOrder; lag++) {
+            double sum = 0;
+            for (int i = lag; i < length; i++) {
+                sum += windowed[i] * windowed[i - lag];
+            }
+            autocorrelation[lag] = sum;
+        }
+        if (autocorrelation[0] <= 0) {
+            return 0;
+        }
+
+        double error = autocorrelation[0];
+        double[] current = reflected;
+        for (int order = 0; order < maxOrder; order++) {
+            double reflection = -autocorrelation[order + 1];
+            for (int j = 0; j < order; j++) {
+                reflection -= current[j] * autocorrelation[order - j];
+            }
+            reflection /= error;
+
+            current[order] = reflection;
+            for (int j = 0; j < order / 2; j++) {
+                double a = current[j];
+                double b = current[order - 1 - j];
+                current[j] = a + reflection * b;
+                current[order - 1 - j] = b + reflection * a;
+            }
+            if ((order & 1) != 0) {
+                current[order / 2] += current[order / 2] * reflection;
+            }
+            error *= 1 - reflection * reflection;
+
+            // Predictor coefficients are the negated filter coefficients
+            for (int j = 0; j <= order; j++) {
+                lpc[order][j] = -current[j];
+            }
+            if (error <= 0) {
+                return order + 1;
+            }
+        }
+        return maxOrder;
+    }
+
+    private double window(int i, int length) {
+        if (length == blockSize) {
+            return window[i];
+        }
+        double x = (2.0 * i - (length - 1)) / (length + 1);
+        return 1 - x * x;
+    }
+
+    /**
+     * Quantize predictor coefficients into {@link #coefficients}, carrying the
+     * rounding error over to the next one
+     * @return The shift to apply to the prediction, -1 if the coefficients can't be represented
+     */
+    private int quantize(double[] predictor, int order) {
+        double max = 0;
+        for (int i = 0; i < order; i++) {
+            max = Math.max(max, Math.abs(predictor[i]));
+        }
+        if (max <= 0 || Double.isNaN(max) || Double.isInfinite(max)) {
+            return -1;
+        }
+        int shift = Math.min(MAX_LPC_SHIFT, LPC_PRECISION - 2 - Math.getExponent(max));
+        if (shift < 0) {
+            return -1;
+        }
+        int limit = (1 << (LPC_PRECISION - 1)) - 1;
+        double error = 0;
+        for (int i = 0; i < order; i++) {
+            error += predictor[i] * (1 << shift);
+            long q = Math.round(error);
+            q = Math.max(-limit - 1, Math.min(limit, q));
+            coefficients[i] = (int) q;
+            error -= q;
+        }
+        return shift;
+    }
+
+    private void computeLpcResidual(int[] x, int length, int order, int shift) {
+        int[] r = residual;
+        int[] c = coefficients;
+        for (int i = order; i < length; i++) {
+            long sum = 0;
+            for (int j = 0; j < order; j++) {
+                sum += (long) c[j] * x[i - 1 - j];
+            }
+            r[i] = x[i] - (int) (sum >> shift);
+        }
+    }
+
+    /**
+     * Find the partition order and Rice parameters that code {@link #residual}
+     * smallest, leaving them in {@link #riceParameters} and {@link #chosenPartitionOrder}
+     * @return Size of the coded residual in bits, with its headers
+     */
+    private long chooseRicePartitions(int length, int order) {
+        int maxPartitionOrder = 0;
+        while (maxPartitionOrder < MAX_PARTITION_ORDER
+                && (length & (1 << (maxPartitionOrder + 1)) - 1) == 0
+                && (length >> (maxPartitionOrder + 1)) > order) {
+            maxPartitionOrder++;
+        }
+
+        // Sums of the folded residual per partition at the highest order, at
+        // offset 1 << order; lower orders add up pairs
+        int[] r = residual;
+        int partitions = 1 << maxPartitionOrder;
+        int partitionSize = length >> maxPartitionOrder;
+        int position = order;
+        for (int p = 0; p < partitions; p++) {
+            long sum = 0;
+            int end = (p + 1) * partitionSize;
+            for (; position < end; position++) {
+                int value = r[position];
+                sum += (value << 1) ^ (value >> 31);
+            }
+            partitionSums[partitions + p] = sum;
+        }
+        for (int level = maxPartitionOrder - 1; level >= 0; level--) {
+            int base = 1 << level;
+            for (int p = 0; p < base; p++) {
+                partitionSums[base + p] = partitionSums[2 * (base + p)] + partitionSums[2 * (base + p) + 1];
+            }
+        }
+
+        long bestBits = Long.MAX_VALUE;
+        for (int partitionOrder = maxPartitionOrder; partitionOrder >= 0; partitionOrder--) {
+            int base = 1 << partitionOrder;
+            int size = length >> partitionOrder;
+            long bits = 6;
+            for (int p = 0; p < base; p++) {
+                int count = p == 0 ? size - order : size;
+                bits += 4 + riceBits(partitionSums[base + p], count);
+            }
+            if (bits < bestBits) {
+                bestBits = bits;
+                chosenPartitionOrder = partitionOrder;
+                for (int p = 0; p < base; p++) {
+                    int count = p == 0 ? size - order : size;
+                    riceParameters[p] = riceParameter(partitionSums[base + p], count);
+                }
+            }
+        }
+        return bestBits;
+    }
+
+    private static int riceParameter(long sum, int count) {
+        if (count <= 0 || sum <= count) {
+            return 0;
+        }
+        // The mean folded value is about 1.4 times 2^k at the best k
+        int parameter = 63 - Long.numberOfLeadingZeros(sum / count);
+        return Math.min(parameter, MAX_RICE_PARAMETER);
+    }
+
+    private static long riceBits(long sum, int count) {
+        int parameter = riceParameter(sum, count);
+        return (long) count * (parameter + 1) + (sum >> parameter);
+    }
+
+    private static int getSampleRateCode(int sampleRate) {
+        switch (sampleRate) {
+            case 88200: return 1;
+            case 176400: return 2;
+            case 192000: return 3;
+            case 8000: return 4;
+            case 16000: return 5;
+            case 22050: return 6;
+            case 24000: return 7;
+            case 32000: return 8;
+            case 44100: return 9;
+            case 48000: return 10;
+            case 96000: return 11;
+            default:
+                if (sampleRate % 1000 == 0 && sampleRate / 1000 <= 255) {
+                    return 12; // kHz in an 8-bit field
+                }
+                return sampleRate <= 0xFFFF ? 13 : 0; // Hz in a 16-bit field, else STREAMINFO's
+        }
+    }
+
+    private static int crc(int[] table, int width, byte[] data, int offset, int length) {
+        int crc = 0;
+        int mask = (1 << width) - 1;
+        for (int i = offset; i < offset + length; i++) {
+            crc = ((crc << 8) ^ table[((crc >>> (width - 8)) ^ data[i]) & 0xFF]) & mask;
+        }
+        return crc;
+    }
+
+    private static int[] createCrcTable(int polynomial, int width) {
+        int[] table = new int[256];
+        int top = 1 << (width - 1);
+        int mask = (1 << width) - 1;
+        for (int i = 0; i < 256; i++) {
+            int r = i << (width - 8);
+            for (int bit = 0; bit < 8; bit++) {
+                r = (r & top) != 0 ? (r << 1) ^ polynomial : r << 1;
+            }
+            table[i] = r & mask;
+        }
+        return table;
+    }
+
+    /**
+     * MSB-first bit writer into a growing byte array
+     */
+    private static final class BitWriter {
+        byte[] buffer = new byte[16 * 1024];
+        private int byteLength = 0;
+        private long accumulator = 0;
+        private int accumulatedBits = 0;
+
+        void reset() {
+            byteLength = 0;
+            accumulator = 0;
+            accumulatedBits = 0;
+        }
+
+        /**
+         * @return Bytes written, once aligned
+         */
+        int length() {
+            return byteLength;
+        }
+
+        /**
+         * Write the low bits of a value, which also codes negative values in two's complement
+         */
+        void writeBits(int value, int bits) {
+            accumulator = (accumulator << bits) | (value & ((1L << bits) - 1));
+            accumulatedBits += bits;
+            while (accumulatedBits >= 8) {
+                accumulatedBits -= 8;
+                putByte((int) (accumulator >>> accumulatedBits));
+            }
+        }
+
+        /**
+         * Unary quotient then the low bits, for a folded, non-negative value
+         */
+        void writeRice(int value, int parameter) {
+            int quotient = value >>> parameter;
+            while (quotient >= 24) {
+                writeBits(0, 24);
+                quotient -= 24;
+            }
+            // Zeros, the stop bit and the remainder in one go when they fit
+            if (quotient + 1 + parameter <= 32) {
+                writeBits((1 << parameter) | (value & ((1 << parameter) - 1)), quotient + 1 + parameter);
+            } else {
+                writeBits(1, quotient + 1);
+                writeBits(value, parameter);
+            }
+        }
+
+        void alignToByte() {
+            if (accumulatedBits > 0) {
+                writeBits(0, 8 - accumulatedBits);
+            }
+        }
+
+        private void putByte(int value) {
+            if (byteLength == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[byteLength++] = (byte) value;
+        }
+    }
+}
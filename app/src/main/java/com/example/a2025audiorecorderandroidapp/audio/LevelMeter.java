@@ -0,0 +1,101 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import com.example.a2025audiorecorderandroidapp.utils.AudioAmplitudeExtractor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures input level at a fixed sampling rate and keeps only the latest
+ * measurement in a lock-free slot. The producer never waits for the reader:
+ * a measurement that is overwritten before {@link #poll} picks it up is
+ * counted as dropped.
+ *
+ * Runs as a capture consumer on the raw path; the MediaRecorder path feeds
+ * it through {@link #submit} instead.
+ */
+public class LevelMeter implements PcmConsumer {
+    // Peak and RMS are non-negative floats, so a packed value never has all bits set
+    private static final long EMPTY = -1L;
+
+    private final int sampleRateHz;
+    private final AtomicLong slot = new AtomicLong(EMPTY);
+    private final AudioAmplitudeExtractor.AmplitudeResult result = new AudioAmplitudeExtractor.AmplitudeResult(2);
+
+    private int samplesPerMeasurement;
+    private int channelCount;
+    private int accumulatedSamples;
+    private float accumulatedPeak;
+    private double accumulatedSquares;
+
+    private volatile long produced = 0;
+    private volatile long dropped = 0;
+    private volatile long published = 0;
+
+    /**
+     * @param sampleRateHz Measurements per second
+     */
+    public LevelMeter(int sampleRateHz) {
+        this.sampleRateHz = sampleRateHz;
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.channelCount = channelCount;
+        this.samplesPerMeasurement = Math.max(1, sampleRate / sampleRateHz) * channelCount;
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        AudioAmplitudeExtractor.analyze(frame, 0, length, channelCount, result);
+        int samples = length - length % channelCount;
+        accumulatedPeak = Math.max(accumulatedPeak, result.overallPeak);
+        accumulatedSquares += (double) result.overallRms * result.overallRms * samples;
+        accumulatedSamples += samples;
+
+        if (accumulatedSamples >= samplesPerMeasurement) {
+            submit(accumulatedPeak, (float) Math.sqrt(accumulatedSquares / accumulatedSamples));
+            accumulatedSamples = 0;
+            accumulatedPeak = 0;
+            accumulatedSquares = 0;
+        }
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        submit(0, 0);
+    }
+
+    /**
+     * Store a measurement, replacing any that wasn't polled yet. Call from a single thread.
+     * @param peak Peak level, 0.0 - 1.0
+     * @param rms RMS level, 0.0 - 1.0
+     */
+    public void submit(float peak, float rms) {
+        long packed = ((long) Float.floatToRawIntBits(peak) << 32) | (Float.floatToRawIntBits(rms) & 0xFFFFFFFFL);
+        long previous = slot.getAndSet(packed);
+        produced++;
+        if (previous != EMPTY) {
+            dropped++;
+        }
+    }
+
+    /**
+     * Take the latest measurement, if there is a new one
+     * @param out Receives peak at index 0 and RMS at index 1
+     * @return false if nothing was measured since the last poll
+     */
+    public boolean poll(float[] out) {
+        long packed = slot.getAndSet(EMPTY);
+        if (packed == EMPTY) {
+            return false;
+        }
+        out[0] = Float.intBitsToFloat((int) (packed >>> 32));
+        out[1] = Float.intBitsToFloat((int) packed);
+        published++;
+        return true;
+    }
+
+    public long getProducedCount() { return produced; }
+    public long getPublishedCount() { return published; }
+    public long getDroppedCount() { return dropped; }
+}
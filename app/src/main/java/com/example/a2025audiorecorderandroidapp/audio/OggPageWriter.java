@@ -0,0 +1,216 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes one logical Ogg bitstream (RFC 3533). Packets are laced into the
+ * page being built; a page is written once adding another packet would take
+ * it past its maximum duration, or when it runs out of lacing segments.
+ * Every page goes to the file in full as soon as it is complete, so a file
+ * cut off by a crash loses at most the page being built.
+ *
+ * Granule positions are given per packet, in the stream's granule units. A
+ * page carries the granule position of the last packet that ends on it, or
+ * -1 if none does.
+ */
+public class OggPageWriter implements Closeable {
+    private static final int HEADER_SIZE = 27;
+    private static final int MAX_SEGMENTS = 255;
+    private static final int FLAG_CONTINUED = 0x01;
+    private static final int FLAG_FIRST = 0x02;
+    private static final int FLAG_LAST = 0x04;
+    private static final int[] CRC_TABLE = createCrcTable();
+
+    private final FileOutputStream out;
+    private final int serialNumber;
+    private final long maxPageGranules;
+    private final byte[] header = new byte[HEADER_SIZE + MAX_SEGMENTS];
+    private byte[] body = new byte[4096];
+
+    // Page being built
+    private int segmentCount = 0;
+    private int bodyLength = 0;
+    private boolean continued = false;
+    private long pageGranule = -1;
+    private long pageStartGranule = -1;
+
+    private int sequenceNumber = 0;
+    private long lastWrittenGranule = 0;
+    private long bytesWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * @param file File to write
+     * @param serialNumber Serial number of the logical stream, should be random
+     * @param maxPageGranules Longest span of granules a page covers
+     */
+    public OggPageWriter(File file, int serialNumber, long maxPageGranules) throws IOException {
+        this.out = new FileOutputStream(file);
+        this.serialNumber = serialNumber;
+        this.maxPageGranules = maxPageGranules;
+    }
+
+    /**
+     * Add a packet to the stream
+     * @param granulePosition Granule position at the end of the packet
+     */
+    public void writePacket(byte[] packet, int offset, int length, long granulePosition) throws IOException {
+        if (pageGranule >= 0 && granulePosition - pageStartGranule > maxPageGranules) {
+            writePage(0);
+        }
+
+        int position = offset;
+        int end = offset + length;
+        while (true) {
+            if (segmentCount == MAX_SEGMENTS) {
+                writePage(0);
+                continued = position > offset;
+            }
+            // A lacing value below 255 ends the packet, so a multiple of 255 ends with a 0
+            int segment = Math.min(255, end - position);
+            header[HEADER_SIZE + segmentCount++] = (byte) segment;
+            appendBody(packet, position, segment);
+            position += segment;
+            if (segment < 255) {
+                break;
+            }
+        }
+
+        if (pageStartGranule < 0) {
+            pageStartGranule = lastWrittenGranule;
+        }
+        pageGranule = granulePosition;
+    }
+
+    /**
+     * Write the page being built now, e.g. to keep header packets on pages of their own.
+     */
+    public void flushPage() throws IOException {
+        if (segmentCount > 0) {
+            writePage(0);
+        }
+    }
+
+    /**
+     * @return Bytes written to the file so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * End the stream and close the file.
+     * @param maxGranulePosition Limit for the granule position of the last
+     *                           page, to trim padding the encoder added at the end
+     */
+    public void close(long maxGranulePosition) throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (pageGranule >= 0) {
+                pageGranule = Math.max(lastWrittenGranule, Math.min(pageGranule, maxGranulePosition));
+            } else if (segmentCount == 0) {
+                // Nothing left to write, end the stream with an empty page
+                pageGranule = lastWrittenGranule;
+            }
+            writePage(FLAG_LAST);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(Long.MAX_VALUE);
+    }
+
+    private void appendBody(byte[] data, int offset, int length) {
+        if (bodyLength + length > body.length) {
+            byte[] grown = new byte[Math.max(body.length * 2, bodyLength + length)];
+            System.arraycopy(body, 0, grown, 0, bodyLength);
+            body = grown;
+        }
+        System.arraycopy(data, offset, body, bodyLength, length);
+        bodyLength += length;
+    }
+
+    private void writePage(int flags) throws IOException {
+        if (sequenceNumber == 0) {
+            flags |= FLAG_FIRST;
+        }
+        if (continued) {
+            flags |= FLAG_CONTINUED;
+        }
+
+        header[0] = 'O';
+        header[1] = 'g';
+        header[2] = 'g';
+        header[3] = 'S';
+        header[4] = 0; // version
+        header[5] = (byte) flags;
+        putLong(header, 6, pageGranule);
+        putInt(header, 14, serialNumber);
+        putInt(header, 18, sequenceNumber);
+        putInt(header, 22, 0);
+        header[26] = (byte) segmentCount;
+        int headerLength = HEADER_SIZE + segmentCount;
+
+        // The checksum covers the whole page with the checksum field zeroed
+        int crc = updateCrc(0, header, 0, headerLength);
+        crc = updateCrc(crc, body, 0, bodyLength);
+        putInt(header, 22, crc);
+
+        out.write(header, 0, headerLength);
+        out.write(body, 0, bodyLength);
+        bytesWritten += headerLength + bodyLength;
+
+        sequenceNumber++;
+        if (pageGranule >= 0) {
+            lastWrittenGranule = pageGranule;
+        }
+        segmentCount = 0;
+        bodyLength = 0;
+        continued = false;
+        pageGranule = -1;
+        pageStartGranule = -1;
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void putLong(byte[] buffer, int offset, long value) {
+        putInt(buffer, offset, (int) value);
+        putInt(buffer, offset + 4, (int) (value >>> 32));
+    }
+
+    /**
+     * CRC-32 as Ogg uses it: polynomial 0x04C11DB7, not reflected, no initial or final XOR
+     */
+    static int updateCrc(int crc, byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    private static int[] createCrcTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int r = i << 24;
+            for (int bit = 0; bit < 8; bit++) {
+                r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04C11DB7 : r << 1;
+            }
+            table[i] = r;
+        }
+        return table;
+    }
+}
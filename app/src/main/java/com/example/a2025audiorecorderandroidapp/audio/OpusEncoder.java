@@ -0,0 +1,321 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Encodes 16-bit PCM to Opus with MediaCodec and writes it as an Ogg Opus
+ * file (RFC 7845) through {@link OggPageWriter}. Pages reach the file while
+ * recording, so unlike MPEG-4 a file cut off by a crash plays up to its last
+ * page without a journal.
+ * Not thread-safe, feed it from a single thread.
+ */
+public class OpusEncoder implements AudioEncoder {
+    private static final String TAG = "OpusEncoder";
+    private static final long TIMEOUT_US = 10_000;
+    // How long finishing waits on a codec that produces nothing before giving up
+    private static final long END_OF_STREAM_TIMEOUT_US = 2_000_000;
+    // Ogg Opus granule positions always count 48 kHz samples
+    private static final int GRANULE_RATE = 48000;
+    private static final long MAX_PAGE_GRANULES = GRANULE_RATE; // a second per page
+    // libopus lookahead at 48 kHz, for encoders that don't report theirs
+    private static final int DEFAULT_PRE_SKIP = 312;
+    // SILK-only frames last 10, 20, 40 or 60 ms
+    private static final int[] SILK_FRAME_SAMPLES = { 480, 960, 1920, 2880 };
+    private static final byte[] OPUS_HEAD = "OpusHead".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OPUS_TAGS = "OpusTags".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VENDOR = "Android MediaCodec".getBytes(StandardCharsets.US_ASCII);
+
+    private final MediaCodec codec;
+    private final OggPageWriter writer;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private final int sampleRate;
+    private final int channelCount;
+    private final EncodeStats stats;
+
+    private byte[] packet = new byte[1500];
+    private int preSkip = DEFAULT_PRE_SKIP;
+    private boolean headersWritten = false;
+    private long samplesQueued = 0;
+    private long granulePosition = 0;
+    private IOException writeFailure;
+
+    /**
+     * @param outputFile Ogg file to write
+     * @param sampleRate Sample rate in Hz, one of 8, 12, 16, 24 or 48 kHz
+     * @param channelCount 1 or 2
+     * @param bitRate Target bitrate in bits per second
+     * @param stats Receives the time spent in every {@link #encode} call
+     */
+    public OpusEncoder(File outputFile, int sampleRate, int channelCount, int bitRate,
+                       EncodeStats stats) throws IOException {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.stats = stats;
+
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_OPUS, sampleRate, channelCount);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+
+        codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_OPUS);
+        try {
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            writer = new OggPageWriter(outputFile, new Random().nextInt(), MAX_PAGE_GRANULES);
+        } catch (IOException | RuntimeException e) {
+            codec.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void encode(short[] pcm, int offset, int length) {
+        long start = System.nanoTime();
+        int position = offset;
+        int end = offset + length;
+
+        while (position < end) {
+            int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+            if (inputIndex < 0) {
+                // Codec is full, make room by draining output
+                drain(0);
+                continue;
+            }
+
+            ByteBuffer input = codec.getInputBuffer(inputIndex);
+            input.clear();
+            int count = Math.min(input.remaining() / 2, end - position);
+            input.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm, position, count);
+
+            codec.queueInputBuffer(inputIndex, 0, count * 2, presentationTimeUs(), 0);
+            samplesQueued += count;
+            position += count;
+        }
+
+        drain(0);
+        stats.record(System.nanoTime() - start);
+    }
+
+    /**
+     * @throws IOException If the codec stops producing output before the end
+     *                     of stream; the pages written so far are closed off
+     */
+    @Override
+    public void finish() throws IOException {
+        try {
+            long deadline = System.nanoTime() + END_OF_STREAM_TIMEOUT_US * 1000;
+            int inputIndex;
+            while ((inputIndex = codec.dequeueInputBuffer(TIMEOUT_US)) < 0) {
+                drain(0);
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IOException("Opus encoder accepts no input");
+                }
+            }
+            codec.queueInputBuffer(inputIndex, 0, 0, presentationTimeUs(), MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            if (!drain(END_OF_STREAM_TIMEOUT_US)) {
+                throw new IOException("Opus encoder never ended the stream");
+            }
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void release() {
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+            // Already stopped
+        }
+        codec.release();
+
+        try {
+            if (!headersWritten) {
+                writeHeaders();
+            }
+            // The encoder pads the last packet, the end granule trims it back to the input
+            long inputGranules = (samplesQueued / channelCount) * GRANULE_RATE / sampleRate;
+            writer.close(preSkip + inputGranules);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to end the Ogg stream", e);
+        }
+        if (writeFailure != null) {
+            Log.e(TAG, "Ogg output incomplete", writeFailure);
+        }
+    }
+
+    private long presentationTimeUs() {
+        return (samplesQueued / channelCount) * 1_000_000L / sampleRate;
+    }
+
+    /**
+     * Write the output the codec has ready
+     * @param timeoutUs How long to wait for the end of stream while no output
+     *                  comes, 0 to return as soon as none is ready
+     * @return Whether the end of stream was reached
+     */
+    private boolean drain(long timeoutUs) {
+        long deadline = System.nanoTime() + timeoutUs * 1000;
+        while (true) {
+            int outputIndex = codec.dequeueOutputBuffer(bufferInfo, timeoutUs > 0 ? TIMEOUT_US : 0);
+            if (outputIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                readPreSkip(codec.getOutputFormat());
+            } else if (outputIndex >= 0) {
+                ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                if (output != null && bufferInfo.size > 0) {
+                    output.position(bufferInfo.offset);
+                    output.limit(bufferInfo.offset + bufferInfo.size);
+                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                        readPreSkip(output);
+                    } else {
+                        writePacket(output);
+                    }
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return true;
+                }
+                // Waiting starts over while the codec makes progress
+                deadline = System.nanoTime() + timeoutUs * 1000;
+            }
+        }
+    }
+
+    private void writePacket(ByteBuffer output) {
+        int length = output.remaining();
+        if (length > packet.length) {
+            packet = new byte[length];
+        }
+        output.get(packet, 0, length);
+        granulePosition += getPacketSamples(packet, length);
+        if (writeFailure != null) {
+            return;
+        }
+        try {
+            if (!headersWritten) {
+                writeHeaders();
+            }
+            writer.writePacket(packet, 0, length, preSkip + granulePosition);
+        } catch (IOException e) {
+            // Keep draining the codec, the pages written so far stay playable
+            writeFailure = e;
+        }
+    }
+
+    /**
+     * Identification and comment headers, each on a page of its own
+     */
+    private void writeHeaders() throws IOException {
+        headersWritten = true;
+        ByteBuffer head = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        head.put(OPUS_HEAD)
+            .put((byte) 1) // version
+            .put((byte) channelCount)
+            .putShort((short) preSkip)
+            .putInt(sampleRate)
+            .putShort((short) 0) // output gain
+            .put((byte) 0); // mapping family: mono or stereo
+        writer.writePacket(head.array(), 0, head.position(), 0);
+        writer.flushPage();
+
+        ByteBuffer tags = ByteBuffer.allocate(OPUS_TAGS.length + 8 + VENDOR.length).order(ByteOrder.LITTLE_ENDIAN);
+        tags.put(OPUS_TAGS)
+            .putInt(VENDOR.length)
+            .put(VENDOR)
+            .putInt(0); // no user comments
+        writer.writePacket(tags.array(), 0, tags.position(), 0);
+        writer.flushPage();
+    }
+
+    /**
+     * The codec delay comes either as csd-1, in nanoseconds, or inside an
+     * OpusHead in the codec config, depending on the encoder.
+     */
+    private void readPreSkip(MediaFormat format) {
+        ByteBuffer delay = format.getByteBuffer("csd-1");
+        if (delay != null && delay.remaining() == 8) {
+            long delayNs = delay.duplicate().order(ByteOrder.nativeOrder()).getLong();
+            setPreSkip((int) (delayNs * GRANULE_RATE / 1_000_000_000L));
+        }
+        ByteBuffer config = format.getByteBuffer("csd-0");
+        if (config != null) {
+            readPreSkip(config.duplicate());
+        }
+    }
+
+    private void readPreSkip(ByteBuffer config) {
+        int start = config.position();
+        int end = config.limit() - 12;
+        for (int i = start; i < end; i++) {
+            if (matches(config, i, OPUS_HEAD)) {
+                int low = config.get(i + 10) & 0xFF;
+                int high = config.get(i + 11) & 0xFF;
+                setPreSkip(low | (high << 8));
+                return;
+            }
+        }
+    }
+
+    private void setPreSkip(int samples) {
+        if (headersWritten || samples <= 0 || samples > GRANULE_RATE) {
+            return;
+        }
+        preSkip = samples;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int offset, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (buffer.get(offset + i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Duration of an Opus packet in 48 kHz samples, from its TOC byte (RFC 6716, 3.1)
+     */
+    static int getPacketSamples(byte[] packet, int length) {
+        if (length < 1) {
+            return 0;
+        }
+        int toc = packet[0] & 0xFF;
+        int config = toc >> 3;
+        int frameSamples;
+        if (config < 12) {
+            frameSamples = SILK_FRAME_SAMPLES[config & 3];
+        } else if (config < 16) {
+            // Hybrid: 10, 20 ms
+            frameSamples = (config & 1) == 0 ? 480 : 960;
+        } else {
+            // CELT: 2.5, 5, 10, 20 ms
+            frameSamples = 120 << (config & 3);
+        }
+
+        int frameCount;
+        switch (toc & 3) {
+            case 0:
+                frameCount = 1;
+                break;
+            case 1:
+            case 2:
+                frameCount = 2;
+                break;
+            default:
+                frameCount = length < 2 ? 0 : packet[1] & 0x3F;
+                break;
+        }
+        return frameCount * frameSamples;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Raw PCM capture built on AudioRecord. A dedicated urgent-audio thread reads
+ * 10 ms frames into a preallocated {@link PcmRingBuffer}; every registered
+ * {@link PcmConsumer} runs on its own thread with its own ring cursor, so a
+ * slow consumer loses frames (counted as overruns) instead of stalling capture.
+ * A consumer that throws is detached and its failure kept for
+ * {@link #getFailure}, while capture and the other consumers carry on.
+ *
+ * An engine captures a single session; create a new one for every recording.
+ */
+public class PcmCaptureEngine {
+    private static final String TAG = "PcmCaptureEngine";
+    public static final int FRAME_DURATION_MS = 10;
+    private static final long PAUSE_POLL_NS = 50_000_000L;
+
+    private final int audioSource;
+    private final int sampleRate;
+    private final int channelCount;
+    private final int frameSamples;
+    private final PcmRingBuffer ringBuffer;
+    private final List<ConsumerThread> consumers = new ArrayList<>();
+
+    private AudioRecord audioRecord;
+    private Thread captureThread;
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private volatile boolean captureFinished = false;
+    private volatile long framesCaptured = 0;
+    private volatile long readErrorCount = 0;
+
+    /**
+     * @param audioSource MediaRecorder.AudioSource constant
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount 1 for mono, 2 for stereo
+     * @param latencyBudgetMs How far a consumer may fall behind before frames are dropped
+     */
+    public PcmCaptureEngine(int audioSource, int sampleRate, int channelCount, int latencyBudgetMs) {
+        this.audioSource = audioSource;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.frameSamples = sampleRate * channelCount * FRAME_DURATION_MS / 1000;
+        this.ringBuffer = new PcmRingBuffer(Math.max(2, latencyBudgetMs / FRAME_DURATION_MS), frameSamples);
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannelCount() { return channelCount; }
+    public int getFrameSamples() { return frameSamples; }
+
+    /**
+     * Registers a consumer. Must be called before {@link #start()}.
+     */
+    public void addConsumer(PcmConsumer consumer) {
+        if (running) {
+            throw new IllegalStateException("Consumers must be added before capture starts");
+        }
+        consumers.add(new ConsumerThread(consumer, ringBuffer.newReader()));
+    }
+
+    @SuppressLint("MissingPermission") // RECORD_AUDIO is requested before recording starts
+    public void start() throws IOException {
+        if (running) {
+            return;
+        }
+
+        int channelMask = channelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+        int minBufferSize = AudioRecord.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBufferSize <= 0) {
+            throw new IOException("Unsupported capture format: " + sampleRate + " Hz, " + channelCount + " ch");
+        }
+
+        // Leave the driver room for a few frames of scheduling jitter
+        int bufferSize = Math.max(minBufferSize, frameSamples * 2 * 4);
+        audioRecord = new AudioRecord(audioSource, sampleRate, channelMask,
+            AudioFormat.ENCODING_PCM_16BIT, bufferSize);
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            audioRecord.release();
+            audioRecord = null;
+            throw new IOException("Failed to initialize AudioRecord");
+        }
+
+        running = true;
+        paused = false;
+        for (ConsumerThread consumer : consumers) {
+            consumer.start();
+        }
+
+        audioRecord.startRecording();
+        captureThread = new Thread(this::captureLoop, "PcmCapture");
+        captureThread.start();
+    }
+
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Stops capture, lets every consumer drain what is left in the ring and
+     * waits for them to finish.
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        joinQuietly(captureThread);
+        captureThread = null;
+        // Only now is the last frame published, consumers drain up to here
+        captureFinished = true;
+
+        for (ConsumerThread consumer : consumers) {
+            LockSupport.unpark(consumer);
+            joinQuietly(consumer);
+        }
+
+        try {
+            audioRecord.stop();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "AudioRecord already stopped", e);
+        }
+        audioRecord.release();
+        audioRecord = null;
+    }
+
+    public long getFramesCaptured() { return framesCaptured; }
+    public long getReadErrorCount() { return readErrorCount; }
+
+    /**
+     * @return What a consumer threw before it was detached, null if it didn't
+     */
+    public RuntimeException getFailure(PcmConsumer consumer) {
+        for (ConsumerThread thread : consumers) {
+            if (thread.consumer == consumer) {
+                return thread.failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Frames lost across all consumers because they fell behind the latency budget.
+     */
+    public long getOverrunCount() {
+        long total = 0;
+        for (ConsumerThread consumer : consumers) {
+            total += consumer.reader.getOverrunCount();
+        }
+        return total;
+    }
+
+    /**
+     * Times any consumer waited longer than two frames for new audio.
+     */
+    public long getUnderrunCount() {
+        long total = 0;
+        for (ConsumerThread consumer : consumers) {
+            total += consumer.reader.getUnderrunCount();
+        }
+        return total;
+    }
+
+    private void captureLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        AudioRecord record = audioRecord;
+
+        while (running) {
+            short[] slot = ringBuffer.claim();
+            int read = record.read(slot, 0, frameSamples);
+            if (read < 0) {
+                readErrorCount++;
+                Log.w(TAG, "AudioRecord read failed: " + read);
+                if (read == AudioRecord.ERROR_DEAD_OBJECT) {
+                    break;
+                }
+                continue;
+            }
+            // Keep draining the driver while paused but don't hand the audio on
+            if (read > 0 && !paused) {
+                ringBuffer.publish(read);
+                framesCaptured++;
+            }
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class ConsumerThread extends Thread {
+        private final PcmConsumer consumer;
+        private final PcmRingBuffer.Reader reader;
+        private final short[] buffer;
+        private volatile RuntimeException failure;
+
+        ConsumerThread(PcmConsumer consumer, PcmRingBuffer.Reader reader) {
+            super("PcmConsumer-" + consumer.getClass().getSimpleName());
+            this.consumer = consumer;
+            this.reader = reader;
+            this.buffer = new short[frameSamples];
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+            long frameTimeoutNs = 2L * FRAME_DURATION_MS * 1_000_000L;
+
+            try {
+                consumer.onCaptureStarted(sampleRate, channelCount);
+                while (true) {
+                    int length = reader.read(buffer);
+                    if (length > 0) {
+                        consumer.onFrame(buffer, length);
+                    } else if (captureFinished || isInterrupted()) {
+                        break;
+                    } else if (paused) {
+                        LockSupport.parkNanos(this, PAUSE_POLL_NS);
+                    } else {
+                        reader.await(frameTimeoutNs);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Uncaught, it would take the app down with it
+                Log.e(TAG, getName() + " failed, detaching it", e);
+                failure = e;
+                ringBuffer.removeReader(reader);
+            }
+
+            try {
+                consumer.onCaptureStopped();
+            } catch (RuntimeException e) {
+                Log.e(TAG, getName() + " failed to stop", e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+/**
+ * Receives raw PCM from {@link PcmCaptureEngine} on its own consumer thread.
+ */
+public interface PcmConsumer {
+    /**
+     * Called once on the consumer thread before the first frame.
+     */
+    void onCaptureStarted(int sampleRate, int channelCount);
+
+    /**
+     * Called for each captured frame. The buffer is reused after this returns.
+     * @param frame Interleaved 16-bit samples
+     * @param length Number of valid samples in frame
+     */
+    void onFrame(short[] frame, int length);
+
+    /**
+     * Called once on the consumer thread after the last frame was delivered.
+     */
+    void onCaptureStopped();
+}
@@ -0,0 +1,199 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer/multi-consumer ring of 16-bit PCM frames.
+ *
+ * The producer never blocks and never allocates: it fills the next slot and
+ * publishes it by advancing a sequence number. Every consumer owns a
+ * {@link Reader} with its own cursor. A reader that falls more than the
+ * capacity behind loses the oldest frames and skips to the oldest frame still
+ * in the ring, which is counted as an overrun.
+ *
+ * Readers copy a slot and check afterwards whether the producer lapped them
+ * meanwhile, like a seqlock, so a torn copy is dropped instead of returned.
+ */
+public class PcmRingBuffer {
+
+    private final short[][] slots;
+    private final int[] lengths;
+    private final int mask;
+    private final int frameSamples;
+
+    // Number of frames published so far; slot (n & mask) holds frame n
+    private final AtomicLong writeSequence = new AtomicLong();
+    private volatile Reader[] readers = new Reader[0];
+
+    /**
+     * @param capacity Number of frames, rounded up to a power of two, at least 2
+     * @param frameSamples Samples per frame (all channels, interleaved)
+     */
+    public PcmRingBuffer(int capacity, int frameSamples) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new short[size][frameSamples];
+        this.lengths = new int[size];
+        this.mask = size - 1;
+        this.frameSamples = frameSamples;
+    }
+
+    public int getCapacity() { return slots.length; }
+    public int getFrameSamples() { return frameSamples; }
+
+    /**
+     * Registers a new consumer. Readers start at the current write position.
+     * Registration is expected to happen before capture starts.
+     */
+    public synchronized Reader newReader() {
+        Reader reader = new Reader(writeSequence.get());
+        Reader[] current = readers;
+        Reader[] updated = new Reader[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = reader;
+        readers = updated;
+        return reader;
+    }
+
+    /**
+     * Unregisters a consumer, which is no longer woken by {@link #publish}.
+     */
+    public synchronized void removeReader(Reader reader) {
+        Reader[] current = readers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == reader) {
+                Reader[] updated = new Reader[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                readers = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot the producer should fill next. Only the producer thread may call this.
+     */
+    public short[] claim() {
+        return slots[(int) (writeSequence.get() & mask)];
+    }
+
+    /**
+     * Publishes the slot returned by {@link #claim()} and wakes waiting readers.
+     * @param length Number of valid samples in the slot
+     */
+    public void publish(int length) {
+        long sequence = writeSequence.get();
+        lengths[(int) (sequence & mask)] = length;
+        // A full volatile write: with lazySet the read of waiter below could
+        // pass it, and miss a reader that saw the old sequence and parked
+        writeSequence.set(sequence + 1);
+
+        Reader[] current = readers;
+        for (Reader reader : current) {
+            Thread waiter = reader.waiter;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    public long getWriteSequence() {
+        return writeSequence.get();
+    }
+
+    public class Reader {
+        private long readSequence;
+        private volatile Thread waiter;
+        // Written only to order the slot copy before the lap check
+        private volatile long copiedSequence;
+        private volatile long overrunCount = 0;
+        private volatile long underrunCount = 0;
+
+        private Reader(long startSequence) {
+            this.readSequence = startSequence;
+        }
+
+        /**
+         * Copies the next frame into dst without blocking.
+         * @param dst Destination, at least {@link #getFrameSamples()} long
+         * @return Number of samples copied, 0 if no frame is available
+         */
+        public int read(short[] dst) {
+            while (true) {
+                long available = writeSequence.get();
+                if (readSequence >= available) {
+                    return 0;
+                }
+                if (available - readSequence >= slots.length) {
+                    skipLostFrames(available);
+                    continue;
+                }
+
+                int index = (int) (readSequence & mask);
+                int length = lengths[index];
+                System.arraycopy(slots[index], 0, dst, 0, length);
+                // The plain reads of the copy must not move past the check below.
+                // VarHandle.acquireFence() needs API 33; a volatile store orders
+                // every load before it, and the volatile load after it.
+                copiedSequence = readSequence;
+
+                // The producer may have lapped us while copying, in which case the copy is torn
+                if (writeSequence.get() - readSequence >= slots.length) {
+                    skipLostFrames(writeSequence.get());
+                    continue;
+                }
+
+                readSequence++;
+                return length;
+            }
+        }
+
+        /**
+         * Parks the calling thread until a frame is published or the timeout elapses.
+         * A timeout with no new frame is counted as an underrun. Returns early
+         * if the thread is interrupted, leaving the interrupt set.
+         * @return true if a frame is available
+         */
+        public boolean await(long timeoutNanos) {
+            if (readSequence < writeSequence.get()) {
+                return true;
+            }
+            waiter = Thread.currentThread();
+            long deadline = System.nanoTime() + timeoutNanos;
+            try {
+                while (readSequence >= writeSequence.get()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        underrunCount++;
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                return true;
+            } finally {
+                waiter = null;
+            }
+        }
+
+        /**
+         * Number of frames waiting to be read.
+         */
+        public long getBacklog() {
+            return Math.min(writeSequence.get() - readSequence, slots.length);
+        }
+
+        public long getOverrunCount() { return overrunCount; }
+        public long getUnderrunCount() { return underrunCount; }
+
+        private void skipLostFrames(long available) {
+            // Keep one slot of headroom so the frame we land on isn't being rewritten
+            long oldest = available - slots.length + 1;
+            overrunCount += oldest - readSequence;
+            readSequence = oldest;
+        }
+    }
+}
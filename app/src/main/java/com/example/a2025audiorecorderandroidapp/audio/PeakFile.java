@@ -0,0 +1,161 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped waveform peak file stored next to a recording.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int   magic "PEAK"
+ * short version
+ * short level count
+ * int   sample rate
+ * long  total frames (per channel, audio is downmixed to mono)
+ * level count x { int samplesPerBin, int binCount, long dataOffset }
+ * level data: binCount x { short min, short max, short rms }
+ * </pre>
+ * Levels go from finest to coarsest. Rendering picks the level whose bin
+ * size is closest to the samples per pixel, so drawing costs O(pixels)
+ * whatever the zoom.
+ */
+public class PeakFile {
+    public static final int MAGIC = 0x5045414B; // "PEAK"
+    public static final int VERSION = 1;
+    public static final int[] LEVEL_SAMPLES_PER_BIN = { 256, 1024, 4096 };
+    static final int BIN_SIZE = 6;
+
+    private static final int FIXED_HEADER_SIZE = 4 + 2 + 2 + 4 + 8;
+    private static final int LEVEL_HEADER_SIZE = 4 + 4 + 8;
+
+    private final MappedByteBuffer buffer;
+    private final int sampleRate;
+    private final long totalFrames;
+    private final int[] samplesPerBin;
+    private final int[] binCounts;
+    private final int[] dataOffsets;
+
+    private PeakFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < FIXED_HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a peak file");
+        }
+        int levelCount = buffer.getShort(6);
+        if (levelCount <= 0 || buffer.capacity() < headerSize(levelCount)) {
+            throw new IOException("Corrupt peak file header");
+        }
+        sampleRate = buffer.getInt(8);
+        totalFrames = buffer.getLong(12);
+
+        samplesPerBin = new int[levelCount];
+        binCounts = new int[levelCount];
+        dataOffsets = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            int position = FIXED_HEADER_SIZE + i * LEVEL_HEADER_SIZE;
+            samplesPerBin[i] = buffer.getInt(position);
+            binCounts[i] = buffer.getInt(position + 4);
+            long offset = buffer.getLong(position + 8);
+            if (offset + (long) binCounts[i] * BIN_SIZE > buffer.capacity()) {
+                throw new IOException("Peak file is truncated");
+            }
+            dataOffsets[i] = (int) offset;
+        }
+    }
+
+    static int headerSize(int levelCount) {
+        return FIXED_HEADER_SIZE + levelCount * LEVEL_HEADER_SIZE;
+    }
+
+    /**
+     * Map a peak file
+     * @param file Peak file
+     * @return The mapped file, readable after the channel is closed
+     */
+    public static PeakFile open(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            return new PeakFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public long getTotalFrames() { return totalFrames; }
+    public int getLevelCount() { return samplesPerBin.length; }
+    public int getSamplesPerBin(int level) { return samplesPerBin[level]; }
+    public int getBinCount(int level) { return binCounts[level]; }
+
+    public long getDurationMs() {
+        return sampleRate == 0 ? 0 : totalFrames * 1000 / sampleRate;
+    }
+
+    public short getMin(int level, int bin) { return buffer.getShort(dataOffsets[level] + bin * BIN_SIZE); }
+    public short getMax(int level, int bin) { return buffer.getShort(dataOffsets[level] + bin * BIN_SIZE + 2); }
+    public short getRms(int level, int bin) { return buffer.getShort(dataOffsets[level] + bin * BIN_SIZE + 4); }
+
+    /**
+     * Pick the coarsest level whose bins are no larger than one pixel.
+     */
+    public int chooseLevel(double framesPerPixel) {
+        int level = 0;
+        for (int i = 1; i < samplesPerBin.length; i++) {
+            if (samplesPerBin[i] <= framesPerPixel) {
+                level = i;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Render min/max/rms columns for a time window
+     * @param startFrame First frame of the window
+     * @param endFrame Frame after the window
+     * @param pixels Number of columns to fill
+     * @param min Receives the per-column minimum, -1.0 - 0.0
+     * @param max Receives the per-column maximum, 0.0 - 1.0
+     * @param rms Receives the per-column RMS, 0.0 - 1.0; may be null
+     */
+    public void render(long startFrame, long endFrame, int pixels, float[] min, float[] max, float[] rms) {
+        if (pixels <= 0 || endFrame <= startFrame) {
+            return;
+        }
+        double framesPerPixel = (endFrame - startFrame) / (double) pixels;
+        int level = chooseLevel(framesPerPixel);
+        int bins = binCounts[level];
+        int binFrames = samplesPerBin[level];
+
+        for (int p = 0; p < pixels; p++) {
+            long columnStart = startFrame + (long) (p * framesPerPixel);
+            long columnEnd = startFrame + (long) ((p + 1) * framesPerPixel);
+            int firstBin = (int) Math.min(bins, columnStart / binFrames);
+            int lastBin = (int) Math.min(bins, Math.max(firstBin + 1, (columnEnd + binFrames - 1) / binFrames));
+
+            int columnMin = 0;
+            int columnMax = 0;
+            double sumSquares = 0;
+            for (int b = firstBin; b < lastBin; b++) {
+                columnMin = Math.min(columnMin, getMin(level, b));
+                columnMax = Math.max(columnMax, getMax(level, b));
+                int binRms = getRms(level, b);
+                sumSquares += (double) binRms * binRms;
+            }
+
+            min[p] = columnMin / 32768.0f;
+            max[p] = columnMax / 32767.0f;
+            if (rms != null) {
+                int count = lastBin - firstBin;
+                rms[p] = count == 0 ? 0 : (float) (Math.sqrt(sumSquares / count) / 32767.0);
+            }
+        }
+    }
+
+    /**
+     * Render the whole recording into the given number of columns.
+     */
+    public void render(int pixels, float[] min, float[] max, float[] rms) {
+        render(0, totalFrames, pixels, min, max, rms);
+    }
+}
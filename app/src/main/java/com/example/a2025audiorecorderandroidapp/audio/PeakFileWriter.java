@@ -0,0 +1,250 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Builds a waveform peak file (see {@link PeakFile}) from PCM as it arrives.
+ *
+ * Audio is downmixed to mono. Every level is streamed to disk while
+ * recording: the finest into the peak file itself, coarser levels, derived
+ * from finished bins of the level below, into temporary files of their own
+ * that are appended once the recording stops. Memory use does not grow with
+ * the length of the recording. The file is written under a temporary name and
+ * renamed into place once complete, so a crash never leaves a half-written
+ * peak file.
+ */
+public class PeakFileWriter implements PcmConsumer {
+    private static final String TAG = "PeakFileWriter";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File outputFile;
+    private final File tempFile;
+
+    private int sampleRate;
+    private int channelCount;
+    private long totalFrames;
+    private final Level[] levels = new Level[PeakFile.LEVEL_SAMPLES_PER_BIN.length];
+    private boolean failed = false;
+
+    /**
+     * Accumulates one bin of a level and streams finished bins to its file.
+     */
+    private static class Level {
+        final int samplesPerBin;
+        final File file;
+        DataOutputStream out;
+        int frames;
+        int min;
+        int max;
+        double sumSquares;
+        int binCount;
+
+        Level(int samplesPerBin, File file) {
+            this.samplesPerBin = samplesPerBin;
+            this.file = file;
+            reset();
+        }
+
+        void reset() {
+            frames = 0;
+            min = Short.MAX_VALUE;
+            max = Short.MIN_VALUE;
+            sumSquares = 0;
+        }
+
+        void open() throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 16 * 1024));
+        }
+
+        void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+
+    public PeakFileWriter(File outputFile) {
+        this.outputFile = outputFile;
+        this.tempFile = new File(outputFile.getParentFile(), outputFile.getName() + TEMP_SUFFIX);
+        for (int i = 0; i < levels.length; i++) {
+            // The finest level goes straight into the peak file
+            File levelFile = i == 0 ? tempFile : new File(outputFile.getParentFile(),
+                outputFile.getName() + "." + i + TEMP_SUFFIX);
+            levels[i] = new Level(PeakFile.LEVEL_SAMPLES_PER_BIN[i], levelFile);
+        }
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        try {
+            for (Level level : levels) {
+                level.open();
+            }
+            // Reserve the header, it is filled in once all levels are known
+            levels[0].out.write(new byte[PeakFile.headerSize(levels.length)]);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        if (failed || levels[0].out == null) {
+            return;
+        }
+
+        Level level = levels[0];
+        int frames = length / channelCount;
+        for (int f = 0; f < frames; f++) {
+            int sample;
+            if (channelCount == 1) {
+                sample = frame[f];
+            } else {
+                int sum = 0;
+                int base = f * channelCount;
+                for (int c = 0; c < channelCount; c++) {
+                    sum += frame[base + c];
+                }
+                sample = sum / channelCount;
+            }
+
+            if (sample < level.min) {
+                level.min = sample;
+            }
+            if (sample > level.max) {
+                level.max = sample;
+            }
+            level.sumSquares += (double) sample * sample;
+            level.frames++;
+
+            if (level.frames == level.samplesPerBin) {
+                emit(0);
+            }
+        }
+        totalFrames += frames;
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        if (failed || levels[0].out == null) {
+            discard();
+            return;
+        }
+
+        // Flush partial bins from finest to coarsest so each reaches the next level
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i].frames > 0) {
+                emit(i);
+            }
+        }
+
+        try {
+            DataOutputStream out = levels[0].out;
+            byte[] buffer = new byte[16 * 1024];
+            for (int i = 1; i < levels.length; i++) {
+                Level level = levels[i];
+                level.close();
+                try (InputStream in = new FileInputStream(level.file)) {
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                level.file.delete();
+            }
+            levels[0].close();
+            writeHeader();
+        } catch (IOException e) {
+            fail(e);
+            discard();
+            return;
+        }
+
+        if (!tempFile.renameTo(outputFile)) {
+            Log.e(TAG, "Failed to move peak file into place");
+            discard();
+        }
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Drops everything written so far.
+     */
+    public void discard() {
+        for (Level level : levels) {
+            try {
+                level.close();
+            } catch (IOException ignored) {
+                // Deleted below
+            }
+            level.file.delete();
+        }
+    }
+
+    private void emit(int index) {
+        Level level = levels[index];
+        short binMin = (short) level.min;
+        short binMax = (short) level.max;
+        short binRms = (short) Math.min(Short.MAX_VALUE, Math.sqrt(level.sumSquares / level.frames));
+
+        try {
+            level.out.writeShort(binMin);
+            level.out.writeShort(binMax);
+            level.out.writeShort(binRms);
+        } catch (IOException e) {
+            fail(e);
+        }
+        level.binCount++;
+
+        if (index + 1 < levels.length) {
+            // Fold the finished bin into the next coarser level
+            Level next = levels[index + 1];
+            next.min = Math.min(next.min, level.min);
+            next.max = Math.max(next.max, level.max);
+            next.sumSquares += level.sumSquares;
+            next.frames += level.frames;
+            if (next.frames >= next.samplesPerBin) {
+                emit(index + 1);
+            }
+        }
+        level.reset();
+    }
+
+    private void writeHeader() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+            file.writeInt(PeakFile.MAGIC);
+            file.writeShort(PeakFile.VERSION);
+            file.writeShort(levels.length);
+            file.writeInt(sampleRate);
+            file.writeLong(totalFrames);
+
+            long dataOffset = PeakFile.headerSize(levels.length);
+            for (Level level : levels) {
+                file.writeInt(level.samplesPerBin);
+                file.writeInt(level.binCount);
+                file.writeLong(dataOffset);
+                dataOffset += (long) level.binCount * PeakFile.BIN_SIZE;
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        Log.e(TAG, "Failed to write peak file", e);
+        failed = true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Feeds every frame that reaches the encoder into a {@link PeakFileWriter} as
+ * well, so the peak file follows the timeline of the encoded file.
+ */
+public class PeakTrackingPipeline implements EncoderPipeline {
+
+    private final EncoderPipeline downstream;
+    private final PeakFileWriter peakWriter;
+
+    public PeakTrackingPipeline(EncoderPipeline downstream, File peakFile) {
+        this.downstream = downstream;
+        this.peakWriter = new PeakFileWriter(peakFile);
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        peakWriter.onCaptureStarted(sampleRate, channelCount);
+        downstream.onCaptureStarted(sampleRate, channelCount);
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        peakWriter.onFrame(frame, length);
+        downstream.onFrame(frame, length);
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        peakWriter.onCaptureStopped();
+        downstream.onCaptureStopped();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        downstream.finish();
+    }
+
+    @Override
+    public void discard() {
+        downstream.discard();
+        peakWriter.discard();
+        // The writer may already have moved the finished file into place
+        peakWriter.getOutputFile().delete();
+    }
+
+    @Override
+    public File getOutputFile() {
+        return downstream.getOutputFile();
+    }
+
+    @Override
+    public EncodeStats getCaptureStats() {
+        return downstream.getCaptureStats();
+    }
+
+    @Override
+    public EncodeStats getEncodeStats() {
+        return downstream.getEncodeStats();
+    }
+}
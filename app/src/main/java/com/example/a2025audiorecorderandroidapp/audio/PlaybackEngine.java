@@ -0,0 +1,468 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+
+import com.example.a2025audiorecorderandroidapp.library.MetadataProbe;
+import com.example.a2025audiorecorderandroidapp.library.RecordingIndex;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Plays recordings on one ExoPlayer that lives as long as the engine, so
+ * switching recordings replaces media items instead of building and
+ * preparing a new player. The segments of a recording are queued as one
+ * playlist and play without gaps between them. Seeks are coalesced, see
+ * {@link SeekScheduler}.
+ *
+ * The recording after the playing one in the list is queued behind it: its
+ * segments are located and its duration resolved on the loader ahead of
+ * time, and its media items are in the playlist, so starting it is a seek
+ * on the prepared player. Its audio is not buffered ahead; the player only
+ * reads into the next item once the playing one is loaded to its end, so
+ * starting a queued recording still waits for its first buffer. Playback
+ * pauses at the end of the playing recording instead of running into the
+ * next one.
+ *
+ * Time to first audio is measured from a play request to the first frame the
+ * audio output played, separately for recordings that were already in the
+ * player's playlist and ones that had to be loaded. Use from the main thread.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class PlaybackEngine {
+    private static final String TAG = "PlaybackEngine";
+
+    public interface Listener {
+        /**
+         * The recording played to its end.
+         */
+        void onPlaybackCompleted(Recording recording);
+
+        void onPlaybackError(Recording recording);
+
+        /**
+         * A recording without a duration got one while it was loaded.
+         */
+        void onDurationResolved(Recording recording);
+    }
+
+    /**
+     * A recording as a run of media items in the player's playlist, one per segment
+     */
+    private static class QueuedRecording {
+        final Recording recording;
+        final File file;
+        final long[] segmentStarts; // start of each media item within the recording
+        final int[] segments; // segment file of each media item, lost segments are left out
+        final long resolvedDuration; // > 0 if the recording had no duration
+
+        QueuedRecording(Recording recording, File file, long[] segmentStarts, int[] segments,
+                        long resolvedDuration) {
+            this.recording = recording;
+            this.file = file;
+            this.segmentStarts = segmentStarts;
+            this.segments = segments;
+            this.resolvedDuration = resolvedDuration;
+        }
+
+        int getSegmentCount() {
+            return segmentStarts.length;
+        }
+
+        int locate(long positionMs) {
+            int segment = 0;
+            while (segment + 1 < segmentStarts.length && segmentStarts[segment + 1] <= positionMs) {
+                segment++;
+            }
+            return segment;
+        }
+
+        List<MediaItem> getMediaItems() {
+            List<MediaItem> items = new ArrayList<>(segmentStarts.length);
+            for (int i = 0; i < segmentStarts.length; i++) {
+                items.add(MediaItem.fromUri(Uri.fromFile(FileUtils.getSegmentFile(file, segments[i]))));
+            }
+            return items;
+        }
+    }
+
+    private final ExoPlayer player;
+    private final Listener listener;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int loadGeneration = 0;
+    private final SeekScheduler seekScheduler;
+
+    // The playlist holds the segments of current, then those of next
+    private QueuedRecording current;
+    private QueuedRecording next;
+    private boolean completed = false;
+
+    // A recording being loaded, before it replaces current
+    private Recording loading;
+    private int loadingPositionMs;
+    private boolean loadingPlays;
+
+    // Time to first audio, by whether the recording was already queued
+    private long playRequestTimeMs = -1; // wall clock, as reported by the audio output
+    private boolean playRequestQueued;
+    private long lastTimeToFirstAudioMs = -1;
+    private final long[] timeToFirstAudioTotalMs = new long[2];
+    private final int[] timeToFirstAudioCount = new int[2];
+
+    public PlaybackEngine(Context context, Listener listener) {
+        this.listener = listener;
+        this.seekScheduler = new SeekScheduler(positionMs -> {
+            if (current != null) {
+                seekWithin(positionMs);
+            }
+        });
+        AudioAttributes attributes = new AudioAttributes.Builder()
+            .setUsage(C.USAGE_MEDIA)
+            .setContentType(C.AUDIO_CONTENT_TYPE_MUSIC)
+            .build();
+        player = new ExoPlayer.Builder(context)
+            .setAudioAttributes(attributes, false)
+            .build();
+        player.addListener(new Player.Listener() {
+            @Override
+            public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+                updatePauseAtEnd();
+            }
+
+            @Override
+            public void onPlayWhenReadyChanged(boolean playWhenReady, int reason) {
+                if (!playWhenReady && reason == Player.PLAY_WHEN_READY_CHANGE_REASON_END_OF_MEDIA_ITEM) {
+                    complete();
+                }
+            }
+
+            @Override
+            public void onPlaybackStateChanged(int state) {
+                // A seek buffers until the player is ready at the new position
+                if (state == Player.STATE_READY || state == Player.STATE_ENDED) {
+                    seekScheduler.onSeekCompleted();
+                }
+                if (state == Player.STATE_ENDED) {
+                    complete();
+                }
+            }
+
+            @Override
+            public void onPlayerError(PlaybackException error) {
+                Log.e(TAG, "Playback failed", error);
+                seekScheduler.cancel();
+                Recording recording = current != null ? current.recording : null;
+                current = null;
+                next = null;
+                player.clearMediaItems();
+                if (recording != null) {
+                    listener.onPlaybackError(recording);
+                }
+            }
+        });
+        player.addAnalyticsListener(new AnalyticsListener() {
+            @Override
+            public void onAudioPositionAdvancing(EventTime eventTime, long playoutStartSystemTimeMs) {
+                if (playRequestTimeMs >= 0) {
+                    recordTimeToFirstAudio(playoutStartSystemTimeMs - playRequestTimeMs);
+                    playRequestTimeMs = -1;
+                }
+            }
+        });
+    }
+
+    /**
+     * Play a recording
+     * @param positionMs Position within the recording to start at
+     * @param nextRecording Recording to queue behind it, null for none
+     */
+    public void play(Recording recording, int positionMs, @Nullable Recording nextRecording) {
+        playRequestTimeMs = System.currentTimeMillis();
+        completed = false;
+        seekScheduler.cancel();
+        int generation = ++loadGeneration;
+
+        if (current != null && current.recording.isSameFile(recording)) {
+            playRequestQueued = true;
+            loading = null;
+            seekWithin(positionMs);
+            player.play();
+            queueNext(nextRecording, generation);
+            return;
+        }
+
+        if (current != null && next != null && next.recording.isSameFile(recording)) {
+            // Queued behind the current one, drop the current one's items from in front of it
+            playRequestQueued = true;
+            loading = null;
+            int dropped = current.getSegmentCount();
+            current = next;
+            next = null;
+            int segment = current.locate(positionMs);
+            player.seekTo(dropped + segment, positionMs - current.segmentStarts[segment]);
+            player.removeMediaItems(0, dropped);
+            updatePauseAtEnd();
+            player.play();
+            queueNext(nextRecording, generation);
+            return;
+        }
+
+        playRequestQueued = false;
+        player.pause();
+        current = null;
+        next = null;
+        loading = recording;
+        loadingPositionMs = positionMs;
+        loadingPlays = true;
+        loader.execute(() -> {
+            QueuedRecording queued = load(recording);
+            QueuedRecording queuedNext = nextRecording != null ? load(nextRecording) : null;
+            mainHandler.post(() -> {
+                if (generation != loadGeneration || loading == null) {
+                    return;
+                }
+                loading = null;
+                if (queued == null) {
+                    listener.onPlaybackError(recording);
+                    return;
+                }
+                resolveDuration(queued);
+                current = queued;
+                next = queuedNext;
+                List<MediaItem> items = current.getMediaItems();
+                if (next != null) {
+                    items.addAll(next.getMediaItems());
+                }
+                int segment = current.locate(loadingPositionMs);
+                player.setMediaItems(items, segment, loadingPositionMs - current.segmentStarts[segment]);
+                updatePauseAtEnd();
+                player.setPlayWhenReady(loadingPlays);
+                player.prepare();
+            });
+        });
+    }
+
+    public void pause() {
+        loadingPlays = false;
+        player.pause();
+    }
+
+    public void resume() {
+        loadingPlays = true;
+        if (current != null) {
+            player.play();
+        }
+    }
+
+    /**
+     * Seek within the playing recording, across segments if need be. While
+     * a seek is being carried out only the latest target is kept.
+     */
+    public void seekTo(int positionMs) {
+        if (loading != null) {
+            loadingPositionMs = positionMs;
+        } else if (current != null) {
+            completed = false;
+            seekScheduler.request(positionMs);
+        }
+    }
+
+    /**
+     * @return Whether a recording is playing or about to, false once paused or completed
+     */
+    public boolean isPlaying() {
+        if (loading != null) {
+            return loadingPlays;
+        }
+        return current != null && !completed && player.getPlayWhenReady();
+    }
+
+    /**
+     * @return Position within the playing recording
+     */
+    public int getPosition() {
+        if (loading != null) {
+            return loadingPositionMs;
+        }
+        if (current == null) {
+            return 0;
+        }
+        int pendingPositionMs = seekScheduler.getPendingPositionMs();
+        if (pendingPositionMs >= 0) {
+            return pendingPositionMs;
+        }
+        int segment = Math.min(player.getCurrentMediaItemIndex(), current.getSegmentCount() - 1);
+        return (int) (current.segmentStarts[segment] + player.getCurrentPosition());
+    }
+
+    /**
+     * @return Time to first audio of the last play request, -1 before the first
+     */
+    public long getLastTimeToFirstAudioMs() {
+        return lastTimeToFirstAudioMs;
+    }
+
+    /**
+     * @param queued Whether to average requests for recordings that were
+     *               already queued in the player or ones that had to be loaded first
+     * @return Average time to first audio, -1 if there were none
+     */
+    public long getAverageTimeToFirstAudioMs(boolean queued) {
+        int kind = queued ? 1 : 0;
+        return timeToFirstAudioCount[kind] == 0 ? -1 : timeToFirstAudioTotalMs[kind] / timeToFirstAudioCount[kind];
+    }
+
+    /**
+     * @return Number of seeks handed to the player
+     */
+    public long getIssuedSeekCount() {
+        return seekScheduler.getIssuedCount();
+    }
+
+    /**
+     * @return Number of seek targets replaced before they were issued
+     */
+    public long getDroppedSeekCount() {
+        return seekScheduler.getDroppedCount();
+    }
+
+    public void release() {
+        seekScheduler.cancel();
+        loadGeneration++;
+        loader.shutdownNow();
+        player.release();
+    }
+
+    private void seekWithin(int positionMs) {
+        int segment = current.locate(positionMs);
+        player.seekTo(segment, positionMs - current.segmentStarts[segment]);
+        updatePauseAtEnd();
+    }
+
+    /**
+     * Replace whatever is queued behind the current recording.
+     */
+    private void queueNext(@Nullable Recording nextRecording, int generation) {
+        if (next != null && nextRecording != null && next.recording.isSameFile(nextRecording)) {
+            return;
+        }
+        int queuedEnd = player.getMediaItemCount();
+        if (next != null) {
+            player.removeMediaItems(current.getSegmentCount(), queuedEnd);
+            next = null;
+        }
+        if (nextRecording == null) {
+            return;
+        }
+        loader.execute(() -> {
+            QueuedRecording queued = load(nextRecording);
+            mainHandler.post(() -> {
+                if (generation == loadGeneration && queued != null && current != null && next == null) {
+                    next = queued;
+                    player.addMediaItems(next.getMediaItems());
+                }
+            });
+        });
+    }
+
+    private void updatePauseAtEnd() {
+        // Segments of one recording follow each other, the next recording doesn't
+        player.setPauseAtEndOfMediaItems(current != null
+            && player.getCurrentMediaItemIndex() >= current.getSegmentCount() - 1);
+    }
+
+    private void complete() {
+        if (completed || current == null) {
+            return;
+        }
+        completed = true;
+        listener.onPlaybackCompleted(current.recording);
+    }
+
+    private void resolveDuration(QueuedRecording queued) {
+        if (queued.resolvedDuration > 0 && queued.recording.getDuration() == 0) {
+            queued.recording.setDuration(queued.resolvedDuration);
+            listener.onDurationResolved(queued.recording);
+        }
+    }
+
+    private void recordTimeToFirstAudio(long elapsedMs) {
+        int kind = playRequestQueued ? 1 : 0;
+        lastTimeToFirstAudioMs = elapsedMs;
+        timeToFirstAudioTotalMs[kind] += elapsedMs;
+        timeToFirstAudioCount[kind]++;
+        Log.d(TAG, "Time to first audio " + elapsedMs + " ms (" + (playRequestQueued ? "queued" : "loaded")
+            + "), average " + getAverageTimeToFirstAudioMs(true) + " ms queued, "
+            + getAverageTimeToFirstAudioMs(false) + " ms loaded");
+    }
+
+    /**
+     * Read where the segments of a recording start. Runs on the loader.
+     * @return The recording ready to be queued, null if it can't be read
+     */
+    private static QueuedRecording load(Recording recording) {
+        File file = new File(recording.getFilePath());
+        try {
+            SegmentPlaylist playlist = SegmentPlaylist.load(file);
+            long[] starts = new long[] { 0 };
+            int[] segments = new int[] { 0 };
+            if (playlist != null) {
+                int count = 0;
+                starts = new long[playlist.getSegmentCount()];
+                segments = new int[playlist.getSegmentCount()];
+                long start = 0;
+                for (int i = 0; i < playlist.getSegmentCount(); i++) {
+                    // A segment that failed to complete is listed with no length
+                    if (playlist.getDurationMs(i) > 0) {
+                        starts[count] = start;
+                        segments[count] = i;
+                        count++;
+                        start += playlist.getDurationMs(i);
+                    }
+                }
+                if (count == 0) {
+                    throw new IOException("No playable segments");
+                }
+                starts = Arrays.copyOf(starts, count);
+                segments = Arrays.copyOf(segments, count);
+            }
+
+            long resolvedDuration = 0;
+            if (recording.getDuration() == 0) {
+                if (playlist != null) {
+                    resolvedDuration = playlist.getTotalDurationMs();
+                } else {
+                    RecordingIndex.Entry entry = MetadataProbe.probe(file);
+                    resolvedDuration = entry != null ? entry.duration : 0;
+                }
+            }
+            return new QueuedRecording(recording, file, starts, segments, resolvedDuration);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load segments of " + file.getName(), e);
+            return null;
+        }
+    }
+}
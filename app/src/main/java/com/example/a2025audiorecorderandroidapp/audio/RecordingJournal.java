@@ -0,0 +1,214 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-ahead journal of an MPEG-4 file being muxed. MediaMuxer only writes
+ * the sample tables (moov) when it is stopped, so a killed process leaves an
+ * mdat without an index. The journal records the encoder config and the size
+ * of every sample written, in checkpoints of about a second, which is enough
+ * to rebuild the index later without touching the audio.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int   magic "RJNL"
+ * short version
+ * int   sample rate
+ * short channel count
+ * int   bit rate
+ * int   samples per frame
+ * records: byte 'C', short length, codec config bytes
+ *          byte 'S', short count, count x int sample size
+ * </pre>
+ * A record cut short by a crash is ignored when reading.
+ */
+public class RecordingJournal {
+    public static final int MAGIC = 0x524A4E4C; // "RJNL"
+    public static final int VERSION = 1;
+    public static final int AAC_SAMPLES_PER_FRAME = 1024;
+
+    private static final byte RECORD_CONFIG = 'C';
+    private static final byte RECORD_SIZES = 'S';
+    private static final int CHECKPOINT_SAMPLES = 48; // about a second of AAC at 48 kHz
+
+    // Journals open in this process belong to recordings in progress, not crashed ones
+    private static final Set<String> openJournals = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final File file;
+    private final FileOutputStream out;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(8 + CHECKPOINT_SAMPLES * 4);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final int[] pendingSizes = new int[CHECKPOINT_SAMPLES];
+    private int pendingCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Contents of a journal left behind by a recording that never finished.
+     */
+    public static class Contents {
+        public final int sampleRate;
+        public final int channelCount;
+        public final int bitRate;
+        public final int samplesPerFrame;
+        public final byte[] codecConfig;
+        public final int[] sampleSizes;
+
+        Contents(int sampleRate, int channelCount, int bitRate, int samplesPerFrame,
+                 byte[] codecConfig, int[] sampleSizes) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.bitRate = bitRate;
+            this.samplesPerFrame = samplesPerFrame;
+            this.codecConfig = codecConfig;
+            this.sampleSizes = sampleSizes;
+        }
+    }
+
+    /**
+     * Create a journal and write its header
+     * @param file Journal file, replaced if it exists
+     */
+    public RecordingJournal(File file, int sampleRate, int channelCount, int bitRate,
+                            int samplesPerFrame) throws IOException {
+        this.file = file;
+        this.out = new FileOutputStream(file);
+        openJournals.add(file.getAbsolutePath());
+
+        record.writeInt(MAGIC);
+        record.writeShort(VERSION);
+        record.writeInt(sampleRate);
+        record.writeShort(channelCount);
+        record.writeInt(bitRate);
+        record.writeInt(samplesPerFrame);
+        flushRecord();
+    }
+
+    public static boolean isOpen(File file) {
+        return openJournals.contains(file.getAbsolutePath());
+    }
+
+    /**
+     * Record the codec specific data, e.g. the AAC AudioSpecificConfig.
+     */
+    public void writeCodecConfig(byte[] config) throws IOException {
+        record.writeByte(RECORD_CONFIG);
+        record.writeShort(config.length);
+        record.write(config);
+        flushRecord();
+    }
+
+    /**
+     * Record the size of a sample just handed to the muxer. Sizes are written
+     * out in batches, so a crash loses at most the last checkpoint.
+     */
+    public void addSample(int size) throws IOException {
+        pendingSizes[pendingCount++] = size;
+        if (pendingCount == CHECKPOINT_SAMPLES) {
+            checkpoint();
+        }
+    }
+
+    public void checkpoint() throws IOException {
+        if (pendingCount == 0) {
+            return;
+        }
+        record.writeByte(RECORD_SIZES);
+        record.writeShort(pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+            record.writeInt(pendingSizes[i]);
+        }
+        pendingCount = 0;
+        flushRecord();
+    }
+
+    /**
+     * Write out pending sizes and close the journal, leaving it on disk so
+     * the file it covers gets recovered.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            checkpoint();
+            out.close();
+        } catch (IOException ignored) {
+            // Recovery uses whatever made it to disk
+        }
+        openJournals.remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Close and delete the journal once the file it covers is complete or abandoned.
+     */
+    public void delete() {
+        close();
+        file.delete();
+    }
+
+    /**
+     * Read a journal left behind by a crash
+     * @param file Journal file
+     * @return Its contents, up to the last complete checkpoint
+     */
+    public static Contents read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a recording journal: " + file.getName());
+            }
+            int sampleRate = in.readInt();
+            int channelCount = in.readShort();
+            int bitRate = in.readInt();
+            int samplesPerFrame = in.readInt();
+
+            byte[] config = null;
+            int[] sizes = new int[1024];
+            int count = 0;
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    int length = in.readUnsignedShort();
+                    if (type == RECORD_CONFIG) {
+                        byte[] bytes = new byte[length];
+                        in.readFully(bytes);
+                        config = bytes;
+                    } else if (type == RECORD_SIZES) {
+                        if (count + length > sizes.length) {
+                            sizes = Arrays.copyOf(sizes, Math.max(sizes.length * 2, count + length));
+                        }
+                        // count only moves once the whole batch was read, a cut-off batch is dropped
+                        for (int i = 0; i < length; i++) {
+                            sizes[count + i] = in.readInt();
+                        }
+                        count += length;
+                    } else {
+                        break; // Garbage after the last complete record
+                    }
+                }
+            } catch (EOFException ignored) {
+                // The process died while writing, keep what was complete
+            }
+            return new Contents(sampleRate, channelCount, bitRate, samplesPerFrame,
+                config, Arrays.copyOf(sizes, count));
+        }
+    }
+
+    private void flushRecord() throws IOException {
+        // One write per record, so the OS holds either all of it or a short tail
+        recordBytes.writeTo(out);
+        recordBytes.reset();
+    }
+}
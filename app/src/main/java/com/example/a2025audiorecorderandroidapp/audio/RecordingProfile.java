@@ -0,0 +1,426 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+import androidx.preference.PreferenceManager;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What to record with: source, sample rate, channels, encoding and bit rate.
+ * Resolved from the settings, either one of the {@link Preset}s or the
+ * individual choices, and then negotiated against what the device's capture
+ * path and encoder actually support. Immutable.
+ *
+ * {@link #resolve} returns a fallback chain: the negotiated profile first,
+ * then a profile every device can record, for when opening the capture with
+ * the first one still fails.
+ */
+public final class RecordingProfile {
+    private static final String TAG = "RecordingProfile";
+    private static final String COST_PREFERENCES = "recording_profile_costs";
+    // Later recordings count less, so the table follows encoder updates
+    private static final int COST_MAX_WEIGHT = 20;
+
+    // Sample rates to choose from when the requested one can't be recorded, ascending
+    private static final int[] FALLBACK_SAMPLE_RATES = { 8000, 12000, 16000, 22050, 24000, 32000, 44100, 48000 };
+    // The only rate guaranteed to work on all devices
+    private static final int SAFE_SAMPLE_RATE = 44100;
+    private static final int SAFE_BIT_RATE = 64000;
+
+    // Indexes of R.array.sample_rate_options
+    private static final int[] SAMPLE_RATE_OPTIONS = { 8000, 16000, 22050, 44100, 48000 };
+    // Indexes of R.array.recording_source_options
+    private static final int[] SOURCE_OPTIONS = {
+        MediaRecorder.AudioSource.MIC,
+        MediaRecorder.AudioSource.MIC, // Bluetooth, the headset mic is routed as the default input
+        MediaRecorder.AudioSource.REMOTE_SUBMIX,
+        MediaRecorder.AudioSource.CAMCORDER,
+        MediaRecorder.AudioSource.VOICE_COMMUNICATION,
+        MediaRecorder.AudioSource.VOICE_RECOGNITION,
+    };
+
+    /**
+     * Output encodings, in the order of R.array.encoding_options
+     */
+    public enum Encoding {
+        OGG(FileUtils.OGG_FILE_EXTENSION, MediaFormat.MIMETYPE_AUDIO_OPUS, true),
+        MP3(".mp3", MediaFormat.MIMETYPE_AUDIO_MPEG, false),
+        WAV(FileUtils.WAV_FILE_EXTENSION, null, true),
+        AAC(FileUtils.AUDIO_FILE_EXTENSION, MediaFormat.MIMETYPE_AUDIO_AAC, true),
+        FLAC(FileUtils.FLAC_FILE_EXTENSION, null, true);
+
+        public final String extension;
+        // Platform encoder to negotiate with, null for the ones written in Java
+        final String mimeType;
+        final boolean supported;
+
+        Encoding(String extension, String mimeType, boolean supported) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+            this.supported = supported;
+        }
+    }
+
+    /**
+     * Built-in profiles, in the order of R.array.recording_preset_options.
+     * {@link #CUSTOM} takes every value from the individual settings.
+     */
+    public enum Preset {
+        CUSTOM(0, 0, 0, null, 0),
+        // Opus keeps speech intelligible at a fraction of AAC's rate
+        VOICE(MediaRecorder.AudioSource.MIC, 16000, 1, Encoding.OGG, 24000),
+        MEETING(MediaRecorder.AudioSource.MIC, 24000, 1, Encoding.OGG, 32000),
+        MUSIC(MediaRecorder.AudioSource.UNPROCESSED, 48000, 2, Encoding.AAC, 256000);
+
+        final int audioSource;
+        final int sampleRate;
+        final int channelCount;
+        final Encoding encoding;
+        final int bitRate;
+
+        Preset(int audioSource, int sampleRate, int channelCount, Encoding encoding, int bitRate) {
+            this.audioSource = audioSource;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.encoding = encoding;
+            this.bitRate = bitRate;
+        }
+    }
+
+    /**
+     * What recordings with a preset have cost so far, averaged
+     */
+    public static final class Cost {
+        public final Preset preset;
+        /** Output bytes per second of audio */
+        public final float bytesPerSecond;
+        /** Encoder time as a percentage of the recorded time, of one core */
+        public final float cpuPercent;
+        public final int recordings;
+
+        Cost(Preset preset, float bytesPerSecond, float cpuPercent, int recordings) {
+            this.preset = preset;
+            this.bytesPerSecond = bytesPerSecond;
+            this.cpuPercent = cpuPercent;
+            this.recordings = recordings;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %.0f B/s, %.1f%% cpu over %d recordings",
+                preset, bytesPerSecond, cpuPercent, recordings);
+        }
+    }
+
+    public final Preset preset;
+    public final int audioSource;
+    public final int sampleRate;
+    public final int channelCount;
+    public final Encoding encoding;
+    public final int bitRate;
+
+    private RecordingProfile(Preset preset, int audioSource, int sampleRate, int channelCount,
+                             Encoding encoding, int bitRate) {
+        this.preset = preset;
+        this.audioSource = audioSource;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.encoding = encoding;
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * @return Output bytes per second the encoder aims for
+     */
+    public int getNominalBytesPerSecond() {
+        return bitRate / 8;
+    }
+
+    /**
+     * @return Creates the encoder for this profile's encoding
+     */
+    public AudioEncoder.Factory getEncoderFactory() {
+        // Only MPEG-4 needs a journal, the other formats are readable up to their last write
+        switch (encoding) {
+            case OGG:
+                return (outputFile, sampleRate, channelCount, stats, journalFile) ->
+                    new OpusEncoder(outputFile, sampleRate, channelCount, bitRate, stats);
+            case WAV:
+                return (outputFile, sampleRate, channelCount, stats, journalFile) ->
+                    new WavEncoder(outputFile, sampleRate, channelCount, stats);
+            case FLAC:
+                return (outputFile, sampleRate, channelCount, stats, journalFile) ->
+                    new FlacEncoder(outputFile, sampleRate, channelCount, stats);
+            default:
+                return (outputFile, sampleRate, channelCount, stats, journalFile) ->
+                    new AacEncoder(outputFile, sampleRate, channelCount, bitRate, stats, journalFile);
+        }
+    }
+
+    /**
+     * @return Whether the encoding keeps every sample
+     */
+    public boolean isLosslessEncoding() {
+        return encoding == Encoding.WAV || encoding == Encoding.FLAC;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: source %d, %d Hz, %d ch, %s %d kbps",
+            preset, audioSource, sampleRate, channelCount, encoding, bitRate / 1000);
+    }
+
+    /**
+     * Read the profile from the settings and negotiate it with the device.
+     * @return The profiles to try in order, never empty
+     */
+    public static List<RecordingProfile> resolve(Context context) {
+        RecordingProfile requested = fromPreferences(PreferenceManager.getDefaultSharedPreferences(context));
+        RecordingProfile negotiated = negotiate(context, requested);
+        if (!negotiated.equalsProfile(requested)) {
+            Log.i(TAG, "Requested " + requested + ", negotiated " + negotiated);
+        }
+
+        List<RecordingProfile> chain = new ArrayList<>(2);
+        chain.add(negotiated);
+        RecordingProfile safe = new RecordingProfile(negotiated.preset, MediaRecorder.AudioSource.MIC,
+            SAFE_SAMPLE_RATE, 1, Encoding.AAC, SAFE_BIT_RATE);
+        if (!safe.equalsProfile(negotiated)) {
+            chain.add(safe);
+        }
+        return chain;
+    }
+
+    /**
+     * The Voice preset negotiated with the device, for re-encoding old recordings
+     * into less space. Recording settings don't apply.
+     */
+    public static RecordingProfile resolveArchive(Context context) {
+        Preset preset = Preset.VOICE;
+        return negotiate(context, new RecordingProfile(preset, preset.audioSource, preset.sampleRate,
+            preset.channelCount, preset.encoding, preset.bitRate));
+    }
+
+    /**
+     * The profile to write a recording file with again, as far as its name tells
+     * @return null if no encoder writes files with its extension
+     */
+    static RecordingProfile forFile(File recordingFile, int sampleRate, int channelCount) {
+        String name = recordingFile.getName().toLowerCase(Locale.ROOT);
+        for (Encoding encoding : Encoding.values()) {
+            if (encoding.supported && name.endsWith(encoding.extension)) {
+                return new RecordingProfile(Preset.CUSTOM, MediaRecorder.AudioSource.MIC, sampleRate, channelCount,
+                    encoding, defaultBitRate(encoding, sampleRate, channelCount));
+            }
+        }
+        return null;
+    }
+
+    static RecordingProfile fromPreferences(SharedPreferences preferences) {
+        Preset preset = option(Preset.values(), preferences.getInt("recording_preset", 0));
+        if (preset != Preset.CUSTOM) {
+            return new RecordingProfile(preset, preset.audioSource, preset.sampleRate, preset.channelCount,
+                preset.encoding, preset.bitRate);
+        }
+
+        // Defaults as shown by the settings screen
+        int audioSource = SOURCE_OPTIONS[clamp(preferences.getInt("recording_source", 0), SOURCE_OPTIONS.length)];
+        int sampleRate = SAMPLE_RATE_OPTIONS[clamp(preferences.getInt("sample_rate", 1), SAMPLE_RATE_OPTIONS.length)];
+        int channelCount = preferences.getInt("audio_channels", 0) == 1 ? 2 : 1;
+        Encoding encoding = option(Encoding.values(), preferences.getInt("encoding", 0));
+        return new RecordingProfile(preset, audioSource, sampleRate, channelCount, encoding,
+            defaultBitRate(encoding, sampleRate, channelCount));
+    }
+
+    /**
+     * Bit rate that keeps speech and music transparent at a sample rate
+     */
+    static int defaultBitRate(Encoding encoding, int sampleRate, int channelCount) {
+        int perChannel;
+        if (encoding == Encoding.WAV) {
+            return sampleRate * channelCount * 16;
+        } else if (encoding == Encoding.FLAC) {
+            // Typically a bit over half of PCM, only used for estimates
+            return sampleRate * channelCount * 9;
+        } else if (encoding == Encoding.OGG) {
+            if (sampleRate <= 16000) {
+                perChannel = 24000;
+            } else if (sampleRate <= 24000) {
+                perChannel = 32000;
+            } else {
+                perChannel = 64000;
+            }
+        } else if (sampleRate <= 8000) {
+            perChannel = 16000;
+        } else if (sampleRate <= 16000) {
+            perChannel = 32000;
+        } else if (sampleRate <= 22050) {
+            perChannel = 48000;
+        } else {
+            perChannel = 128000;
+        }
+        return perChannel * channelCount;
+    }
+
+    private static RecordingProfile negotiate(Context context, RecordingProfile requested) {
+        Encoding encoding = requested.encoding.supported ? requested.encoding : Encoding.AAC;
+        MediaCodecInfo.AudioCapabilities encoder = encoding.mimeType != null ? findEncoder(encoding.mimeType) : null;
+        if (encoder == null && encoding.mimeType != null && encoding != Encoding.AAC) {
+            // Not every device ships an encoder for the requested type
+            encoding = Encoding.AAC;
+            encoder = findEncoder(encoding.mimeType);
+        }
+
+        int audioSource = requested.audioSource;
+        if (audioSource == MediaRecorder.AudioSource.UNPROCESSED && !supportsUnprocessed(context)) {
+            audioSource = MediaRecorder.AudioSource.MIC;
+        } else if (audioSource == MediaRecorder.AudioSource.REMOTE_SUBMIX
+                && context.checkSelfPermission("android.permission.CAPTURE_AUDIO_OUTPUT")
+                    != PackageManager.PERMISSION_GRANTED) {
+            // Only system apps may capture the output mix
+            audioSource = MediaRecorder.AudioSource.MIC;
+        }
+
+        int channelCount = requested.channelCount;
+        if (encoder != null && encoder.getMaxInputChannelCount() < channelCount) {
+            channelCount = 1;
+        }
+
+        int sampleRate = requested.sampleRate;
+        if (!canRecord(encoder, sampleRate, channelCount)) {
+            // The lowest rate above the requested one keeps its bandwidth, else the highest below
+            int requestedRate = sampleRate;
+            sampleRate = -1;
+            for (int candidate : FALLBACK_SAMPLE_RATES) {
+                if (canRecord(encoder, candidate, channelCount)) {
+                    sampleRate = candidate;
+                    if (candidate >= requestedRate) {
+                        break;
+                    }
+                }
+            }
+            if (sampleRate < 0) {
+                sampleRate = SAFE_SAMPLE_RATE;
+                channelCount = 1;
+            }
+        }
+
+        int bitRate = encoding == requested.encoding && sampleRate == requested.sampleRate
+                && channelCount == requested.channelCount
+            ? requested.bitRate : defaultBitRate(encoding, sampleRate, channelCount);
+        if (encoder != null) {
+            bitRate = encoder.getBitrateRange().clamp(bitRate);
+        }
+        return new RecordingProfile(requested.preset, audioSource, sampleRate, channelCount, encoding, bitRate);
+    }
+
+    private static boolean canRecord(MediaCodecInfo.AudioCapabilities encoder, int sampleRate, int channelCount) {
+        int channelMask = channelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+        if (AudioRecord.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT) <= 0) {
+            return false;
+        }
+        return encoder == null || encoder.isSampleRateSupported(sampleRate);
+    }
+
+    private static boolean supportsUnprocessed(Context context) {
+        AudioManager audioManager = context.getSystemService(AudioManager.class);
+        return audioManager != null
+            && "true".equals(audioManager.getProperty(AudioManager.PROPERTY_SUPPORT_AUDIO_SOURCE_UNPROCESSED));
+    }
+
+    /**
+     * @return Capabilities of the first encoder for a type, null if there is none
+     */
+    private static MediaCodecInfo.AudioCapabilities findEncoder(String mimeType) {
+        for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (!info.isEncoder()) {
+                continue;
+            }
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(mimeType)) {
+                    return info.getCapabilitiesForType(type).getAudioCapabilities();
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean equalsProfile(RecordingProfile other) {
+        return audioSource == other.audioSource && sampleRate == other.sampleRate
+            && channelCount == other.channelCount && encoding == other.encoding && bitRate == other.bitRate;
+    }
+
+    /**
+     * Add a finished recording to the cost table of its preset. Safe to call from any thread.
+     * @param recordingFile The recording, with any later segments next to it
+     * @param durationMs Recorded audio
+     * @param encodeMicros Time spent encoding it
+     */
+    public void recordCost(Context context, File recordingFile, long durationMs, long encodeMicros) {
+        if (durationMs <= 0) {
+            return;
+        }
+        long bytes = 0;
+        for (int segment = 0; ; segment++) {
+            File file = FileUtils.getSegmentFile(recordingFile, segment);
+            if (!file.exists()) {
+                break;
+            }
+            bytes += file.length();
+        }
+        float bytesPerSecond = bytes * 1000f / durationMs;
+        float cpuPercent = encodeMicros / 10f / durationMs;
+
+        SharedPreferences costs = context.getSharedPreferences(COST_PREFERENCES, Context.MODE_PRIVATE);
+        Cost cost = readCost(costs, preset);
+        int weight = Math.min(cost.recordings, COST_MAX_WEIGHT - 1);
+        costs.edit()
+            .putFloat(preset.name() + "_bytes", (cost.bytesPerSecond * weight + bytesPerSecond) / (weight + 1))
+            .putFloat(preset.name() + "_cpu", (cost.cpuPercent * weight + cpuPercent) / (weight + 1))
+            .putInt(preset.name() + "_count", cost.recordings + 1)
+            .apply();
+        Log.d(TAG, String.format(Locale.US, "%s: %.0f B/s (nominal %d), %.1f%% cpu",
+            this, bytesPerSecond, getNominalBytesPerSecond(), cpuPercent));
+    }
+
+    /**
+     * @return Measured cost of every preset; presets not recorded with yet have none
+     */
+    public static List<Cost> getCostTable(Context context) {
+        SharedPreferences costs = context.getSharedPreferences(COST_PREFERENCES, Context.MODE_PRIVATE);
+        List<Cost> table = new ArrayList<>();
+        for (Preset preset : Preset.values()) {
+            table.add(readCost(costs, preset));
+        }
+        return table;
+    }
+
+    private static Cost readCost(SharedPreferences costs, Preset preset) {
+        return new Cost(preset, costs.getFloat(preset.name() + "_bytes", 0),
+            costs.getFloat(preset.name() + "_cpu", 0), costs.getInt(preset.name() + "_count", 0));
+    }
+
+    private static <T> T option(T[] options, int index) {
+        return options[clamp(index, options.length)];
+    }
+
+    private static int clamp(int index, int count) {
+        return index >= 0 && index < count ? index : 0;
+    }
+}
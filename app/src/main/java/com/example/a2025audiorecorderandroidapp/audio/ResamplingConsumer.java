@@ -0,0 +1,161 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.util.Arrays;
+
+/**
+ * Downmixes PCM to mono and converts it to another sample rate before handing
+ * it to a downstream consumer, e.g. to re-encode a file at a rate its target
+ * encoder supports. Resampling uses a windowed-sinc filter whose cutoff sits
+ * below the lower of the two Nyquist frequencies, so downsampling doesn't alias.
+ */
+public class ResamplingConsumer implements PcmConsumer {
+    // Filter phases between two input samples, the output snaps to the nearest
+    private static final int PHASES = 64;
+    // Zero crossings of the sinc on each side, in output samples
+    private static final int ZERO_CROSSINGS = 8;
+    // Keeps the transition band below the output Nyquist frequency
+    private static final double CUTOFF = 0.9;
+    private static final int OUTPUT_FRAME_SAMPLES = 2048;
+
+    private final PcmConsumer downstream;
+    private final int outputRate;
+
+    private int channelCount;
+    private int inputRate;
+    private int halfTaps;
+    private float[][] filter;
+    private float[] input = new float[0];
+    private int inputLength = 0;
+    // Input position of the next output in 1/outputRate samples, exact so the
+    // output doesn't depend on how the input was split into frames
+    private long position;
+    private final short[] output = new short[OUTPUT_FRAME_SAMPLES];
+    private int outputLength = 0;
+
+    /**
+     * @param outputRate Sample rate the downstream consumer receives, in mono
+     */
+    public ResamplingConsumer(PcmConsumer downstream, int outputRate) {
+        this.downstream = downstream;
+        this.outputRate = outputRate;
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.channelCount = channelCount;
+        this.inputRate = sampleRate;
+        double cutoff = CUTOFF * Math.min(1.0, (double) outputRate / sampleRate);
+        halfTaps = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        filter = createFilter(halfTaps, cutoff);
+
+        // Silence before the first sample, so the first output is centred on it
+        inputLength = 0;
+        ensureInputCapacity(halfTaps);
+        Arrays.fill(input, 0, halfTaps, 0f);
+        inputLength = halfTaps;
+        position = (long) halfTaps * outputRate;
+        outputLength = 0;
+        downstream.onCaptureStarted(outputRate, 1);
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        int frames = length / channelCount;
+        ensureInputCapacity(inputLength + frames);
+        float scale = 1f / channelCount;
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channelCount; c++) {
+                sum += frame[i * channelCount + c];
+            }
+            input[inputLength++] = sum * scale;
+        }
+        resample();
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        // Silence after the last sample lets the filter reach the end of the input
+        ensureInputCapacity(inputLength + halfTaps);
+        Arrays.fill(input, inputLength, inputLength + halfTaps, 0f);
+        inputLength += halfTaps;
+        resample();
+        flushOutput();
+        downstream.onCaptureStopped();
+    }
+
+    private void resample() {
+        int taps = halfTaps * 2;
+        while (true) {
+            int base = (int) (position / outputRate);
+            int phase = (int) ((position % outputRate * PHASES + outputRate / 2) / outputRate);
+            if (phase == PHASES) {
+                base++;
+                phase = 0;
+            }
+            int first = base - halfTaps + 1;
+            if (first + taps > inputLength) {
+                break;
+            }
+            float[] coefficients = filter[phase];
+            float sum = 0;
+            for (int j = 0; j < taps; j++) {
+                sum += input[first + j] * coefficients[j];
+            }
+            int sample = Math.round(sum);
+            output[outputLength++] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            if (outputLength == output.length) {
+                flushOutput();
+            }
+            position += inputRate;
+        }
+
+        // Drop the input no future output reaches
+        int keepFrom = Math.max(0, Math.min(inputLength, (int) (position / outputRate) - halfTaps + 1));
+        if (keepFrom > 0) {
+            System.arraycopy(input, keepFrom, input, 0, inputLength - keepFrom);
+            inputLength -= keepFrom;
+            position -= (long) keepFrom * outputRate;
+        }
+    }
+
+    private void flushOutput() {
+        if (outputLength > 0) {
+            downstream.onFrame(output, outputLength);
+            outputLength = 0;
+        }
+    }
+
+    private void ensureInputCapacity(int capacity) {
+        if (input.length < capacity) {
+            input = Arrays.copyOf(input, Math.max(capacity, input.length * 2));
+        }
+    }
+
+    /**
+     * Hann-windowed sinc for every phase, each normalised to unity gain.
+     * Tap j of phase p weighs the input sample at floor(t) - halfTaps + 1 + j
+     * for an output at t = floor(t) + p / PHASES.
+     */
+    private static float[][] createFilter(int halfTaps, double cutoff) {
+        int taps = halfTaps * 2;
+        float[][] filter = new float[PHASES][taps];
+        for (int p = 0; p < PHASES; p++) {
+            double fraction = (double) p / PHASES;
+            double sum = 0;
+            double[] values = new double[taps];
+            for (int j = 0; j < taps; j++) {
+                double distance = fraction + halfTaps - 1 - j;
+                double x = Math.PI * cutoff * distance;
+                double sinc = distance == 0 ? 1 : Math.sin(x) / x;
+                double window = 0.5 + 0.5 * Math.cos(Math.PI * distance / halfTaps);
+                values[j] = Math.abs(distance) < halfTaps ? sinc * window : 0;
+                sum += values[j];
+            }
+            for (int j = 0; j < taps; j++) {
+                filter[p][j] = (float) (values[j] / sum);
+            }
+        }
+        return filter;
+    }
+}
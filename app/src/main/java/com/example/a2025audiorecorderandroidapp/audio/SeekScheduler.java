@@ -0,0 +1,91 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import com.example.a2025audiorecorderandroidapp.utils.MainThread;
+
+/**
+ * Coalesces seeks. While one seek is being carried out, later requests only
+ * replace the target; when it completes the latest target is issued and the
+ * ones in between are dropped. A drag across a seek bar so costs a handful
+ * of seeks instead of one per touch event.
+ */
+class SeekScheduler {
+    // Issue the next seek even if completion of the last one was never reported
+    static final long MAX_SEEK_WAIT_MS = 250;
+
+    interface Seeker {
+        void seek(int positionMs);
+    }
+
+    private final Seeker seeker;
+    private final MainThread mainThread;
+    private final Runnable timeout = this::onSeekCompleted;
+    private boolean seeking = false;
+    private int pendingPositionMs = -1;
+    private long issuedCount = 0;
+    private long droppedCount = 0;
+
+    SeekScheduler(Seeker seeker) {
+        this(seeker, MainThread.create());
+    }
+
+    SeekScheduler(Seeker seeker, MainThread mainThread) {
+        this.seeker = seeker;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Seek now, or once the seek being carried out completes
+     */
+    void request(int positionMs) {
+        if (!seeking) {
+            issue(positionMs);
+            return;
+        }
+        if (pendingPositionMs >= 0) {
+            droppedCount++;
+        }
+        pendingPositionMs = positionMs;
+    }
+
+    /**
+     * The last seek issued has been carried out.
+     */
+    void onSeekCompleted() {
+        if (!seeking) {
+            return;
+        }
+        mainThread.removeCallbacks(timeout);
+        seeking = false;
+        if (pendingPositionMs >= 0) {
+            int positionMs = pendingPositionMs;
+            pendingPositionMs = -1;
+            issue(positionMs);
+        }
+    }
+
+    /**
+     * Drop a pending seek, e.g. when another recording starts.
+     */
+    void cancel() {
+        mainThread.removeCallbacks(timeout);
+        seeking = false;
+        pendingPositionMs = -1;
+    }
+
+    /**
+     * @return Target of a seek not issued yet, -1 if there is none
+     */
+    int getPendingPositionMs() {
+        return pendingPositionMs;
+    }
+
+    long getIssuedCount() { return issuedCount; }
+    long getDroppedCount() { return droppedCount; }
+
+    private void issue(int positionMs) {
+        seeking = true;
+        issuedCount++;
+        mainThread.postDelayed(timeout, MAX_SEEK_WAIT_MS);
+        seeker.seek(positionMs);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Segments that together make up one long recording. The first segment is the
+ * recording file itself, the rest are stored next to it (see
+ * {@link FileUtils#getSegmentFile}). Stored as a text sidecar with one
+ * "index durationMs" line per segment, so file names never need updating
+ * when the recording is renamed.
+ */
+public class SegmentPlaylist {
+    private long[] durations = new long[8];
+    private int count = 0;
+
+    public void add(long durationMs) {
+        if (count == durations.length) {
+            durations = Arrays.copyOf(durations, count * 2);
+        }
+        durations[count++] = durationMs;
+    }
+
+    public int getSegmentCount() {
+        return count;
+    }
+
+    public long getDurationMs(int segment) {
+        return durations[segment];
+    }
+
+    public long getTotalDurationMs() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += durations[i];
+        }
+        return total;
+    }
+
+    /**
+     * @return Position of the first sample of a segment within the whole recording
+     */
+    public long getStartMs(int segment) {
+        long start = 0;
+        for (int i = 0; i < segment; i++) {
+            start += durations[i];
+        }
+        return start;
+    }
+
+    /**
+     * Find the segment holding a position
+     * @param positionMs Position within the whole recording
+     * @return Segment index, the last segment for positions past the end
+     */
+    public int locate(long positionMs) {
+        long end = 0;
+        for (int i = 0; i < count; i++) {
+            end += durations[i];
+            if (positionMs < end) {
+                return i;
+            }
+        }
+        return Math.max(0, count - 1);
+    }
+
+    /**
+     * Write the playlist under a temporary name and move it into place, so
+     * a crash mid-write leaves the previous version intact.
+     */
+    public void save(File file) throws IOException {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+            for (int i = 0; i < count; i++) {
+                writer.write(i + " " + durations[i]);
+                writer.newLine();
+            }
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Failed to move playlist into place");
+        }
+    }
+
+    /**
+     * Load the playlist of a recording
+     * @param recordingFile First segment of the recording
+     * @return The playlist, or null if the recording is a single file
+     */
+    public static SegmentPlaylist load(File recordingFile) throws IOException {
+        File file = FileUtils.getSidecarFile(recordingFile, FileUtils.SEGMENT_PLAYLIST_EXTENSION);
+        if (!file.exists()) {
+            return null;
+        }
+        SegmentPlaylist playlist = new SegmentPlaylist();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length == 2) {
+                    try {
+                        if (Integer.parseInt(parts[0]) != playlist.count) {
+                            throw new IOException("Playlist segments out of order: " + line);
+                        }
+                        playlist.add(Long.parseLong(parts[1]));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed playlist line: " + line, e);
+                    }
+                }
+            }
+        }
+        return playlist.count > 0 ? playlist : null;
+    }
+}
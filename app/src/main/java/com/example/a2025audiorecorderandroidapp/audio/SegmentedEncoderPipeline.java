@@ -0,0 +1,319 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a recording into segments of bounded length, each encoded by its own
+ * pipeline, so a recording can run for hours and a crash only loses the
+ * segment in progress.
+ *
+ * The next segment's pipeline is created and started on a helper thread a
+ * few seconds before the boundary. At the boundary the capture thread simply
+ * switches pipelines between two buffers, so no samples are dropped, and the
+ * finished segment is completed on another thread. The capture thread never
+ * waits for the next pipeline: if it isn't ready yet, the current segment
+ * runs a little longer. Each completed segment is
+ * appended to a {@link SegmentPlaylist} sidecar. A recording that never
+ * reaches a boundary is a single file without a playlist, as before.
+ *
+ * The size limit is checked against the segment's output file, so it only
+ * applies to pipelines that write their output while capturing.
+ *
+ * A segment that fails to complete keeps its slot in the playlist with a
+ * length of zero, so the segments after it stay at their index; the
+ * recording only fails if no segment completed.
+ *
+ * From the start of capture until the last segment is complete the
+ * recording is registered as active, see {@link #isActive}: a segment is
+ * closed well before the recording ends, so its file being closed doesn't
+ * mean the recording can be listed, renamed or deleted.
+ */
+public class SegmentedEncoderPipeline implements EncoderPipeline {
+    private static final String TAG = "SegmentedEncoder";
+    private static final long PREPARE_AHEAD_MS = 5000;
+    private static final int SIZE_CHECK_INTERVAL_FRAMES = 100; // once a second
+    private static final long SHUTDOWN_POLL_SECONDS = 10;
+    private static final long RETRY_AFTER_MS = 60_000;
+    private static final long NOT_READY_RETRY_MS = 1000;
+
+    // Recordings this process is still writing
+    private static final Set<String> activeRecordings = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    public interface SegmentFactory {
+        EncoderPipeline create(File outputFile);
+    }
+
+    private final File recordingFile;
+    private final SegmentFactory factory;
+    private final long maxSegmentMs;
+    private final long maxSegmentBytes;
+    private final File playlistFile;
+    private final List<EncoderPipeline> segments = new ArrayList<>();
+    private final SegmentPlaylist playlist = new SegmentPlaylist();
+    private final EncodeStats captureStats = new EncodeStats();
+    private final EncodeStats encodeStats = new EncodeStats();
+
+    private ExecutorService prepareExecutor;
+    private ExecutorService retireExecutor;
+    private int sampleRate;
+    private int channelCount;
+    private long maxSegmentFrames;
+    private long prepareAtFrames;
+    private long holdUntilFrames = 0; // no new segment before this, after a failed or late one
+    private EncoderPipeline current;
+    private Future<EncoderPipeline> next;
+    private long segmentFrames = 0;
+    private int framesSinceSizeCheck = 0;
+    private int completedSegments = 0; // on the retire thread
+    private volatile IOException failure;
+
+    /**
+     * @param recordingFile The recording, also used as the first segment
+     * @param factory Creates the pipeline encoding each segment
+     * @param maxSegmentMs Duration after which a new segment is started
+     * @param maxSegmentBytes Output size after which a new segment is started
+     */
+    public SegmentedEncoderPipeline(File recordingFile, SegmentFactory factory,
+                                    long maxSegmentMs, long maxSegmentBytes) {
+        this.recordingFile = recordingFile;
+        this.factory = factory;
+        this.maxSegmentMs = maxSegmentMs;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.playlistFile = FileUtils.getSidecarFile(recordingFile, FileUtils.SEGMENT_PLAYLIST_EXTENSION);
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.maxSegmentFrames = maxSegmentMs * sampleRate / 1000;
+        this.prepareAtFrames = Math.max(0, (maxSegmentMs - PREPARE_AHEAD_MS) * sampleRate / 1000);
+        prepareExecutor = Executors.newSingleThreadExecutor();
+        retireExecutor = Executors.newSingleThreadExecutor();
+        activeRecordings.add(recordingFile.getAbsolutePath());
+
+        current = factory.create(recordingFile);
+        addSegment(current);
+        current.onCaptureStarted(sampleRate, channelCount);
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        long start = System.nanoTime();
+        current.onFrame(frame, length);
+        segmentFrames += length / channelCount;
+
+        if (segmentFrames >= holdUntilFrames) {
+            boolean full = segmentFrames >= maxSegmentFrames;
+            if (++framesSinceSizeCheck >= SIZE_CHECK_INTERVAL_FRAMES) {
+                framesSinceSizeCheck = 0;
+                long size = current.getOutputFile().length();
+                if (next == null && size >= maxSegmentBytes * 9 / 10) {
+                    prepareNext();
+                }
+                full |= size >= maxSegmentBytes;
+            }
+            if (next == null && segmentFrames >= prepareAtFrames) {
+                prepareNext();
+            }
+            if (full) {
+                roll();
+            }
+        }
+        captureStats.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        if (next != null) {
+            Future<EncoderPipeline> unused = next;
+            next = null;
+            retireExecutor.execute(() -> {
+                EncoderPipeline pipeline = await(unused);
+                if (pipeline != null) {
+                    pipeline.onCaptureStopped();
+                    pipeline.discard();
+                }
+            });
+        }
+        retire(current, segmentFrames);
+        current = null;
+        prepareExecutor.shutdown();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            awaitRetired();
+            if (completedSegments == 0 && failure != null) {
+                throw failure;
+            }
+            if (failure != null) {
+                Log.w(TAG, "Kept " + completedSegments + " of " + playlist.getSegmentCount() + " segments of "
+                    + recordingFile.getName());
+            }
+            if (playlist.getSegmentCount() <= 1) {
+                // Never reached a boundary, keep it a plain single-file recording
+                playlistFile.delete();
+            }
+        } finally {
+            activeRecordings.remove(recordingFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public void discard() {
+        try {
+            awaitRetired();
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding before all segments were completed", e);
+        }
+        synchronized (segments) {
+            for (EncoderPipeline segment : segments) {
+                segment.discard();
+            }
+        }
+        playlistFile.delete();
+        activeRecordings.remove(recordingFile.getAbsolutePath());
+    }
+
+    /**
+     * @return Whether a recording is still being written by a pipeline in this process
+     */
+    public static boolean isActive(File recordingFile) {
+        return activeRecordings.contains(recordingFile.getAbsolutePath());
+    }
+
+    @Override
+    public File getOutputFile() {
+        return recordingFile;
+    }
+
+    @Override
+    public EncodeStats getCaptureStats() {
+        return captureStats;
+    }
+
+    /**
+     * Encoding stats of all completed segments.
+     */
+    @Override
+    public EncodeStats getEncodeStats() {
+        return encodeStats;
+    }
+
+    private void prepareNext() {
+        File outputFile = FileUtils.getSegmentFile(recordingFile, segments.size());
+        int rate = sampleRate;
+        int channels = channelCount;
+        next = prepareExecutor.submit(() -> {
+            EncoderPipeline pipeline = factory.create(outputFile);
+            pipeline.onCaptureStarted(rate, channels);
+            return pipeline;
+        });
+    }
+
+    private void roll() {
+        if (next == null) {
+            prepareNext();
+        }
+        if (!next.isDone()) {
+            // Creating a codec can take longer than the ring holds, keep writing this segment
+            holdUntilFrames = segmentFrames + NOT_READY_RETRY_MS * sampleRate / 1000;
+            return;
+        }
+        EncoderPipeline replacement = await(next);
+        next = null;
+        if (replacement == null) {
+            // Keep writing the current segment rather than lose audio, try again later
+            holdUntilFrames = segmentFrames + RETRY_AFTER_MS * sampleRate / 1000;
+            return;
+        }
+
+        retire(current, segmentFrames);
+        current = replacement;
+        addSegment(replacement);
+        segmentFrames = 0;
+        framesSinceSizeCheck = 0;
+        holdUntilFrames = 0;
+        Log.d(TAG, "Started segment " + segments.size() + " of " + recordingFile.getName());
+    }
+
+    private void retire(EncoderPipeline pipeline, long frames) {
+        long durationMs = frames * 1000 / sampleRate;
+        retireExecutor.execute(() -> {
+            pipeline.onCaptureStopped();
+            long completedMs = 0;
+            try {
+                pipeline.finish();
+                encodeStats.merge(pipeline.getEncodeStats());
+                completedMs = durationMs;
+                completedSegments++;
+            } catch (IOException e) {
+                // The file stays, deleting and renaming recordings stop at the first missing segment
+                Log.e(TAG, "Failed to complete segment " + pipeline.getOutputFile().getName(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            // Segments are retired in order, so the entry lands at the segment's index
+            playlist.add(completedMs);
+            try {
+                playlist.save(playlistFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to save playlist of " + recordingFile.getName(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        });
+    }
+
+    private void addSegment(EncoderPipeline pipeline) {
+        synchronized (segments) {
+            segments.add(pipeline);
+        }
+    }
+
+    private EncoderPipeline await(Future<EncoderPipeline> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to prepare next segment", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void awaitRetired() throws IOException {
+        if (retireExecutor == null) {
+            return;
+        }
+        // Capture has stopped, so no more segments are queued
+        retireExecutor.shutdown();
+        try {
+            while (!retireExecutor.awaitTermination(SHUTDOWN_POLL_SECONDS, TimeUnit.SECONDS)) {
+                Log.d(TAG, "Still completing segments of " + recordingFile.getName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while completing segments", e);
+        }
+    }
+}
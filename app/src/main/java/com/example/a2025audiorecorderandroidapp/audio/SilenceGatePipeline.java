@@ -0,0 +1,222 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.utils.AudioAmplitudeExtractor;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Drops silent frames before they reach the wrapped pipeline.
+ *
+ * A frame is silent when its RMS amplitude is below the threshold. After
+ * speech the gate stays open for the hangover time, so word endings aren't
+ * clipped. While closed, the most recent frames are kept in a pre-roll ring
+ * and replayed when speech starts again, so onsets aren't clipped either.
+ * Every elided range is recorded in a {@link SilenceMap} sidecar.
+ */
+public class SilenceGatePipeline implements EncoderPipeline {
+    private static final String TAG = "SilenceGate";
+
+    public static final float DEFAULT_THRESHOLD = 0.02f;
+    public static final int DEFAULT_HANGOVER_MS = 300;
+    public static final int DEFAULT_PRE_ROLL_MS = 200;
+
+    /**
+     * Gate settings, in the order of R.array.silence_sensitivity_options
+     */
+    public enum Sensitivity {
+        // Only near-silence is skipped, keeping long pauses around speech
+        LOW(0.01f, 600, 400),
+        NORMAL(DEFAULT_THRESHOLD, DEFAULT_HANGOVER_MS, DEFAULT_PRE_ROLL_MS),
+        // Quiet background is skipped too, for noisy rooms
+        HIGH(0.04f, 200, 150);
+
+        final float threshold;
+        final int hangoverMs;
+        final int preRollMs;
+
+        Sensitivity(float threshold, int hangoverMs, int preRollMs) {
+            this.threshold = threshold;
+            this.hangoverMs = hangoverMs;
+            this.preRollMs = preRollMs;
+        }
+
+        /**
+         * @return The sensitivity chosen in the settings, Normal if none
+         */
+        public static Sensitivity fromPreferences(SharedPreferences preferences) {
+            int index = preferences.getInt("silence_sensitivity", NORMAL.ordinal());
+            return index >= 0 && index < values().length ? values()[index] : NORMAL;
+        }
+    }
+
+    private final EncoderPipeline downstream;
+    private final File sidecarFile;
+    private final float threshold;
+    private final int hangoverMs;
+    private final int preRollMs;
+    private final SilenceMap silenceMap = new SilenceMap();
+
+    private int sampleRate;
+    private int channelCount;
+    private int hangoverFrames;
+    private short[][] preRoll;
+    private int[] preRollLengths;
+    private int preRollHead = 0;
+    private int preRollCount = 0;
+
+    private boolean gateOpen = true;
+    private int silentFrames = 0;
+    private long capturedFrames = 0; // per-channel sample frames seen so far
+    private long elidedStart = 0;
+
+    public SilenceGatePipeline(EncoderPipeline downstream, File sidecarFile) {
+        this(downstream, sidecarFile, Sensitivity.NORMAL);
+    }
+
+    public SilenceGatePipeline(EncoderPipeline downstream, File sidecarFile, Sensitivity sensitivity) {
+        this(downstream, sidecarFile, sensitivity.threshold, sensitivity.hangoverMs, sensitivity.preRollMs);
+    }
+
+    /**
+     * @param downstream Pipeline receiving the non-silent frames
+     * @param sidecarFile Where the elided ranges are written
+     * @param threshold RMS amplitude (0.0 - 1.0) below which a frame is silent
+     * @param hangoverMs How long the gate stays open after the last loud frame
+     * @param preRollMs How much audio before a loud frame is kept
+     */
+    public SilenceGatePipeline(EncoderPipeline downstream, File sidecarFile,
+                               float threshold, int hangoverMs, int preRollMs) {
+        this.downstream = downstream;
+        this.sidecarFile = sidecarFile;
+        this.threshold = threshold;
+        this.hangoverMs = hangoverMs;
+        this.preRollMs = preRollMs;
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.hangoverFrames = hangoverMs / PcmCaptureEngine.FRAME_DURATION_MS;
+
+        int frameSamples = sampleRate * channelCount * PcmCaptureEngine.FRAME_DURATION_MS / 1000;
+        int preRollFrames = Math.max(0, preRollMs / PcmCaptureEngine.FRAME_DURATION_MS);
+        preRoll = new short[preRollFrames][frameSamples];
+        preRollLengths = new int[preRollFrames];
+
+        downstream.onCaptureStarted(sampleRate, channelCount);
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        long frameStart = capturedFrames;
+        capturedFrames += length / channelCount;
+
+        if (AudioAmplitudeExtractor.calculateRMSAmplitude(frame, 0, length) >= threshold) {
+            silentFrames = 0;
+            if (!gateOpen) {
+                openGate(frameStart);
+            }
+            downstream.onFrame(frame, length);
+            return;
+        }
+
+        silentFrames++;
+        if (gateOpen && silentFrames <= hangoverFrames) {
+            downstream.onFrame(frame, length);
+            return;
+        }
+
+        if (gateOpen) {
+            gateOpen = false;
+            elidedStart = frameStart;
+            preRollCount = 0;
+        }
+        keepForPreRoll(frame, length);
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        if (!gateOpen) {
+            // Trailing silence is elided entirely
+            silenceMap.add(toMs(elidedStart), toMs(capturedFrames));
+        }
+        downstream.onCaptureStopped();
+
+        if (silenceMap.getRangeCount() > 0) {
+            try {
+                silenceMap.save(sidecarFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write silence map", e);
+            }
+        }
+        Log.d(TAG, "Skipped " + silenceMap.getElidedDurationMs() + " ms of silence in "
+            + silenceMap.getRangeCount() + " ranges");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        downstream.finish();
+    }
+
+    @Override
+    public void discard() {
+        downstream.discard();
+        sidecarFile.delete();
+    }
+
+    @Override
+    public File getOutputFile() {
+        return downstream.getOutputFile();
+    }
+
+    @Override
+    public EncodeStats getCaptureStats() {
+        return downstream.getCaptureStats();
+    }
+
+    @Override
+    public EncodeStats getEncodeStats() {
+        return downstream.getEncodeStats();
+    }
+
+    /**
+     * Total time left out of the output so far.
+     */
+    public long getElidedDurationMs() {
+        return silenceMap.getElidedDurationMs();
+    }
+
+    private void openGate(long frameStart) {
+        // Replay the pre-roll, oldest first; it is no longer part of the elided range
+        long replayedFrames = 0;
+        int start = (preRollHead - preRollCount + preRoll.length) % Math.max(1, preRoll.length);
+        for (int i = 0; i < preRollCount; i++) {
+            int index = (start + i) % preRoll.length;
+            downstream.onFrame(preRoll[index], preRollLengths[index]);
+            replayedFrames += preRollLengths[index] / channelCount;
+        }
+
+        silenceMap.add(toMs(elidedStart), toMs(frameStart - replayedFrames));
+        preRollCount = 0;
+        gateOpen = true;
+    }
+
+    private void keepForPreRoll(short[] frame, int length) {
+        if (preRoll.length == 0) {
+            return;
+        }
+        System.arraycopy(frame, 0, preRoll[preRollHead], 0, length);
+        preRollLengths[preRollHead] = length;
+        preRollHead = (preRollHead + 1) % preRoll.length;
+        preRollCount = Math.min(preRollCount + 1, preRoll.length);
+    }
+
+    private long toMs(long frames) {
+        return frames * 1000 / sampleRate;
+    }
+}
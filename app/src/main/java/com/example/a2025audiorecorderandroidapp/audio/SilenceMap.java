@@ -0,0 +1,89 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Time ranges that were left out of a recording because they were silent.
+ * Ranges are in capture (wall-clock) milliseconds from the start of the
+ * recording, sorted and non-overlapping. Stored as a text sidecar with one
+ * "startMs endMs" line per range.
+ */
+public class SilenceMap {
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private int count = 0;
+
+    public void add(long startMs, long endMs) {
+        if (endMs <= startMs) {
+            return;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = startMs;
+        ends[count] = endMs;
+        count++;
+    }
+
+    public int getRangeCount() {
+        return count;
+    }
+
+    public long getElidedDurationMs() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += ends[i] - starts[i];
+        }
+        return total;
+    }
+
+    public long getStartMs(int range) {
+        return starts[range];
+    }
+
+    public long getEndMs(int range) {
+        return ends[range];
+    }
+
+    public void save(File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < count; i++) {
+                writer.write(starts[i] + " " + ends[i]);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Load a silence map sidecar
+     * @param file Sidecar file
+     * @return The map, empty if the file doesn't exist
+     */
+    public static SilenceMap load(File file) throws IOException {
+        SilenceMap map = new SilenceMap();
+        if (!file.exists()) {
+            return map;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length == 2) {
+                    try {
+                        map.add(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed silence map line: " + line, e);
+                    }
+                }
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Encodes every captured buffer straight away and muxes it into the output
+ * file, so the recording is complete as soon as capture stops.
+ */
+public class StreamingEncoderPipeline implements EncoderPipeline {
+    private static final String TAG = "StreamingEncoder";
+
+    private final File outputFile;
+    private final AudioEncoder.Factory encoderFactory;
+    private final File journalFile;
+    private final EncodeStats encodeStats = new EncodeStats();
+    private AudioEncoder encoder;
+    private IOException failure;
+
+    public StreamingEncoderPipeline(File outputFile, AudioEncoder.Factory encoderFactory) {
+        this(outputFile, encoderFactory, FileUtils.getSidecarFile(outputFile, FileUtils.JOURNAL_EXTENSION));
+    }
+
+    /**
+     * @param journalFile Journal for recovering the output after a crash, null for none
+     */
+    public StreamingEncoderPipeline(File outputFile, AudioEncoder.Factory encoderFactory, File journalFile) {
+        this.outputFile = outputFile;
+        this.encoderFactory = encoderFactory;
+        this.journalFile = journalFile;
+    }
+
+    @Override
+    public void onCaptureStarted(int sampleRate, int channelCount) {
+        try {
+            encoder = encoderFactory.create(outputFile, sampleRate, channelCount, encodeStats, journalFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to create encoder", e);
+            failure = e;
+        }
+    }
+
+    @Override
+    public void onFrame(short[] frame, int length) {
+        if (encoder != null) {
+            encoder.encode(frame, 0, length);
+        }
+    }
+
+    @Override
+    public void onCaptureStopped() {
+        if (encoder != null) {
+            try {
+                encoder.finish();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to finish encoding", e);
+                failure = e;
+            }
+            encoder = null;
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void discard() {
+        if (encoder != null) {
+            // Input stopped without onCaptureStopped(), e.g. a cancelled decode
+            encoder.release();
+            encoder = null;
+        }
+        outputFile.delete();
+        FileUtils.getSidecarFile(outputFile, FileUtils.JOURNAL_EXTENSION).delete();
+    }
+
+    @Override
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public EncodeStats getCaptureStats() {
+        // Encoding is the capture-side work
+        return encodeStats;
+    }
+
+    @Override
+    public EncodeStats getEncodeStats() {
+        return encodeStats;
+    }
+}
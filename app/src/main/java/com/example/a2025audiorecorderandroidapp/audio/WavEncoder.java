@@ -0,0 +1,66 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes 16-bit PCM uncompressed into a WAV file through {@link WavWriter}.
+ * Not thread-safe, feed it from a single thread.
+ */
+public class WavEncoder implements AudioEncoder {
+    private static final String TAG = "WavEncoder";
+
+    private final WavWriter writer;
+    private final EncodeStats stats;
+    private IOException writeFailure;
+    private boolean closed = false;
+
+    /**
+     * @param outputFile WAV file to write
+     * @param sampleRate Sample rate in Hz
+     * @param channelCount Number of interleaved channels
+     * @param stats Receives the time spent in every {@link #encode} call
+     */
+    public WavEncoder(File outputFile, int sampleRate, int channelCount, EncodeStats stats) throws IOException {
+        this.writer = new WavWriter(outputFile, sampleRate, channelCount);
+        this.stats = stats;
+    }
+
+    @Override
+    public void encode(short[] pcm, int offset, int length) {
+        if (writeFailure != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            writer.write(pcm, offset, length);
+        } catch (IOException e) {
+            // The header covers what reached the file, that part stays playable
+            writeFailure = e;
+        }
+        stats.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void finish() {
+        release();
+    }
+
+    @Override
+    public void release() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close WAV file", e);
+        }
+        if (writeFailure != null) {
+            Log.e(TAG, "WAV output incomplete", writeFailure);
+        }
+    }
+}
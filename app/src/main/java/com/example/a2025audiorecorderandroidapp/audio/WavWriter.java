@@ -0,0 +1,170 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes 16-bit PCM into a RIFF/WAVE file through a FileChannel. Samples are
+ * collected into a chunk of at most a second of audio, and every time a chunk
+ * reaches the file the RIFF and data sizes in the header are patched with
+ * positional writes. A file cut off when the process dies is a valid WAV file
+ * up to the last chunk.
+ */
+public class WavWriter implements Closeable {
+    private static final int HEADER_SIZE = 44;
+    private static final int RIFF_SIZE_OFFSET = 4;
+    private static final int DATA_SIZE_OFFSET = 40;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+    // Size fields are unsigned 32-bit
+    private static final long MAX_DATA_SIZE = 0xFFFFFFFFL - (HEADER_SIZE - 8);
+
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int channelCount;
+    private final ByteBuffer chunk;
+    private final ByteBuffer sizeField = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private long dataSize = 0;
+    private long checkpointedSize = 0;
+
+    /**
+     * Format and checkpointed size of a file this class wrote
+     */
+    static final class Header {
+        final int sampleRate;
+        final int channelCount;
+        final long dataSize;
+
+        Header(int sampleRate, int channelCount, long dataSize) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.dataSize = dataSize;
+        }
+    }
+
+    public WavWriter(File outputFile, int sampleRate, int channelCount) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(outputFile, "rw");
+        this.channel = file.getChannel();
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        int blockAlign = channelCount * 2;
+        int chunkSize = Math.min(MAX_CHUNK_SIZE, sampleRate * blockAlign) / blockAlign * blockAlign;
+        this.chunk = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            channel.truncate(0);
+            writeHeader();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public void write(short[] pcm, int offset, int length) throws IOException {
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int count = Math.min(chunk.remaining() / 2, end - position);
+            for (int i = 0; i < count; i++) {
+                chunk.putShort(pcm[position + i]);
+            }
+            position += count;
+            dataSize += count * 2;
+            if (!chunk.hasRemaining()) {
+                flushChunk();
+            }
+        }
+    }
+
+    /**
+     * @return Bytes of PCM written so far, including any not yet on disk
+     */
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChunk();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read the header of a file written by this class, e.g. one cut off by a crash
+     * @return The header; the data size covers the PCM up to the last checkpoint
+     */
+    static Header readHeader(File file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < HEADER_SIZE) {
+                throw new IOException(file.getName() + " has no WAV header");
+            }
+            in.readFully(header.array());
+        }
+        if (header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) { // "RIFF", "WAVE"
+            throw new IOException(file.getName() + " is not a WAV file");
+        }
+        int channelCount = header.getShort(22);
+        int sampleRate = header.getInt(24);
+        long dataSize = header.getInt(DATA_SIZE_OFFSET) & 0xFFFFFFFFL;
+        // Never more than reached the disk, whatever the checkpoint says
+        dataSize = Math.min(dataSize, file.length() - HEADER_SIZE);
+        return new Header(sampleRate, channelCount, dataSize - dataSize % (channelCount * 2L));
+    }
+
+    private void flushChunk() throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+        checkpoint();
+    }
+
+    /**
+     * Make the header cover everything written to the file so far
+     */
+    private void checkpoint() throws IOException {
+        if (dataSize == checkpointedSize) {
+            return;
+        }
+        long size = Math.min(dataSize, MAX_DATA_SIZE);
+        writeSizeField(RIFF_SIZE_OFFSET, HEADER_SIZE - 8 + size);
+        writeSizeField(DATA_SIZE_OFFSET, size);
+        checkpointedSize = dataSize;
+    }
+
+    private void writeSizeField(long position, long value) throws IOException {
+        sizeField.clear();
+        sizeField.putInt(0, (int) value);
+        while (sizeField.hasRemaining()) {
+            channel.write(sizeField, position + sizeField.position());
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' })
+            .putInt(HEADER_SIZE - 8) // patched at checkpoints
+            .put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' })
+            .putInt(16)
+            .putShort((short) 1) // PCM
+            .putShort((short) channelCount)
+            .putInt(sampleRate)
+            .putInt(sampleRate * channelCount * 2) // byte rate
+            .putShort((short) (channelCount * 2)) // block align
+            .putShort((short) 16)
+            .put(new byte[] { 'd', 'a', 't', 'a' })
+            .putInt(0); // patched at checkpoints
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Waveform overviews of recordings, rendered from their peak files on a
+ * background thread and kept for the recordings shown last. A recording
+ * without a peak file yet has no overview.
+ */
+public class WaveformCache {
+    private static final String TAG = "WaveformCache";
+    private static final int COLUMNS = 200;
+    private static final int MAX_ENTRIES = 16;
+
+    // One render thread for the process, rendering is short and rare
+    private static final ExecutorService RENDER_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "WaveformRender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Callback {
+        /**
+         * Called on the main thread, right away if the overview is cached.
+         * Not called if the recording has no peak file.
+         */
+        void onWaveform(Waveform waveform);
+    }
+
+    /**
+     * Per-column minimum (-1.0 - 0.0) and maximum (0.0 - 1.0) across a whole recording
+     */
+    public static final class Waveform {
+        public final float[] min;
+        public final float[] max;
+
+        Waveform(float[] min, float[] max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    // Main thread
+    private final LruCache<String, Waveform> cache = new LruCache<>(MAX_ENTRIES);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public void get(File recordingFile, Callback callback) {
+        String path = recordingFile.getAbsolutePath();
+        Waveform cached = cache.get(path);
+        if (cached != null) {
+            callback.onWaveform(cached);
+            return;
+        }
+        RENDER_THREAD.execute(() -> {
+            Waveform waveform = render(recordingFile);
+            if (waveform != null) {
+                mainHandler.post(() -> {
+                    cache.put(path, waveform);
+                    callback.onWaveform(waveform);
+                });
+            }
+        });
+    }
+
+    private static Waveform render(File recordingFile) {
+        File peakFile = FileUtils.getSidecarFile(recordingFile, FileUtils.PEAKS_EXTENSION);
+        if (!peakFile.exists()) {
+            return null;
+        }
+        try {
+            float[] min = new float[COLUMNS];
+            float[] max = new float[COLUMNS];
+            PeakFile.open(peakFile).render(COLUMNS, min, max, null);
+            return new Waveform(min, max);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read peaks of " + recordingFile.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.audio.SegmentedEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+import com.example.a2025audiorecorderandroidapp.model.RecordingStore;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans the recordings directory in the background. Metadata is resolved on a
+ * bounded worker pool (index first, probing only on a miss) and results are
+ * published to the main thread in batches, newest first, so the first rows
+ * can be shown before the whole directory has been read.
+ */
+public class LibraryScanner {
+    private static final String TAG = "LibraryScanner";
+    private static final int FIRST_BATCH_SIZE = 16;
+    private static final int BATCH_SIZE = 128;
+    private static final int MAX_WORKERS = 4;
+
+    public interface Listener {
+        /**
+         * Called on the main thread for each batch, in list order.
+         * @param batch Recordings with metadata filled in
+         * @param offset Position of the first item of the batch in the full list
+         */
+        void onBatch(List<Recording> batch, int offset);
+
+        /**
+         * Called on the main thread once all batches were published.
+         * @param total Number of recordings found
+         */
+        void onComplete(int total);
+    }
+
+    public static class Scan {
+        private volatile boolean cancelled = false;
+        private volatile long timeToFirstBatchMs = -1;
+        private volatile long timeToCompleteMs = -1;
+        private volatile int recoveredCount = 0;
+        private volatile long recoveryTimeMs = 0;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (futures) {
+                for (Future<?> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        public boolean isCancelled() { return cancelled; }
+        public boolean isComplete() { return timeToCompleteMs >= 0; }
+        public long getTimeToFirstBatchMs() { return timeToFirstBatchMs; }
+        public long getTimeToCompleteMs() { return timeToCompleteMs; }
+        public int getRecoveredCount() { return recoveredCount; }
+        public long getRecoveryTimeMs() { return recoveryTimeMs; }
+    }
+
+    private final RecordingIndex recordingIndex;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public LibraryScanner(RecordingIndex recordingIndex) {
+        this.recordingIndex = recordingIndex;
+        int workerCount = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        this.coordinator = Executors.newSingleThreadExecutor(threadFactory("LibraryScan"));
+        this.workers = Executors.newFixedThreadPool(workerCount, threadFactory("LibraryProbe"));
+    }
+
+    /**
+     * Start scanning a directory
+     * @param directory Recordings directory
+     * @param listener Receives batches on the main thread
+     * @return Handle used to cancel the scan
+     */
+    public Scan scan(File directory, Listener listener) {
+        Scan scan = new Scan();
+        coordinator.execute(() -> runScan(directory, listener, scan));
+        return scan;
+    }
+
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Fills duration and format of a recording from the index, probing and
+     * indexing the file if it is unknown or changed.
+     */
+    public static void applyMetadata(Recording recording, RecordingIndex recordingIndex) {
+        File file = new File(recording.getFilePath());
+        RecordingIndex.Entry entry = recordingIndex.get(file);
+        if (entry == null) {
+            entry = MetadataProbe.probe(file);
+            if (entry != null) {
+                recordingIndex.put(file, entry.duration, entry.sampleRate, entry.channelCount);
+            }
+        }
+        if (entry != null) {
+            recording.setDuration(entry.duration);
+            recording.setSampleRate(entry.sampleRate);
+            recording.setChannelCount(entry.channelCount);
+        }
+    }
+
+    private void runScan(File directory, Listener listener, Scan scan) {
+        long startTime = SystemClock.elapsedRealtime();
+
+        // Repair recordings cut off by a crash before they are listed
+        RecordingRecovery.Report recovery = RecordingRecovery.recover(directory, recordingIndex);
+        scan.recoveredCount = recovery.recovered;
+        scan.recoveryTimeMs = recovery.elapsedMs;
+
+        // A recording in progress is listed when it stops
+        File[] files = directory.listFiles((dir, name) -> FileUtils.isRecordingFile(name)
+            && !SegmentedEncoderPipeline.isActive(new File(dir, name)));
+        if (files == null) {
+            files = new File[0];
+        }
+
+        // Stat every file once up front, probing is the expensive part
+        RecordingStore store = new RecordingStore(directory, files);
+        List<Recording> recordings = new ArrayList<>(files.length);
+        Set<String> fileNames = new HashSet<>();
+        for (int i = 0; i < files.length; i++) {
+            recordings.add(store.get(i));
+            fileNames.add(files[i].getName());
+        }
+        recordings.sort((r1, r2) -> Long.compare(r2.getTimestamp(), r1.getTimestamp()));
+
+        // Queue all batches so workers stay busy while earlier ones are published
+        List<Future<List<Recording>>> batches = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        int offset = 0;
+        while (offset < recordings.size() && !scan.cancelled) {
+            int size = offset == 0 ? FIRST_BATCH_SIZE : BATCH_SIZE;
+            List<Recording> batch = recordings.subList(offset, Math.min(offset + size, recordings.size()));
+            Future<List<Recording>> future = workers.submit(() -> probeBatch(batch, scan));
+            synchronized (scan.futures) {
+                scan.futures.add(future);
+            }
+            batches.add(future);
+            offsets.add(offset);
+            offset += batch.size();
+        }
+
+        for (int i = 0; i < batches.size() && !scan.cancelled; i++) {
+            List<Recording> batch;
+            try {
+                batch = batches.get(i).get();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Failed to probe batch", e.getCause());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (CancellationException e) {
+                return;
+            }
+
+            int batchOffset = offsets.get(i);
+            if (i == 0) {
+                scan.timeToFirstBatchMs = SystemClock.elapsedRealtime() - startTime;
+            }
+            mainHandler.post(() -> {
+                if (!scan.cancelled) {
+                    listener.onBatch(batch, batchOffset);
+                }
+            });
+        }
+
+        if (scan.cancelled) {
+            return;
+        }
+
+        recordingIndex.retainAll(fileNames);
+        recordingIndex.save();
+
+        scan.timeToCompleteMs = SystemClock.elapsedRealtime() - startTime;
+        Log.d(TAG, "Scanned " + recordings.size() + " recordings, first batch in "
+            + scan.timeToFirstBatchMs + " ms, complete in " + scan.timeToCompleteMs + " ms");
+
+        int total = recordings.size();
+        mainHandler.post(() -> {
+            if (!scan.cancelled) {
+                listener.onComplete(total);
+            }
+        });
+    }
+
+    private List<Recording> probeBatch(List<Recording> batch, Scan scan) {
+        List<Recording> result = new ArrayList<>(batch.size());
+        for (Recording recording : batch) {
+            if (scan.cancelled) {
+                break;
+            }
+            applyMetadata(recording, recordingIndex);
+            result.add(recording);
+        }
+        return result;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.os.FileObserver;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.a2025audiorecorderandroidapp.audio.SegmentedEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+import com.example.a2025audiorecorderandroidapp.model.RecordingStore;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+import com.example.a2025audiorecorderandroidapp.utils.MainThread;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the library in sync with the recordings directory by watching it
+ * with inotify, so a file changed inside or outside the app doesn't need a
+ * rescan. Events are collected by file name for a short while and each name
+ * is then resolved once against the disk, so a burst of events for one file
+ * costs one stat and at most one probe. A file moved within the directory
+ * keeps its index entry instead of being probed again.
+ *
+ * Files are picked up once they are closed after writing, not while they are
+ * being recorded; a segmented recording closes its first file long before it
+ * ends, so recordings still active in this process are skipped until they
+ * are complete. Only when the kernel drops events is the directory
+ * reconciled with the library as a whole, by name, size and date.
+ */
+public class LibraryWatcher {
+    private static final String TAG = "LibraryWatcher";
+    static final long COALESCE_MS = 300;
+
+    // Sent by inotify without a path when its queue overflowed, FileObserver has no constant for it
+    static final int IN_Q_OVERFLOW = 0x00004000;
+    private static final int FILE_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.MOVED_FROM
+        | FileObserver.MOVED_TO | FileObserver.DELETE;
+    private static final int DIRECTORY_EVENTS = FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    public interface Listener {
+        /**
+         * Called on the main thread with recordings that changed on disk.
+         * @param removedPaths Paths of recordings that no longer exist
+         * @param updated Recordings that appeared or changed, with metadata filled in
+         */
+        void onChanges(List<String> removedPaths, List<Recording> updated);
+
+        /**
+         * Called on the main thread when events were lost, so the library
+         * should be passed to {@link #reconcile}.
+         */
+        void onOverflow();
+    }
+
+    private final File directory;
+    private final RecordingIndex recordingIndex;
+    private final Listener listener;
+    private final FileObserver observer;
+    private final ExecutorService executor;
+    private final MainThread mainThread;
+    private final Runnable flush = this::flush;
+    private volatile boolean stopped = false;
+
+    // Guarded by this, filled on the observer thread
+    private final Set<String> pendingNames = new LinkedHashSet<>();
+    private boolean overflowed = false;
+    private boolean flushScheduled = false;
+    private int pendingEvents = 0;
+
+    // Main thread
+    private boolean paused = false;
+
+    /**
+     * @param directory Recordings directory
+     * @param listener Receives changes on the main thread
+     */
+    public LibraryWatcher(File directory, RecordingIndex recordingIndex, Listener listener) {
+        this(directory, recordingIndex, listener, Executors.newSingleThreadExecutor(), MainThread.create());
+    }
+
+    /**
+     * @param executor Resolves changes, one at a time
+     * @param mainThread Where events are coalesced and changes delivered
+     */
+    LibraryWatcher(File directory, RecordingIndex recordingIndex, Listener listener, ExecutorService executor,
+                   MainThread mainThread) {
+        this.directory = directory;
+        this.recordingIndex = recordingIndex;
+        this.listener = listener;
+        this.executor = executor;
+        this.mainThread = mainThread;
+        this.observer = new FileObserver(directory, FILE_EVENTS | DIRECTORY_EVENTS) {
+            @Override
+            public void onEvent(int event, @Nullable String path) {
+                onFileEvent(event, path);
+            }
+        };
+    }
+
+    public void start() {
+        observer.startWatching();
+    }
+
+    public void stop() {
+        stopped = true;
+        observer.stopWatching();
+        mainThread.removeCallbacks(flush);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hold changes back, e.g. while a full scan replaces the library. Events
+     * keep being collected and are delivered by {@link #resume}.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+        synchronized (this) {
+            if (!pendingNames.isEmpty() || overflowed) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    /**
+     * Compare the directory with the library and report the differences as
+     * changes. Only files whose name, size or date differ are probed.
+     * @param recordings The library, copied
+     */
+    public void reconcile(List<Recording> recordings) {
+        List<Recording> snapshot = new ArrayList<>(recordings);
+        executor.execute(() -> {
+            Map<String, Recording> known = new HashMap<>(snapshot.size() * 2);
+            StringBuilder name = new StringBuilder();
+            for (Recording recording : snapshot) {
+                // Read the name from the store, getFileName() would keep a copy per recording
+                name.setLength(0);
+                recording.appendFileName(name);
+                known.put(name.toString(), recording);
+            }
+
+            File[] files = directory.listFiles((dir, fileName) -> FileUtils.isRecordingFile(fileName));
+            if (files == null) {
+                files = new File[0];
+            }
+            List<String> changed = new ArrayList<>();
+            Set<String> fileNames = new HashSet<>();
+            for (File file : files) {
+                fileNames.add(file.getName());
+                Recording recording = known.remove(file.getName());
+                if (recording == null || recording.getFileSize() != file.length()
+                        || recording.getTimestamp() != file.lastModified()) {
+                    changed.add(file.getName());
+                }
+            }
+            changed.addAll(known.keySet());
+            recordingIndex.retainAll(fileNames);
+
+            Log.d(TAG, "Reconciled " + files.length + " files, " + changed.size() + " changed");
+            resolve(changed);
+        });
+    }
+
+    /**
+     * Called by the observer on its own thread.
+     */
+    void onFileEvent(int event, @Nullable String path) {
+        synchronized (this) {
+            if ((event & (IN_Q_OVERFLOW | DIRECTORY_EVENTS)) != 0) {
+                overflowed = true;
+            } else if ((event & FILE_EVENTS) != 0 && path != null && FileUtils.isRecordingFile(path)) {
+                pendingNames.add(path);
+            } else {
+                return;
+            }
+            pendingEvents++;
+            scheduleFlush();
+        }
+    }
+
+    private synchronized void scheduleFlush() {
+        if (!flushScheduled && !stopped) {
+            flushScheduled = true;
+            mainThread.postDelayed(flush, COALESCE_MS);
+        }
+    }
+
+    private void flush() {
+        List<String> names;
+        boolean lostEvents;
+        synchronized (this) {
+            flushScheduled = false;
+            if (paused) {
+                return;
+            }
+            names = new ArrayList<>(pendingNames);
+            lostEvents = overflowed;
+            Log.d(TAG, pendingEvents + " events for " + names.size() + " files"
+                + (lostEvents ? ", events lost" : ""));
+            pendingNames.clear();
+            overflowed = false;
+            pendingEvents = 0;
+        }
+
+        if (lostEvents) {
+            // The reconcile covers the pending names as well
+            listener.onOverflow();
+        } else if (!names.isEmpty()) {
+            executor.execute(() -> resolve(names));
+        }
+    }
+
+    /**
+     * Look up the current state of changed files. Runs on the executor.
+     */
+    private void resolve(List<String> names) {
+        long startTime = SystemClock.elapsedRealtime();
+        List<String> removedPaths = new ArrayList<>();
+        List<RecordingIndex.Entry> removedEntries = new ArrayList<>();
+        List<File> present = new ArrayList<>();
+        for (String name : names) {
+            File file = new File(directory, name);
+            if (SegmentedEncoderPipeline.isActive(file)) {
+                // Listed when the recording stops
+                continue;
+            }
+            if (file.isFile()) {
+                present.add(file);
+            } else {
+                removedPaths.add(file.getAbsolutePath());
+                RecordingIndex.Entry entry = recordingIndex.remove(name);
+                if (entry != null) {
+                    removedEntries.add(entry);
+                }
+            }
+        }
+
+        RecordingStore store = new RecordingStore(directory, present.toArray(new File[0]));
+        List<Recording> updated = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) {
+            File file = present.get(i);
+            if (!removedEntries.isEmpty() && recordingIndex.get(file) == null) {
+                adoptMovedEntry(file, removedEntries);
+            }
+            Recording recording = store.get(i);
+            LibraryScanner.applyMetadata(recording, recordingIndex);
+            updated.add(recording);
+        }
+        recordingIndex.save();
+
+        Log.d(TAG, "Resolved " + names.size() + " files in " + (SystemClock.elapsedRealtime() - startTime)
+            + " ms: " + removedPaths.size() + " removed, " + updated.size() + " updated");
+        mainThread.post(() -> deliver(names, removedPaths, updated));
+    }
+
+    /**
+     * A move within the directory shows up as a removed and a new name; the
+     * new file has the size and date of the old one, so its entry still holds.
+     */
+    private void adoptMovedEntry(File file, List<RecordingIndex.Entry> removedEntries) {
+        for (int i = 0; i < removedEntries.size(); i++) {
+            RecordingIndex.Entry entry = removedEntries.get(i);
+            if (entry.matches(file)) {
+                recordingIndex.put(file, entry.duration, entry.sampleRate, entry.channelCount);
+                removedEntries.remove(i);
+                return;
+            }
+        }
+    }
+
+    private void deliver(List<String> names, List<String> removedPaths, List<Recording> updated) {
+        if (stopped) {
+            return;
+        }
+        if (paused) {
+            // Resolved against a library that is being replaced, resolve again after the scan
+            synchronized (this) {
+                pendingNames.addAll(names);
+            }
+            return;
+        }
+        if (!removedPaths.isEmpty() || !updated.isEmpty()) {
+            listener.onChanges(removedPaths, updated);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.audio.SegmentPlaylist;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Reads duration and audio format of a recording without preparing a player.
+ * MP4 files are parsed directly from their box headers and Ogg Opus files
+ * from their first and last pages; anything else falls back to MediaExtractor.
+ */
+public class MetadataProbe {
+    private static final String TAG = "MetadataProbe";
+
+    private static final ThreadLocal<Mp4HeaderReader> mp4Reader =
+        ThreadLocal.withInitial(Mp4HeaderReader::new);
+    private static final ThreadLocal<OggHeaderReader> oggReader =
+        ThreadLocal.withInitial(OggHeaderReader::new);
+
+    /**
+     * Probe a recording file
+     * @param file Recording file
+     * @return Index entry for the file, or null if it could not be read
+     */
+    public static RecordingIndex.Entry probe(File file) {
+        RecordingIndex.Entry entry = probeFile(file);
+        if (entry == null) {
+            return null;
+        }
+
+        // A segmented recording lasts as long as all of its segments
+        try {
+            SegmentPlaylist playlist = SegmentPlaylist.load(file);
+            if (playlist != null) {
+                return new RecordingIndex.Entry(entry.fileSize, entry.lastModified,
+                    playlist.getTotalDurationMs(), entry.sampleRate, entry.channelCount);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read segment playlist of " + file.getName(), e);
+        }
+        return entry;
+    }
+
+    private static RecordingIndex.Entry probeFile(File file) {
+        if (file.getName().toLowerCase(Locale.ROOT).endsWith(FileUtils.OGG_FILE_EXTENSION)) {
+            try {
+                OggHeaderReader.Info info = oggReader.get().read(file);
+                if (info != null) {
+                    return new RecordingIndex.Entry(file.length(), file.lastModified(),
+                        info.duration, info.sampleRate, info.channelCount);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to parse Ogg pages of " + file.getName(), e);
+            }
+            return probeWithExtractor(file);
+        }
+        try {
+            Mp4HeaderReader.Info info = mp4Reader.get().read(file);
+            if (info != null) {
+                return new RecordingIndex.Entry(file.length(), file.lastModified(),
+                    info.duration, info.sampleRate, info.channelCount);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to parse MP4 header of " + file.getName(), e);
+        }
+        return probeWithExtractor(file);
+    }
+
+    private static RecordingIndex.Entry probeWithExtractor(File file) {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("audio/")) {
+                    continue;
+                }
+
+                long duration = format.containsKey(MediaFormat.KEY_DURATION)
+                    ? format.getLong(MediaFormat.KEY_DURATION) / 1000 : 0;
+                int sampleRate = format.containsKey(MediaFormat.KEY_SAMPLE_RATE)
+                    ? format.getInteger(MediaFormat.KEY_SAMPLE_RATE) : 0;
+                int channelCount = format.containsKey(MediaFormat.KEY_CHANNEL_COUNT)
+                    ? format.getInteger(MediaFormat.KEY_CHANNEL_COUNT) : 0;
+                return new RecordingIndex.Entry(file.length(), file.lastModified(),
+                    duration, sampleRate, channelCount);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to probe " + file.getName(), e);
+        } finally {
+            extractor.release();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads duration and audio format straight from the box headers of an
+ * MP4/M4A file. Only box headers and the small mvhd/mdhd/hdlr/stsd leaves are
+ * read, through positional reads into one reusable buffer; the mdat payload
+ * and the sample tables are skipped entirely.
+ *
+ * Instances keep parse state and are not thread-safe, use one per thread.
+ */
+public class Mp4HeaderReader {
+    private static final int TYPE_FTYP = fourcc("ftyp");
+    private static final int TYPE_MOOV = fourcc("moov");
+    private static final int TYPE_MVHD = fourcc("mvhd");
+    private static final int TYPE_TRAK = fourcc("trak");
+    private static final int TYPE_MDIA = fourcc("mdia");
+    private static final int TYPE_MDHD = fourcc("mdhd");
+    private static final int TYPE_HDLR = fourcc("hdlr");
+    private static final int TYPE_MINF = fourcc("minf");
+    private static final int TYPE_STBL = fourcc("stbl");
+    private static final int TYPE_STSD = fourcc("stsd");
+    private static final int TYPE_MDAT = fourcc("mdat");
+    private static final int TYPE_ESDS = fourcc("esds");
+    private static final int HANDLER_SOUN = fourcc("soun");
+
+    private static final int MAX_DEPTH = 8;
+    private static final int BUFFER_SIZE = 512;
+
+    public static class Info {
+        public final long duration; // milliseconds
+        public final long timescale;
+        public final int sampleRate;
+        public final int channelCount;
+        public final int bitRate;
+
+        public Info(long duration, long timescale, int sampleRate, int channelCount, int bitRate) {
+            this.duration = duration;
+            this.timescale = timescale;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.bitRate = bitRate;
+        }
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Parse state, reset for every file
+    private long movieTimescale;
+    private long movieDuration;
+    private long trackTimescale;
+    private long trackDuration;
+    private long pendingTimescale;
+    private long pendingDuration;
+    private boolean inAudioTrack;
+    private boolean audioTrackFound;
+    private int sampleRate;
+    private int channelCount;
+    private int bitRate;
+    private long mdatSize;
+
+    /**
+     * Read header information from an MP4 file
+     * @param file MP4/M4A file
+     * @return Parsed information, or null if the file is not a readable MP4
+     */
+    public Info read(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return read(in.getChannel());
+        }
+    }
+
+    public Info read(FileChannel channel) throws IOException {
+        reset();
+        long end = channel.size();
+
+        // Reject anything that doesn't start like an ISO base media file
+        if (end < 8 || readBoxType(channel, 0) != TYPE_FTYP) {
+            return null;
+        }
+
+        walk(channel, 0, end, 0);
+
+        long timescale = audioTrackFound ? trackTimescale : movieTimescale;
+        long duration = audioTrackFound ? trackDuration : movieDuration;
+        if (timescale <= 0) {
+            return null;
+        }
+
+        long durationMs = duration * 1000 / timescale;
+        if (bitRate <= 0 && durationMs > 0 && mdatSize > 0) {
+            bitRate = (int) (mdatSize * 8 * 1000 / durationMs);
+        }
+        return new Info(durationMs, timescale, sampleRate, channelCount, bitRate);
+    }
+
+    private void reset() {
+        movieTimescale = 0;
+        movieDuration = 0;
+        trackTimescale = 0;
+        trackDuration = 0;
+        pendingTimescale = 0;
+        pendingDuration = 0;
+        inAudioTrack = false;
+        audioTrackFound = false;
+        sampleRate = 0;
+        channelCount = 0;
+        bitRate = 0;
+        mdatSize = 0;
+    }
+
+    private void walk(FileChannel channel, long start, long end, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            return;
+        }
+
+        long position = start;
+        while (position + 8 <= end) {
+            fill(channel, position, 8);
+            long size = Integer.toUnsignedLong(buffer.getInt());
+            int type = buffer.getInt();
+            int headerSize = 8;
+
+            if (size == 1) {
+                // 64-bit largesize follows the type
+                fill(channel, position + 8, 8);
+                size = buffer.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                // Box extends to the end of its container
+                size = end - position;
+            }
+            if (size < headerSize || position + size > end) {
+                return; // Truncated or corrupt box
+            }
+
+            long bodyStart = position + headerSize;
+            long bodySize = size - headerSize;
+
+            if (type == TYPE_MOOV || type == TYPE_MDIA || type == TYPE_MINF || type == TYPE_STBL) {
+                walk(channel, bodyStart, position + size, depth + 1);
+            } else if (type == TYPE_TRAK) {
+                inAudioTrack = false;
+                walk(channel, bodyStart, position + size, depth + 1);
+                inAudioTrack = false;
+            } else if (type == TYPE_MVHD) {
+                parseMediaHeader(channel, bodyStart, bodySize, true);
+            } else if (type == TYPE_MDHD) {
+                parseMediaHeader(channel, bodyStart, bodySize, false);
+            } else if (type == TYPE_HDLR) {
+                parseHandler(channel, bodyStart, bodySize);
+            } else if (type == TYPE_STSD && inAudioTrack) {
+                parseSampleDescription(channel, bodyStart, bodySize);
+            } else if (type == TYPE_MDAT) {
+                mdatSize += bodySize;
+            }
+
+            position += size;
+        }
+    }
+
+    /**
+     * Parses mvhd or mdhd, which share the version/timescale/duration layout.
+     */
+    private void parseMediaHeader(FileChannel channel, long start, long size, boolean movie) throws IOException {
+        if (size < 4) {
+            return;
+        }
+        fill(channel, start, (int) Math.min(size, 32));
+        int version = buffer.get() & 0xFF;
+        buffer.position(buffer.position() + 3); // flags
+
+        long timescale;
+        long duration;
+        if (version == 1) {
+            if (buffer.remaining() < 28) {
+                return;
+            }
+            buffer.position(buffer.position() + 16); // creation and modification time
+            timescale = Integer.toUnsignedLong(buffer.getInt());
+            duration = buffer.getLong();
+        } else {
+            if (buffer.remaining() < 16) {
+                return;
+            }
+            buffer.position(buffer.position() + 8);
+            timescale = Integer.toUnsignedLong(buffer.getInt());
+            duration = Integer.toUnsignedLong(buffer.getInt());
+        }
+
+        if (movie) {
+            movieTimescale = timescale;
+            movieDuration = duration;
+        } else {
+            // hdlr follows mdhd, so keep the values until we know the track type
+            pendingTimescale = timescale;
+            pendingDuration = duration;
+        }
+    }
+
+    private void parseHandler(FileChannel channel, long start, long size) throws IOException {
+        if (size < 12) {
+            return;
+        }
+        fill(channel, start, 12);
+        buffer.position(8); // version/flags and pre_defined
+        if (buffer.getInt() == HANDLER_SOUN && !audioTrackFound) {
+            inAudioTrack = true;
+            audioTrackFound = true;
+            trackTimescale = pendingTimescale;
+            trackDuration = pendingDuration;
+        }
+    }
+
+    private void parseSampleDescription(FileChannel channel, long start, long size) throws IOException {
+        int length = (int) Math.min(size, BUFFER_SIZE);
+        // version/flags, entry_count, then the first sample entry header and fixed audio fields
+        if (length < 8 + 8 + 28) {
+            return;
+        }
+        fill(channel, start, length);
+        buffer.position(8);
+        int entrySize = buffer.getInt();
+        buffer.getInt(); // format, e.g. mp4a
+        buffer.position(buffer.position() + 6 + 2 + 8); // reserved, data_reference_index, version/revision/vendor
+        channelCount = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + 2 + 2 + 2); // samplesize, pre_defined, reserved
+        sampleRate = buffer.getInt() >>> 16; // 16.16 fixed point
+
+        // Child boxes of the sample entry, looking for esds
+        int entryEnd = Math.min(8 + entrySize, length);
+        while (buffer.position() + 8 <= entryEnd) {
+            int boxStart = buffer.position();
+            int boxSize = buffer.getInt();
+            int boxType = buffer.getInt();
+            if (boxSize < 8 || boxStart + boxSize > entryEnd) {
+                return;
+            }
+            if (boxType == TYPE_ESDS) {
+                buffer.limit(boxStart + boxSize);
+                parseEsds();
+                return;
+            }
+            buffer.position(boxStart + boxSize);
+        }
+    }
+
+    /**
+     * Finds the average bitrate in the DecoderConfigDescriptor of an esds box.
+     * The buffer must be positioned just after the esds box header.
+     */
+    private void parseEsds() {
+        if (buffer.remaining() < 4) {
+            return;
+        }
+        buffer.getInt(); // version/flags
+
+        if (!buffer.hasRemaining() || buffer.get() != 0x03) { // ES_Descriptor
+            return;
+        }
+        readDescriptorLength();
+        if (buffer.remaining() < 3) {
+            return;
+        }
+        buffer.getShort(); // ES_ID
+        int flags = buffer.get() & 0xFF;
+        int skip = 0;
+        if ((flags & 0x80) != 0) {
+            skip += 2; // dependsOn_ES_ID
+        }
+        if ((flags & 0x20) != 0) {
+            skip += 2; // OCR_ES_Id
+        }
+        if (buffer.remaining() < skip) {
+            return;
+        }
+        buffer.position(buffer.position() + skip);
+        if ((flags & 0x40) != 0) {
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+            int urlLength = buffer.get() & 0xFF;
+            if (buffer.remaining() < urlLength) {
+                return;
+            }
+            buffer.position(buffer.position() + urlLength);
+        }
+
+        if (!buffer.hasRemaining() || buffer.get() != 0x04) { // DecoderConfigDescriptor
+            return;
+        }
+        readDescriptorLength();
+        if (buffer.remaining() < 13) {
+            return;
+        }
+        buffer.position(buffer.position() + 1 + 1 + 3 + 4); // objectType, streamType, bufferSizeDB, maxBitrate
+        bitRate = buffer.getInt();
+    }
+
+    private int readDescriptorLength() {
+        int length = 0;
+        for (int i = 0; i < 4 && buffer.hasRemaining(); i++) {
+            int b = buffer.get() & 0xFF;
+            length = (length << 7) | (b & 0x7F);
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    private int readBoxType(FileChannel channel, long position) throws IOException {
+        fill(channel, position, 8);
+        buffer.getInt();
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads exactly length bytes at position into the buffer and flips it for reading.
+     */
+    private void fill(FileChannel channel, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+    }
+
+    private static int fourcc(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import com.example.a2025audiorecorderandroidapp.audio.RecordingJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Makes an MPEG-4 audio file playable again when its muxer never finished,
+ * i.e. the file holds ftyp and a growing mdat but no moov. The sample tables
+ * are rebuilt from the sizes in the recording journal and appended as a new
+ * moov; the mdat payload is never read or re-encoded, so the cost depends on
+ * the number of samples, not on the size of the file.
+ *
+ * All samples are stored as one chunk at the start of the mdat payload,
+ * which is how a single-track MediaMuxer file is laid out. A rebuild cut off
+ * while writing the moov can be run again.
+ */
+public class Mp4Rebuilder {
+    private static final int[] AAC_SAMPLE_RATES = {
+        96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+    private static final int MOVIE_TIMESCALE = 1000;
+
+    public static class Result {
+        public final int sampleCount;
+        public final long payloadBytes;
+        public final long durationMs;
+
+        Result(int sampleCount, long payloadBytes, long durationMs) {
+            this.sampleCount = sampleCount;
+            this.payloadBytes = payloadBytes;
+            this.durationMs = durationMs;
+        }
+    }
+
+    /**
+     * Rebuild the index of a file left behind by a crash
+     * @param file MPEG-4 file without a moov box
+     * @param journal Journal written while the file was muxed
+     * @return What was recovered
+     * @throws IOException If the file has no mdat or no complete sample
+     */
+    public static Result rebuild(File file, RecordingJournal.Contents journal) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+
+            // Find the mdat header; everything after it is sample data
+            ByteBuffer header = ByteBuffer.allocate(16);
+            long position = 0;
+            long mdatStart = -1;
+            int mdatHeaderSize = 8;
+            long mdatSize = 0;
+            while (position + 8 <= length) {
+                readFully(channel, header, position, 8);
+                long size = Integer.toUnsignedLong(header.getInt());
+                String type = fourcc(header.getInt());
+                if (type.equals("moov")) {
+                    throw new IOException("File already has sample tables");
+                }
+                if (type.equals("mdat")) {
+                    mdatStart = position;
+                    mdatHeaderSize = size == 1 ? 16 : 8;
+                    if (size == 1) {
+                        readFully(channel, header, position + 8, 8);
+                        size = header.getLong();
+                    }
+                    // The muxer only sets the size when it stops; a size that fits means
+                    // an earlier rebuild ended the mdat and what follows is its moov
+                    if (size >= mdatHeaderSize && position + size <= length) {
+                        mdatSize = size;
+                    }
+                    break;
+                }
+                if (size == 1) {
+                    readFully(channel, header, position + 8, 8);
+                    size = header.getLong();
+                }
+                if (size < 8 || position + size > length) {
+                    break;
+                }
+                position += size;
+            }
+            if (mdatStart < 0) {
+                throw new IOException("No mdat box in " + file.getName());
+            }
+
+            // Keep every sample that made it to disk in full
+            long payloadStart = mdatStart + mdatHeaderSize;
+            long available = mdatSize > 0 ? mdatSize - mdatHeaderSize : length - payloadStart;
+            int[] sizes = journal.sampleSizes;
+            int count = 0;
+            long payload = 0;
+            while (count < sizes.length && payload + sizes[count] <= available) {
+                payload += sizes[count++];
+            }
+            if (count == 0) {
+                throw new IOException("No complete samples in " + file.getName());
+            }
+
+            mdatSize = mdatHeaderSize + payload;
+            if (mdatHeaderSize == 8 && mdatSize > 0xFFFFFFFFL) {
+                throw new IOException("mdat too large for its header in " + file.getName());
+            }
+
+            channel.truncate(payloadStart + payload);
+            header.clear();
+            if (mdatHeaderSize == 16) {
+                header.putInt(1).put(typeBytes("mdat")).putLong(mdatSize);
+            } else {
+                header.putInt((int) mdatSize).put(typeBytes("mdat"));
+            }
+            header.flip();
+            writeFully(channel, header, mdatStart);
+
+            long mediaDuration = (long) count * journal.samplesPerFrame;
+            ByteBuffer moov = buildMoov(journal, sizes, count, payloadStart, mediaDuration);
+            writeFully(channel, moov, payloadStart + payload);
+            channel.force(false);
+
+            return new Result(count, payload, mediaDuration * 1000 / journal.sampleRate);
+        }
+    }
+
+    private static ByteBuffer buildMoov(RecordingJournal.Contents journal, int[] sizes, int count,
+                                        long chunkOffset, long mediaDuration) {
+        byte[] config = journal.codecConfig != null ? journal.codecConfig
+            : audioSpecificConfig(journal.sampleRate, journal.channelCount);
+        long movieDuration = mediaDuration * MOVIE_TIMESCALE / journal.sampleRate;
+        boolean largeOffset = chunkOffset > 0xFFFFFFFFL;
+
+        ByteBuffer out = ByteBuffer.allocate(1024 + config.length + count * 4);
+        int moov = begin(out, "moov");
+
+        int mvhd = beginFull(out, "mvhd", 0, 0);
+        out.putInt(0).putInt(0); // creation and modification time
+        out.putInt(MOVIE_TIMESCALE).putInt((int) movieDuration);
+        out.putInt(0x00010000).putShort((short) 0x0100); // rate 1.0, volume 1.0
+        out.put(new byte[10]);
+        putMatrix(out);
+        out.put(new byte[24]); // pre_defined
+        out.putInt(2); // next_track_ID
+        end(out, mvhd);
+
+        int trak = begin(out, "trak");
+        int tkhd = beginFull(out, "tkhd", 0, 0x7); // enabled, in movie, in preview
+        out.putInt(0).putInt(0);
+        out.putInt(1).putInt(0); // track_ID, reserved
+        out.putInt((int) movieDuration);
+        out.put(new byte[8]);
+        out.putShort((short) 0).putShort((short) 0); // layer, alternate_group
+        out.putShort((short) 0x0100).putShort((short) 0); // volume, reserved
+        putMatrix(out);
+        out.putInt(0).putInt(0); // width, height
+        end(out, tkhd);
+
+        int mdia = begin(out, "mdia");
+        int mdhd = beginFull(out, "mdhd", 0, 0);
+        out.putInt(0).putInt(0);
+        out.putInt(journal.sampleRate).putInt((int) mediaDuration);
+        out.putShort((short) 0x55C4).putShort((short) 0); // language "und"
+        end(out, mdhd);
+
+        int hdlr = beginFull(out, "hdlr", 0, 0);
+        out.putInt(0).put(typeBytes("soun")).put(new byte[12]);
+        out.put("SoundHandler".getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+        end(out, hdlr);
+
+        int minf = begin(out, "minf");
+        int smhd = beginFull(out, "smhd", 0, 0);
+        out.putShort((short) 0).putShort((short) 0); // balance, reserved
+        end(out, smhd);
+
+        int dinf = begin(out, "dinf");
+        int dref = beginFull(out, "dref", 0, 0);
+        out.putInt(1);
+        int url = beginFull(out, "url ", 0, 1); // media is in this file
+        end(out, url);
+        end(out, dref);
+        end(out, dinf);
+
+        int stbl = begin(out, "stbl");
+        int stsd = beginFull(out, "stsd", 0, 0);
+        out.putInt(1);
+        int mp4a = begin(out, "mp4a");
+        out.put(new byte[6]).putShort((short) 1); // reserved, data_reference_index
+        out.put(new byte[8]); // version, revision, vendor
+        out.putShort((short) journal.channelCount).putShort((short) 16);
+        out.putShort((short) 0).putShort((short) 0);
+        out.putInt(journal.sampleRate << 16); // 16.16 fixed point
+        putEsds(out, config, journal.bitRate);
+        end(out, mp4a);
+        end(out, stsd);
+
+        int stts = beginFull(out, "stts", 0, 0);
+        out.putInt(1).putInt(count).putInt(journal.samplesPerFrame);
+        end(out, stts);
+
+        int stsc = beginFull(out, "stsc", 0, 0);
+        out.putInt(1).putInt(1).putInt(count).putInt(1); // one chunk holding every sample
+        end(out, stsc);
+
+        int stsz = beginFull(out, "stsz", 0, 0);
+        out.putInt(0).putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(sizes[i]);
+        }
+        end(out, stsz);
+
+        int stco = beginFull(out, largeOffset ? "co64" : "stco", 0, 0);
+        out.putInt(1);
+        if (largeOffset) {
+            out.putLong(chunkOffset);
+        } else {
+            out.putInt((int) chunkOffset);
+        }
+        end(out, stco);
+
+        end(out, stbl);
+        end(out, minf);
+        end(out, mdia);
+        end(out, trak);
+        end(out, moov);
+
+        out.flip();
+        return out;
+    }
+
+    private static void putEsds(ByteBuffer out, byte[] config, int bitRate) {
+        int esds = beginFull(out, "esds", 0, 0);
+        int decoderConfigLength = 13 + 2 + config.length;
+        int esLength = 3 + 2 + decoderConfigLength + 3;
+
+        out.put((byte) 0x03).put((byte) esLength); // ES_Descriptor
+        out.putShort((short) 0).put((byte) 0); // ES_ID, flags
+        out.put((byte) 0x04).put((byte) decoderConfigLength); // DecoderConfigDescriptor
+        out.put((byte) 0x40); // MPEG-4 audio
+        out.put((byte) 0x15); // audio stream
+        out.put((byte) 0).putShort((short) 0); // bufferSizeDB
+        out.putInt(bitRate).putInt(bitRate); // max and average bitrate
+        out.put((byte) 0x05).put((byte) config.length); // DecoderSpecificInfo
+        out.put(config);
+        out.put((byte) 0x06).put((byte) 1).put((byte) 0x02); // SLConfigDescriptor, MP4 predefined
+        end(out, esds);
+    }
+
+    /**
+     * AAC-LC AudioSpecificConfig, used if the journal has no codec config.
+     */
+    private static byte[] audioSpecificConfig(int sampleRate, int channelCount) {
+        int frequencyIndex = 3;
+        for (int i = 0; i < AAC_SAMPLE_RATES.length; i++) {
+            if (AAC_SAMPLE_RATES[i] == sampleRate) {
+                frequencyIndex = i;
+            }
+        }
+        int value = (2 << 11) | (frequencyIndex << 7) | (channelCount << 3);
+        return new byte[] { (byte) (value >> 8), (byte) value };
+    }
+
+    private static void putMatrix(ByteBuffer out) {
+        out.putInt(0x00010000).putInt(0).putInt(0);
+        out.putInt(0).putInt(0x00010000).putInt(0);
+        out.putInt(0).putInt(0).putInt(0x40000000);
+    }
+
+    private static int begin(ByteBuffer out, String type) {
+        int start = out.position();
+        out.putInt(0).put(typeBytes(type));
+        return start;
+    }
+
+    private static int beginFull(ByteBuffer out, String type, int version, int flags) {
+        int start = begin(out, type);
+        out.putInt((version << 24) | flags);
+        return start;
+    }
+
+    private static void end(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start);
+    }
+
+    private static byte[] typeBytes(String type) {
+        return type.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String fourcc(int type) {
+        return new String(new byte[] {
+            (byte) (type >> 24), (byte) (type >> 16), (byte) (type >> 8), (byte) type
+        }, StandardCharsets.US_ASCII);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads duration and audio format of an Ogg Opus file. The format comes from
+ * the identification header on the first page and the duration from the
+ * granule position of the last complete page, so only the head and the tail
+ * of the file are read.
+ *
+ * Instances keep a buffer and are not thread-safe, use one per thread.
+ */
+public class OggHeaderReader {
+    private static final int PAGE_HEADER_SIZE = 27;
+    private static final int MAX_PAGE_SIZE = PAGE_HEADER_SIZE + 255 + 255 * 255;
+    private static final int OPUS_HEAD_SIZE = 19;
+    private static final int GRANULE_RATE = 48000;
+
+    public static class Info {
+        public final long duration; // milliseconds
+        public final int sampleRate;
+        public final int channelCount;
+
+        public Info(long duration, int sampleRate, int channelCount) {
+            this.duration = duration;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Read header information from an Ogg file
+     * @param file Ogg file
+     * @return Parsed information, or null if the file is not a readable Ogg Opus stream
+     */
+    public Info read(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return read(in.getChannel());
+        }
+    }
+
+    public Info read(FileChannel channel) throws IOException {
+        long size = channel.size();
+
+        // The first page holds the identification header and nothing else
+        fill(channel, 0, (int) Math.min(size, PAGE_HEADER_SIZE + 255 + OPUS_HEAD_SIZE));
+        if (buffer.remaining() < PAGE_HEADER_SIZE || !isCapturePattern(0)) {
+            return null;
+        }
+        int serialNumber = buffer.getInt(14);
+        int segmentCount = buffer.get(26) & 0xFF;
+        int packetStart = PAGE_HEADER_SIZE + segmentCount;
+        if (buffer.remaining() < packetStart + OPUS_HEAD_SIZE || !isOpusHead(packetStart)) {
+            return null;
+        }
+        int channelCount = buffer.get(packetStart + 9) & 0xFF;
+        int preSkip = buffer.getShort(packetStart + 10) & 0xFFFF;
+        int sampleRate = buffer.getInt(packetStart + 12);
+
+        long granule = readLastGranule(channel, size, serialNumber);
+        long durationMs = granule > preSkip ? (granule - preSkip) * 1000 / GRANULE_RATE : 0;
+        return new Info(durationMs, sampleRate > 0 ? sampleRate : GRANULE_RATE, channelCount);
+    }
+
+    /**
+     * Search the tail of the file backwards for the last complete page of the
+     * stream that ends a packet. A page cut off by a crash is skipped.
+     * @return Its granule position, -1 if there is none
+     */
+    private long readLastGranule(FileChannel channel, long size, int serialNumber) throws IOException {
+        long tailStart = Math.max(0, size - MAX_PAGE_SIZE);
+        fill(channel, tailStart, (int) (size - tailStart));
+        int end = buffer.limit();
+        for (int i = end - PAGE_HEADER_SIZE; i >= 0; i--) {
+            if (!isCapturePattern(i) || buffer.getInt(i + 14) != serialNumber) {
+                continue;
+            }
+            int segmentCount = buffer.get(i + 26) & 0xFF;
+            if (i + PAGE_HEADER_SIZE + segmentCount > end) {
+                continue;
+            }
+            int pageSize = PAGE_HEADER_SIZE + segmentCount;
+            for (int s = 0; s < segmentCount; s++) {
+                pageSize += buffer.get(i + PAGE_HEADER_SIZE + s) & 0xFF;
+            }
+            long granule = buffer.getLong(i + 6);
+            if (i + pageSize <= end && granule != -1) {
+                return granule;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isCapturePattern(int offset) {
+        return buffer.get(offset) == 'O' && buffer.get(offset + 1) == 'g'
+            && buffer.get(offset + 2) == 'g' && buffer.get(offset + 3) == 'S'
+            && buffer.get(offset + 4) == 0;
+    }
+
+    private boolean isOpusHead(int offset) {
+        byte[] magic = { 'O', 'p', 'u', 's', 'H', 'e', 'a', 'd' };
+        for (int i = 0; i < magic.length; i++) {
+            if (buffer.get(offset + i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fill(FileChannel channel, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+}
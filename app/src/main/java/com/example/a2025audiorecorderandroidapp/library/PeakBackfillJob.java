@@ -0,0 +1,75 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.audio.AudioDecoder;
+import com.example.a2025audiorecorderandroidapp.audio.PeakFileWriter;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates peak files for recordings made before peaks were written during
+ * capture. Decodes one file at a time on a single low-priority thread.
+ */
+public class PeakBackfillJob {
+    private static final String TAG = "PeakBackfillJob";
+
+    private final List<File> files;
+    private volatile boolean cancelled = false;
+    private Thread thread;
+
+    /**
+     * @param recordings Recording files, the ones that already have a peak file are skipped
+     */
+    public PeakBackfillJob(List<File> recordings) {
+        this.files = new ArrayList<>(recordings);
+    }
+
+    public void start() {
+        thread = new Thread(this::run, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+        int generated = 0;
+        for (File file : files) {
+            if (cancelled) {
+                break;
+            }
+            File peakFile = FileUtils.getSidecarFile(file, FileUtils.PEAKS_EXTENSION);
+            if (peakFile.exists() || !file.exists()) {
+                continue;
+            }
+
+            PeakFileWriter writer = new PeakFileWriter(peakFile);
+            try {
+                if (AudioDecoder.decode(file, writer, this::isCancelled)) {
+                    generated++;
+                } else {
+                    writer.discard();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to generate peaks for " + file.getName(), e);
+                writer.discard();
+            }
+        }
+        if (generated > 0) {
+            Log.d(TAG, "Generated " + generated + " peak files");
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.audio.AudioDecoder;
+import com.example.a2025audiorecorderandroidapp.audio.EncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.RecordingProfile;
+import com.example.a2025audiorecorderandroidapp.audio.ResamplingConsumer;
+import com.example.a2025audiorecorderandroidapp.audio.StreamingEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encodes recordings older than a given age with the Voice profile to
+ * reclaim storage. Files are decoded, downmixed and encoded on a bounded pool
+ * of low-priority threads, several at a time; no new file starts while the
+ * battery is low and not charging. A recording is only replaced once its copy
+ * is complete, as long as the original and smaller.
+ *
+ * Lossless, segmented and unrecovered recordings are left alone. Copies a
+ * killed run left half written are deleted when the next run starts.
+ */
+public class RecompressionJob {
+    private static final String TAG = "RecompressionJob";
+    private static final int MAX_PARALLEL_FILES = 3;
+    private static final int LOW_BATTERY_PERCENT = 30;
+    private static final long BATTERY_POLL_MS = 60_000;
+    // Only files the profile shrinks to this fraction or less are worth re-encoding
+    private static final float MAX_SIZE_RATIO = 0.6f;
+    private static final long MIN_DURATION_TOLERANCE_MS = 500;
+    private static final String TEMP_EXTENSION = ".recompress";
+
+    public interface Listener {
+        /**
+         * Called on the main thread once every qualifying recording was handled;
+         * not when there were none or the job was cancelled
+         */
+        void onComplete(Result result);
+    }
+
+    public static class Result {
+        public final int recompressed;
+        public final int failed;
+        public final long bytesBefore;
+        public final long bytesAfter;
+        public final long elapsedMs;
+
+        Result(int recompressed, int failed, long bytesBefore, long bytesAfter, long elapsedMs) {
+            this.recompressed = recompressed;
+            this.failed = failed;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesAfter;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public long getBytesReclaimed() {
+            return bytesBefore - bytesAfter;
+        }
+
+        public float getFilesPerMinute() {
+            return elapsedMs > 0 ? recompressed * 60_000f / elapsedMs : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d files (%d failed) in %d s, %.1f files/min, %d -> %d bytes, %d reclaimed",
+                recompressed, failed, elapsedMs / 1000, getFilesPerMinute(), bytesBefore, bytesAfter,
+                getBytesReclaimed());
+        }
+    }
+
+    private final Context context;
+    private final RecordingIndex recordingIndex;
+    private final List<File> files;
+    private final long minAgeMs;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object batteryLock = new Object();
+
+    private final AtomicInteger recompressed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesBefore = new AtomicLong();
+    private final AtomicLong bytesAfter = new AtomicLong();
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param recordings Recording files, the ones that don't qualify are skipped
+     * @param minAgeMs Only recordings last modified longer ago than this are re-encoded
+     */
+    public RecompressionJob(Context context, List<File> recordings, long minAgeMs, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.recordingIndex = RecordingIndex.getInstance(context);
+        this.files = new ArrayList<>(recordings);
+        this.minAgeMs = minAgeMs;
+        this.listener = listener;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::run, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        synchronized (batteryLock) {
+            batteryLock.notifyAll();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        long start = SystemClock.elapsedRealtime();
+        deleteStaleCopies();
+        RecordingProfile profile = RecordingProfile.resolveArchive(context);
+
+        long cutoff = System.currentTimeMillis() - minAgeMs;
+        List<File> candidates = new ArrayList<>();
+        for (File file : files) {
+            if (file.lastModified() < cutoff && isCandidate(file, profile)) {
+                candidates.add(file);
+            }
+        }
+        if (candidates.isEmpty() || cancelled) {
+            return;
+        }
+
+        int parallelism = Math.max(1, Math.min(MAX_PARALLEL_FILES,
+            Math.min(candidates.size(), Runtime.getRuntime().availableProcessors() / 2)));
+        Log.d(TAG, "Re-encoding " + candidates.size() + " recordings with " + profile
+            + " on " + parallelism + " threads");
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, threadFactory());
+        List<Future<?>> futures = new ArrayList<>(candidates.size());
+        for (File file : candidates) {
+            futures.add(workers.submit(() -> {
+                recompress(file, profile);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Re-encoding failed", e.getCause());
+                failed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.shutdownNow();
+
+        Result result = new Result(recompressed.get(), failed.get(), bytesBefore.get(), bytesAfter.get(),
+            SystemClock.elapsedRealtime() - start);
+        Log.i(TAG, "Re-encoded " + result);
+        if (listener != null && !cancelled) {
+            mainHandler.post(() -> listener.onComplete(result));
+        }
+    }
+
+    private boolean isCandidate(File file, RecordingProfile profile) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (!file.exists()
+                // Kept lossless on purpose
+                || name.endsWith(FileUtils.WAV_FILE_EXTENSION) || name.endsWith(FileUtils.FLAC_FILE_EXTENSION)
+                || FileUtils.getSidecarFile(file, FileUtils.SEGMENT_PLAYLIST_EXTENSION).exists()
+                || FileUtils.getSidecarFile(file, FileUtils.JOURNAL_EXTENSION).exists()) {
+            return false;
+        }
+        RecordingIndex.Entry entry = recordingIndex.get(file);
+        if (entry == null || entry.duration <= 0) {
+            // Not probed yet, the next run gets it
+            return false;
+        }
+        long bytesPerSecond = entry.fileSize * 1000 / entry.duration;
+        return profile.getNominalBytesPerSecond() <= bytesPerSecond * MAX_SIZE_RATIO;
+    }
+
+    private void recompress(File file, RecordingProfile profile) throws IOException {
+        if (!waitForBattery() || !file.exists()) {
+            return;
+        }
+        RecordingIndex.Entry original = recordingIndex.get(file);
+        if (original == null) {
+            // Changed since the job started
+            return;
+        }
+
+        File tempFile = FileUtils.getSidecarFile(file, TEMP_EXTENSION);
+        // Nothing to recover if the process dies, the original is still there and the next run deletes the copy
+        EncoderPipeline pipeline = new StreamingEncoderPipeline(tempFile, profile.getEncoderFactory(), null);
+        boolean replaced = false;
+        try {
+            if (!AudioDecoder.decode(file, new ResamplingConsumer(pipeline, profile.sampleRate), this::isCancelled)) {
+                return;
+            }
+            pipeline.finish();
+
+            RecordingIndex.Entry copy = MetadataProbe.probe(tempFile);
+            long tolerance = Math.max(MIN_DURATION_TOLERANCE_MS, original.duration / 100);
+            if (copy == null || Math.abs(copy.duration - original.duration) > tolerance) {
+                throw new IOException("Re-encoded " + file.getName() + " is "
+                    + (copy == null ? "unreadable" : copy.duration + " ms long, expected " + original.duration));
+            }
+            long sizeBefore = file.length();
+            long sizeAfter = tempFile.length();
+            if (sizeAfter >= sizeBefore) {
+                Log.d(TAG, "Re-encoding doesn't make " + file.getName() + " smaller, kept");
+                return;
+            }
+            if (cancelled || !file.exists() || file.lastModified() != original.lastModified) {
+                return;
+            }
+
+            File target = FileUtils.replaceRecording(file, tempFile, profile.encoding.extension);
+            if (target == null) {
+                throw new IOException("Failed to replace " + file.getName());
+            }
+            replaced = true;
+            if (!target.equals(file)) {
+                recordingIndex.remove(file.getName());
+            }
+            recordingIndex.put(target, copy.duration, copy.sampleRate, copy.channelCount);
+
+            recompressed.incrementAndGet();
+            bytesBefore.addAndGet(sizeBefore);
+            bytesAfter.addAndGet(sizeAfter);
+        } finally {
+            if (!replaced) {
+                pipeline.discard();
+            }
+        }
+    }
+
+    /**
+     * Delete the copies of a run that was killed before it could replace or
+     * discard them
+     */
+    private void deleteStaleCopies() {
+        File[] stale = FileUtils.getRecordingsDirectory(context).listFiles(
+            (dir, name) -> name.endsWith(TEMP_EXTENSION));
+        if (stale == null) {
+            return;
+        }
+        for (File file : stale) {
+            if (file.delete()) {
+                Log.d(TAG, "Deleted stale copy " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Block while the battery is low and not charging
+     * @return false if the job was cancelled meanwhile
+     */
+    private boolean waitForBattery() {
+        BatteryManager batteryManager = context.getSystemService(BatteryManager.class);
+        if (batteryManager == null) {
+            return !cancelled;
+        }
+        synchronized (batteryLock) {
+            while (!cancelled && !batteryManager.isCharging()
+                    && batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) < LOW_BATTERY_PERCENT) {
+                Log.d(TAG, "Paused on low battery");
+                try {
+                    batteryLock.wait(BATTERY_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return !cancelled;
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                runnable.run();
+            }, TAG + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent metadata index for the recordings directory.
+ * Entries are keyed by file name and validated against (size, lastModified),
+ * so a file only has to be probed again when it actually changed on disk.
+ */
+public class RecordingIndex {
+    private static final String TAG = "RecordingIndex";
+    private static final String INDEX_FILE_NAME = "recordings_index.bin";
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int VERSION = 1;
+
+    private static RecordingIndex instance;
+
+    public static class Entry {
+        public final long fileSize;
+        public final long lastModified;
+        public final long duration;
+        public final int sampleRate;
+        public final int channelCount;
+
+        public Entry(long fileSize, long lastModified, long duration, int sampleRate, int channelCount) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.duration = duration;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+
+        public boolean matches(File file) {
+            return file.length() == fileSize && file.lastModified() == lastModified;
+        }
+    }
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    // Tests use an index of their own
+    RecordingIndex(File indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    public static synchronized RecordingIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecordingIndex(new File(context.getApplicationContext().getFilesDir(), INDEX_FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached entry for a file, or null if it is unknown or stale.
+     */
+    public synchronized Entry get(File file) {
+        Entry entry = entries.get(file.getName());
+        if (entry != null && entry.matches(file)) {
+            return entry;
+        }
+        return null;
+    }
+
+    public synchronized void put(File file, long duration, int sampleRate, int channelCount) {
+        entries.put(file.getName(), new Entry(file.length(), file.lastModified(), duration, sampleRate, channelCount));
+        dirty = true;
+    }
+
+    /**
+     * @return The removed entry, unvalidated, or null if there was none
+     */
+    public synchronized Entry remove(String fileName) {
+        Entry entry = entries.remove(fileName);
+        if (entry != null) {
+            dirty = true;
+        }
+        return entry;
+    }
+
+    /**
+     * Moves an entry to a new name. Renaming keeps size and mtime, so the
+     * entry stays valid without re-probing.
+     */
+    public synchronized void rename(String oldName, String newName) {
+        Entry entry = entries.remove(oldName);
+        if (entry != null) {
+            entries.put(newName, entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops entries for files that no longer exist in the directory.
+     */
+    public synchronized void retainAll(Set<String> fileNames) {
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (!fileNames.contains(it.next())) {
+                it.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the index to disk if anything changed since the last save.
+     * The file is written to a temporary sibling and renamed into place.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        File tmpFile = new File(indexFile.getParentFile(), INDEX_FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.fileSize);
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.duration);
+                out.writeInt(entry.sampleRate);
+                out.writeInt(entry.channelCount);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write index", e);
+            tmpFile.delete();
+            return;
+        }
+
+        if (tmpFile.renameTo(indexFile)) {
+            dirty = false;
+        } else {
+            Log.e(TAG, "Failed to replace index file");
+            tmpFile.delete();
+        }
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.w(TAG, "Ignoring index with unknown format");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long fileSize = in.readLong();
+                long lastModified = in.readLong();
+                long duration = in.readLong();
+                int sampleRate = in.readInt();
+                int channelCount = in.readInt();
+                entries.put(name, new Entry(fileSize, lastModified, duration, sampleRate, channelCount));
+            }
+        } catch (IOException e) {
+            // A corrupt index only costs a re-probe, so start over
+            Log.w(TAG, "Failed to read index, rebuilding", e);
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.audio.DeferredEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.RecordingJournal;
+import com.example.a2025audiorecorderandroidapp.audio.SegmentPlaylist;
+import com.example.a2025audiorecorderandroidapp.audio.SegmentedEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Finds recordings that were cut off by a crash, recognisable by the journal
+ * their encoder left behind, and rebuilds them with {@link Mp4Rebuilder}.
+ * Recordings that were encoded after capture leave their temporary WAV file
+ * behind instead, which is transcoded like the pipeline would have.
+ * Recovered segments of a segmented recording are added to its playlist.
+ */
+public class RecordingRecovery {
+    private static final String TAG = "RecordingRecovery";
+
+    public static class Report {
+        public final int recovered;
+        public final int failed;
+        public final long recoveredBytes;
+        public final long elapsedMs;
+
+        Report(int recovered, int failed, long recoveredBytes, long elapsedMs) {
+            this.recovered = recovered;
+            this.failed = failed;
+            this.recoveredBytes = recoveredBytes;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    /**
+     * Recover every crashed recording in a directory. Journals of recordings
+     * still in progress in this process are left alone.
+     * @param directory Recordings directory
+     * @param recordingIndex Receives the metadata of recovered recordings
+     * @return Counts and time taken
+     */
+    public static Report recover(File directory, RecordingIndex recordingIndex) {
+        long startTime = SystemClock.elapsedRealtime();
+        File[] journals = directory.listFiles((dir, name) -> name.endsWith(FileUtils.JOURNAL_EXTENSION));
+        File[] temporaryWavs = directory.listFiles((dir, name) -> name.endsWith(DeferredEncoderPipeline.TEMP_SUFFIX));
+        if (journals == null || temporaryWavs == null || journals.length + temporaryWavs.length == 0) {
+            return new Report(0, 0, 0, SystemClock.elapsedRealtime() - startTime);
+        }
+
+        int recovered = 0;
+        int failed = 0;
+        long recoveredBytes = 0;
+        Mp4HeaderReader reader = new Mp4HeaderReader();
+
+        // Earlier segments sort first, so playlists are rebuilt in order
+        Arrays.sort(journals);
+        for (File journalFile : journals) {
+            if (RecordingJournal.isOpen(journalFile)) {
+                continue;
+            }
+            String name = journalFile.getName();
+            File file = new File(directory, name.substring(0, name.length() - FileUtils.JOURNAL_EXTENSION.length()));
+
+            try {
+                if (!file.exists() || reader.read(file) != null) {
+                    // Nothing left to recover, or the file was completed after all
+                    journalFile.delete();
+                    continue;
+                }
+
+                RecordingJournal.Contents contents = RecordingJournal.read(journalFile);
+                Mp4Rebuilder.Result result = Mp4Rebuilder.rebuild(file, contents);
+                journalFile.delete();
+
+                int segment = FileUtils.getSegmentIndex(file);
+                if (segment == 0) {
+                    recordingIndex.put(file, result.durationMs, contents.sampleRate, contents.channelCount);
+                } else {
+                    File recordingFile = FileUtils.getRecordingOfSegment(file);
+                    addToPlaylist(recordingFile, segment, result.durationMs, reader);
+                    // The total duration changed, let the scan probe it again
+                    recordingIndex.remove(recordingFile.getName());
+                }
+
+                recovered++;
+                recoveredBytes += result.payloadBytes;
+                Log.i(TAG, "Recovered " + file.getName() + ": " + result.sampleCount + " samples, "
+                    + result.durationMs + " ms");
+            } catch (IOException e) {
+                failed++;
+                Log.e(TAG, "Failed to recover " + file.getName(), e);
+            }
+        }
+
+        Arrays.sort(temporaryWavs);
+        for (File tempFile : temporaryWavs) {
+            String name = tempFile.getName();
+            File file = new File(directory, name.substring(0, name.length() - DeferredEncoderPipeline.TEMP_SUFFIX.length()));
+            File recordingFile = FileUtils.getRecordingOfSegment(file);
+            if (SegmentedEncoderPipeline.isActive(recordingFile)) {
+                continue;
+            }
+
+            try {
+                long durationMs = DeferredEncoderPipeline.recover(tempFile);
+                if (durationMs == 0) {
+                    continue;
+                }
+                int segment = FileUtils.getSegmentIndex(file);
+                if (segment > 0) {
+                    addToPlaylist(recordingFile, segment, durationMs, reader);
+                }
+                // Let the scan probe it, the transcoded file tells the format
+                recordingIndex.remove(recordingFile.getName());
+
+                recovered++;
+                recoveredBytes += file.length();
+                Log.i(TAG, "Recovered " + file.getName() + " from its temporary WAV file, " + durationMs + " ms");
+            } catch (IOException e) {
+                failed++;
+                Log.e(TAG, "Failed to recover " + file.getName(), e);
+            }
+        }
+
+        long elapsedMs = SystemClock.elapsedRealtime() - startTime;
+        if (recovered > 0 || failed > 0) {
+            recordingIndex.save();
+            Log.i(TAG, "Recovered " + recovered + " files (" + FileUtils.formatFileSize(recoveredBytes)
+                + "), " + failed + " failed, in " + elapsedMs + " ms");
+        }
+        return new Report(recovered, failed, recoveredBytes, elapsedMs);
+    }
+
+    /**
+     * Add a recovered segment to its recording's playlist. Segments that were
+     * completed but never made it into the playlist are added as well.
+     */
+    private static void addToPlaylist(File recordingFile, int segment, long durationMs,
+                                      Mp4HeaderReader reader) throws IOException {
+        SegmentPlaylist playlist = SegmentPlaylist.load(recordingFile);
+        if (playlist == null) {
+            playlist = new SegmentPlaylist();
+        }
+        if (playlist.getSegmentCount() > segment) {
+            return;
+        }
+        while (playlist.getSegmentCount() < segment) {
+            Mp4HeaderReader.Info info = reader.read(FileUtils.getSegmentFile(recordingFile, playlist.getSegmentCount()));
+            if (info == null) {
+                throw new IOException("Segment " + (playlist.getSegmentCount() + 1) + " of "
+                    + recordingFile.getName() + " is unreadable");
+            }
+            playlist.add(info.duration);
+        }
+        playlist.add(durationMs);
+        playlist.save(FileUtils.getSidecarFile(recordingFile, FileUtils.SEGMENT_PLAYLIST_EXTENSION));
+    }
+}
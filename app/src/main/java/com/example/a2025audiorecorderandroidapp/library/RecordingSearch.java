@@ -0,0 +1,230 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches the recordings library off the main thread using a
+ * {@link SearchIndex}. Typed queries are debounced, results of superseded
+ * queries are dropped, and a query that extends the previous one only
+ * re-checks the previous matches instead of the whole library. Library
+ * changes only add and remove the recordings that changed; ids then no longer
+ * follow the library order, so results are put back in order by position.
+ *
+ * Query terms are matched against the file name, the date
+ * ("2025-03-14", "march") and tags ("#m4a", "#mono", "#stereo", "#short",
+ * "#medium", "#long"); a recording matches if it contains every term.
+ */
+public class RecordingSearch {
+    private static final String TAG = "RecordingSearch";
+    private static final long DEBOUNCE_MS = 150;
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the matches, in library order.
+         */
+        void onResults(List<Recording> results);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    private Runnable pendingSearch;
+    private volatile long lastSearchMicros = 0;
+
+    // Confined to the search thread
+    private SearchIndex index = new SearchIndex();
+    private int[] positions; // library position by id, null while ids are in library order
+    private String lastQuery;
+    private int[] lastResult;
+
+    /**
+     * Index the library. Recordings appended to the previous list, as during
+     * a scan, are added to the index; after other changes only the
+     * recordings that came or went are, unless most of the library changed.
+     * @param recordings The library in display order, copied
+     */
+    public void setRecordings(List<Recording> recordings) {
+        List<Recording> snapshot = new ArrayList<>(recordings);
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            String result;
+            if (isAppended(snapshot)) {
+                int indexed = index.size();
+                for (int i = indexed; i < snapshot.size(); i++) {
+                    index.add(snapshot.get(i));
+                }
+                result = "Indexed " + (snapshot.size() - indexed) + " recordings";
+            } else if (update(snapshot)) {
+                result = "Updated index to " + snapshot.size() + " recordings";
+            } else {
+                index = new SearchIndex();
+                positions = null;
+                for (Recording recording : snapshot) {
+                    index.add(recording);
+                }
+                result = "Rebuilt index with " + snapshot.size() + " recordings";
+            }
+            // Previous results don't cover the new entries
+            lastQuery = null;
+            lastResult = null;
+            Log.d(TAG, result + " in " + (System.nanoTime() - start) / 1000 + " us");
+        });
+    }
+
+    /**
+     * Run a query right away, replacing any pending or running one.
+     */
+    public void search(String query, Callback callback) {
+        cancelPending();
+        submit(query, callback);
+    }
+
+    /**
+     * Run a query once typing has paused, replacing any pending or running one.
+     */
+    public void searchDebounced(String query, Callback callback) {
+        cancelPending();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            submit(query, callback);
+        };
+        mainHandler.postDelayed(pendingSearch, DEBOUNCE_MS);
+    }
+
+    /**
+     * @return Time taken by the last query that ran, in microseconds
+     */
+    public long getLastSearchMicros() {
+        return lastSearchMicros;
+    }
+
+    public void shutdown() {
+        cancelPending();
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    private boolean isAppended(List<Recording> snapshot) {
+        int indexed = index.size();
+        if (positions != null || snapshot.size() < indexed) {
+            return false;
+        }
+        for (int i = 0; i < indexed; i++) {
+            if (snapshot.get(i) != index.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the recordings that left the library, add the ones that joined
+     * it and note where every recording now is.
+     * @return False if more removed ids than live ones would remain, then
+     *         the index is left for a rebuild
+     */
+    private boolean update(List<Recording> snapshot) {
+        Map<Recording, Integer> libraryPositions = new IdentityHashMap<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            libraryPositions.put(snapshot.get(i), i);
+        }
+
+        boolean[] indexed = new boolean[snapshot.size()];
+        int[] keptPositions = new int[index.size()];
+        int kept = 0;
+        for (int id = 0; id < index.size(); id++) {
+            Recording recording = index.get(id);
+            if (recording == null) {
+                continue;
+            }
+            Integer position = libraryPositions.get(recording);
+            if (position == null) {
+                index.remove(id);
+            } else {
+                keptPositions[id] = position;
+                indexed[position] = true;
+                kept++;
+            }
+        }
+        if (index.removedCount() > kept) {
+            return false;
+        }
+
+        int[] newPositions = Arrays.copyOf(keptPositions, index.size() + snapshot.size() - kept);
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!indexed[i]) {
+                newPositions[index.add(snapshot.get(i))] = i;
+            }
+        }
+        positions = newPositions;
+        return true;
+    }
+
+    /**
+     * Put ascending ids in library order
+     */
+    private int[] inLibraryOrder(int[] ids) {
+        long[] keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            keys[i] = ((long) positions[ids[i]] << 32) | ids[i];
+        }
+        Arrays.sort(keys);
+        int[] ordered = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ordered[i] = (int) keys[i];
+        }
+        return ordered;
+    }
+
+    private void cancelPending() {
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    private void submit(String query, Callback callback) {
+        int searchGeneration = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (generation.get() != searchGeneration) {
+                return; // Superseded before it started
+            }
+            long start = System.nanoTime();
+            String[] terms = SearchIndex.terms(query);
+            String normalized = String.join(" ", terms);
+
+            // Every match of a longer query is a match of the one it extends
+            boolean refines = lastQuery != null && normalized.startsWith(lastQuery);
+            int[] ids = index.search(terms, refines ? lastResult : null);
+            lastQuery = normalized;
+            lastResult = ids;
+
+            List<Recording> results = new ArrayList<>(ids.length);
+            for (int id : positions != null ? inLibraryOrder(ids) : ids) {
+                results.add(index.get(id));
+            }
+            lastSearchMicros = (System.nanoTime() - start) / 1000;
+            Log.d(TAG, "\"" + query + "\": " + ids.length + " of " + index.size() + " in "
+                + lastSearchMicros + " us" + (refines ? " (refined)" : ""));
+
+            mainHandler.post(() -> {
+                if (generation.get() == searchGeneration) {
+                    callback.onResults(results);
+                }
+            });
+        });
+    }
+}
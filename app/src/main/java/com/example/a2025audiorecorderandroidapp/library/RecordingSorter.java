@@ -0,0 +1,119 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.preference.PreferenceManager;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorts the recordings library off the main thread and remembers the chosen
+ * order. The order itself comes from {@link SortPermutation}, which sorts
+ * precomputed keys rather than the recordings.
+ *
+ * The library scan already lists recordings newest first, so in that order
+ * nothing needs sorting at all.
+ */
+public class RecordingSorter {
+    private static final String TAG = "RecordingSorter";
+    private static final String PREF_SORT_ORDER = "sort_order";
+
+    // Sort orders, in the order of the sort dialog
+    public static final int DATE_NEWEST = 0;
+    public static final int DATE_OLDEST = 1;
+    public static final int NAME_ASCENDING = 2;
+    public static final int NAME_DESCENDING = 3;
+    public static final int SIZE_LARGEST = 4;
+    public static final int SIZE_SMALLEST = 5;
+    public static final int DURATION_LONGEST = 6;
+    public static final int DURATION_SHORTEST = 7;
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the sorted recordings.
+         */
+        void onSorted(List<Recording> sorted);
+    }
+
+    private final SharedPreferences preferences;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    private int order;
+
+    // Confined to the sort thread
+    private final SortPermutation permutation = new SortPermutation(Collator.getInstance());
+
+    public RecordingSorter(Context context) {
+        preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        order = preferences.getInt(PREF_SORT_ORDER, DATE_NEWEST);
+        if (order < DATE_NEWEST || order > DURATION_SHORTEST) {
+            order = DATE_NEWEST;
+        }
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * @return Whether the current order is the one the library scan produces
+     */
+    public boolean isScanOrder() {
+        return order == DATE_NEWEST;
+    }
+
+    /**
+     * Choose and persist the sort order, applied by the next {@link #sort}.
+     */
+    public void setOrder(int order) {
+        this.order = order;
+        preferences.edit().putInt(PREF_SORT_ORDER, order).apply();
+    }
+
+    /**
+     * Sort recordings in the current order. The result of a sort replaced by
+     * a newer one is dropped.
+     * @param recordings Recordings to sort, copied
+     */
+    public void sort(List<Recording> recordings, Callback callback) {
+        List<Recording> snapshot = new ArrayList<>(recordings);
+        int sortOrder = order;
+        int sortGeneration = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (generation.get() != sortGeneration) {
+                return;
+            }
+            long start = System.nanoTime();
+            int[] indices = permutation.compute(snapshot, sortOrder);
+            List<Recording> sorted = new ArrayList<>(snapshot.size());
+            for (int index : indices) {
+                sorted.add(snapshot.get(index));
+            }
+            Log.d(TAG, "Sorted " + sorted.size() + " recordings by order " + sortOrder + " in "
+                + (System.nanoTime() - start) / 1000 + " us");
+
+            mainHandler.post(() -> {
+                if (generation.get() == sortGeneration) {
+                    callback.onSorted(sorted);
+                }
+            });
+        });
+    }
+
+    public void shutdown() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+}
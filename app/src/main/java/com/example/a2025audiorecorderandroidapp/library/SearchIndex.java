@@ -0,0 +1,308 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import java.text.Normalizer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram index over the searchable text of recordings: the normalized file
+ * name, the date, and tags for the format, the channels and the length
+ * (e.g. "#m4a #stereo #long"). A term matches a recording if it is a
+ * substring of its text; trigram postings narrow down the candidates and the
+ * text confirms them. Removed recordings keep their id and postings but lose
+ * their text, so they are never confirmed. Not thread safe, used from one
+ * search thread.
+ */
+class SearchIndex {
+    static final String TAG_PREFIX = "#";
+
+    private static final long SHORT_MAX_MS = 60_000;
+    private static final long MEDIUM_MAX_MS = 15 * 60_000;
+    private static final long DAY_MS = 24 * 60 * 60_000;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String[] NO_TERMS = new String[0];
+
+    private final List<Recording> recordings = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private int removedCount = 0;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd MMM MMMM", Locale.getDefault());
+    private final TimeZone timeZone = TimeZone.getDefault();
+    // Recordings cluster on a few days, so their date text is formatted once per day
+    private final Map<Long, String> dateTexts = new HashMap<>();
+
+    // Open addressing table from trigram to postings, avoids boxing a key per lookup
+    private long[] trigramKeys = new long[1024];
+    private Postings[] trigramPostings = new Postings[1024];
+    private int trigramCount = 0;
+
+    /**
+     * Ids of the recordings containing one trigram, in ascending order.
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            // Ids only grow, so a trigram seen twice in one text is skipped here
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * @return Number of ids handed out, removed ones included
+     */
+    int size() {
+        return recordings.size();
+    }
+
+    int removedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @return The recording with an id, null once removed
+     */
+    Recording get(int id) {
+        return recordings.get(id);
+    }
+
+    /**
+     * Index a recording
+     * @return Its id, the previous size
+     */
+    int add(Recording recording) {
+        int id = recordings.size();
+        String text = textOf(recording);
+        recordings.add(recording);
+        texts.add(text);
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postingsFor(trigram(text, i), true).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Drop a recording from the results. Its id is not reused.
+     */
+    void remove(int id) {
+        if (texts.get(id) != null) {
+            recordings.set(id, null);
+            texts.set(id, null);
+            removedCount++;
+        }
+    }
+
+    /**
+     * Find the recordings matching all terms
+     * @param terms Normalized terms, see {@link #terms}
+     * @param candidates Ascending ids known to contain every match, e.g. the
+     *                   result of a query this one refines, or null for all
+     * @return Ascending ids of the matches
+     */
+    int[] search(String[] terms, int[] candidates) {
+        // The longest term narrows down the most
+        String longest = "";
+        for (String term : terms) {
+            if (term.length() > longest.length()) {
+                longest = term;
+            }
+        }
+        if (longest.length() >= 3) {
+            int[] lookup = lookup(longest);
+            candidates = candidates == null ? lookup : intersect(candidates, lookup, lookup.length);
+        }
+
+        int count = candidates != null ? candidates.length : recordings.size();
+        int[] matches = new int[count];
+        int matchCount = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates != null ? candidates[i] : i;
+            String text = texts.get(id);
+            if (text != null && containsAll(text, terms)) {
+                matches[matchCount++] = id;
+            }
+        }
+        return matchCount == count ? matches : Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Normalize a query and split it into terms
+     */
+    static String[] terms(String query) {
+        String normalized = normalize(query).trim();
+        return normalized.isEmpty() ? NO_TERMS : WHITESPACE.split(normalized);
+    }
+
+    /**
+     * Lower case without accents, so "Café" is found by "cafe"
+     */
+    static String normalize(String text) {
+        if (isAscii(text)) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private String textOf(Recording recording) {
+        // The name goes straight from the store into the text, lower cased in place
+        StringBuilder text = new StringBuilder(96);
+        recording.appendFileName(text);
+        boolean ascii = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+            } else if (c >= 'A' && c <= 'Z') {
+                text.setCharAt(i, (char) (c + ('a' - 'A')));
+            }
+        }
+        if (!ascii) {
+            String name = normalize(text.toString());
+            text.setLength(0);
+            text.append(name);
+        }
+        int nameEnd = text.length();
+        int dot = text.lastIndexOf(".");
+
+        text.append(' ').append(dateText(recording.getTimestamp()));
+        if (dot >= 0 && dot < nameEnd - 1) {
+            text.append(' ').append(TAG_PREFIX).append(text, dot + 1, nameEnd);
+        }
+        if (recording.getChannelCount() == 1) {
+            text.append(' ').append(TAG_PREFIX).append("mono");
+        } else if (recording.getChannelCount() == 2) {
+            text.append(' ').append(TAG_PREFIX).append("stereo");
+        }
+        long duration = recording.getDuration();
+        if (duration > 0) {
+            String bucket = duration < SHORT_MAX_MS ? "short" : duration < MEDIUM_MAX_MS ? "medium" : "long";
+            text.append(' ').append(TAG_PREFIX).append(bucket);
+        }
+        return text.toString();
+    }
+
+    private String dateText(long timestamp) {
+        long day = Math.floorDiv(timestamp + timeZone.getOffset(timestamp), DAY_MS);
+        String text = dateTexts.get(day);
+        if (text == null) {
+            text = normalize(dateFormat.format(new Date(timestamp)));
+            dateTexts.put(day, text);
+        }
+        return text;
+    }
+
+    private Postings postingsFor(long trigram, boolean create) {
+        // Trigrams use 48 bits, so 0 never is one and marks a free slot
+        long key = trigram + 1;
+        int mask = trigramKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (trigramKeys[slot] != 0) {
+            if (trigramKeys[slot] == key) {
+                return trigramPostings[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        Postings postings = new Postings();
+        trigramKeys[slot] = key;
+        trigramPostings[slot] = postings;
+        if (++trigramCount > trigramKeys.length / 2) {
+            growTrigrams();
+        }
+        return postings;
+    }
+
+    private void growTrigrams() {
+        long[] oldKeys = trigramKeys;
+        Postings[] oldPostings = trigramPostings;
+        trigramKeys = new long[oldKeys.length * 2];
+        trigramPostings = new Postings[oldKeys.length * 2];
+        int mask = trigramKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = (int) ((oldKeys[i] * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+                while (trigramKeys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                trigramKeys[slot] = oldKeys[i];
+                trigramPostings[slot] = oldPostings[i];
+            }
+        }
+    }
+
+    private int[] lookup(String term) {
+        // Intersect the postings of every trigram of the term, shortest first
+        Postings[] lists = new Postings[term.length() - 2];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postingsFor(trigram(term, i), false);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i].ids, lists[i].size);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b, int bSize) {
+        int[] out = new int[Math.min(a.length, bSize)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < bSize) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static boolean containsAll(String text, String[] terms) {
+        for (String term : terms) {
+            if (!text.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out the order of a {@link RecordingSorter} sort. One key is
+ * extracted per recording (a primitive, or a cached CollationKey for names,
+ * so names sort by the user's locale), the keys are turned into ranks and
+ * (rank, index) pairs packed into a long[] are sorted, so the sort itself is
+ * a primitive sort that neither boxes nor calls back into the recordings.
+ * Ties keep the library order.
+ *
+ * Not thread safe, the sorter confines it to its sort thread.
+ */
+final class SortPermutation {
+    private final Collator collator;
+    // Keys of the names in the last name sort, replaced by every name sort
+    private Map<String, CollationKey> nameKeys = new HashMap<>();
+
+    SortPermutation(Collator collator) {
+        this.collator = collator;
+    }
+
+    /**
+     * @param sortOrder One of the {@link RecordingSorter} orders
+     * @return Indices of the recordings in sorted order
+     */
+    int[] compute(List<Recording> recordings, int sortOrder) {
+        int count = recordings.size();
+        int[] ranks;
+        if (sortOrder == RecordingSorter.NAME_ASCENDING || sortOrder == RecordingSorter.NAME_DESCENDING) {
+            CollationKey[] keys = new CollationKey[count];
+            Map<String, CollationKey> usedKeys = new HashMap<>(count * 2);
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                // Read the name from the store, getFileName() would keep a copy per recording
+                name.setLength(0);
+                recordings.get(i).appendFileName(name);
+                keys[i] = nameKey(name.toString(), usedKeys);
+            }
+            // Names no longer in the library are dropped
+            nameKeys = usedKeys;
+            ranks = ranks(keys);
+        } else {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                Recording recording = recordings.get(i);
+                switch (sortOrder) {
+                    case RecordingSorter.SIZE_LARGEST:
+                    case RecordingSorter.SIZE_SMALLEST:
+                        keys[i] = recording.getFileSize();
+                        break;
+                    case RecordingSorter.DURATION_LONGEST:
+                    case RecordingSorter.DURATION_SHORTEST:
+                        keys[i] = recording.getDuration();
+                        break;
+                    default:
+                        keys[i] = recording.getTimestamp();
+                        break;
+                }
+            }
+            ranks = ranks(keys);
+        }
+
+        boolean descending = sortOrder == RecordingSorter.DATE_NEWEST
+            || sortOrder == RecordingSorter.NAME_DESCENDING
+            || sortOrder == RecordingSorter.SIZE_LARGEST
+            || sortOrder == RecordingSorter.DURATION_LONGEST;
+        // Rank in the high half, index in the low half: equal ranks stay in index order
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            long rank = descending ? count - 1 - ranks[i] : ranks[i];
+            packed[i] = (rank << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] permutation = new int[count];
+        for (int i = 0; i < count; i++) {
+            permutation[i] = (int) packed[i];
+        }
+        return permutation;
+    }
+
+    /**
+     * @return For every key, the number of keys smaller than it
+     */
+    private static int[] ranks(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int[] ranks = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // First occurrence, so equal keys get equal ranks
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sorted[middle] < keys[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            ranks[i] = low;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return For every key, its position among the distinct keys
+     */
+    private static int[] ranks(CollationKey[] keys) {
+        // Equal names share one key object, so only distinct keys are compared
+        Map<CollationKey, Integer> distinct = new IdentityHashMap<>();
+        for (CollationKey key : keys) {
+            distinct.put(key, 0);
+        }
+        CollationKey[] sorted = distinct.keySet().toArray(new CollationKey[0]);
+        Arrays.sort(sorted);
+        int rank = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i].compareTo(sorted[i - 1]) != 0) {
+                rank++;
+            }
+            distinct.put(sorted[i], rank);
+        }
+        int[] ranks = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ranks[i] = distinct.get(keys[i]);
+        }
+        return ranks;
+    }
+
+    /**
+     * @return Number of name keys kept for the next name sort
+     */
+    int getCachedNameKeyCount() {
+        return nameKeys.size();
+    }
+
+    private CollationKey nameKey(String name, Map<String, CollationKey> usedKeys) {
+        // Keys are kept from the last sort, building one is the expensive part
+        CollationKey key = usedKeys.get(name);
+        if (key == null) {
+            key = nameKeys.get(name);
+            if (key == null) {
+                key = collator.getCollationKey(name);
+            }
+            usedKeys.put(name, key);
+        }
+        return key;
+    }
+}
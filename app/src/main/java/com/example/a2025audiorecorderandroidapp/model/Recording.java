@@ -1,73 +1,212 @@
 package com.example.a2025audiorecorderandroidapp.model;
 
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+import com.example.a2025audiorecorderandroidapp.utils.FormatUtils;
+
 import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 
+/**
+ * A recording, as a view of one row of a {@link RecordingStore}, or a single
+ * file outside of any library scan. Strings are only built when asked for;
+ * the name and display strings are kept once built, and so is the path of a
+ * recording that has them.
+ */
 public class Recording {
-    private final String fileName;
-    private final String filePath;
-    private long duration;
-    private final long fileSize;
-    private final long timestamp;
-    private boolean isPlaying = false;
-    private int currentPosition = 0;
+    private final RecordingStore store; // null for a single file
+    private final int index;
+    private Strings strings; // only for recordings that were displayed, always for a single file
+
+    /**
+     * Strings kept once built. Most recordings of a large library are never
+     * shown, so they live apart from the view.
+     */
+    private static class Strings {
+        String fileName;
+        String filePath;
+        String formattedDuration;
+        String formattedDate;
+        String formattedFileSize;
+    }
 
+    /**
+     * The columns of a single file, which has no store to keep them in
+     */
+    private static class Single extends Strings {
+        long fileSize;
+        long timestamp;
+        long duration;
+        int sampleRate;
+        int channelCount;
+    }
+
+    /**
+     * A recording outside of any library scan, e.g. one that just stopped
+     */
     public Recording(File file) {
-        this.fileName = file.getName();
-        this.filePath = file.getAbsolutePath();
-        this.fileSize = file.length();
-        this.timestamp = file.lastModified();
-        this.duration = 0; // Will be calculated when needed
+        this.store = null;
+        this.index = 0;
+        Single single = new Single();
+        single.fileName = file.getName();
+        single.filePath = file.getAbsolutePath();
+        single.fileSize = file.length();
+        single.timestamp = file.lastModified();
+        this.strings = single;
+    }
+
+    Recording(RecordingStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
 
     // Getters
-    public String getFileName() { return fileName; }
-    public String getFilePath() { return filePath; }
-    public long getDuration() { return duration; }
-    public long getFileSize() { return fileSize; }
-    public long getTimestamp() { return timestamp; }
+    public String getFileName() {
+        Strings strings = strings();
+        String name = strings.fileName;
+        if (name == null) {
+            name = store.getName(index);
+            strings.fileName = name;
+        }
+        return name;
+    }
+
+    public String getFilePath() {
+        // Rows that were never displayed don't keep it, a pass over the library would keep them all
+        Strings strings = this.strings;
+        if (strings != null && strings.filePath != null) {
+            return strings.filePath;
+        }
+        StringBuilder path = new StringBuilder(store.getDirectory().length() + 1 + store.nameLength(index));
+        path.append(store.getDirectory()).append(File.separatorChar);
+        store.appendName(index, path);
+        String text = path.toString();
+        if (strings != null) {
+            strings.filePath = text;
+        }
+        return text;
+    }
+
+    public long getDuration() { return store != null ? store.getDuration(index) : single().duration; }
+    public long getFileSize() { return store != null ? store.getFileSize(index) : single().fileSize; }
+    public long getTimestamp() { return store != null ? store.getTimestamp(index) : single().timestamp; }
+    public int getSampleRate() { return store != null ? store.getSampleRate(index) : single().sampleRate; }
+    public int getChannelCount() { return store != null ? store.getChannelCount(index) : single().channelCount; }
+
+    /**
+     * Append the file name without building a string for it
+     */
+    public void appendFileName(StringBuilder out) {
+        if (store == null) {
+            out.append(strings.fileName);
+            return;
+        }
+        store.appendName(index, out);
+    }
+
+    /**
+     * @return Whether both are the same file, without building their paths
+     */
+    public boolean isSameFile(Recording other) {
+        if (other == this) {
+            return true;
+        }
+        if (other == null) {
+            return false;
+        }
+        if (store == null || other.store == null) {
+            return getFilePath().equals(other.getFilePath());
+        }
+        if (other.store == store) {
+            return other.index == index;
+        }
+        // Directories are interned, so equal paths are the same string
+        return other.store.getDirectory() == store.getDirectory()
+            && store.nameEquals(index, other.store, other.index);
+    }
+
+    /**
+     * @return Whether this recording is the file at a path, without building its path
+     */
+    public boolean hasPath(String filePath) {
+        if (store == null) {
+            return strings.filePath.equals(filePath);
+        }
+        String directory = store.getDirectory();
+        return filePath.length() > directory.length()
+            && filePath.startsWith(directory)
+            && filePath.charAt(directory.length()) == File.separatorChar
+            && store.nameEquals(index, filePath, directory.length() + 1);
+    }
 
     // Setters
-    public void setDuration(long duration) { this.duration = duration; }
-    public void setIsPlaying(boolean isPlaying) { this.isPlaying = isPlaying; }
-    public void setCurrentPosition(int currentPosition) { this.currentPosition = currentPosition; }
-    
-    // Playback getters
-    public boolean isPlaying() { return isPlaying; }
-    public int getCurrentPosition() { return currentPosition; }
-
-    // Utility methods
-    public String getFormattedDuration() {
-        if (isPlaying && currentPosition > 0) {
-            // Show current position during playback
-            long seconds = currentPosition / 1000;
-            long minutes = seconds / 60;
-            seconds = seconds % 60;
-            return String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds);
+    public void setDuration(long duration) {
+        if (store != null) {
+            store.setDuration(index, duration);
+        } else {
+            single().duration = duration;
+        }
+        if (strings != null) {
+            strings.formattedDuration = null;
+        }
+    }
+
+    public void setSampleRate(int sampleRate) {
+        if (store != null) {
+            store.setSampleRate(index, sampleRate);
+        } else {
+            single().sampleRate = sampleRate;
+        }
+    }
+
+    public void setChannelCount(int channelCount) {
+        if (store != null) {
+            store.setChannelCount(index, channelCount);
         } else {
-            // Show total duration when not playing
-            long seconds = duration / 1000;
-            long minutes = seconds / 60;
-            seconds = seconds % 60;
-            return String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds);
+            single().channelCount = channelCount;
         }
     }
 
+    // Display strings, formatted once per recording
+    public String getFormattedDuration() {
+        Strings strings = strings();
+        String text = strings.formattedDuration;
+        if (text == null) {
+            text = FormatUtils.formatMinutesSeconds(getDuration());
+            strings.formattedDuration = text;
+        }
+        return text;
+    }
+
     public String getFormattedDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-        return sdf.format(new Date(timestamp));
+        Strings strings = strings();
+        String text = strings.formattedDate;
+        if (text == null) {
+            text = FormatUtils.formatDate(getTimestamp());
+            strings.formattedDate = text;
+        }
+        return text;
     }
 
     public String getFormattedFileSize() {
-        if (fileSize < 1024) {
-            return fileSize + " B";
-        } else if (fileSize < 1024 * 1024) {
-            return String.format(Locale.getDefault(), "%.1f KB", fileSize / 1024.0);
-        } else {
-            return String.format(Locale.getDefault(), "%.1f MB", fileSize / (1024.0 * 1024.0));
+        Strings strings = strings();
+        String text = strings.formattedFileSize;
+        if (text == null) {
+            text = FileUtils.formatFileSize(getFileSize());
+            strings.formattedFileSize = text;
+        }
+        return text;
+    }
+
+    private Single single() {
+        return (Single) strings;
+    }
+
+    private Strings strings() {
+        Strings current = strings;
+        if (current == null) {
+            current = new Strings();
+            strings = current;
         }
+        return current;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package com.example.a2025audiorecorderandroidapp.model;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Column store for the recordings of one directory. Sizes, dates and
+ * metadata live in parallel primitive arrays, the directory path is stored
+ * once and file names are packed into a single buffer, one byte per char
+ * when every name is Latin-1 (the usual case, like the runtime's compact
+ * strings) and a char buffer otherwise. A library of thousands of recordings
+ * costs a handful of arrays instead of an object and two strings per file.
+ * {@link Recording} objects are flyweight views of one row each; the views
+ * and the list holding them are what remains per row, about 32 bytes,
+ * because the rest of the app passes recordings around as objects.
+ *
+ * The number of rows is fixed when the store is built. Metadata columns may
+ * be filled in from other threads, one row per thread, as long as the
+ * results are handed over with a happens-before edge (e.g. a Future).
+ */
+public class RecordingStore {
+    private final String directory;
+    private final byte[] latin1Names; // null unless every name is Latin-1
+    private final char[] names; // null if the names are Latin-1
+    private final int[] nameOffsets; // name i is [nameOffsets[i] .. nameOffsets[i + 1]) of the buffer
+    private final long[] fileSizes;
+    private final long[] timestamps;
+    private final long[] durations;
+    private final int[] sampleRates;
+    private final int[] channelCounts;
+    private final Recording[] views;
+
+    /**
+     * Build a store, reading the size and date of every file once
+     * @param directory Directory holding the files
+     * @param files Files in that directory
+     */
+    public RecordingStore(File directory, File[] files) {
+        this.directory = directory.getAbsolutePath().intern();
+        int count = files.length;
+        this.nameOffsets = new int[count + 1];
+        this.fileSizes = new long[count];
+        this.timestamps = new long[count];
+        this.durations = new long[count];
+        this.sampleRates = new int[count];
+        this.channelCounts = new int[count];
+        this.views = new Recording[count];
+
+        int nameLength = 0;
+        boolean latin1 = true;
+        String[] fileNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            String name = files[i].getName();
+            fileNames[i] = name;
+            nameLength += name.length();
+            latin1 = latin1 && isLatin1(name);
+        }
+        this.latin1Names = latin1 ? new byte[nameLength] : null;
+        this.names = latin1 ? null : new char[nameLength];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            String name = fileNames[i];
+            if (latin1) {
+                for (int c = 0; c < name.length(); c++) {
+                    latin1Names[offset + c] = (byte) name.charAt(c);
+                }
+            } else {
+                name.getChars(0, name.length(), names, offset);
+            }
+            nameOffsets[i] = offset;
+            offset += name.length();
+            fileSizes[i] = files[i].length();
+            timestamps[i] = files[i].lastModified();
+        }
+        nameOffsets[count] = offset;
+    }
+
+    public int size() {
+        return views.length;
+    }
+
+    /**
+     * @return The view of a row, the same object on every call
+     */
+    public synchronized Recording get(int index) {
+        Recording view = views[index];
+        if (view == null) {
+            view = new Recording(this, index);
+            views[index] = view;
+        }
+        return view;
+    }
+
+    String getDirectory() { return directory; }
+    long getFileSize(int index) { return fileSizes[index]; }
+    long getTimestamp(int index) { return timestamps[index]; }
+    long getDuration(int index) { return durations[index]; }
+    int getSampleRate(int index) { return sampleRates[index]; }
+    int getChannelCount(int index) { return channelCounts[index]; }
+
+    void setDuration(int index, long duration) { durations[index] = duration; }
+    void setSampleRate(int index, int sampleRate) { sampleRates[index] = sampleRate; }
+    void setChannelCount(int index, int channelCount) { channelCounts[index] = channelCount; }
+
+    String getName(int index) {
+        if (latin1Names != null) {
+            return new String(latin1Names, nameOffsets[index], nameLength(index), StandardCharsets.ISO_8859_1);
+        }
+        return new String(names, nameOffsets[index], nameLength(index));
+    }
+
+    void appendName(int index, StringBuilder out) {
+        if (latin1Names == null) {
+            out.append(names, nameOffsets[index], nameLength(index));
+            return;
+        }
+        int end = nameOffsets[index + 1];
+        for (int i = nameOffsets[index]; i < end; i++) {
+            out.append((char) (latin1Names[i] & 0xFF));
+        }
+    }
+
+    int nameLength(int index) {
+        return nameOffsets[index + 1] - nameOffsets[index];
+    }
+
+    /**
+     * Compare the name of a row with the name of a row in another store
+     */
+    boolean nameEquals(int index, RecordingStore other, int otherIndex) {
+        int length = nameLength(index);
+        if (length != other.nameLength(otherIndex)) {
+            return false;
+        }
+        int start = nameOffsets[index];
+        int otherStart = other.nameOffsets[otherIndex];
+        for (int i = 0; i < length; i++) {
+            if (nameChar(start + i) != other.nameChar(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the name of a row with part of a string
+     */
+    boolean nameEquals(int index, String text, int textStart) {
+        int length = nameLength(index);
+        if (text.length() - textStart != length) {
+            return false;
+        }
+        int start = nameOffsets[index];
+        for (int i = 0; i < length; i++) {
+            if (nameChar(start + i) != text.charAt(textStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char nameChar(int position) {
+        return latin1Names != null ? (char) (latin1Names[position] & 0xFF) : names[position];
+    }
+
+    private static boolean isLatin1(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
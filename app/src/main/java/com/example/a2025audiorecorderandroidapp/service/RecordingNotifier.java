@@ -0,0 +1,99 @@
+package com.example.a2025audiorecorderandroidapp.service;
+
+import android.app.Notification;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Posts the recording service's notifications and counts them. The ongoing
+ * notification is only posted again when its state changes, the chronometer
+ * shows the elapsed time, and each warning at most once per recording, so
+ * the count stays bounded however long the recording runs.
+ */
+class RecordingNotifier {
+    enum State { RECORDING, PAUSED, FINALISING }
+
+    /**
+     * Where notifications go, the NotificationManager outside of tests
+     */
+    interface Poster {
+        void notify(int id, Notification notification);
+    }
+
+    private final int ongoingId;
+    private final Poster poster;
+    private final Set<Integer> shownWarnings = new HashSet<>();
+    private State shownState;
+    private long count;
+
+    RecordingNotifier(int ongoingId, Poster poster) {
+        this.ongoingId = ongoingId;
+        this.poster = poster;
+    }
+
+    /**
+     * Start counting for a recording whose notification startForeground() has posted
+     */
+    void onForeground() {
+        count = 1;
+        shownState = State.RECORDING;
+        shownWarnings.clear();
+    }
+
+    /**
+     * Post the ongoing notification if it shows another state
+     *
+     * @return Whether it was posted
+     */
+    boolean showState(State state, Supplier<Notification> notification) {
+        if (state == shownState) {
+            return false;
+        }
+        shownState = state;
+        post(ongoingId, notification.get());
+        return true;
+    }
+
+    /**
+     * Post a warning unless it was already shown for this recording
+     *
+     * @return Whether it was posted
+     */
+    boolean showWarning(int id, Supplier<Notification> notification) {
+        if (!shownWarnings.add(id)) {
+            return false;
+        }
+        post(id, notification.get());
+        return true;
+    }
+
+    boolean isWarningShown(int id) {
+        return shownWarnings.contains(id);
+    }
+
+    void clearWarnings() {
+        shownWarnings.clear();
+    }
+
+    void show(int id, Notification notification) {
+        post(id, notification);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Notifications posted per hour of recorded time
+     */
+    float getPerRecordedHour(long durationMs) {
+        return durationMs > 0 ? count * 3_600_000f / durationMs : 0;
+    }
+
+    private void post(int id, Notification notification) {
+        poster.notify(id, notification);
+        count++;
+    }
+}
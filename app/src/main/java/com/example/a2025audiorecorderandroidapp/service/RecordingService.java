@@ -1,11 +1,13 @@
 package com.example.a2025audiorecorderandroidapp.service;
 
+import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.media.AudioManager;
 import android.media.MediaRecorder;
 import android.os.Binder;
@@ -13,16 +15,34 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
+import androidx.preference.PreferenceManager;
 
 import com.example.a2025audiorecorderandroidapp.MainActivity;
 import com.example.a2025audiorecorderandroidapp.R;
+import com.example.a2025audiorecorderandroidapp.audio.DeferredEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.EncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.LevelMeter;
+import com.example.a2025audiorecorderandroidapp.audio.PcmCaptureEngine;
+import com.example.a2025audiorecorderandroidapp.audio.PeakTrackingPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.RecordingProfile;
+import com.example.a2025audiorecorderandroidapp.audio.SegmentedEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.audio.SilenceGatePipeline;
+import com.example.a2025audiorecorderandroidapp.audio.StreamingEncoderPipeline;
+import com.example.a2025audiorecorderandroidapp.library.RecordingIndex;
 import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class RecordingService extends Service {
     private static final String TAG = "RecordingService";
@@ -32,9 +52,17 @@ public class RecordingService extends Service {
     private static final int NOTIFICATION_ID = 1001;
     private static final int POST_RECORDING_NOTIFICATION_ID = 1002;
     private static final int BATTERY_WARNING_NOTIFICATION_ID = 1003;
+    private static final int TIME_LIMIT_WARNING_NOTIFICATION_ID = 1004;
     private static final long BATTERY_WARNING_DURATION_MS = 30 * 60 * 1000; // 30 minutes
     private static final long TIME_LIMIT_WARNING_MS = 55 * 60 * 1000; // 55 minutes
-    private static final long MAX_RECORDING_DURATION_MS = 60 * 60 * 1000; // 60 minutes
+    private static final long MAX_RECORDING_DURATION_MS = 60 * 60 * 1000; // 60 minutes, MediaRecorder only
+    private static final long SEGMENT_DURATION_MS = 15 * 60 * 1000; // 15 minutes
+    private static final long SEGMENT_MAX_BYTES = 100L * 1024 * 1024;
+    private static final int CAPTURE_LATENCY_BUDGET_MS = 500;
+    private static final int LEVEL_SAMPLE_RATE_HZ = 50;
+    private static final int LEVEL_PUBLISH_RATE_HZ = 30;
+    // How late a limit alarm may fire when exact alarms aren't allowed
+    private static final long INEXACT_ALARM_WINDOW_MS = 60 * 1000;
 
     public static final String ACTION_START_RECORDING = "START_RECORDING";
     public static final String ACTION_STOP_RECORDING = "STOP_RECORDING";
@@ -42,25 +70,64 @@ public class RecordingService extends Service {
     public static final String ACTION_RESUME_RECORDING = "RESUME_RECORDING";
 
     private MediaRecorder mediaRecorder;
+    private PcmCaptureEngine captureEngine;
+    private EncoderPipeline encoderPipeline;
+    private LevelMeter levelMeter;
+    private Runnable levelPublisher;
+    private long levelPublishStartTime;
+    private final float[] levelValues = new float[2];
+    private ExecutorService finishExecutor;
+    private final Set<String> finalisingPaths = new HashSet<>();
     private File currentRecordingFile;
+    private RecordingProfile profile;
     private boolean isRecording = false;
     private boolean isPaused = false;
+    // SystemClock.elapsedRealtime(), so changing the clock doesn't change the duration
     private long recordingStartTime = 0;
     private long pausedTime = 0;
-    private boolean batteryWarningShown = false;
-    private boolean timeLimitWarningShown = false;
+    private long pauseStartTime = 0;
     private boolean isCancelling = false;
 
     private final IBinder binder = new RecordingBinder();
     private Handler notificationHandler;
-    private Runnable notificationUpdater;
+    private NotificationManager notificationManager;
+    private AlarmManager alarmManager;
+    private final AlarmManager.OnAlarmListener limitAlarm = this::onLimitAlarm;
+    private boolean limitAlarmScheduled = false;
+
+    // The recording notification is rebuilt from these on state changes only
+    private NotificationCompat.Builder notificationBuilder;
+    private NotificationCompat.Action pauseAction;
+    private NotificationCompat.Action resumeAction;
+    private NotificationCompat.Action stopAction;
+    private NotificationCompat.Action pausedStopAction;
+    private RecordingNotifier notifier;
 
     public interface RecordingListener {
         void onRecordingStarted(String filePath);
-        void onRecordingStopped(String filePath, long duration);
+
+        /**
+         * @param finalising Whether the file is still being written in the background;
+         *                   {@link #onRecordingFinalised} follows once it is complete
+         */
+        void onRecordingStopped(String filePath, long duration, boolean finalising);
+
+        /**
+         * A recording that stopped while finalising is complete
+         * @param duration Duration of the file, skipped silence excluded
+         * @param saved false if writing the file failed, the error was reported
+         */
+        void onRecordingFinalised(String filePath, long duration, boolean saved);
         void onRecordingPaused();
         void onRecordingResumed();
         void onRecordingError(String error);
+
+        /**
+         * Called on the main thread at most {@code LEVEL_PUBLISH_RATE_HZ} times per second
+         * @param peak Peak input level, 0.0 - 1.0
+         * @param rms RMS input level, 0.0 - 1.0
+         */
+        void onLevelChanged(float peak, float rms);
     }
 
     private RecordingListener recordingListener;
@@ -75,7 +142,12 @@ public class RecordingService extends Service {
     public void onCreate() {
         super.onCreate();
         notificationHandler = new Handler(Looper.getMainLooper());
+        notificationManager = getSystemService(NotificationManager.class);
+        notifier = new RecordingNotifier(NOTIFICATION_ID, notificationManager::notify);
+        alarmManager = getSystemService(AlarmManager.class);
+        finishExecutor = Executors.newSingleThreadExecutor();
         createNotificationChannels();
+        createNotificationActions();
     }
 
     @Override
@@ -107,8 +179,20 @@ public class RecordingService extends Service {
         return binder;
     }
 
+    /**
+     * @param listener Receives the recording state on the main thread; null
+     *                 when nobody is watching, which also stops the level meter
+     */
     public void setRecordingListener(RecordingListener listener) {
         this.recordingListener = listener;
+        updateLevelPublisher();
+    }
+
+    /**
+     * @return Whether a stopped recording is still being written
+     */
+    public boolean isFinalising(String filePath) {
+        return finalisingPaths.contains(filePath);
     }
 
     public void setCancelling(boolean cancelling) {
@@ -122,44 +206,46 @@ public class RecordingService extends Service {
         }
 
         try {
-            currentRecordingFile = FileUtils.createNewRecordingFile(this);
-            
             // Configure audio manager for optimal recording
             AudioManager audioManager = (AudioManager) getSystemService(AUDIO_SERVICE);
             if (audioManager != null) {
                 // Set microphone gain to maximum for better volume
                 audioManager.setMode(AudioManager.MODE_NORMAL);
             }
-            
-            mediaRecorder = new MediaRecorder();
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-            } else {
-                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-            }
-            
-            mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-            mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-            
-            // Enhanced audio settings for better volume and quality
-            mediaRecorder.setAudioSamplingRate(48000); // Higher sampling rate
-            mediaRecorder.setAudioEncodingBitRate(256000); // Higher bitrate for better quality
-            mediaRecorder.setAudioChannels(2); // Stereo recording
-            
-            mediaRecorder.setOutputFile(currentRecordingFile.getAbsolutePath());
 
-            mediaRecorder.prepare();
-            mediaRecorder.start();
+            levelMeter = new LevelMeter(LEVEL_SAMPLE_RATE_HZ);
+            List<RecordingProfile> profiles = RecordingProfile.resolve(this);
+            profile = null;
+            for (RecordingProfile candidate : profiles) {
+                try {
+                    currentRecordingFile = FileUtils.createNewRecordingFile(this, candidate.encoding.extension);
+                    startRawCapture(candidate);
+                    profile = candidate;
+                    break;
+                } catch (IOException e) {
+                    Log.w(TAG, "Raw capture unavailable with " + candidate, e);
+                }
+            }
+            if (profile == null) {
+                // Devices that can't open AudioRecord with any profile still get a recording
+                Log.w(TAG, "Falling back to MediaRecorder");
+                // The last profile is the safe one, always AAC, which MediaRecorder writes as MPEG-4
+                profile = profiles.get(profiles.size() - 1);
+                currentRecordingFile = FileUtils.createNewRecordingFile(this, profile.encoding.extension);
+                startMediaRecorder(profile);
+            }
+            Log.d(TAG, "Recording with " + profile);
             
             isRecording = true;
             isPaused = false;
-            recordingStartTime = System.currentTimeMillis();
+            recordingStartTime = SystemClock.elapsedRealtime();
             pausedTime = 0;
-            batteryWarningShown = false;
-            timeLimitWarningShown = false;
 
             startForeground(NOTIFICATION_ID, createRecordingNotification());
-            startNotificationUpdater();
+            notifier.onForeground();
+            scheduleLimitAlarm();
+            levelPublishStartTime = System.currentTimeMillis();
+            updateLevelPublisher();
 
             if (recordingListener != null) {
                 recordingListener.onRecordingStarted(currentRecordingFile.getAbsolutePath());
@@ -176,37 +262,70 @@ public class RecordingService extends Service {
         }
     }
 
+    private void startRawCapture(RecordingProfile profile) throws IOException {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+        boolean encodeOnTheFly = preferences.getBoolean("encoding_on_the_fly", false);
+
+        // Lossless encoders cost less than the temporary WAV file of the deferred pipeline
+        SegmentedEncoderPipeline.SegmentFactory segmentFactory = encodeOnTheFly || profile.isLosslessEncoding()
+            ? output -> new StreamingEncoderPipeline(output, profile.getEncoderFactory())
+            : output -> new DeferredEncoderPipeline(output, profile.getEncoderFactory());
+        EncoderPipeline pipeline = new SegmentedEncoderPipeline(currentRecordingFile, segmentFactory,
+            SEGMENT_DURATION_MS, SEGMENT_MAX_BYTES);
+        // Inside the silence gate, so the peaks match the encoded timeline
+        pipeline = new PeakTrackingPipeline(pipeline,
+            FileUtils.getSidecarFile(currentRecordingFile, FileUtils.PEAKS_EXTENSION));
+        if (preferences.getBoolean("skip_silence", false)) {
+            pipeline = new SilenceGatePipeline(pipeline,
+                FileUtils.getSidecarFile(currentRecordingFile, FileUtils.SILENCE_MAP_EXTENSION),
+                SilenceGatePipeline.Sensitivity.fromPreferences(preferences));
+        }
+
+        PcmCaptureEngine engine = new PcmCaptureEngine(profile.audioSource,
+            profile.sampleRate, profile.channelCount, CAPTURE_LATENCY_BUDGET_MS);
+        engine.addConsumer(pipeline);
+        engine.addConsumer(levelMeter);
+        engine.start();
+
+        captureEngine = engine;
+        encoderPipeline = pipeline;
+    }
+
+    private void startMediaRecorder(RecordingProfile profile) throws IOException {
+        mediaRecorder = new MediaRecorder();
+        mediaRecorder.setAudioSource(profile.audioSource);
+        
+        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
+        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
+        
+        mediaRecorder.setAudioSamplingRate(profile.sampleRate);
+        mediaRecorder.setAudioEncodingBitRate(profile.bitRate);
+        mediaRecorder.setAudioChannels(profile.channelCount);
+        
+        mediaRecorder.setOutputFile(currentRecordingFile.getAbsolutePath());
+
+        mediaRecorder.prepare();
+        mediaRecorder.start();
+    }
+
     public void stopRecording() {
         if (!isRecording) {
             Log.w(TAG, "No recording in progress");
             return;
         }
 
+        if (captureEngine != null) {
+            stopRawCapture();
+            return;
+        }
+
         try {
             mediaRecorder.stop();
             mediaRecorder.release();
             mediaRecorder = null;
             
-            long duration = System.currentTimeMillis() - recordingStartTime - pausedTime;
-            
-            isRecording = false;
-            isPaused = false;
-            batteryWarningShown = false;
-            timeLimitWarningShown = false;
-            
-            if (recordingListener != null) {
-                recordingListener.onRecordingStopped(currentRecordingFile.getAbsolutePath(), duration);
-            }
-            
-            Log.d(TAG, "Recording stopped: " + currentRecordingFile.getAbsolutePath());
-
-            // Show post-recording notification only if not cancelling
-            if (!isCancelling) {
-                showPostRecordingNotification(currentRecordingFile, duration);
-            }
-
-            // Reset the cancelling flag
-            isCancelling = false;
+            long duration = getRecordingDuration();
+            completeRecording(currentRecordingFile, duration, profile);
 
         } catch (RuntimeException e) {
             Log.e(TAG, "Failed to stop recording", e);
@@ -215,11 +334,172 @@ public class RecordingService extends Service {
             }
         }
 
-        stopNotificationUpdater();
+        cancelLimitAlarm();
+        stopLevelPublisher();
+        logLevelMeter();
         stopForeground(true);
         stopSelf();
     }
 
+    /**
+     * Stops the raw capture path. Draining the pipeline, and in deferred mode
+     * transcoding the whole recording, happens on a background thread; the
+     * stop is reported right away as finalising, and the service stays in the
+     * foreground until the file is complete.
+     */
+    private void stopRawCapture() {
+        long duration = getRecordingDuration();
+        PcmCaptureEngine engine = captureEngine;
+        EncoderPipeline pipeline = encoderPipeline;
+        File recordingFile = currentRecordingFile;
+        RecordingProfile recordingProfile = profile;
+        captureEngine = null;
+        encoderPipeline = null;
+        cancelLimitAlarm();
+        stopLevelPublisher();
+        logLevelMeter();
+
+        if (isCancelling) {
+            // Report right away like the MediaRecorder path, the output is discarded anyway
+            completeRecording(recordingFile, duration, recordingProfile);
+            finishExecutor.execute(() -> {
+                try {
+                    engine.stop();
+                    pipeline.discard();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to discard cancelled recording", e);
+                } finally {
+                    notificationHandler.post(this::stopIfIdle);
+                }
+            });
+            return;
+        }
+
+        isRecording = false;
+        isPaused = false;
+        notifier.clearWarnings();
+        finalisingPaths.add(recordingFile.getAbsolutePath());
+        if (recordingListener != null) {
+            recordingListener.onRecordingStopped(recordingFile.getAbsolutePath(), duration, true);
+        }
+        notifier.showState(RecordingNotifier.State.FINALISING,
+            () -> createFinalisingNotification(recordingFile));
+
+        finishExecutor.execute(() -> {
+            Exception failure = null;
+            boolean finished = false;
+            long fileDuration = duration;
+            try {
+                engine.stop();
+                pipeline.finish();
+                RuntimeException encodingFailure = engine.getFailure(pipeline);
+                if (encodingFailure != null) {
+                    // Capture went on, but the file stops where the encoder did
+                    throw new IOException("Encoding failed: " + encodingFailure.getMessage(), encodingFailure);
+                }
+                finished = true;
+                Log.d(TAG, "Encoder stats: capture " + pipeline.getCaptureStats()
+                    + "; encode " + pipeline.getEncodeStats()
+                    + "; overruns " + engine.getOverrunCount() + ", underruns " + engine.getUnderrunCount());
+
+                // Skipped silence isn't part of the file
+                if (pipeline instanceof SilenceGatePipeline) {
+                    fileDuration -= ((SilenceGatePipeline) pipeline).getElidedDurationMs();
+                }
+                recordingProfile.recordCost(this, recordingFile, fileDuration,
+                    pipeline.getEncodeStats().getTotalMicros());
+            } catch (IOException | RuntimeException e) {
+                // MediaCodec, MediaMuxer and the writers fail with unchecked exceptions too
+                if (finished) {
+                    Log.w(TAG, "Failed to record encoding cost", e);
+                } else {
+                    failure = e;
+                }
+            } finally {
+                // Posted whatever happened, or the service stays in the foreground finalising
+                Exception error = finished ? null
+                    : failure != null ? failure : new IOException("Finishing the file stopped unexpectedly");
+                long savedDuration = Math.max(0, fileDuration);
+                notificationHandler.post(() -> onRawCaptureFinished(recordingFile, savedDuration,
+                    recordingProfile, error));
+            }
+        });
+    }
+
+    /**
+     * Report a recording finished in the background, on the main thread
+     * @param error Why the file could not be finished, null if it was
+     */
+    private void onRawCaptureFinished(File recordingFile, long duration, RecordingProfile recordingProfile,
+                                      Exception error) {
+        try {
+            if (error != null) {
+                Log.e(TAG, "Failed to finish recording", error);
+                if (recordingListener != null) {
+                    recordingListener.onRecordingError("Failed to stop recording: " + error.getMessage());
+                }
+            } else {
+                saveRecording(recordingFile, duration, recordingProfile);
+            }
+        } finally {
+            finalisingPaths.remove(recordingFile.getAbsolutePath());
+            if (recordingListener != null) {
+                recordingListener.onRecordingFinalised(recordingFile.getAbsolutePath(), duration, error == null);
+            }
+            stopIfIdle();
+        }
+    }
+
+    private void stopIfIdle() {
+        // A new recording may have started while the previous one was finishing
+        if (!isRecording && captureEngine == null && mediaRecorder == null) {
+            stopForeground(true);
+            stopSelf();
+        }
+    }
+
+    /**
+     * Report a recording whose file is complete as stopped
+     */
+    private void completeRecording(File recordingFile, long duration, RecordingProfile recordingProfile) {
+        // A recording finished in the background may complete after the next one started
+        if (recordingFile.equals(currentRecordingFile)) {
+            isRecording = false;
+            isPaused = false;
+            notifier.clearWarnings();
+        }
+
+        if (recordingListener != null) {
+            recordingListener.onRecordingStopped(recordingFile.getAbsolutePath(), duration, false);
+        }
+        
+        Log.d(TAG, "Recording stopped: " + recordingFile.getAbsolutePath());
+
+        // Show post-recording notification only if not cancelling
+        if (!isCancelling) {
+            saveRecording(recordingFile, duration, recordingProfile);
+        }
+
+        // Reset the cancelling flag
+        isCancelling = false;
+    }
+
+    /**
+     * Index a complete recording, so the library never has to probe it, and
+     * tell the user it was saved
+     */
+    private void saveRecording(File recordingFile, long duration, RecordingProfile recordingProfile) {
+        RecordingIndex recordingIndex = RecordingIndex.getInstance(this);
+        recordingIndex.put(recordingFile, duration, recordingProfile.sampleRate,
+            recordingProfile.channelCount);
+        recordingIndex.save();
+
+        showPostRecordingNotification(recordingFile, duration);
+        Log.d(TAG, "Notifications: " + notifier.getCount() + " posted, "
+            + String.format(Locale.US, "%.1f", getNotificationsPerRecordedHour(duration))
+            + " per recorded hour");
+    }
+
     public void pauseRecording() {
         if (!isRecording || isPaused) {
             return;
@@ -227,9 +507,16 @@ public class RecordingService extends Service {
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             try {
-                mediaRecorder.pause();
+                if (captureEngine != null) {
+                    captureEngine.pause();
+                } else {
+                    mediaRecorder.pause();
+                }
                 isPaused = true;
-                pausedTime = System.currentTimeMillis();
+                pauseStartTime = SystemClock.elapsedRealtime();
+                // Recorded time stands still, so do the limits and the level
+                cancelLimitAlarm();
+                stopLevelPublisher();
                 
                 if (recordingListener != null) {
                     recordingListener.onRecordingPaused();
@@ -250,9 +537,15 @@ public class RecordingService extends Service {
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             try {
-                mediaRecorder.resume();
-                pausedTime = System.currentTimeMillis() - pausedTime;
+                if (captureEngine != null) {
+                    captureEngine.resume();
+                } else {
+                    mediaRecorder.resume();
+                }
+                pausedTime += SystemClock.elapsedRealtime() - pauseStartTime;
                 isPaused = false;
+                scheduleLimitAlarm();
+                updateLevelPublisher();
                 
                 if (recordingListener != null) {
                     recordingListener.onRecordingResumed();
@@ -279,15 +572,12 @@ public class RecordingService extends Service {
             return 0;
         }
         
-        long currentTime = System.currentTimeMillis();
-        long duration = currentTime - recordingStartTime;
-        
+        long currentTime = SystemClock.elapsedRealtime();
+        long duration = currentTime - recordingStartTime - pausedTime;
         if (isPaused) {
-            duration -= (currentTime - pausedTime);
-        } else {
-            duration -= pausedTime;
+            duration -= currentTime - pauseStartTime;
         }
-        
+
         return Math.max(0, duration);
     }
 
@@ -318,160 +608,287 @@ public class RecordingService extends Service {
             );
             batteryWarningChannel.setDescription("Warnings about battery usage during long recordings");
 
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
             notificationManager.createNotificationChannel(recordingChannel);
             notificationManager.createNotificationChannel(postRecordingChannel);
             notificationManager.createNotificationChannel(batteryWarningChannel);
         }
     }
 
-    private void startNotificationUpdater() {
-        notificationUpdater = new Runnable() {
+    private void createNotificationActions() {
+        PendingIntent openAppIntent = PendingIntent.getActivity(
+            this, 0, new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent pauseIntent = createServiceIntent(1, ACTION_PAUSE_RECORDING);
+        PendingIntent stopIntent = createServiceIntent(2, ACTION_STOP_RECORDING);
+        PendingIntent resumeIntent = createServiceIntent(3, ACTION_RESUME_RECORDING);
+
+        pauseAction = new NotificationCompat.Action(android.R.drawable.ic_media_pause, "Pause", pauseIntent);
+        stopAction = new NotificationCompat.Action(android.R.drawable.ic_media_ff, "Stop", stopIntent);
+        resumeAction = new NotificationCompat.Action(android.R.drawable.ic_media_play, "Resume", resumeIntent);
+        pausedStopAction = new NotificationCompat.Action(
+            android.R.drawable.ic_menu_close_clear_cancel, "Stop", stopIntent);
+
+        notificationBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setContentIntent(openAppIntent)
+            .setOngoing(true)
+            .setSilent(true)
+            .setOnlyAlertOnce(true)
+            .setPriority(NotificationCompat.PRIORITY_LOW);
+    }
+
+    private PendingIntent createServiceIntent(int requestCode, String action) {
+        Intent intent = new Intent(this, RecordingService.class);
+        intent.setAction(action);
+        return PendingIntent.getService(this, requestCode, intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Sets an alarm for the next battery or time limit, in recorded time.
+     * The limits are checked only when it fires, never polled.
+     */
+    private void scheduleLimitAlarm() {
+        cancelLimitAlarm();
+        long limit = getNextLimit();
+        if (limit < 0 || alarmManager == null) {
+            return;
+        }
+        long triggerAt = SystemClock.elapsedRealtime() + Math.max(0, limit - getRecordingDuration());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, INEXACT_ALARM_WINDOW_MS,
+                TAG, limitAlarm, notificationHandler);
+        } else {
+            alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, TAG, limitAlarm,
+                notificationHandler);
+        }
+        limitAlarmScheduled = true;
+    }
+
+    private void cancelLimitAlarm() {
+        if (limitAlarmScheduled) {
+            alarmManager.cancel(limitAlarm);
+            limitAlarmScheduled = false;
+        }
+    }
+
+    /**
+     * @return Recorded time at which the next limit applies, -1 if none is left
+     */
+    private long getNextLimit() {
+        if (!notifier.isWarningShown(BATTERY_WARNING_NOTIFICATION_ID)) {
+            return BATTERY_WARNING_DURATION_MS;
+        }
+        if (captureEngine != null) {
+            // Raw capture rolls over to new segments, so it has no length limit
+            return -1;
+        }
+        return notifier.isWarningShown(TIME_LIMIT_WARNING_NOTIFICATION_ID)
+            ? MAX_RECORDING_DURATION_MS : TIME_LIMIT_WARNING_MS;
+    }
+
+    private void onLimitAlarm() {
+        limitAlarmScheduled = false;
+        if (!isRecording || isPaused) {
+            return;
+        }
+        checkBatteryWarning();
+        checkTimeLimit();
+        if (isRecording) {
+            scheduleLimitAlarm();
+        }
+    }
+
+    /**
+     * Publish the level only while a capture is running and a listener shows
+     * it, e.g. not with the screen off, so the meter costs no wakeups otherwise
+     */
+    private void updateLevelPublisher() {
+        if (isRecording && !isPaused && recordingListener != null) {
+            startLevelPublisher();
+        } else {
+            stopLevelPublisher();
+        }
+    }
+
+    /**
+     * Pushes the latest level to the listener at a fixed rate. Measurements
+     * taken in between replace each other, so a slow UI never holds up capture.
+     */
+    private void startLevelPublisher() {
+        if (levelPublisher != null) {
+            return;
+        }
+        levelPublisher = new Runnable() {
             @Override
             public void run() {
-                if (isRecording) {
-                    updateNotification();
-                    checkBatteryWarning();
-                    checkTimeLimit();
-                    notificationHandler.postDelayed(this, 1000); // Update every second
+                if (!isRecording) {
+                    levelPublisher = null;
+                    return;
+                }
+                if (mediaRecorder != null) {
+                    // MediaRecorder only reports the peak since the last call
+                    float peak = mediaRecorder.getMaxAmplitude() / 32767f;
+                    levelMeter.submit(peak, peak);
+                }
+                if (levelMeter.poll(levelValues) && recordingListener != null) {
+                    recordingListener.onLevelChanged(levelValues[0], levelValues[1]);
                 }
+                notificationHandler.postDelayed(this, 1000 / LEVEL_PUBLISH_RATE_HZ);
             }
         };
-        notificationHandler.post(notificationUpdater);
+        notificationHandler.post(levelPublisher);
+    }
+
+    private void stopLevelPublisher() {
+        if (levelPublisher == null) {
+            return;
+        }
+        notificationHandler.removeCallbacks(levelPublisher);
+        levelPublisher = null;
+        if (recordingListener != null) {
+            recordingListener.onLevelChanged(0, 0);
+        }
     }
 
-    private void stopNotificationUpdater() {
-        if (notificationUpdater != null) {
-            notificationHandler.removeCallbacks(notificationUpdater);
-            notificationUpdater = null;
+    private void logLevelMeter() {
+        if (levelMeter != null) {
+            Log.d(TAG, "Level meter: " + levelMeter.getPublishedCount() + " published ("
+                + getLevelPublishRate() + "/s), " + levelMeter.getDroppedCount() + " dropped of "
+                + levelMeter.getProducedCount());
         }
     }
 
+    /**
+     * @return Level measurements delivered to the listener so far
+     */
+    public long getLevelFramesPublished() {
+        return levelMeter != null ? levelMeter.getPublishedCount() : 0;
+    }
+
+    /**
+     * @return Level measurements replaced before they could be delivered
+     */
+    public long getLevelFramesDropped() {
+        return levelMeter != null ? levelMeter.getDroppedCount() : 0;
+    }
+
+    /**
+     * @return Level measurements delivered per second since recording started
+     */
+    public float getLevelPublishRate() {
+        long elapsed = System.currentTimeMillis() - levelPublishStartTime;
+        return elapsed > 0 ? getLevelFramesPublished() * 1000f / elapsed : 0;
+    }
+
+    /**
+     * @return Notifications posted per hour of recorded time
+     */
+    public float getNotificationsPerRecordedHour(long durationMs) {
+        return notifier.getPerRecordedHour(durationMs);
+    }
+
     private void updateNotification() {
-        Notification notification = isPaused ? createPausedNotification() : createRecordingNotification();
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        if (notificationManager != null) {
-            notificationManager.notify(NOTIFICATION_ID, notification);
+        if (isPaused) {
+            notifier.showState(RecordingNotifier.State.PAUSED, this::createPausedNotification);
+        } else {
+            notifier.showState(RecordingNotifier.State.RECORDING, this::createRecordingNotification);
         }
     }
 
     private void checkBatteryWarning() {
-        if (!batteryWarningShown && getRecordingDuration() > BATTERY_WARNING_DURATION_MS) {
-            showBatteryWarningNotification();
-            batteryWarningShown = true;
+        if (getRecordingDuration() >= BATTERY_WARNING_DURATION_MS) {
+            notifier.showWarning(BATTERY_WARNING_NOTIFICATION_ID, this::createBatteryWarningNotification);
         }
     }
 
     private void checkTimeLimit() {
+        if (captureEngine != null) {
+            // Raw capture rolls over to new segments, so it has no length limit
+            return;
+        }
         long duration = getRecordingDuration();
-        if (!timeLimitWarningShown && duration > TIME_LIMIT_WARNING_MS) {
-            showTimeLimitWarningNotification();
-            timeLimitWarningShown = true;
-        } else if (duration > MAX_RECORDING_DURATION_MS) {
+        if (!notifier.isWarningShown(TIME_LIMIT_WARNING_NOTIFICATION_ID) && duration >= TIME_LIMIT_WARNING_MS) {
+            notifier.showWarning(TIME_LIMIT_WARNING_NOTIFICATION_ID, this::createTimeLimitWarningNotification);
+        } else if (duration >= MAX_RECORDING_DURATION_MS) {
             // Auto-stop recording
             stopRecording();
         }
     }
 
-    private void showBatteryWarningNotification() {
+    private Notification createBatteryWarningNotification() {
         Intent intent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
             this, 9, intent, PendingIntent.FLAG_IMMUTABLE);
 
-        Notification notification = new NotificationCompat.Builder(this, BATTERY_WARNING_CHANNEL_ID)
+        return new NotificationCompat.Builder(this, BATTERY_WARNING_CHANNEL_ID)
             .setContentTitle("Battery Usage Warning")
             .setContentText("Recording has been active for over 30 minutes. Consider stopping to save battery.")
             .setSmallIcon(android.R.drawable.ic_dialog_alert)
             .setContentIntent(pendingIntent)
             .setAutoCancel(true)
             .build();
-
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        if (notificationManager != null) {
-            notificationManager.notify(BATTERY_WARNING_NOTIFICATION_ID, notification);
-        }
     }
 
-    private void showTimeLimitWarningNotification() {
+    private Notification createTimeLimitWarningNotification() {
         Intent intent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
             this, 10, intent, PendingIntent.FLAG_IMMUTABLE);
 
-        Notification notification = new NotificationCompat.Builder(this, BATTERY_WARNING_CHANNEL_ID)
+        return new NotificationCompat.Builder(this, BATTERY_WARNING_CHANNEL_ID)
             .setContentTitle("Recording Time Limit Warning")
             .setContentText("Recording will automatically stop in 5 minutes. Consider stopping now to save the recording.")
             .setSmallIcon(android.R.drawable.ic_dialog_alert)
             .setContentIntent(pendingIntent)
             .setAutoCancel(true)
             .build();
-
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        if (notificationManager != null) {
-            notificationManager.notify(BATTERY_WARNING_NOTIFICATION_ID + 1, notification);
-        }
     }
 
+    /**
+     * The system counts the elapsed time up from the chronometer base, so
+     * the notification only has to be posted again when the state changes.
+     */
     private Notification createRecordingNotification() {
-        Intent intent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
-
-        Intent pauseIntent = new Intent(this, RecordingService.class);
-        pauseIntent.setAction(ACTION_PAUSE_RECORDING);
-        PendingIntent pausePendingIntent = PendingIntent.getService(
-            this, 1, pauseIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        Intent stopIntent = new Intent(this, RecordingService.class);
-        stopIntent.setAction(ACTION_STOP_RECORDING);
-        PendingIntent stopPendingIntent = PendingIntent.getService(
-            this, 2, stopIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        long duration = getRecordingDuration();
-        String durationText = formatDuration(duration);
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
+        return notificationBuilder
             .setContentTitle("Recording Audio")
-            .setContentText(durationText + " - Tap to open app")
+            .setContentText("Tap to open app")
             .setSubText(currentRecordingFile != null ? currentRecordingFile.getName() : "")
             .setSmallIcon(android.R.drawable.ic_btn_speak_now)
-            .setContentIntent(pendingIntent)
-            .addAction(android.R.drawable.ic_media_pause, "Pause", pausePendingIntent)
-            .addAction(android.R.drawable.ic_media_ff, "Stop", stopPendingIntent)
-            .setOngoing(true)
-            .setSilent(true)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setWhen(System.currentTimeMillis() - getRecordingDuration())
+            .setShowWhen(true)
+            .setUsesChronometer(true)
+            .clearActions()
+            .addAction(pauseAction)
+            .addAction(stopAction)
             .build();
     }
 
     private Notification createPausedNotification() {
-        Intent intent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
-
-        Intent resumeIntent = new Intent(this, RecordingService.class);
-        resumeIntent.setAction(ACTION_RESUME_RECORDING);
-        PendingIntent resumePendingIntent = PendingIntent.getService(
-            this, 3, resumeIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        Intent stopIntent = new Intent(this, RecordingService.class);
-        stopIntent.setAction(ACTION_STOP_RECORDING);
-        PendingIntent stopPendingIntent = PendingIntent.getService(
-            this, 4, stopIntent, PendingIntent.FLAG_IMMUTABLE);
+        String durationText = formatDuration(getRecordingDuration());
 
-        long duration = getRecordingDuration();
-        String durationText = formatDuration(duration);
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
+        return notificationBuilder
             .setContentTitle("Recording Paused")
             .setContentText(durationText + " - Tap to open app")
             .setSubText(currentRecordingFile != null ? currentRecordingFile.getName() : "")
             .setSmallIcon(android.R.drawable.ic_media_pause)
-            .setContentIntent(pendingIntent)
-            .addAction(android.R.drawable.ic_media_play, "Resume", resumePendingIntent)
-            .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop", stopPendingIntent)
-            .setOngoing(true)
-            .setSilent(true)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setShowWhen(false)
+            .setUsesChronometer(false)
+            .clearActions()
+            .addAction(resumeAction)
+            .addAction(pausedStopAction)
+            .build();
+    }
+
+    /**
+     * Shown while a stopped recording is still being written, until the
+     * service leaves the foreground or the next recording starts
+     */
+    private Notification createFinalisingNotification(File recordingFile) {
+        return notificationBuilder
+            .setContentTitle("Saving Recording")
+            .setContentText("Finishing the file - Tap to open app")
+            .setSubText(recordingFile.getName())
+            .setSmallIcon(android.R.drawable.ic_menu_save)
+            .setShowWhen(false)
+            .setUsesChronometer(false)
+            .clearActions()
             .build();
     }
 
@@ -517,10 +934,7 @@ public class RecordingService extends Service {
             .setAutoCancel(true)
             .build();
 
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        if (notificationManager != null) {
-            notificationManager.notify(POST_RECORDING_NOTIFICATION_ID, notification);
-        }
+        notifier.show(POST_RECORDING_NOTIFICATION_ID, notification);
     }
 
     private String formatDuration(long durationMs) {
@@ -529,10 +943,13 @@ public class RecordingService extends Service {
 
     @Override
     public void onDestroy() {
-        stopNotificationUpdater();
+        cancelLimitAlarm();
+        stopLevelPublisher();
         if (isRecording) {
             stopRecording();
         }
+        // Let a pending finish complete, but accept no new work
+        finishExecutor.shutdown();
         super.onDestroy();
     }
 }
\ No newline at end of file
@@ -1,7 +1,189 @@
 package com.example.a2025audiorecorderandroidapp.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
 public class AudioAmplitudeExtractor {
 
+    // Legacy methods report RMS scaled up for visual levels
+    private static final double RMS_DISPLAY_GAIN = 2.0;
+    private static final float SHORT_SCALE = 1.0f / 32768.0f;
+
+    /**
+     * Per-channel RMS and peak of a block of audio. Allocate one per thread
+     * and pass it to the analyze methods, which overwrite it without allocating.
+     * All values are normalized to 0.0 - 1.0 without any display gain.
+     */
+    public static class AmplitudeResult {
+        public final float[] rms;
+        public final float[] peak;
+        public int channelCount;
+        public float overallRms;
+        public float overallPeak;
+
+        private final double[] sumSquares;
+
+        public AmplitudeResult(int maxChannels) {
+            rms = new float[maxChannels];
+            peak = new float[maxChannels];
+            sumSquares = new double[maxChannels];
+        }
+
+        private void reset(int channelCount) {
+            if (channelCount > sumSquares.length) {
+                throw new IllegalArgumentException("Result holds " + sumSquares.length
+                    + " channels, got " + channelCount);
+            }
+            this.channelCount = channelCount;
+            for (int c = 0; c < channelCount; c++) {
+                sumSquares[c] = 0;
+                peak[c] = 0;
+            }
+        }
+
+        private void complete(int framesPerChannel) {
+            double total = 0;
+            overallPeak = 0;
+            for (int c = 0; c < channelCount; c++) {
+                total += sumSquares[c];
+                rms[c] = framesPerChannel == 0 ? 0 : (float) Math.sqrt(sumSquares[c] / framesPerChannel);
+                overallPeak = Math.max(overallPeak, peak[c]);
+            }
+            int samples = framesPerChannel * channelCount;
+            overallRms = samples == 0 ? 0 : (float) Math.sqrt(total / samples);
+        }
+    }
+
+    /**
+     * Compute per-channel RMS and peak of interleaved 16-bit PCM in one pass
+     * @param pcm Interleaved samples
+     * @param offset First sample
+     * @param length Number of samples, a trailing partial frame is ignored
+     * @param channelCount Number of interleaved channels
+     * @param result Receives the values
+     */
+    public static void analyze(short[] pcm, int offset, int length, int channelCount, AmplitudeResult result) {
+        result.reset(channelCount);
+        int frames = length / channelCount;
+
+        if (channelCount == 1) {
+            // Integer accumulation keeps the hot loop free of conversions
+            long sum = 0;
+            int max = 0;
+            for (int i = offset, end = offset + frames; i < end; i++) {
+                int s = pcm[i];
+                sum += s * s;
+                int a = s < 0 ? -s : s;
+                if (a > max) {
+                    max = a;
+                }
+            }
+            result.sumSquares[0] = sum * (double) SHORT_SCALE * SHORT_SCALE;
+            result.peak[0] = max * SHORT_SCALE;
+        } else if (channelCount == 2) {
+            long sumL = 0;
+            long sumR = 0;
+            int maxL = 0;
+            int maxR = 0;
+            for (int i = offset, end = offset + frames * 2; i < end; i += 2) {
+                int l = pcm[i];
+                int r = pcm[i + 1];
+                sumL += l * l;
+                sumR += r * r;
+                int al = l < 0 ? -l : l;
+                int ar = r < 0 ? -r : r;
+                if (al > maxL) {
+                    maxL = al;
+                }
+                if (ar > maxR) {
+                    maxR = ar;
+                }
+            }
+            result.sumSquares[0] = sumL * (double) SHORT_SCALE * SHORT_SCALE;
+            result.sumSquares[1] = sumR * (double) SHORT_SCALE * SHORT_SCALE;
+            result.peak[0] = maxL * SHORT_SCALE;
+            result.peak[1] = maxR * SHORT_SCALE;
+        } else {
+            for (int f = 0; f < frames; f++) {
+                int base = offset + f * channelCount;
+                for (int c = 0; c < channelCount; c++) {
+                    float s = pcm[base + c] * SHORT_SCALE;
+                    result.sumSquares[c] += s * s;
+                    result.peak[c] = Math.max(result.peak[c], Math.abs(s));
+                }
+            }
+        }
+
+        result.complete(frames);
+    }
+
+    /**
+     * Compute per-channel RMS and peak of interleaved float PCM (-1.0 - 1.0) in one pass
+     */
+    public static void analyze(float[] pcm, int offset, int length, int channelCount, AmplitudeResult result) {
+        result.reset(channelCount);
+        int frames = length / channelCount;
+
+        for (int f = 0; f < frames; f++) {
+            int base = offset + f * channelCount;
+            for (int c = 0; c < channelCount; c++) {
+                float s = pcm[base + c];
+                result.sumSquares[c] += s * s;
+                float a = Math.abs(s);
+                if (a > result.peak[c]) {
+                    result.peak[c] = a;
+                }
+            }
+        }
+
+        result.complete(frames);
+    }
+
+    /**
+     * Compute per-channel RMS and peak of the remaining samples of a buffer.
+     * Uses absolute reads, the buffer position is not changed.
+     */
+    public static void analyze(ShortBuffer pcm, int channelCount, AmplitudeResult result) {
+        if (pcm.hasArray()) {
+            analyze(pcm.array(), pcm.arrayOffset() + pcm.position(), pcm.remaining(), channelCount, result);
+            return;
+        }
+
+        result.reset(channelCount);
+        int start = pcm.position();
+        int frames = pcm.remaining() / channelCount;
+        int end = start + frames * channelCount;
+
+        // One strided pass per channel keeps the sums in integer locals, as in the array version
+        for (int c = 0; c < channelCount; c++) {
+            long sum = 0;
+            int max = 0;
+            for (int i = start + c; i < end; i += channelCount) {
+                int s = pcm.get(i);
+                sum += s * s;
+                int a = s < 0 ? -s : s;
+                if (a > max) {
+                    max = a;
+                }
+            }
+            result.sumSquares[c] = sum * (double) SHORT_SCALE * SHORT_SCALE;
+            result.peak[c] = max * SHORT_SCALE;
+        }
+
+        result.complete(frames);
+    }
+
+    /**
+     * Compute per-channel RMS and peak of the remaining bytes of a buffer
+     * holding little-endian 16-bit PCM, e.g. a direct buffer from AudioRecord
+     * or MediaCodec. Reads through a little-endian view, so the buffer's
+     * position and byte order are not changed.
+     */
+    public static void analyze(ByteBuffer pcm, int channelCount, AmplitudeResult result) {
+        analyze(pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer(), channelCount, result);
+    }
+
     /**
      * Calculate RMS amplitude from PCM byte array
      * @param pcmData Raw PCM audio data
@@ -14,33 +196,31 @@ public class AudioAmplitudeExtractor {
             return 0.0f;
         }
 
-        // Assuming 16-bit PCM
-        int bytesPerSample = 2; // 16-bit = 2 bytes per sample
-        int samplesToProcess = Math.min(pcmData.length / bytesPerSample, sampleRate / 10); // Process ~100ms of audio
-
-        double sum = 0.0;
-        int sampleCount = 0;
-
-        for (int i = 0; i < samplesToProcess * bytesPerSample && i < pcmData.length - 1; i += bytesPerSample) {
-            // Convert bytes to 16-bit sample
-            short sample = (short) ((pcmData[i] & 0xFF) | (pcmData[i + 1] << 8));
-
-            // Convert to float and normalize
-            float normalizedSample = sample / 32768.0f;
-
-            sum += normalizedSample * normalizedSample;
-            sampleCount++;
-        }
+        // Assuming 16-bit PCM, process ~100ms of audio
+        int samplesToProcess = Math.min(pcmData.length / 2, sampleRate / 10);
+        return rmsOfBytes(pcmData, 0, samplesToProcess);
+    }
 
-        if (sampleCount == 0) {
+    /**
+     * Calculate RMS amplitude from 16-bit PCM samples
+     * @param pcm Interleaved PCM samples
+     * @param offset First sample to include
+     * @param length Number of samples to include
+     * @return Normalized amplitude value between 0.0 and 1.0, scaled like the byte[] variant
+     */
+    public static float calculateRMSAmplitude(short[] pcm, int offset, int length) {
+        if (pcm == null || length <= 0) {
             return 0.0f;
         }
 
-        // Calculate RMS
-        double rms = Math.sqrt(sum / sampleCount);
+        long sum = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int s = pcm[i];
+            sum += s * s;
+        }
 
-        // Normalize to 0-1 range (adjust multiplier based on your audio levels)
-        return (float) Math.min(1.0, rms * 2.0); // Multiplier can be adjusted
+        double rms = Math.sqrt(sum / (double) length) * SHORT_SCALE;
+        return (float) Math.min(1.0, rms * RMS_DISPLAY_GAIN);
     }
 
     /**
@@ -55,19 +235,19 @@ public class AudioAmplitudeExtractor {
             return 0.0f;
         }
 
-        // Assuming 16-bit PCM
-        int bytesPerSample = 2;
-        int samplesToProcess = Math.min(pcmData.length / bytesPerSample, sampleRate / 10);
-
-        float maxAmplitude = 0.0f;
+        int samplesToProcess = Math.min(pcmData.length / 2, sampleRate / 10);
 
-        for (int i = 0; i < samplesToProcess * bytesPerSample && i < pcmData.length - 1; i += bytesPerSample) {
-            short sample = (short) ((pcmData[i] & 0xFF) | (pcmData[i + 1] << 8));
-            float normalizedSample = Math.abs(sample) / 32768.0f;
-            maxAmplitude = Math.max(maxAmplitude, normalizedSample);
+        ShortBuffer pcm = littleEndianView(pcmData, 0, samplesToProcess);
+        int max = 0;
+        for (int i = 0; i < samplesToProcess; i++) {
+            int sample = pcm.get(i);
+            int a = sample < 0 ? -sample : sample;
+            if (a > max) {
+                max = a;
+            }
         }
 
-        return maxAmplitude;
+        return max * SHORT_SCALE;
     }
 
     /**
@@ -84,8 +264,7 @@ public class AudioAmplitudeExtractor {
             return new float[0];
         }
 
-        int bytesPerSample = 2;
-        int totalSamples = pcmData.length / bytesPerSample;
+        int totalSamples = pcmData.length / 2;
         int numChunks = totalSamples / chunkSize;
 
         if (numChunks == 0) {
@@ -93,17 +272,40 @@ public class AudioAmplitudeExtractor {
         }
 
         float[] amplitudes = new float[numChunks];
+        // Each chunk is measured in place, over at most ~100ms like calculateRMSAmplitude
+        int samplesPerChunk = Math.min(chunkSize, sampleRate / 10);
 
         for (int i = 0; i < numChunks; i++) {
-            int startByte = i * chunkSize * bytesPerSample;
-            int endByte = Math.min(startByte + chunkSize * bytesPerSample, pcmData.length);
+            amplitudes[i] = rmsOfBytes(pcmData, i * chunkSize * 2, samplesPerChunk);
+        }
 
-            byte[] chunk = new byte[endByte - startByte];
-            System.arraycopy(pcmData, startByte, chunk, 0, chunk.length);
+        return amplitudes;
+    }
 
-            amplitudes[i] = calculateRMSAmplitude(chunk, sampleRate, channelCount);
+    /**
+     * RMS of little-endian 16-bit samples inside a byte array, with display gain
+     */
+    private static float rmsOfBytes(byte[] data, int byteOffset, int samples) {
+        if (samples <= 0) {
+            return 0.0f;
         }
 
-        return amplitudes;
+        ShortBuffer pcm = littleEndianView(data, byteOffset, samples);
+        long sum = 0;
+        for (int i = 0; i < samples; i++) {
+            int s = pcm.get(i);
+            sum += s * s;
+        }
+
+        double rms = Math.sqrt(sum / (double) samples) * SHORT_SCALE;
+        return (float) Math.min(1.0, rms * RMS_DISPLAY_GAIN);
+    }
+
+    /**
+     * Little-endian 16-bit samples inside a byte array, read as whole shorts
+     * instead of assembled from two bytes each
+     */
+    private static ShortBuffer littleEndianView(byte[] data, int byteOffset, int samples) {
+        return ByteBuffer.wrap(data, byteOffset, samples * 2).slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
     }
-}
\ No newline at end of file
+}
@@ -11,6 +11,22 @@ public class FileUtils {
     
     public static final String RECORDINGS_FOLDER = "AudioRecordings";
     public static final String AUDIO_FILE_EXTENSION = ".m4a";
+    public static final String OGG_FILE_EXTENSION = ".ogg";
+    public static final String WAV_FILE_EXTENSION = ".wav";
+    public static final String FLAC_FILE_EXTENSION = ".flac";
+    public static final String SILENCE_MAP_EXTENSION = ".silence";
+    public static final String PEAKS_EXTENSION = ".peaks";
+    public static final String SEGMENT_PLAYLIST_EXTENSION = ".playlist";
+    public static final String JOURNAL_EXTENSION = ".journal";
+    private static final String SEGMENT_EXTENSION = ".part";
+
+    // Files listed as recordings
+    private static final String[] RECORDING_EXTENSIONS = { AUDIO_FILE_EXTENSION, OGG_FILE_EXTENSION,
+        WAV_FILE_EXTENSION, FLAC_FILE_EXTENSION };
+
+    // Files stored next to a recording that follow it on rename and delete
+    private static final String[] SIDECAR_EXTENSIONS = { SILENCE_MAP_EXTENSION, PEAKS_EXTENSION,
+        SEGMENT_PLAYLIST_EXTENSION, JOURNAL_EXTENSION };
 
     public static File getRecordingsDirectory(Context context) {
         File recordingsDir;
@@ -30,16 +46,43 @@ public class FileUtils {
         return recordingsDir;
     }
 
-    public static File createNewRecordingFile(Context context) {
+    /**
+     * @param extension Extension of the encoding the file is recorded in
+     */
+    public static File createNewRecordingFile(Context context, String extension) {
         File recordingsDir = getRecordingsDirectory(context);
         
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
         String timestamp = sdf.format(new Date());
-        String fileName = "Recording_" + timestamp + AUDIO_FILE_EXTENSION;
+        String fileName = "Recording_" + timestamp + extension;
         
         return new File(recordingsDir, fileName);
     }
 
+    /**
+     * @return Whether a file in the recordings directory is a recording, as opposed
+     *         to a later segment or a sidecar
+     */
+    public static boolean isRecordingFile(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : RECORDING_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The name a recording gets when renamed, keeping its extension
+     */
+    public static String getRenamedFileName(String filePath, String newName) {
+        String oldName = new File(filePath).getName();
+        int dot = oldName.lastIndexOf('.');
+        String extension = dot >= 0 ? oldName.substring(dot) : AUDIO_FILE_EXTENSION;
+        return newName.endsWith(extension) ? newName : newName + extension;
+    }
+
     public static String formatDuration(long durationMs) {
         long seconds = durationMs / 1000;
         long minutes = seconds / 60;
@@ -67,9 +110,100 @@ public class FileUtils {
         }
     }
 
+    public static File getSidecarFile(File recordingFile, String extension) {
+        return new File(recordingFile.getParentFile(), recordingFile.getName() + extension);
+    }
+
+    /**
+     * Get the file of one segment of a segmented recording
+     * @param recordingFile The recording, which is also the first segment
+     * @param segment Segment index, starting at 0
+     * @return The segment file; the later ones don't match the recording extension,
+     *         so the library never lists them on their own
+     */
+    public static File getSegmentFile(File recordingFile, int segment) {
+        if (segment == 0) {
+            return recordingFile;
+        }
+        return getSidecarFile(recordingFile,
+            String.format(Locale.US, "%s%03d", SEGMENT_EXTENSION, segment + 1));
+    }
+
+    /**
+     * @return Index of a segment file, 0 for anything that isn't a later segment
+     */
+    public static int getSegmentIndex(File file) {
+        String name = file.getName();
+        int suffix = name.lastIndexOf(SEGMENT_EXTENSION);
+        if (suffix < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(suffix + SEGMENT_EXTENSION.length())) - 1;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return The recording a segment file belongs to, the file itself for the first segment
+     */
+    public static File getRecordingOfSegment(File segmentFile) {
+        if (getSegmentIndex(segmentFile) == 0) {
+            return segmentFile;
+        }
+        String name = segmentFile.getName();
+        return new File(segmentFile.getParentFile(), name.substring(0, name.lastIndexOf(SEGMENT_EXTENSION)));
+    }
+
     public static boolean deleteRecording(String filePath) {
         File file = new File(filePath);
-        return file.exists() && file.delete();
+        if (!file.exists() || !file.delete()) {
+            return false;
+        }
+        for (String extension : SIDECAR_EXTENSIONS) {
+            getSidecarFile(file, extension).delete();
+        }
+        // Segments are numbered without gaps
+        for (int segment = 1; getSegmentFile(file, segment).delete(); segment++) {
+            getSidecarFile(getSegmentFile(file, segment), JOURNAL_EXTENSION).delete();
+        }
+        return true;
+    }
+
+    /**
+     * Put a re-encoded copy in place of a recording. The copy takes its final
+     * name, complete, in a single rename and only then is the original removed,
+     * so the recording is never missing or partly written. It keeps the
+     * original's date and sidecars.
+     * @param recording Recording to replace, not segmented
+     * @param replacement The new file, in the same directory
+     * @param extension Extension of the replacement's format
+     * @return The recording after the replacement, null if nothing was replaced
+     */
+    public static File replaceRecording(File recording, File replacement, String extension) {
+        String name = recording.getName();
+        int dot = name.lastIndexOf('.');
+        File target = new File(recording.getParentFile(), (dot >= 0 ? name.substring(0, dot) : name) + extension);
+        boolean sameName = target.equals(recording);
+        if (!sameName && target.exists()) {
+            return null;
+        }
+
+        replacement.setLastModified(recording.lastModified());
+        if (!replacement.renameTo(target)) {
+            return null;
+        }
+        if (!sameName) {
+            for (String sidecarExtension : SIDECAR_EXTENSIONS) {
+                File sidecar = getSidecarFile(recording, sidecarExtension);
+                if (sidecar.exists()) {
+                    sidecar.renameTo(getSidecarFile(target, sidecarExtension));
+                }
+            }
+            recording.delete();
+        }
+        return target;
     }
 
     public static boolean renameRecording(String filePath, String newName) {
@@ -78,18 +212,31 @@ public class FileUtils {
             return false;
         }
         
-        // Ensure the new name has the correct extension
-        if (!newName.endsWith(AUDIO_FILE_EXTENSION)) {
-            newName += AUDIO_FILE_EXTENSION;
-        }
-        
-        File newFile = new File(oldFile.getParent(), newName);
+        File newFile = new File(oldFile.getParent(), getRenamedFileName(filePath, newName));
         
         // Check if a file with the new name already exists
         if (newFile.exists()) {
             return false;
         }
         
-        return oldFile.renameTo(newFile);
+        if (!oldFile.renameTo(newFile)) {
+            return false;
+        }
+        for (String extension : SIDECAR_EXTENSIONS) {
+            File sidecar = getSidecarFile(oldFile, extension);
+            if (sidecar.exists()) {
+                sidecar.renameTo(getSidecarFile(newFile, extension));
+            }
+        }
+        for (int segment = 1; getSegmentFile(oldFile, segment).exists(); segment++) {
+            File oldSegment = getSegmentFile(oldFile, segment);
+            File newSegment = getSegmentFile(newFile, segment);
+            oldSegment.renameTo(newSegment);
+            File journal = getSidecarFile(oldSegment, JOURNAL_EXTENSION);
+            if (journal.exists()) {
+                journal.renameTo(getSidecarFile(newSegment, JOURNAL_EXTENSION));
+            }
+        }
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.example.a2025audiorecorderandroidapp.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Display formatting for the recordings list. Formatters are built once and
+ * are safe to share between threads; the live playback position is written
+ * into a caller-owned buffer without allocating.
+ */
+public class FormatUtils {
+
+    /** Big enough for any mm:ss position, see {@link #formatMinutesSeconds}. */
+    public static final int TIME_BUFFER_LENGTH = 24;
+
+    private static final String DATE_PATTERN = "MMM dd, yyyy HH:mm";
+
+    // DateTimeFormatter is immutable; rebuilt only if the default locale changes
+    private static volatile DateTimeFormatter dateFormatter;
+    private static volatile Locale dateLocale;
+
+    public static String formatDate(long timestamp) {
+        Locale locale = Locale.getDefault();
+        DateTimeFormatter formatter = dateFormatter;
+        if (formatter == null || !locale.equals(dateLocale)) {
+            formatter = DateTimeFormatter.ofPattern(DATE_PATTERN, locale);
+            dateFormatter = formatter;
+            dateLocale = locale;
+        }
+        return formatter.format(Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * Format a duration as mm:ss, minutes growing past 99 as needed
+     */
+    public static String formatMinutesSeconds(long durationMs) {
+        char[] buffer = new char[TIME_BUFFER_LENGTH];
+        return new String(buffer, 0, formatMinutesSeconds(durationMs, buffer));
+    }
+
+    /**
+     * Write a duration as mm:ss without allocating
+     * @param durationMs Duration, negative counts as 0
+     * @param buffer Receives the text, at least {@link #TIME_BUFFER_LENGTH} long
+     * @return Number of chars written
+     */
+    public static int formatMinutesSeconds(long durationMs, char[] buffer) {
+        long totalSeconds = Math.max(0, durationMs) / 1000;
+        long minutes = totalSeconds / 60;
+        int seconds = (int) (totalSeconds % 60);
+
+        int digits = 2;
+        for (long rest = minutes / 100; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[i] = (char) ('0' + minutes % 10);
+            minutes /= 10;
+        }
+        buffer[digits] = ':';
+        buffer[digits + 1] = (char) ('0' + seconds / 10);
+        buffer[digits + 2] = (char) ('0' + seconds % 10);
+        return digits + 3;
+    }
+}
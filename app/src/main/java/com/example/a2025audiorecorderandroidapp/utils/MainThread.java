@@ -0,0 +1,40 @@
+package com.example.a2025audiorecorderandroidapp.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Runs work on the main thread, later or after a delay. Classes that time
+ * their work on the main thread take one, so tests can stand in a clock of
+ * their own for the main looper.
+ */
+public interface MainThread {
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMs);
+
+    void removeCallbacks(Runnable task);
+
+    /**
+     * @return A MainThread posting to the main looper
+     */
+    static MainThread create() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return new MainThread() {
+            @Override
+            public void post(Runnable task) {
+                handler.post(task);
+            }
+
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
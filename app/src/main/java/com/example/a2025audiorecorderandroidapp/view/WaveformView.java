@@ -0,0 +1,74 @@
+package com.example.a2025audiorecorderandroidapp.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.a2025audiorecorderandroidapp.R;
+import com.example.a2025audiorecorderandroidapp.audio.WaveformCache;
+
+/**
+ * Draws a waveform overview stretched between the view's paddings, with a
+ * marker at a position. Shows where a seek bar drag would land; paddings
+ * line the waveform up with the seek bar's track.
+ */
+public class WaveformView extends View {
+    private static final int WAVE_ALPHA = 120;
+
+    private final Paint wavePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint markerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private WaveformCache.Waveform waveform;
+    private float marker = -1;
+
+    public WaveformView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        int color = ContextCompat.getColor(context, R.color.waveform_blue);
+        wavePaint.setColor(color);
+        wavePaint.setAlpha(WAVE_ALPHA);
+        markerPaint.setColor(color);
+        markerPaint.setStrokeWidth(2 * getResources().getDisplayMetrics().density);
+    }
+
+    public void setWaveform(@Nullable WaveformCache.Waveform waveform) {
+        this.waveform = waveform;
+        invalidate();
+    }
+
+    /**
+     * @param fraction Marker position from 0.0 to 1.0, negative for none
+     */
+    public void setMarker(float fraction) {
+        if (fraction != marker) {
+            marker = fraction;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (waveform == null) {
+            return;
+        }
+        int left = getPaddingLeft();
+        int width = getWidth() - left - getPaddingRight();
+        int columns = waveform.min.length;
+        float middle = getHeight() / 2f;
+        float columnWidth = width / (float) columns;
+        float barWidth = Math.max(1f, columnWidth - 1f);
+        for (int i = 0; i < columns; i++) {
+            float x = left + i * columnWidth;
+            canvas.drawRect(x, middle - waveform.max[i] * middle, x + barWidth,
+                middle - waveform.min[i] * middle + 1f, wavePaint);
+        }
+        if (marker >= 0) {
+            float x = left + marker * width;
+            canvas.drawLine(x, 0, x, getHeight(), markerPaint);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.a2025audiorecorderandroidapp;
+
+import java.util.Locale;
+
+/**
+ * Minimal timing loop for the benchmark tests, which compare a change against
+ * the code it replaced on the JVM. Each operation runs until the JIT settles,
+ * then in several timed rounds; the fastest round is reported since
+ * scheduling and GC only ever make a round slower. Numbers are for relative
+ * comparison on one machine, not for absolute device performance.
+ *
+ * Timing only runs with {@code ./gradlew test -Pbenchmarks=true}; otherwise
+ * every operation runs once, so the checks around it still do.
+ */
+public final class Benchmarks {
+    public static final boolean ENABLED = Boolean.getBoolean("benchmarks");
+
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long ROUND_NANOS = 200_000_000L;
+    private static final int ROUNDS = 5;
+
+    // Results go here so the JIT can't drop the work
+    public static volatile long sink;
+
+    public interface Operation {
+        /**
+         * @return Any value derived from the work, fed to {@link #sink}
+         */
+        long run() throws Exception;
+    }
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @return Nanoseconds per call of the fastest round, NaN if not enabled
+     */
+    public static double nanosPerOp(Operation operation) throws Exception {
+        if (!ENABLED) {
+            sink += operation.run();
+            return Double.NaN;
+        }
+        runFor(operation, WARMUP_NANOS);
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, runFor(operation, ROUND_NANOS));
+        }
+        return best;
+    }
+
+    /**
+     * Time a replacement against the baseline and print both
+     * @return How many times faster the candidate is, NaN if not enabled
+     */
+    public static double compare(String name, Operation baseline, Operation candidate) throws Exception {
+        double before = nanosPerOp(baseline);
+        double after = nanosPerOp(candidate);
+        double speedup = before / after;
+        report(name, String.format(Locale.ROOT, "%.1f us -> %.1f us, %.2fx", before / 1000, after / 1000, speedup));
+        return speedup;
+    }
+
+    public static void report(String name, String result) {
+        if (!ENABLED) {
+            return;
+        }
+        System.out.println("[benchmark] " + name + ": " + result);
+    }
+
+    private static double runFor(Operation operation, long nanos) throws Exception {
+        long value = 0;
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            value += operation.run();
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        sink += value;
+        return (double) elapsed / count;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.a2025audiorecorderandroidapp;
+
+import com.example.a2025audiorecorderandroidapp.utils.MainThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A main thread on a clock of the test's own. Posted work runs when the test
+ * advances the clock past it, in the order it is due, on the test's thread.
+ */
+public class FakeMainThread implements MainThread {
+    private static final class Task {
+        final Runnable runnable;
+        final long dueMs;
+
+        Task(Runnable runnable, long dueMs) {
+            this.runnable = runnable;
+            this.dueMs = dueMs;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long nowMs = 0;
+
+    @Override
+    public synchronized void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs) {
+        tasks.add(new Task(task, nowMs + delayMs));
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable task) {
+        tasks.removeIf(t -> t.runnable == task);
+    }
+
+    /**
+     * Move the clock on, running everything that falls due, including work
+     * posted by the work that runs
+     */
+    public void advance(long ms) {
+        long targetMs;
+        synchronized (this) {
+            targetMs = nowMs + ms;
+        }
+        while (true) {
+            Task next = null;
+            synchronized (this) {
+                for (Task task : tasks) {
+                    if (task.dueMs <= targetMs && (next == null || task.dueMs < next.dueMs)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    nowMs = targetMs;
+                    return;
+                }
+                tasks.remove(next);
+                nowMs = Math.max(nowMs, next.dueMs);
+            }
+            next.runnable.run();
+        }
+    }
+
+    /**
+     * Run everything that is due now
+     */
+    public void runDue() {
+        advance(0);
+    }
+
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+}
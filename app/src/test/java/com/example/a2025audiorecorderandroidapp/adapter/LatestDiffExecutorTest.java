@@ -0,0 +1,118 @@
+package com.example.a2025audiorecorderandroidapp.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists submitted the way the adapter does, each diff standing in as a task
+ * that checks for cancellation at every comparison like the diff callback.
+ */
+public class LatestDiffExecutorTest {
+
+    @Test
+    public void dropsQueuedDiffs() {
+        Queue<Runnable> thread = new ArrayDeque<>();
+        LatestDiffExecutor executor = new LatestDiffExecutor(thread::add);
+        List<Integer> diffed = new ArrayList<>();
+
+        for (int list = 1; list <= 3; list++) {
+            submit(executor, diffed, list, 10);
+        }
+
+        // One wakeup for the thread, which finds the newest diff
+        assertEquals(1, thread.size());
+        thread.poll().run();
+        assertEquals(List.of(3), diffed);
+        assertEquals(2, executor.getCancelledCount());
+        assertTrue(thread.isEmpty());
+    }
+
+    @Test
+    public void stopsRunningDiffWhenNewerListArrives() {
+        Queue<Runnable> thread = new ArrayDeque<>();
+        LatestDiffExecutor executor = new LatestDiffExecutor(thread::add);
+        List<Integer> diffed = new ArrayList<>();
+        int[] comparisons = new int[1];
+
+        executor.onSubmit();
+        executor.execute(() -> {
+            for (int i = 0; i < 100; i++) {
+                executor.checkCurrent();
+                comparisons[0]++;
+                if (i == 10) {
+                    // The main thread submits while this diff is halfway through
+                    submit(executor, diffed, 2, 100);
+                }
+            }
+            diffed.add(1);
+        });
+        while (!thread.isEmpty()) {
+            thread.poll().run();
+        }
+
+        assertEquals(List.of(2), diffed);
+        assertEquals(11, comparisons[0]);
+        assertEquals(1, executor.getCancelledCount());
+    }
+
+    /**
+     * Lists submitted faster than they can be diffed on a real thread: the
+     * last one is always diffed, and every other is either diffed or counted
+     * as cancelled.
+     */
+    @Test(timeout = 30_000)
+    public void lastSubmittedListWins() throws Exception {
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        LatestDiffExecutor executor = new LatestDiffExecutor(thread);
+        List<Integer> diffed = new ArrayList<>();
+        int lists = 500;
+
+        for (int list = 1; list <= lists; list++) {
+            submit(executor, diffed, list, 20_000);
+            if (list % 50 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        thread.shutdown();
+        assertTrue(thread.awaitTermination(20, TimeUnit.SECONDS));
+
+        synchronized (diffed) {
+            assertEquals(lists, (int) diffed.get(diffed.size() - 1));
+            for (int i = 1; i < diffed.size(); i++) {
+                assertTrue(diffed.get(i) > diffed.get(i - 1));
+            }
+            assertEquals(lists, diffed.size() + executor.getCancelledCount());
+        }
+    }
+
+    /**
+     * Submit a list whose diff makes the given number of comparisons and then
+     * records that it completed, as the adapter does on the main thread
+     */
+    private static void submit(LatestDiffExecutor executor, List<Integer> diffed, int list, int comparisons) {
+        executor.onSubmit();
+        executor.execute(() -> {
+            long work = 0;
+            for (int i = 0; i < comparisons; i++) {
+                executor.checkCurrent();
+                work += i ^ list;
+            }
+            synchronized (diffed) {
+                diffed.add(list);
+            }
+            Benchmarks.sink += work;
+        });
+    }
+}
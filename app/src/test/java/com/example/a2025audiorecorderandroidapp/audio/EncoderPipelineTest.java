@@ -0,0 +1,246 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming and deferred pipelines against an encoder that keeps the PCM it
+ * gets, fed in 10 ms buffers as captured.
+ */
+public class EncoderPipelineTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int CHANNELS = 2;
+    private static final int BUFFER = SAMPLE_RATE / 100 * CHANNELS;
+    private static final int BUFFERS = 150;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamingEncodesWhileCapturing() throws IOException {
+        File output = new File(folder.getRoot(), "a.m4a");
+        FakeEncoder.Factory factory = new FakeEncoder.Factory();
+        StreamingEncoderPipeline pipeline = new StreamingEncoderPipeline(output, factory, null);
+        short[] pcm = signal();
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(pipeline, pcm, BUFFERS / 2);
+        assertEquals(pcm.length / 2, factory.encoder.length);
+        feed(pipeline, Arrays.copyOfRange(pcm, pcm.length / 2, pcm.length), BUFFERS / 2);
+        pipeline.onCaptureStopped();
+        pipeline.finish();
+
+        assertArrayEquals(pcm, factory.encoder.samples());
+        assertTrue(factory.encoder.finished);
+        assertSame(pipeline.getCaptureStats(), pipeline.getEncodeStats());
+        assertEquals(BUFFERS, pipeline.getEncodeStats().getBufferCount());
+    }
+
+    @Test
+    public void streamingReportsEncoderThatFailsToFinish() {
+        File output = new File(folder.getRoot(), "b.m4a");
+        FakeEncoder.Factory factory = new FakeEncoder.Factory();
+        factory.finishFailure = new IOException("no end of stream");
+        StreamingEncoderPipeline pipeline = new StreamingEncoderPipeline(output, factory, null);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(pipeline, signal(), BUFFERS);
+        pipeline.onCaptureStopped();
+
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IOException e) {
+            assertSame(factory.finishFailure, e);
+        }
+    }
+
+    @Test
+    public void streamingReportsEncoderThatFailsToStart() {
+        File output = new File(folder.getRoot(), "c.m4a");
+        FakeEncoder.Factory factory = new FakeEncoder.Factory();
+        factory.createFailure = new IOException("no codec");
+        StreamingEncoderPipeline pipeline = new StreamingEncoderPipeline(output, factory, null);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(pipeline, signal(), BUFFERS);
+        pipeline.onCaptureStopped();
+
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IOException e) {
+            assertSame(factory.createFailure, e);
+        }
+    }
+
+    @Test
+    public void deferredEncodesOnFinish() throws IOException {
+        File output = new File(folder.getRoot(), "d.m4a");
+        File temp = new File(folder.getRoot(), "d.m4a" + DeferredEncoderPipeline.TEMP_SUFFIX);
+        FakeEncoder.Factory factory = new FakeEncoder.Factory();
+        DeferredEncoderPipeline pipeline = new DeferredEncoderPipeline(output, factory);
+        short[] pcm = signal();
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(pipeline, pcm, BUFFERS);
+        pipeline.onCaptureStopped();
+        // Capture only wrote the temporary file
+        assertNull(factory.encoder);
+        assertTrue(temp.exists());
+        assertEquals(BUFFERS, pipeline.getCaptureStats().getBufferCount());
+
+        pipeline.finish();
+
+        assertArrayEquals(pcm, factory.encoder.samples());
+        assertTrue(factory.encoder.finished);
+        assertFalse(temp.exists());
+        assertEquals(SAMPLE_RATE, factory.sampleRate);
+        assertEquals(CHANNELS, factory.channelCount);
+        // Transcoded in chunks of its own, not per captured buffer
+        long chunks = pipeline.getEncodeStats().getBufferCount();
+        assertTrue(chunks > 0 && chunks < BUFFERS);
+        assertEquals(BUFFERS, pipeline.getCaptureStats().getBufferCount());
+    }
+
+    @Test
+    public void deferredReleasesEncoderThatFailsToFinish() {
+        File output = new File(folder.getRoot(), "e.m4a");
+        File temp = new File(folder.getRoot(), "e.m4a" + DeferredEncoderPipeline.TEMP_SUFFIX);
+        FakeEncoder.Factory factory = new FakeEncoder.Factory();
+        factory.finishFailure = new IOException("no end of stream");
+        DeferredEncoderPipeline pipeline = new DeferredEncoderPipeline(output, factory);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(pipeline, signal(), BUFFERS);
+        pipeline.onCaptureStopped();
+
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IOException e) {
+            assertSame(factory.finishFailure, e);
+        }
+        assertTrue(factory.encoder.released);
+        assertFalse(temp.exists());
+    }
+
+    @Test
+    public void discardDeletesEverything() throws IOException {
+        File streamingOutput = new File(folder.getRoot(), "f.m4a");
+        StreamingEncoderPipeline streaming = new StreamingEncoderPipeline(streamingOutput,
+            new FakeEncoder.Factory(), null);
+        streaming.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(streaming, signal(), 10);
+        streaming.discard();
+        assertFalse(streamingOutput.exists());
+
+        File deferredOutput = new File(folder.getRoot(), "g.m4a");
+        File temp = new File(folder.getRoot(), "g.m4a" + DeferredEncoderPipeline.TEMP_SUFFIX);
+        DeferredEncoderPipeline deferred = new DeferredEncoderPipeline(deferredOutput, new FakeEncoder.Factory());
+        deferred.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        feed(deferred, signal(), 10);
+        deferred.discard();
+        assertFalse(temp.exists());
+        assertFalse(deferredOutput.exists());
+    }
+
+    private static short[] signal() {
+        short[] pcm = new short[BUFFER * BUFFERS];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 31 + (i % CHANNELS) * 1000);
+        }
+        return pcm;
+    }
+
+    /**
+     * Hand the first buffers of pcm to a pipeline, reusing one buffer like the capture engine
+     */
+    private static void feed(PcmConsumer consumer, short[] pcm, int buffers) {
+        short[] frame = new short[BUFFER];
+        for (int i = 0; i < buffers; i++) {
+            System.arraycopy(pcm, i * BUFFER, frame, 0, BUFFER);
+            consumer.onFrame(frame, BUFFER);
+            Arrays.fill(frame, (short) 0);
+        }
+    }
+
+    /**
+     * Keeps what it is given, recording its time like the real encoders
+     */
+    static class FakeEncoder implements AudioEncoder {
+        private final EncodeStats stats;
+        private final IOException finishFailure;
+        short[] buffer = new short[4096];
+        int length;
+        boolean finished;
+        boolean released;
+
+        FakeEncoder(File outputFile, EncodeStats stats, IOException finishFailure) throws IOException {
+            this.stats = stats;
+            this.finishFailure = finishFailure;
+            outputFile.createNewFile();
+        }
+
+        @Override
+        public void encode(short[] pcm, int offset, int length) {
+            long start = System.nanoTime();
+            if (this.length + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, this.length + length));
+            }
+            System.arraycopy(pcm, offset, buffer, this.length, length);
+            this.length += length;
+            stats.record(System.nanoTime() - start);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (finishFailure != null) {
+                throw finishFailure;
+            }
+            finished = true;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+
+        short[] samples() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        static class Factory implements AudioEncoder.Factory {
+            IOException createFailure;
+            IOException finishFailure;
+            FakeEncoder encoder;
+            int sampleRate;
+            int channelCount;
+
+            @Override
+            public AudioEncoder create(File outputFile, int sampleRate, int channelCount, EncodeStats stats,
+                                       File journalFile) throws IOException {
+                if (createFailure != null) {
+                    throw createFailure;
+                }
+                this.sampleRate = sampleRate;
+                this.channelCount = channelCount;
+                encoder = new FakeEncoder(outputFile, stats, finishFailure);
+                return encoder;
+            }
+        }
+    }
+}
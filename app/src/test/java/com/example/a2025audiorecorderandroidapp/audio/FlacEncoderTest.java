@@ -0,0 +1,119 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes FLAC files and reads them back frame by frame with the reference
+ * decoder in {@link FlacFrameEncoderTest}.
+ */
+public class FlacEncoderTest {
+    private static final int BLOCK_SIZE = 4096;
+    private static final int STREAMINFO_OFFSET = 8;
+    private static final int FRAMES_OFFSET = 42;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsFile() throws Exception {
+        int sampleRate = 44100;
+        short[] pcm = signal(sampleRate * 5 + 1234, 2, 1);
+        File file = folder.newFile("round-trip.flac");
+        FlacEncoder encoder = new FlacEncoder(file, sampleRate, 2, new EncodeStats());
+        // 10 ms buffers, as captured
+        for (int offset = 0; offset < pcm.length; offset += 882) {
+            encoder.encode(pcm, offset, Math.min(882, pcm.length - offset));
+        }
+        encoder.finish();
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertEquals(pcm.length / 2, totalSamples(data));
+        assertArrayEquals(pcm, decodeFrames(data, 2));
+        byte[] little = new byte[pcm.length * 2];
+        ByteBuffer.wrap(little).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm);
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(little),
+            Arrays.copyOfRange(data, STREAMINFO_OFFSET + 18, STREAMINFO_OFFSET + 34));
+    }
+
+    @Test
+    public void checkpointCoversOnlyFramesOnDisk() throws IOException {
+        // Noise is coded verbatim, so the fourth frame no longer fits the chunk
+        // and flushes the first three, well before a second of audio
+        int sampleRate = 48000;
+        short[] pcm = signal(BLOCK_SIZE * 4, 2, 0);
+        File file = folder.newFile("unfinished.flac");
+        FlacEncoder encoder = new FlacEncoder(file, sampleRate, 2, new EncodeStats());
+        encoder.encode(pcm, 0, pcm.length);
+
+        // As left by a process that died here
+        byte[] data = Files.readAllBytes(file.toPath());
+        long checkpointed = totalSamples(data);
+        assertTrue(checkpointed > 0);
+        short[] onDisk = decodeFrames(data, 2);
+        assertEquals(checkpointed, onDisk.length / 2);
+        assertArrayEquals(Arrays.copyOf(pcm, onDisk.length), onDisk);
+        encoder.release();
+    }
+
+    /**
+     * A tone with noise, or full-scale noise if toneLevel is 0
+     */
+    private static short[] signal(int frames, int channelCount, int toneLevel) {
+        Random random = new Random(3);
+        short[] pcm = new short[frames * channelCount];
+        for (int i = 0; i < frames; i++) {
+            double tone = 9000 * Math.sin(i * 2 * Math.PI * 330 / 44100.0);
+            for (int c = 0; c < channelCount; c++) {
+                pcm[i * channelCount + c] = toneLevel > 0
+                    ? (short) (tone * (1 - 0.2 * c) + random.nextInt(201) - 100)
+                    : (short) random.nextInt(65536);
+            }
+        }
+        return pcm;
+    }
+
+    private static long totalSamples(byte[] data) {
+        return ByteBuffer.wrap(data, STREAMINFO_OFFSET + 10, 8).getLong() & 0xFFFFFFFFFL;
+    }
+
+    /**
+     * Decode every complete frame of a file
+     * @return Interleaved samples
+     */
+    static short[] decodeFrames(byte[] data, int channelCount) {
+        int maxFrameSize = ((data[STREAMINFO_OFFSET + 7] & 0xFF) << 16)
+            | ((data[STREAMINFO_OFFSET + 8] & 0xFF) << 8) | (data[STREAMINFO_OFFSET + 9] & 0xFF);
+        short[] pcm = new short[0];
+        int length = 0;
+        int position = FRAMES_OFFSET;
+        while (position < data.length) {
+            FlacFrameEncoderTest.Decoded frame = FlacFrameEncoderTest.decode(
+                Arrays.copyOfRange(data, position, Math.min(data.length, position + maxFrameSize)));
+            if (length + frame.length * channelCount > pcm.length) {
+                pcm = Arrays.copyOf(pcm, Math.max(pcm.length * 2, length + frame.length * channelCount));
+            }
+            for (int i = 0; i < frame.length; i++) {
+                for (int c = 0; c < channelCount; c++) {
+                    pcm[length++] = (short) frame.channels[c][i];
+                }
+            }
+            position += frame.frameLength;
+        }
+        return Arrays.copyOf(pcm, length);
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Encodes blocks of different kinds of signal and decodes them again with
+ * the small reference decoder below, which follows the FLAC format
+ * specification and checks both frame CRCs.
+ */
+public class FlacFrameEncoderTest {
+    private static final int BLOCK_SIZE = 4096;
+
+    @Test
+    public void roundTripsSilence() {
+        int[][] channels = new int[2][BLOCK_SIZE];
+        Arrays.fill(channels[1], -7);
+
+        Decoded decoded = roundTrip(44100, channels, BLOCK_SIZE, 0);
+
+        assertEquals(2, decoded.subframeTypes[0]); // both constant
+        assertTrue(decoded.frameLength < 32);
+    }
+
+    @Test
+    public void roundTripsCorrelatedStereo() {
+        int[][] channels = new int[2][BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            double tone = 12000 * Math.sin(i * 2 * Math.PI * 440 / 44100)
+                + 3000 * Math.sin(i * 2 * Math.PI * 1250 / 44100);
+            channels[0][i] = (int) tone;
+            channels[1][i] = (int) (tone * 0.98) + i % 3;
+        }
+
+        Decoded decoded = roundTrip(44100, channels, BLOCK_SIZE, 1);
+
+        assertTrue(decoded.channelAssignment >= 8);
+        assertTrue(decoded.subframeTypes[3] > 0); // predicted with LPC
+        assertTrue(decoded.frameLength < BLOCK_SIZE * 2 * 2 / 3);
+    }
+
+    @Test
+    public void roundTripsNoiseAsVerbatim() {
+        Random random = new Random(24);
+        int[][] channels = new int[1][BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            channels[0][i] = random.nextInt(65536) - 32768;
+        }
+
+        Decoded decoded = roundTrip(48000, channels, BLOCK_SIZE, 2);
+
+        assertEquals(1, decoded.subframeTypes[1]);
+    }
+
+    @Test
+    public void roundTripsPolynomialWithFixedPredictor() {
+        int[][] channels = new int[1][BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            channels[0][i] = i * 7 - 14000;
+        }
+
+        Decoded decoded = roundTrip(16000, channels, BLOCK_SIZE, 3);
+
+        assertEquals(1, decoded.subframeTypes[2]);
+    }
+
+    @Test
+    public void roundTripsFullScaleSide() {
+        // The side channel needs 17 bits
+        Random random = new Random(7);
+        int[][] channels = new int[2][BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            boolean high = random.nextBoolean();
+            channels[0][i] = high ? Short.MAX_VALUE : Short.MIN_VALUE;
+            channels[1][i] = high ? Short.MIN_VALUE : Short.MAX_VALUE;
+        }
+
+        roundTrip(44100, channels, BLOCK_SIZE, 4);
+    }
+
+    @Test
+    public void roundTripsShortLastFrameWithLargeNumber() {
+        int[][] channels = new int[2][BLOCK_SIZE];
+        for (int i = 0; i < 1000; i++) {
+            channels[0][i] = (int) (8000 * Math.sin(i * 0.05));
+            channels[1][i] = (int) (5000 * Math.cos(i * 0.03));
+        }
+
+        Decoded decoded = roundTrip(44100, channels, 1000, 70_000);
+
+        assertEquals(1000, decoded.length);
+    }
+
+    @Test
+    public void codesEverySampleRate() {
+        int[][] channels = new int[1][256];
+        for (int i = 0; i < 256; i++) {
+            channels[0][i] = (i * 37) % 200 - 100;
+        }
+        // From the table, in kHz, in Hz
+        for (int sampleRate : new int[] { 8000, 22050, 96000, 12000, 11025 }) {
+            roundTrip(sampleRate, channels, 256, 5);
+        }
+    }
+
+    private static Decoded roundTrip(int sampleRate, int[][] channels, int length, long frameNumber) {
+        FlacFrameEncoder encoder = new FlacFrameEncoder(sampleRate, channels.length, channels[0].length);
+        byte[] frame = encoder.encodeFrame(channels, length, frameNumber);
+        int frameLength = encoder.getFrameLength();
+
+        Decoded decoded = decode(Arrays.copyOf(frame, frameLength));
+
+        assertEquals(frameLength, decoded.frameLength);
+        assertEquals(frameNumber, decoded.frameNumber);
+        assertEquals(sampleRate, decoded.sampleRate);
+        assertEquals(length, decoded.length);
+        assertEquals(channels.length, decoded.channels.length);
+        for (int c = 0; c < channels.length; c++) {
+            assertArrayEquals(Arrays.copyOf(channels[c], length), decoded.channels[c]);
+        }
+        return decoded;
+    }
+
+    static class Decoded {
+        long frameNumber;
+        int sampleRate;
+        int length;
+        int channelAssignment;
+        int[][] channels;
+        int frameLength;
+        // Subframes coded as constant, verbatim, fixed and LPC
+        final int[] subframeTypes = new int[4];
+    }
+
+    /**
+     * Decode one frame, checking both CRCs
+     * @param frame Starts with the frame, may run past its end
+     */
+    static Decoded decode(byte[] frame) {
+        Decoded decoded = new Decoded();
+        BitReader in = new BitReader(frame);
+        assertEquals(0x3FFE, in.read(14));
+        assertEquals(0, in.read(1));
+        assertEquals(0, in.read(1)); // fixed block size
+        int blockSizeCode = in.read(4);
+        int sampleRateCode = in.read(4);
+        decoded.channelAssignment = in.read(4);
+        assertEquals(4, in.read(3)); // 16 bits per sample
+        assertEquals(0, in.read(1));
+        decoded.frameNumber = readUtf8(in);
+        if (blockSizeCode == 12) {
+            decoded.length = 4096;
+        } else {
+            assertEquals(7, blockSizeCode);
+            decoded.length = in.read(16) + 1;
+        }
+        int[] rates = { 0, 88200, 176400, 192000, 8000, 16000, 22050, 24000, 32000, 44100, 48000, 96000 };
+        if (sampleRateCode == 12) {
+            decoded.sampleRate = in.read(8) * 1000;
+        } else if (sampleRateCode == 13) {
+            decoded.sampleRate = in.read(16);
+        } else {
+            decoded.sampleRate = rates[sampleRateCode];
+        }
+        int headerLength = in.position / 8;
+        assertEquals(crc(frame, headerLength, 0x07, 8), in.read(8));
+
+        int n = decoded.length;
+        int assignment = decoded.channelAssignment;
+        if (assignment < 8) {
+            decoded.channels = new int[assignment + 1][];
+            for (int c = 0; c <= assignment; c++) {
+                decoded.channels[c] = readSubframe(in, n, 16, decoded);
+            }
+        } else {
+            int[] a = readSubframe(in, n, assignment == 9 ? 17 : 16, decoded);
+            int[] b = readSubframe(in, n, assignment == 9 ? 16 : 17, decoded);
+            int[] left = new int[n];
+            int[] right = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (assignment == 8) {
+                    left[i] = a[i];
+                    right[i] = a[i] - b[i];
+                } else if (assignment == 9) {
+                    left[i] = a[i] + b[i];
+                    right[i] = b[i];
+                } else {
+                    int mid = (a[i] << 1) | (b[i] & 1);
+                    left[i] = (mid + b[i]) >> 1;
+                    right[i] = (mid - b[i]) >> 1;
+                }
+            }
+            decoded.channels = new int[][] { left, right };
+        }
+
+        in.alignToByte();
+        int dataLength = in.position / 8;
+        assertEquals(crc(frame, dataLength, 0x8005, 16), in.read(16));
+        decoded.frameLength = in.position / 8;
+        return decoded;
+    }
+
+    private static int[] readSubframe(BitReader in, int n, int bitsPerSample, Decoded decoded) {
+        assertEquals(0, in.read(1));
+        int type = in.read(6);
+        assertEquals(0, in.read(1)); // no wasted bits
+        int[] samples = new int[n];
+        if (type == 0) {
+            decoded.subframeTypes[0]++;
+            Arrays.fill(samples, in.readSigned(bitsPerSample));
+        } else if (type == 1) {
+            decoded.subframeTypes[1]++;
+            for (int i = 0; i < n; i++) {
+                samples[i] = in.readSigned(bitsPerSample);
+            }
+        } else if (type >= 8 && type <= 12) {
+            decoded.subframeTypes[2]++;
+            int order = type - 8;
+            for (int i = 0; i < order; i++) {
+                samples[i] = in.readSigned(bitsPerSample);
+            }
+            readResidual(in, n, order, samples);
+            int[][] fixed = { {}, { 1 }, { 2, -1 }, { 3, -3, 1 }, { 4, -6, 4, -1 } };
+            for (int i = order; i < n; i++) {
+                long prediction = 0;
+                for (int j = 0; j < order; j++) {
+                    prediction += (long) fixed[order][j] * samples[i - 1 - j];
+                }
+                samples[i] += (int) prediction;
+            }
+        } else {
+            assertTrue(type >= 32);
+            decoded.subframeTypes[3]++;
+            int order = type - 31;
+            for (int i = 0; i < order; i++) {
+                samples[i] = in.readSigned(bitsPerSample);
+            }
+            int precision = in.read(4) + 1;
+            int shift = in.readSigned(5);
+            assertTrue(shift >= 0);
+            int[] coefficients = new int[order];
+            for (int i = 0; i < order; i++) {
+                coefficients[i] = in.readSigned(precision);
+            }
+            readResidual(in, n, order, samples);
+            for (int i = order; i < n; i++) {
+                long sum = 0;
+                for (int j = 0; j < order; j++) {
+                    sum += (long) coefficients[j] * samples[i - 1 - j];
+                }
+                // Decoders may predict in 32-bit arithmetic
+                assertTrue(sum >= Integer.MIN_VALUE && sum <= Integer.MAX_VALUE);
+                samples[i] += (int) (sum >> shift);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Read the Rice-coded residual into samples, after the warm-up samples
+     */
+    private static void readResidual(BitReader in, int n, int order, int[] samples) {
+        assertEquals(0, in.read(2)); // 4-bit parameters
+        int partitionOrder = in.read(4);
+        int partitionSize = n >> partitionOrder;
+        int position = order;
+        for (int p = 0; p < (1 << partitionOrder); p++) {
+            int parameter = in.read(4);
+            assertTrue(parameter < 15); // no escape code
+            for (int end = (p + 1) * partitionSize; position < end; position++) {
+                int quotient = 0;
+                while (in.read(1) == 0) {
+                    quotient++;
+                }
+                int folded = (quotient << parameter) | in.read(parameter);
+                samples[position] = (folded >>> 1) ^ -(folded & 1);
+            }
+        }
+        assertEquals(n, position);
+    }
+
+    private static long readUtf8(BitReader in) {
+        int first = in.read(8);
+        int extraBytes = 0;
+        for (int mask = 0x80; (first & mask) != 0; mask >>= 1) {
+            extraBytes++;
+        }
+        if (extraBytes == 0) {
+            return first;
+        }
+        extraBytes--;
+        long value = first & ((1 << (6 - extraBytes)) - 1);
+        for (int i = 0; i < extraBytes; i++) {
+            int next = in.read(8);
+            assertEquals(0x80, next & 0xC0);
+            value = (value << 6) | (next & 0x3F);
+        }
+        return value;
+    }
+
+    private static int crc(byte[] data, int length, int polynomial, int width) {
+        int crc = 0;
+        int top = 1 << (width - 1);
+        int mask = (1 << width) - 1;
+        for (int i = 0; i < length; i++) {
+            crc ^= (data[i] & 0xFF) << (width - 8);
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & top) != 0 ? (crc << 1) ^ polynomial : crc << 1) & mask;
+            }
+        }
+        return crc;
+    }
+
+    private static final class BitReader {
+        private final byte[] data;
+        int position = 0;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        int read(int bits) {
+            int value = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = (data[position >> 3] >> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+
+        int readSigned(int bits) {
+            int value = read(bits);
+            return (value << (32 - bits)) >> (32 - bits);
+        }
+
+        void alignToByte() {
+            position = (position + 7) & ~7;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Feeds 20 s of synthetic speech-like PCM in 10 ms buffers, as captured, to
+ * the WAV and FLAC writers and prints their throughput in MB of PCM per
+ * second on one core. The WAV writer is compared with the one it replaced,
+ * kept below as {@link Legacy}. Checks that the WAV data and the decoded
+ * FLAC frames equal the input.
+ */
+public class LosslessEncoderBenchmark {
+    private static final int SECONDS = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void wav() throws Exception {
+        int sampleRate = 48000;
+        int channelCount = 2;
+        short[] pcm = signal(sampleRate, channelCount);
+        File file = folder.newFile("benchmark.wav");
+        File legacyFile = folder.newFile("legacy.wav");
+
+        writeWav(file, pcm, sampleRate, channelCount);
+        WavWriter.Header header = WavWriter.readHeader(file);
+        assertEquals(pcm.length * 2L, header.dataSize);
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertArrayEquals(littleEndian(pcm), Arrays.copyOfRange(data, 44, data.length));
+        writeLegacyWav(legacyFile, pcm, sampleRate, channelCount);
+        assertArrayEquals(Files.readAllBytes(legacyFile.toPath()), data);
+
+        double legacyNanos = Benchmarks.nanosPerOp(() -> writeLegacyWav(legacyFile, pcm, sampleRate, channelCount));
+        double nanos = Benchmarks.nanosPerOp(() -> writeWav(file, pcm, sampleRate, channelCount));
+        Benchmarks.report("WAV 48 kHz stereo", String.format(Locale.ROOT, "%.0f MB/s -> %.0f MB/s",
+            megabytesPerSecond(pcm, legacyNanos), megabytesPerSecond(pcm, nanos)));
+    }
+
+    @Test
+    public void flacStereo() throws Exception {
+        flac(48000, 2);
+    }
+
+    @Test
+    public void flacMono() throws Exception {
+        flac(16000, 1);
+    }
+
+    private void flac(int sampleRate, int channelCount) throws Exception {
+        short[] pcm = signal(sampleRate, channelCount);
+        File file = folder.newFile("benchmark.flac");
+
+        long size = writeFlac(file, pcm, sampleRate, channelCount);
+        assertArrayEquals(pcm, FlacEncoderTest.decodeFrames(Files.readAllBytes(file.toPath()), channelCount));
+
+        double nanos = Benchmarks.nanosPerOp(() -> writeFlac(file, pcm, sampleRate, channelCount));
+        Benchmarks.report(String.format(Locale.ROOT, "FLAC %d Hz %d ch", sampleRate, channelCount),
+            String.format(Locale.ROOT, "%.1f MB/s, %.0fx real time, %.0f%% of WAV size",
+                megabytesPerSecond(pcm, nanos), SECONDS * 1e9 / nanos, 100.0 * size / (pcm.length * 2L)));
+    }
+
+    private static long writeWav(File file, short[] pcm, int sampleRate, int channelCount) throws IOException {
+        int buffer = sampleRate / 100 * channelCount;
+        WavWriter writer = new WavWriter(file, sampleRate, channelCount);
+        for (int offset = 0; offset < pcm.length; offset += buffer) {
+            writer.write(pcm, offset, Math.min(buffer, pcm.length - offset));
+        }
+        writer.close();
+        return writer.getDataSize();
+    }
+
+    private static long writeLegacyWav(File file, short[] pcm, int sampleRate, int channelCount) throws IOException {
+        int buffer = sampleRate / 100 * channelCount;
+        Legacy writer = new Legacy(file, sampleRate, channelCount, buffer);
+        for (int offset = 0; offset < pcm.length; offset += buffer) {
+            writer.write(pcm, offset, Math.min(buffer, pcm.length - offset));
+        }
+        writer.close();
+        return writer.getDataSize();
+    }
+
+    private static long writeFlac(File file, short[] pcm, int sampleRate, int channelCount) throws IOException {
+        int buffer = sampleRate / 100 * channelCount;
+        FlacEncoder encoder = new FlacEncoder(file, sampleRate, channelCount, new EncodeStats());
+        for (int offset = 0; offset < pcm.length; offset += buffer) {
+            encoder.encode(pcm, offset, Math.min(buffer, pcm.length - offset));
+        }
+        encoder.finish();
+        return file.length();
+    }
+
+    private static double megabytesPerSecond(short[] pcm, double nanos) {
+        return pcm.length * 2 / 1e6 / (nanos / 1e9);
+    }
+
+    /**
+     * Voiced bursts of a few harmonics with pauses and a noise floor
+     */
+    private static short[] signal(int sampleRate, int channelCount) {
+        Random random = new Random(42);
+        int frames = sampleRate * SECONDS;
+        short[] pcm = new short[frames * channelCount];
+        for (int i = 0; i < frames; i++) {
+            double t = (double) i / sampleRate;
+            double envelope = Math.max(0, Math.sin(t * Math.PI * 1.7));
+            double pitch = 120 + 30 * Math.sin(t * 0.9);
+            double voice = 0;
+            for (int harmonic = 1; harmonic <= 6; harmonic++) {
+                voice += Math.sin(2 * Math.PI * pitch * harmonic * t) / harmonic;
+            }
+            for (int c = 0; c < channelCount; c++) {
+                double sample = 7000 * envelope * voice * (1 - 0.15 * c) + random.nextGaussian() * 60;
+                pcm[i * channelCount + c] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            }
+        }
+        return pcm;
+    }
+
+    private static byte[] littleEndian(short[] pcm) {
+        byte[] bytes = new byte[pcm.length * 2];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm);
+        return bytes;
+    }
+
+    /**
+     * WavWriter before checkpointed headers, unchanged
+     */
+    static class Legacy {
+        private static final int HEADER_SIZE = 44;
+
+        private final RandomAccessFile file;
+        private final int sampleRate;
+        private final int channelCount;
+        private final byte[] byteBuffer;
+        private long dataSize = 0;
+
+        Legacy(File outputFile, int sampleRate, int channelCount, int maxFrameSamples) throws IOException {
+            this.file = new RandomAccessFile(outputFile, "rw");
+            this.file.setLength(0);
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.byteBuffer = new byte[maxFrameSamples * 2];
+            writeHeader();
+        }
+
+        void write(short[] pcm, int offset, int length) throws IOException {
+            int byteCount = length * 2;
+            for (int i = 0; i < length; i++) {
+                short sample = pcm[offset + i];
+                byteBuffer[i * 2] = (byte) sample;
+                byteBuffer[i * 2 + 1] = (byte) (sample >> 8);
+            }
+            file.write(byteBuffer, 0, byteCount);
+            dataSize += byteCount;
+        }
+
+        long getDataSize() {
+            return dataSize;
+        }
+
+        void close() throws IOException {
+            try {
+                writeHeader();
+            } finally {
+                file.close();
+            }
+        }
+
+        private void writeHeader() throws IOException {
+            int byteRate = sampleRate * channelCount * 2;
+            file.seek(0);
+            file.writeBytes("RIFF");
+            file.writeInt(Integer.reverseBytes((int) (HEADER_SIZE - 8 + dataSize)));
+            file.writeBytes("WAVE");
+            file.writeBytes("fmt ");
+            file.writeInt(Integer.reverseBytes(16));
+            file.writeShort(Short.reverseBytes((short) 1)); // PCM
+            file.writeShort(Short.reverseBytes((short) channelCount));
+            file.writeInt(Integer.reverseBytes(sampleRate));
+            file.writeInt(Integer.reverseBytes(byteRate));
+            file.writeShort(Short.reverseBytes((short) (channelCount * 2)));
+            file.writeShort(Short.reverseBytes((short) 16));
+            file.writeBytes("data");
+            file.writeInt(Integer.reverseBytes((int) dataSize));
+            file.seek(HEADER_SIZE + dataSize);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class OggPageWriterTest {
+    private static final int SERIAL = 0x1234ABCD;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void computesOggCrc() {
+        // Check value of CRC-32 with polynomial 0x04C11DB7, no reflection and no XOR
+        byte[] data = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x89A1897F, OggPageWriter.updateCrc(0, data, 0, data.length));
+        // Chunked updates give the same result
+        int crc = OggPageWriter.updateCrc(0, data, 0, 4);
+        assertEquals(0x89A1897F, OggPageWriter.updateCrc(crc, data, 4, 5));
+    }
+
+    @Test
+    public void lacesPacketsOfEveryLength() throws IOException {
+        File file = folder.newFile();
+        byte[][] packets = { packet(0), packet(1), packet(254), packet(255), packet(600) };
+        try (OggPageWriter writer = new OggPageWriter(file, SERIAL, Long.MAX_VALUE)) {
+            for (int i = 0; i < packets.length; i++) {
+                writer.writePacket(packets[i], 0, packets[i].length, i + 1);
+            }
+        }
+
+        List<Page> pages = readPages(file);
+
+        assertEquals(1, pages.size());
+        Page page = pages.get(0);
+        // A packet of a multiple of 255 bytes ends with a 0 lacing value
+        assertArrayEquals(new int[] { 0, 1, 254, 255, 0, 255, 255, 90 }, page.lacing);
+        assertEquals(0x02 | 0x04, page.flags);
+        assertEquals(5, page.granule);
+        assertArrayEquals(packets, readPackets(pages).toArray(new byte[0][]));
+    }
+
+    @Test
+    public void continuesPacketOnNextPage() throws IOException {
+        File file = folder.newFile();
+        byte[] large = packet(255 * 255 + 10);
+        try (OggPageWriter writer = new OggPageWriter(file, SERIAL, Long.MAX_VALUE)) {
+            writer.writePacket(large, 0, large.length, 960);
+        }
+
+        List<Page> pages = readPages(file);
+
+        assertEquals(2, pages.size());
+        assertEquals(255, pages.get(0).lacing.length);
+        // No packet ends on the first page
+        assertEquals(-1, pages.get(0).granule);
+        assertEquals(0x02, pages.get(0).flags);
+        assertEquals(0x01 | 0x04, pages.get(1).flags);
+        assertArrayEquals(new int[] { 10 }, pages.get(1).lacing);
+        assertEquals(960, pages.get(1).granule);
+        assertArrayEquals(large, readPackets(pages).get(0));
+    }
+
+    @Test
+    public void splitsPagesByDuration() throws IOException {
+        File file = folder.newFile();
+        List<byte[]> packets = new ArrayList<>();
+        try (OggPageWriter writer = new OggPageWriter(file, SERIAL, 48000)) {
+            byte[] header = packet(19);
+            writer.writePacket(header, 0, header.length, 0);
+            writer.flushPage();
+            packets.add(header);
+            // Three seconds of 20 ms packets
+            for (int i = 1; i <= 150; i++) {
+                byte[] packet = packet(40 + i % 7);
+                writer.writePacket(packet, 0, packet.length, i * 960L);
+                packets.add(packet);
+            }
+            writer.close(150 * 960L - 312);
+        }
+
+        List<Page> pages = readPages(file);
+
+        assertEquals(0, pages.get(0).granule);
+        assertEquals(1, pages.get(0).lacing.length);
+        long previous = 0;
+        for (int i = 1; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            assertEquals(i, page.sequence);
+            assertEquals(SERIAL, page.serial);
+            assertEquals(i == pages.size() - 1 ? 0x04 : 0, page.flags);
+            assertTrue(page.granule - previous <= 48000);
+            previous = page.granule;
+        }
+        assertEquals(4, pages.size());
+        // The last page is trimmed to the real end of the stream
+        assertEquals(150 * 960L - 312, previous);
+        assertArrayEquals(packets.toArray(new byte[0][]), readPackets(pages).toArray(new byte[0][]));
+    }
+
+    @Test
+    public void endsEmptyStreamWithPage() throws IOException {
+        File file = folder.newFile();
+        new OggPageWriter(file, SERIAL, 48000).close();
+
+        List<Page> pages = readPages(file);
+
+        assertEquals(1, pages.size());
+        assertEquals(0x02 | 0x04, pages.get(0).flags);
+        assertEquals(0, pages.get(0).granule);
+        assertEquals(0, pages.get(0).lacing.length);
+    }
+
+    private static class Page {
+        int flags;
+        long granule;
+        int serial;
+        int sequence;
+        int[] lacing;
+        byte[] body;
+    }
+
+    /**
+     * Parse every page of a file, checking the capture pattern and the CRC
+     */
+    private static List<Page> readPages(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        List<Page> pages = new ArrayList<>();
+        int position = 0;
+        while (position < data.length) {
+            assertEquals("OggS", new String(data, position, 4, StandardCharsets.US_ASCII));
+            assertEquals(0, data[position + 4]);
+            Page page = new Page();
+            page.flags = data[position + 5];
+            page.granule = buffer.getLong(position + 6);
+            page.serial = buffer.getInt(position + 14);
+            page.sequence = buffer.getInt(position + 18);
+            int crc = buffer.getInt(position + 22);
+            int segments = data[position + 26] & 0xFF;
+            page.lacing = new int[segments];
+            int bodyLength = 0;
+            for (int i = 0; i < segments; i++) {
+                page.lacing[i] = data[position + 27 + i] & 0xFF;
+                bodyLength += page.lacing[i];
+            }
+            int headerLength = 27 + segments;
+            page.body = Arrays.copyOfRange(data, position + headerLength, position + headerLength + bodyLength);
+
+            byte[] zeroed = Arrays.copyOfRange(data, position, position + headerLength + bodyLength);
+            Arrays.fill(zeroed, 22, 26, (byte) 0);
+            assertEquals(bitwiseCrc(zeroed), crc);
+            assertEquals(pages.size(), page.sequence);
+
+            pages.add(page);
+            position += headerLength + bodyLength;
+        }
+        return pages;
+    }
+
+    private static List<byte[]> readPackets(List<Page> pages) {
+        List<byte[]> packets = new ArrayList<>();
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        for (Page page : pages) {
+            int offset = 0;
+            for (int value : page.lacing) {
+                packet.write(page.body, offset, value);
+                offset += value;
+                if (value < 255) {
+                    packets.add(packet.toByteArray());
+                    packet.reset();
+                }
+            }
+        }
+        return packets;
+    }
+
+    private static int bitwiseCrc(byte[] data) {
+        int crc = 0;
+        for (byte b : data) {
+            crc ^= (b & 0xFF) << 24;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+            }
+        }
+        return crc;
+    }
+
+    private static byte[] packet(int length) {
+        byte[] packet = new byte[length];
+        new Random(length).nextBytes(packet);
+        return packet;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class PcmRingBufferTest {
+    private static final int FRAME_SAMPLES = 8;
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(2, new PcmRingBuffer(1, FRAME_SAMPLES).getCapacity());
+        assertEquals(2, new PcmRingBuffer(2, FRAME_SAMPLES).getCapacity());
+        assertEquals(4, new PcmRingBuffer(3, FRAME_SAMPLES).getCapacity());
+        assertEquals(4, new PcmRingBuffer(4, FRAME_SAMPLES).getCapacity());
+        assertEquals(8, new PcmRingBuffer(5, FRAME_SAMPLES).getCapacity());
+        assertEquals(64, new PcmRingBuffer(50, FRAME_SAMPLES).getCapacity());
+    }
+
+    @Test
+    public void readsFramesInOrder() {
+        PcmRingBuffer ring = new PcmRingBuffer(4, FRAME_SAMPLES);
+        publish(ring, 0);
+        PcmRingBuffer.Reader reader = ring.newReader();
+        publish(ring, 1);
+        publish(ring, 2);
+
+        short[] frame = new short[FRAME_SAMPLES];
+        // Readers start at the write position
+        assertEquals(FRAME_SAMPLES, reader.read(frame));
+        assertEquals(1, sequenceOf(frame));
+        assertEquals(FRAME_SAMPLES, reader.read(frame));
+        assertEquals(2, sequenceOf(frame));
+        assertEquals(0, reader.read(frame));
+        assertEquals(0, reader.getOverrunCount());
+    }
+
+    @Test
+    public void skipsToOldestFrameWhenOverrun() {
+        PcmRingBuffer ring = new PcmRingBuffer(4, FRAME_SAMPLES);
+        PcmRingBuffer.Reader reader = ring.newReader();
+        for (int i = 0; i < 10; i++) {
+            publish(ring, i);
+        }
+        assertEquals(4, reader.getBacklog());
+
+        short[] frame = new short[FRAME_SAMPLES];
+        reader.read(frame);
+        // One slot is left as headroom for the producer
+        assertEquals(7, sequenceOf(frame));
+        assertEquals(7, reader.getOverrunCount());
+        reader.read(frame);
+        assertEquals(8, sequenceOf(frame));
+        reader.read(frame);
+        assertEquals(9, sequenceOf(frame));
+        assertEquals(0, reader.read(frame));
+        assertEquals(7, reader.getOverrunCount());
+    }
+
+    @Test
+    public void countsTimeoutAsUnderrun() {
+        PcmRingBuffer ring = new PcmRingBuffer(4, FRAME_SAMPLES);
+        PcmRingBuffer.Reader reader = ring.newReader();
+        assertFalse(reader.await(1_000_000));
+        assertEquals(1, reader.getUnderrunCount());
+
+        publish(ring, 0);
+        assertTrue(reader.await(1_000_000));
+        assertEquals(1, reader.getUnderrunCount());
+    }
+
+    @Test(timeout = 5000)
+    public void awaitLeavesInterruptSet() {
+        PcmRingBuffer ring = new PcmRingBuffer(4, FRAME_SAMPLES);
+        PcmRingBuffer.Reader reader = ring.newReader();
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(reader.await(60_000_000_000L));
+            assertTrue(Thread.currentThread().isInterrupted());
+            assertEquals(0, reader.getUnderrunCount());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * One producer, a reader that keeps up and parks in await() between
+     * frames, and a slow one that keeps getting lapped. Frames take long to
+     * copy and the ring is small, so a reader that loses the CPU mid-copy
+     * finds its slot rewritten. Every frame returned has to be whole and newer than
+     * the last, every frame has to be either read or counted as an overrun,
+     * and the fast reader, waiting far longer than the producer ever pauses,
+     * must never time out: a lost wakeup would show as an underrun.
+     */
+    @Test(timeout = 30_000)
+    public void producerWithReadersUnderStress() throws Exception {
+        int frameSamples = 1 << 20;
+        int frames = 3000;
+        PcmRingBuffer ring = new PcmRingBuffer(2, frameSamples);
+        ReaderThread fast = new ReaderThread(ring.newReader(), frameSamples, 0);
+        ReaderThread slow = new ReaderThread(ring.newReader(), frameSamples, 30_000);
+        fast.start();
+        slow.start();
+
+        for (int i = 0; i < frames; i++) {
+            short[] slot = ring.claim();
+            fill(slot, frameSamples, i);
+            // The last frame is one sample long, which ends the readers
+            ring.publish(i == frames - 1 ? 1 : frameSamples);
+            if (i % 8 == 7) {
+                // Let the fast reader run dry and park
+                LockSupport.parkNanos(200_000);
+            }
+        }
+        fast.join();
+        slow.join();
+
+        for (ReaderThread reader : new ReaderThread[] { fast, slow }) {
+            assertNull(reader.error);
+            assertEquals(frames - 1, reader.lastSequence);
+            assertEquals(frames, reader.framesRead + reader.reader.getOverrunCount());
+        }
+        assertEquals(0, fast.reader.getUnderrunCount());
+        assertTrue(slow.reader.getOverrunCount() > 0);
+    }
+
+    private static void publish(PcmRingBuffer ring, int sequence) {
+        fill(ring.claim(), FRAME_SAMPLES, sequence);
+        ring.publish(FRAME_SAMPLES);
+    }
+
+    /**
+     * The sequence number in the first two samples, and every other sample
+     * derived from it, so a frame mixing two writes shows
+     */
+    private static void fill(short[] frame, int length, int sequence) {
+        frame[0] = (short) sequence;
+        frame[1] = (short) (sequence >>> 16);
+        for (int i = 2; i < length; i++) {
+            frame[i] = (short) (sequence * 7 + i);
+        }
+    }
+
+    private static int sequenceOf(short[] frame) {
+        return (frame[0] & 0xFFFF) | (frame[1] << 16);
+    }
+
+    private static class ReaderThread extends Thread {
+        final PcmRingBuffer.Reader reader;
+        final short[] frame;
+        final long delayNanos;
+        volatile String error;
+        volatile int lastSequence = -1;
+        volatile long framesRead;
+
+        ReaderThread(PcmRingBuffer.Reader reader, int frameSamples, long delayNanos) {
+            this.reader = reader;
+            this.frame = new short[frameSamples];
+            this.delayNanos = delayNanos;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int length = reader.read(frame);
+                if (length == 0) {
+                    reader.await(5_000_000_000L);
+                    continue;
+                }
+                framesRead++;
+                int sequence = sequenceOf(frame);
+                if (sequence <= lastSequence) {
+                    error = "frame " + sequence + " after " + lastSequence;
+                    return;
+                }
+                for (int i = 2; i < length; i++) {
+                    if (frame[i] != (short) (sequence * 7 + i)) {
+                        error = "frame " + sequence + " torn at sample " + i;
+                        return;
+                    }
+                }
+                lastSequence = sequence;
+                if (length == 1) {
+                    return;
+                }
+                if (delayNanos > 0) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Writes the peak file of an 8-minute 44.1 kHz stereo recording and renders
+ * 1000 columns from it, against the same columns computed from the decoded
+ * PCM, which is what drawing a waveform cost before peak files. Checks that
+ * every level holds the min and max of the samples it covers.
+ */
+public class PeakFileBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int FRAMES = SAMPLE_RATE * 8 * 60;
+    private static final int CHUNK_FRAMES = 1024;
+    private static final int COLUMNS = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void renderEightMinutes() throws Exception {
+        File peakFile = new File(folder.getRoot(), "recording.m4a.peaks");
+        short[] mono = write(peakFile);
+
+        // Only the finished file is left behind
+        assertArrayEquals(new String[] { peakFile.getName() }, folder.getRoot().list());
+
+        PeakFile peaks = PeakFile.open(peakFile);
+        assertEquals(FRAMES, peaks.getTotalFrames());
+        assertEquals(PeakFile.LEVEL_SAMPLES_PER_BIN.length, peaks.getLevelCount());
+        for (int level = 0; level < peaks.getLevelCount(); level++) {
+            int binFrames = peaks.getSamplesPerBin(level);
+            assertEquals((FRAMES + binFrames - 1) / binFrames, peaks.getBinCount(level));
+            for (int bin = 0; bin < peaks.getBinCount(level); bin += 97) {
+                int start = bin * binFrames;
+                int end = Math.min(FRAMES, start + binFrames);
+                assertEquals(min(mono, start, end), peaks.getMin(level, bin));
+                assertEquals(max(mono, start, end), peaks.getMax(level, bin));
+            }
+        }
+
+        float[] min = new float[COLUMNS];
+        float[] max = new float[COLUMNS];
+        float[] rms = new float[COLUMNS];
+        float[] legacyMin = new float[COLUMNS];
+        float[] legacyMax = new float[COLUMNS];
+        peaks.render(COLUMNS, min, max, rms);
+        renderFromPcm(mono, legacyMin, legacyMax);
+        for (int p = 0; p < COLUMNS; p++) {
+            // Columns are widened to whole bins, so they can only reach further
+            assertTrue(min[p] <= legacyMin[p]);
+            assertTrue(max[p] >= legacyMax[p]);
+        }
+
+        Benchmarks.compare("render 1000 columns of 8 min stereo",
+            () -> {
+                renderFromPcm(mono, legacyMin, legacyMax);
+                return Float.floatToIntBits(legacyMax[COLUMNS / 2]);
+            },
+            () -> {
+                peaks.render(COLUMNS, min, max, rms);
+                return Float.floatToIntBits(max[COLUMNS / 2]);
+            });
+    }
+
+    /**
+     * Feed the writer the way the capture pipeline does
+     * @return The mono downmix it should have seen
+     */
+    private static short[] write(File peakFile) {
+        Random random = new Random(11);
+        short[] mono = new short[FRAMES];
+        short[] frame = new short[CHUNK_FRAMES * CHANNELS];
+        PeakFileWriter writer = new PeakFileWriter(peakFile);
+        writer.onCaptureStarted(SAMPLE_RATE, CHANNELS);
+        for (int start = 0; start < FRAMES; start += CHUNK_FRAMES) {
+            int frames = Math.min(CHUNK_FRAMES, FRAMES - start);
+            for (int f = 0; f < frames; f++) {
+                int i = start + f;
+                // A tone whose level drifts over several seconds, plus noise
+                double level = 3000 + 9000 * Math.abs(Math.sin(i * Math.PI / SAMPLE_RATE / 7));
+                int left = (int) (level * Math.sin(i * 2 * Math.PI * 220 / SAMPLE_RATE) + random.nextInt(1001) - 500);
+                int right = (int) (left * 0.5 + random.nextInt(1001) - 500);
+                frame[f * 2] = (short) left;
+                frame[f * 2 + 1] = (short) right;
+                mono[i] = (short) ((frame[f * 2] + frame[f * 2 + 1]) / 2);
+            }
+            writer.onFrame(frame, frames * CHANNELS);
+        }
+        writer.onCaptureStopped();
+        return mono;
+    }
+
+    private static void renderFromPcm(short[] mono, float[] min, float[] max) {
+        for (int p = 0; p < COLUMNS; p++) {
+            int start = (int) ((long) mono.length * p / COLUMNS);
+            int end = (int) ((long) mono.length * (p + 1) / COLUMNS);
+            min[p] = Math.min(0, min(mono, start, end)) / 32768.0f;
+            max[p] = Math.max(0, max(mono, start, end)) / 32767.0f;
+        }
+    }
+
+    private static short min(short[] samples, int start, int end) {
+        short min = Short.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            min = (short) Math.min(min, samples[i]);
+        }
+        return min;
+    }
+
+    private static short max(short[] samples, int start, int end) {
+        short max = Short.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            max = (short) Math.max(max, samples[i]);
+        }
+        return max;
+    }
+}
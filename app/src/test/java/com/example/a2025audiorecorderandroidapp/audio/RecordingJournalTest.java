@@ -0,0 +1,90 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class RecordingJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWhatWasWritten() throws IOException {
+        File file = new File(folder.getRoot(), "a.m4a.journal");
+        RecordingJournal journal = new RecordingJournal(file, 44100, 2, 128_000,
+            RecordingJournal.AAC_SAMPLES_PER_FRAME);
+        assertTrue(RecordingJournal.isOpen(file));
+        journal.writeCodecConfig(new byte[] { 0x12, 0x10 });
+        int[] sizes = new int[130];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = 300 + i;
+            journal.addSample(sizes[i]);
+        }
+        journal.close();
+        assertFalse(RecordingJournal.isOpen(file));
+
+        RecordingJournal.Contents contents = RecordingJournal.read(file);
+
+        assertEquals(44100, contents.sampleRate);
+        assertEquals(2, contents.channelCount);
+        assertEquals(128_000, contents.bitRate);
+        assertEquals(RecordingJournal.AAC_SAMPLES_PER_FRAME, contents.samplesPerFrame);
+        assertArrayEquals(new byte[] { 0x12, 0x10 }, contents.codecConfig);
+        assertArrayEquals(sizes, contents.sampleSizes);
+    }
+
+    @Test
+    public void dropsBatchCutOffByCrash() throws IOException {
+        File file = new File(folder.getRoot(), "b.m4a.journal");
+        RecordingJournal journal = new RecordingJournal(file, 48000, 1, 64_000,
+            RecordingJournal.AAC_SAMPLES_PER_FRAME);
+        for (int i = 0; i < 48 + 10; i++) {
+            journal.addSample(200);
+        }
+        journal.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        RecordingJournal.Contents contents = RecordingJournal.read(file);
+
+        assertNull(contents.codecConfig);
+        assertEquals(48, contents.sampleSizes.length);
+    }
+
+    @Test
+    public void keepsPendingSizesUnwrittenUntilCheckpoint() throws IOException {
+        File file = new File(folder.getRoot(), "c.m4a.journal");
+        RecordingJournal journal = new RecordingJournal(file, 48000, 1, 64_000,
+            RecordingJournal.AAC_SAMPLES_PER_FRAME);
+        for (int i = 0; i < 47; i++) {
+            journal.addSample(200);
+        }
+        // What a killed process leaves behind
+        assertEquals(0, RecordingJournal.read(file).sampleSizes.length);
+        journal.checkpoint();
+        assertEquals(47, RecordingJournal.read(file).sampleSizes.length);
+        journal.delete();
+        assertFalse(file.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("d.m4a.journal");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("RIFF....WAVE".getBytes("US-ASCII"));
+        }
+        RecordingJournal.read(file);
+    }
+}
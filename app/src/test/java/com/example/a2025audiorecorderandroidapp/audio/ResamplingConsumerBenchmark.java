@@ -0,0 +1,117 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Resamples a 1 kHz sine from the capture formats recompression meets to
+ * 16 kHz mono, fed in 10 ms buffers, and prints how many times faster than
+ * real time that runs on one core together with the RMS error against an
+ * ideal 16 kHz sine. The ends, where the filter ramps in and out, are left
+ * out of the error.
+ */
+public class ResamplingConsumerBenchmark {
+    private static final int OUTPUT_RATE = 16000;
+    private static final int SECONDS = 3;
+    private static final double FREQUENCY = 1000;
+    private static final int AMPLITUDE = 10000;
+
+    @Test
+    public void stereo48k() throws Exception {
+        resample(48000, 2);
+    }
+
+    @Test
+    public void stereo44k() throws Exception {
+        resample(44100, 2);
+    }
+
+    @Test
+    public void stereo16k() throws Exception {
+        resample(16000, 2);
+    }
+
+    @Test
+    public void stereo8k() throws Exception {
+        resample(8000, 2);
+    }
+
+    private static void resample(int inputRate, int channelCount) throws Exception {
+        short[] input = new short[inputRate * SECONDS * channelCount];
+        for (int i = 0; i < input.length / channelCount; i++) {
+            short value = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * FREQUENCY * i / inputRate));
+            for (int c = 0; c < channelCount; c++) {
+                input[i * channelCount + c] = value;
+            }
+        }
+        int buffer = inputRate / 100 * channelCount;
+
+        Collector collector = new Collector(OUTPUT_RATE * SECONDS + 16);
+        run(new ResamplingConsumer(collector, OUTPUT_RATE), input, buffer, inputRate, channelCount);
+        assertEquals(OUTPUT_RATE * SECONDS, collector.length, 1);
+
+        double sum = 0;
+        int margin = OUTPUT_RATE / 100;
+        for (int i = margin; i < collector.length - margin; i++) {
+            double expected = AMPLITUDE * Math.sin(2 * Math.PI * FREQUENCY * i / OUTPUT_RATE);
+            double error = collector.samples[i] - expected;
+            sum += error * error;
+        }
+        double rmsError = Math.sqrt(sum / (collector.length - 2 * margin));
+        assertTrue("RMS error " + rmsError, rmsError < AMPLITUDE * 0.002);
+
+        Collector sink = new Collector(0);
+        double nanos = Benchmarks.nanosPerOp(() -> {
+            run(new ResamplingConsumer(sink, OUTPUT_RATE), input, buffer, inputRate, channelCount);
+            return sink.length;
+        });
+        Benchmarks.report(String.format(Locale.ROOT, "resample %d Hz %d ch to 16 kHz mono", inputRate, channelCount),
+            String.format(Locale.ROOT, "%.0fx real time, RMS error %.1f", SECONDS * 1e9 / nanos, rmsError));
+    }
+
+    private static void run(ResamplingConsumer resampler, short[] input, int buffer, int inputRate, int channelCount) {
+        resampler.onCaptureStarted(inputRate, channelCount);
+        short[] frame = new short[buffer];
+        for (int offset = 0; offset < input.length; offset += buffer) {
+            int length = Math.min(buffer, input.length - offset);
+            System.arraycopy(input, offset, frame, 0, length);
+            resampler.onFrame(frame, length);
+        }
+        resampler.onCaptureStopped();
+    }
+
+    /**
+     * Keeps the output if it has room for it, counts it either way
+     */
+    private static class Collector implements PcmConsumer {
+        final short[] samples;
+        int length;
+
+        Collector(int capacity) {
+            samples = new short[capacity];
+        }
+
+        @Override
+        public void onCaptureStarted(int sampleRate, int channelCount) {
+            length = 0;
+        }
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            if (this.length + length <= samples.length) {
+                System.arraycopy(frame, 0, samples, this.length, length);
+            }
+            this.length += length;
+        }
+
+        @Override
+        public void onCaptureStopped() {
+        }
+    }
+}
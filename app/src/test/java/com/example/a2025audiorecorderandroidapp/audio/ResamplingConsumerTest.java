@@ -0,0 +1,153 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ResamplingConsumerTest {
+    @Test
+    public void deliversMonoAtOutputRate() {
+        Collector collector = new Collector();
+        resample(collector, 48000, 2, 16000, tone(48000, 2, 1000, 10000, 48000), 1024);
+
+        assertEquals(16000, collector.sampleRate);
+        assertEquals(1, collector.channelCount);
+        assertEquals(1, collector.stopCount);
+        assertTrue(collector.largestFrame <= 2048);
+        assertEquals(16000, collector.length, 2);
+    }
+
+    @Test
+    public void keepsLevelOfDcAndPassband() {
+        short[] dc = new short[44100];
+        Arrays.fill(dc, (short) 5000);
+        Collector collector = new Collector();
+        resample(collector, 44100, 1, 16000, dc, 4410);
+        // Away from the ends the filter has unity gain
+        for (int i = 100; i < collector.length - 100; i++) {
+            assertEquals(5000, collector.samples[i], 2);
+        }
+
+        collector = new Collector();
+        resample(collector, 48000, 1, 16000, tone(48000, 1, 1000, 10000, 48000), 960);
+        assertEquals(10000 / Math.sqrt(2), rms(collector), 10000 * 0.02);
+    }
+
+    @Test
+    public void removesToneAboveOutputNyquist() {
+        // 12 kHz folds to 4 kHz at 16 kHz unless it is filtered first
+        Collector collector = new Collector();
+        resample(collector, 48000, 1, 16000, tone(48000, 1, 12000, 10000, 48000), 960);
+
+        assertTrue(rms(collector) < 10000 * 0.01);
+    }
+
+    @Test
+    public void upsamples() {
+        Collector collector = new Collector();
+        resample(collector, 8000, 1, 44100, tone(8000, 1, 500, 8000, 8000), 160);
+
+        assertEquals(44100, collector.length, 2);
+        assertEquals(8000 / Math.sqrt(2), rms(collector), 8000 * 0.02);
+    }
+
+    @Test
+    public void downmixesStereo() {
+        short[] opposite = tone(44100, 2, 440, 10000, 4410);
+        for (int i = 1; i < opposite.length; i += 2) {
+            opposite[i] = (short) -opposite[i - 1];
+        }
+        Collector collector = new Collector();
+        resample(collector, 44100, 2, 22050, opposite, 441 * 2);
+
+        assertEquals(0, rms(collector), 1);
+    }
+
+    @Test
+    public void outputDoesNotDependOnInputChunks() {
+        short[] input = tone(44100, 2, 3000, 12000, 44100);
+        Collector whole = new Collector();
+        resample(whole, 44100, 2, 16000, input, input.length);
+        Collector chunked = new Collector();
+        resample(chunked, 44100, 2, 16000, input, 2 * 37);
+
+        assertArrayEquals(Arrays.copyOf(whole.samples, whole.length),
+            Arrays.copyOf(chunked.samples, chunked.length));
+    }
+
+    private static void resample(Collector collector, int inputRate, int channelCount, int outputRate,
+                                 short[] input, int chunkSamples) {
+        ResamplingConsumer resampler = new ResamplingConsumer(collector, outputRate);
+        resampler.onCaptureStarted(inputRate, channelCount);
+        short[] frame = new short[chunkSamples];
+        for (int offset = 0; offset < input.length; offset += chunkSamples) {
+            int length = Math.min(chunkSamples, input.length - offset);
+            System.arraycopy(input, offset, frame, 0, length);
+            resampler.onFrame(frame, length);
+            // The buffer is reused after onFrame returns
+            Arrays.fill(frame, (short) 0x5555);
+        }
+        resampler.onCaptureStopped();
+    }
+
+    /**
+     * Interleaved sine with the same value on every channel
+     */
+    private static short[] tone(int sampleRate, int channelCount, double frequency, int amplitude, int frames) {
+        short[] samples = new short[frames * channelCount];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+            for (int c = 0; c < channelCount; c++) {
+                samples[i * channelCount + c] = value;
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * RMS level, leaving out the filter's ramp at both ends
+     */
+    private static double rms(Collector collector) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 200; i < collector.length - 200; i++) {
+            sum += (double) collector.samples[i] * collector.samples[i];
+            count++;
+        }
+        return Math.sqrt(sum / count);
+    }
+
+    private static class Collector implements PcmConsumer {
+        int sampleRate;
+        int channelCount;
+        int stopCount;
+        int largestFrame;
+        short[] samples = new short[4096];
+        int length;
+
+        @Override
+        public void onCaptureStarted(int sampleRate, int channelCount) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            if (this.length + length > samples.length) {
+                samples = Arrays.copyOf(samples, Math.max(samples.length * 2, this.length + length));
+            }
+            System.arraycopy(frame, 0, samples, this.length, length);
+            this.length += length;
+            largestFrame = Math.max(largestFrame, length);
+        }
+
+        @Override
+        public void onCaptureStopped() {
+            stopCount++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.FakeMainThread;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seek requests as a dragged seek bar sends them, against a player whose
+ * seeks take a while, with the main thread on a clock of the test's own.
+ */
+public class SeekSchedulerTest {
+
+    @Test
+    public void burstCollapsesToLatestPosition() {
+        FakeMainThread mainThread = new FakeMainThread();
+        List<Integer> seeks = new ArrayList<>();
+        SeekScheduler scheduler = new SeekScheduler(seeks::add, mainThread);
+
+        scheduler.request(100);
+        for (int position = 101; position <= 150; position++) {
+            scheduler.request(position);
+        }
+        // Only the first went to the player, the rest wait for it
+        assertEquals(List.of(100), seeks);
+        assertEquals(150, scheduler.getPendingPositionMs());
+
+        scheduler.onSeekCompleted();
+        assertEquals(List.of(100, 150), seeks);
+        assertEquals(-1, scheduler.getPendingPositionMs());
+        assertEquals(2, scheduler.getIssuedCount());
+        assertEquals(49, scheduler.getDroppedCount());
+
+        // Idle again, so the next request goes straight through
+        scheduler.onSeekCompleted();
+        scheduler.request(10);
+        assertEquals(List.of(100, 150, 10), seeks);
+    }
+
+    @Test
+    public void dragEndsOnLastPosition() {
+        FakeMainThread mainThread = new FakeMainThread();
+        List<Integer> seeks = new ArrayList<>();
+        SeekScheduler[] scheduler = new SeekScheduler[1];
+        // Every seek takes 40 ms to complete
+        scheduler[0] = new SeekScheduler(positionMs -> {
+            seeks.add(positionMs);
+            mainThread.postDelayed(scheduler[0]::onSeekCompleted, 40);
+        }, mainThread);
+
+        // A second of touch events, one a frame
+        int requests = 0;
+        int position = 0;
+        for (int frame = 0; frame < 60; frame++) {
+            position = 1000 + frame * 137;
+            scheduler[0].request(position);
+            requests++;
+            mainThread.advance(16);
+        }
+        mainThread.advance(SeekScheduler.MAX_SEEK_WAIT_MS);
+
+        assertEquals(position, (int) seeks.get(seeks.size() - 1));
+        for (int i = 1; i < seeks.size(); i++) {
+            assertTrue(seeks.get(i) > seeks.get(i - 1));
+        }
+        // About one seek per completion, not one per touch event
+        assertTrue(seeks.size() <= 1000 / 40 + 2);
+        assertEquals(requests, scheduler[0].getIssuedCount() + scheduler[0].getDroppedCount());
+        assertEquals(0, mainThread.getPendingCount());
+    }
+
+    @Test
+    public void issuesPendingSeekIfCompletionIsNeverReported() {
+        FakeMainThread mainThread = new FakeMainThread();
+        List<Integer> seeks = new ArrayList<>();
+        SeekScheduler scheduler = new SeekScheduler(seeks::add, mainThread);
+
+        scheduler.request(100);
+        scheduler.request(200);
+        mainThread.advance(SeekScheduler.MAX_SEEK_WAIT_MS - 1);
+        assertEquals(List.of(100), seeks);
+        mainThread.advance(1);
+        assertEquals(List.of(100, 200), seeks);
+    }
+
+    @Test
+    public void cancelDropsPendingSeek() {
+        FakeMainThread mainThread = new FakeMainThread();
+        List<Integer> seeks = new ArrayList<>();
+        SeekScheduler scheduler = new SeekScheduler(seeks::add, mainThread);
+
+        scheduler.request(100);
+        scheduler.request(200);
+        scheduler.cancel();
+        assertEquals(-1, scheduler.getPendingPositionMs());
+        mainThread.advance(SeekScheduler.MAX_SEEK_WAIT_MS);
+        assertEquals(List.of(100), seeks);
+        assertEquals(0, mainThread.getPendingCount());
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.utils.FileUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment rollover against pipelines that keep the PCM they get, fed 10 ms
+ * buffers at 1 kHz mono so a segment of a second is 100 buffers.
+ */
+public class SegmentedEncoderPipelineTest {
+    private static final int SAMPLE_RATE = 1000;
+    private static final int BUFFER = SAMPLE_RATE / 100;
+    private static final long SEGMENT_MS = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 10_000)
+    public void rollsOverAndWritesPlaylist() throws IOException {
+        File recording = new File(folder.getRoot(), "a.m4a");
+        FakeSegments segments = new FakeSegments();
+        SegmentedEncoderPipeline pipeline = new SegmentedEncoderPipeline(recording, segments, SEGMENT_MS,
+            Long.MAX_VALUE);
+        short[] pcm = signal(350);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, 1);
+        assertTrue(SegmentedEncoderPipeline.isActive(recording));
+        feedInRealTime(pipeline, pcm, 0, 350);
+        pipeline.onCaptureStopped();
+        pipeline.finish();
+        assertFalse(SegmentedEncoderPipeline.isActive(recording));
+
+        // Nothing dropped or repeated at the boundaries
+        assertArrayEquals(pcm, segments.samples());
+        List<FakeSegment> kept = segments.kept();
+        assertTrue(kept.size() >= 2);
+
+        SegmentPlaylist playlist = SegmentPlaylist.load(recording);
+        assertEquals(kept.size(), playlist.getSegmentCount());
+        assertEquals(350 * BUFFER, playlist.getTotalDurationMs());
+        for (int i = 0; i < kept.size(); i++) {
+            FakeSegment segment = kept.get(i);
+            assertEquals(FileUtils.getSegmentFile(recording, i), segment.outputFile);
+            assertTrue(segment.finished);
+            assertEquals(segment.length, playlist.getDurationMs(i));
+            if (i < kept.size() - 1) {
+                // Rolled over at the boundary, or shortly after if the next one was late
+                assertTrue(segment.length >= SEGMENT_MS);
+                assertTrue(segment.length <= 2 * SEGMENT_MS + BUFFER);
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void keepsWritingWhileNextSegmentIsNotReady() throws Exception {
+        File recording = new File(folder.getRoot(), "b.m4a");
+        FakeSegments segments = new FakeSegments();
+        segments.gate = new CountDownLatch(1);
+        SegmentedEncoderPipeline pipeline = new SegmentedEncoderPipeline(recording, segments, SEGMENT_MS,
+            Long.MAX_VALUE);
+        short[] pcm = signal(600);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, 1);
+        // Well past the boundary, the capture thread must not wait for the stuck segment
+        feed(pipeline, pcm, 0, 300);
+        assertEquals(1, segments.created.size());
+        assertEquals(300 * BUFFER, segments.created.get(0).length);
+
+        segments.gate.countDown();
+        feedInRealTime(pipeline, pcm, 300, 300);
+        pipeline.onCaptureStopped();
+        pipeline.finish();
+
+        assertArrayEquals(pcm, segments.samples());
+        assertTrue(segments.kept().size() >= 2);
+        assertTrue(segments.created.get(0).length >= 300 * BUFFER);
+        assertEquals(600 * BUFFER, SegmentPlaylist.load(recording).getTotalDurationMs());
+    }
+
+    @Test
+    public void shortRecordingStaysSingleFile() throws IOException {
+        File recording = new File(folder.getRoot(), "c.m4a");
+        FakeSegments segments = new FakeSegments();
+        SegmentedEncoderPipeline pipeline = new SegmentedEncoderPipeline(recording, segments, 60_000,
+            Long.MAX_VALUE);
+        short[] pcm = signal(50);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, 1);
+        feed(pipeline, pcm, 0, 50);
+        pipeline.onCaptureStopped();
+        pipeline.finish();
+
+        assertEquals(1, segments.created.size());
+        assertArrayEquals(pcm, segments.samples());
+        assertNull(SegmentPlaylist.load(recording));
+        assertFalse(FileUtils.getSegmentFile(recording, 1).exists());
+    }
+
+    @Test
+    public void failedSegmentKeepsItsSlot() throws IOException {
+        File recording = new File(folder.getRoot(), "d.m4a");
+        FakeSegments segments = new FakeSegments();
+        segments.failFirst = true;
+        SegmentedEncoderPipeline pipeline = new SegmentedEncoderPipeline(recording, segments, SEGMENT_MS,
+            Long.MAX_VALUE);
+
+        pipeline.onCaptureStarted(SAMPLE_RATE, 1);
+        feedInRealTime(pipeline, signal(250), 0, 250);
+        pipeline.onCaptureStopped();
+        pipeline.finish();
+
+        SegmentPlaylist playlist = SegmentPlaylist.load(recording);
+        assertEquals(segments.kept().size(), playlist.getSegmentCount());
+        assertEquals(0, playlist.getDurationMs(0));
+        assertEquals(250 * BUFFER - segments.created.get(0).length, playlist.getTotalDurationMs());
+    }
+
+    private static short[] signal(int buffers) {
+        short[] pcm = new short[buffers * BUFFER];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 31);
+        }
+        return pcm;
+    }
+
+    private static void feed(PcmConsumer consumer, short[] pcm, int first, int buffers) {
+        short[] frame = new short[BUFFER];
+        for (int i = first; i < first + buffers; i++) {
+            System.arraycopy(pcm, i * BUFFER, frame, 0, BUFFER);
+            consumer.onFrame(frame, BUFFER);
+        }
+    }
+
+    /**
+     * Pause between buffers so the helper thread gets to prepare the next
+     * segment, as it would while capture waits on the microphone
+     */
+    private static void feedInRealTime(PcmConsumer consumer, short[] pcm, int first, int buffers) {
+        for (int i = first; i < first + buffers; i++) {
+            feed(consumer, pcm, i, 1);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static class FakeSegments implements SegmentedEncoderPipeline.SegmentFactory {
+        final List<FakeSegment> created = new ArrayList<>();
+        CountDownLatch gate;
+        boolean failFirst;
+
+        @Override
+        public EncoderPipeline create(File outputFile) {
+            if (!created.isEmpty() && gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            FakeSegment segment = new FakeSegment(outputFile, failFirst && created.isEmpty());
+            synchronized (created) {
+                created.add(segment);
+            }
+            return segment;
+        }
+
+        /**
+         * @return The segments that were used, not the one prepared when capture stopped
+         */
+        List<FakeSegment> kept() {
+            List<FakeSegment> kept = new ArrayList<>();
+            for (FakeSegment segment : created) {
+                if (!segment.discarded) {
+                    kept.add(segment);
+                }
+            }
+            return kept;
+        }
+
+        short[] samples() {
+            short[] all = new short[0];
+            for (FakeSegment segment : created) {
+                int start = all.length;
+                all = Arrays.copyOf(all, start + segment.length);
+                System.arraycopy(segment.buffer, 0, all, start, segment.length);
+            }
+            return all;
+        }
+    }
+
+    private static class FakeSegment implements EncoderPipeline {
+        final File outputFile;
+        final boolean fail;
+        final EncodeStats stats = new EncodeStats();
+        short[] buffer = new short[1024];
+        int length;
+        volatile boolean finished;
+        volatile boolean discarded;
+
+        FakeSegment(File outputFile, boolean fail) {
+            this.outputFile = outputFile;
+            this.fail = fail;
+        }
+
+        @Override
+        public void onCaptureStarted(int sampleRate, int channelCount) {
+            try {
+                outputFile.createNewFile();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            if (this.length + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, this.length + length));
+            }
+            System.arraycopy(frame, 0, buffer, this.length, length);
+            this.length += length;
+        }
+
+        @Override
+        public void onCaptureStopped() {
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (fail) {
+                throw new IOException("segment failed");
+            }
+            finished = true;
+        }
+
+        @Override
+        public void discard() {
+            discarded = true;
+            outputFile.delete();
+        }
+
+        @Override
+        public File getOutputFile() {
+            return outputFile;
+        }
+
+        @Override
+        public EncodeStats getCaptureStats() {
+            return stats;
+        }
+
+        @Override
+        public EncodeStats getEncodeStats() {
+            return stats;
+        }
+    }
+}
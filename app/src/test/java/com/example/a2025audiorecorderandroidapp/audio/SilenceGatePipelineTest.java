@@ -0,0 +1,196 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The gate fed 10 ms buffers of 1 kHz mono, each filled with its index so the
+ * buffers reaching the downstream pipeline can be told apart. Even indexes
+ * are loud, silent buffers are all zero.
+ */
+public class SilenceGatePipelineTest {
+    private static final int SAMPLE_RATE = 1000;
+    private static final int BUFFER = SAMPLE_RATE * PcmCaptureEngine.FRAME_DURATION_MS / 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void elidesSilenceAfterHangoverAndReplaysPreRoll() throws IOException {
+        File sidecar = folder.newFile("a.m4a.silence");
+        Collector downstream = new Collector();
+        SilenceGatePipeline gate = new SilenceGatePipeline(downstream, sidecar, SilenceGatePipeline.Sensitivity.NORMAL);
+        int hangover = SilenceGatePipeline.DEFAULT_HANGOVER_MS / PcmCaptureEngine.FRAME_DURATION_MS;
+        int preRoll = SilenceGatePipeline.DEFAULT_PRE_ROLL_MS / PcmCaptureEngine.FRAME_DURATION_MS;
+
+        gate.onCaptureStarted(SAMPLE_RATE, 1);
+        // 10 loud, 100 silent, 10 loud
+        for (int i = 0; i < 120; i++) {
+            gate.onFrame(frame(i, i < 10 || i >= 110), BUFFER);
+        }
+        gate.onCaptureStopped();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10 + hangover; i++) {
+            expected.add(i);
+        }
+        for (int i = 110 - preRoll; i < 120; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, downstream.frames);
+
+        // Hangover kept, then everything up to the replayed pre-roll left out
+        SilenceMap map = SilenceMap.load(sidecar);
+        assertEquals(1, map.getRangeCount());
+        assertEquals((10 + hangover) * PcmCaptureEngine.FRAME_DURATION_MS, map.getStartMs(0));
+        assertEquals((110 - preRoll) * PcmCaptureEngine.FRAME_DURATION_MS, map.getEndMs(0));
+        assertEquals(map.getElidedDurationMs(), gate.getElidedDurationMs());
+    }
+
+    @Test
+    public void elidesTrailingSilenceEntirely() throws IOException {
+        File sidecar = new File(folder.getRoot(), "b.m4a.silence");
+        Collector downstream = new Collector();
+        SilenceGatePipeline gate = new SilenceGatePipeline(downstream, sidecar, SilenceGatePipeline.Sensitivity.HIGH);
+
+        gate.onCaptureStarted(SAMPLE_RATE, 1);
+        for (int i = 0; i < 100; i++) {
+            gate.onFrame(frame(i, i < 10), BUFFER);
+        }
+        gate.onCaptureStopped();
+
+        // High sensitivity keeps 200 ms after speech
+        assertEquals(30, downstream.frames.size());
+        SilenceMap map = SilenceMap.load(sidecar);
+        assertEquals(1, map.getRangeCount());
+        assertEquals(300, map.getStartMs(0));
+        assertEquals(1000, map.getEndMs(0));
+    }
+
+    @Test
+    public void shortPausesPassThrough() throws IOException {
+        File sidecar = new File(folder.getRoot(), "c.m4a.silence");
+        Collector downstream = new Collector();
+        SilenceGatePipeline gate = new SilenceGatePipeline(downstream, sidecar);
+
+        gate.onCaptureStarted(SAMPLE_RATE, 1);
+        // Pauses shorter than the hangover never close the gate
+        for (int i = 0; i < 200; i++) {
+            gate.onFrame(frame(i, i % 20 < 5), BUFFER);
+        }
+        gate.onCaptureStopped();
+
+        assertEquals(200, downstream.frames.size());
+        assertEquals(0, gate.getElidedDurationMs());
+        // Nothing elided, no sidecar
+        assertFalse(sidecar.exists());
+    }
+
+    @Test
+    public void quieterSoundCountsAsSilenceOnlyWhenSensitive() {
+        short[] quiet = new short[BUFFER];
+        // Between the Normal and High thresholds
+        for (int i = 0; i < quiet.length; i++) {
+            quiet[i] = (short) (i % 2 == 0 ? 500 : -500);
+        }
+        for (SilenceGatePipeline.Sensitivity sensitivity : SilenceGatePipeline.Sensitivity.values()) {
+            Collector downstream = new Collector();
+            SilenceGatePipeline gate = new SilenceGatePipeline(downstream,
+                new File(folder.getRoot(), sensitivity + ".silence"), sensitivity);
+            gate.onCaptureStarted(SAMPLE_RATE, 1);
+            for (int i = 0; i < 100; i++) {
+                gate.onFrame(quiet, BUFFER);
+            }
+            gate.onCaptureStopped();
+            assertEquals(sensitivity.toString(), sensitivity != SilenceGatePipeline.Sensitivity.HIGH,
+                downstream.frames.size() == 100);
+        }
+    }
+
+    @Test
+    public void preRollKeepsSamples() {
+        Collector downstream = new Collector();
+        SilenceGatePipeline gate = new SilenceGatePipeline(downstream,
+            new File(folder.getRoot(), "d.m4a.silence"), SilenceGatePipeline.Sensitivity.NORMAL);
+        gate.onCaptureStarted(SAMPLE_RATE, 1);
+        for (int i = 0; i < 100; i++) {
+            gate.onFrame(frame(i, false), BUFFER);
+        }
+        short[] loud = frame(100, true);
+        gate.onFrame(loud, BUFFER);
+        gate.onCaptureStopped();
+
+        // After the hangover, the replayed buffers are copies, not the capture engine's reused buffer
+        int hangover = SilenceGatePipeline.DEFAULT_HANGOVER_MS / PcmCaptureEngine.FRAME_DURATION_MS;
+        assertEquals(Integer.valueOf(hangover - 1), downstream.frames.get(hangover - 1));
+        assertEquals(Integer.valueOf(80), downstream.frames.get(hangover));
+        assertArrayEquals(loud, downstream.last);
+    }
+
+    /**
+     * A buffer tagged with its index in the first sample, loud or silent
+     */
+    private static short[] frame(int index, boolean loud) {
+        short[] frame = new short[BUFFER];
+        frame[0] = (short) index;
+        if (loud) {
+            for (int i = 1; i < frame.length; i++) {
+                frame[i] = (short) (i % 2 == 0 ? 10000 : -10000);
+            }
+        }
+        return frame;
+    }
+
+    private static class Collector implements EncoderPipeline {
+        final List<Integer> frames = new ArrayList<>();
+        final EncodeStats stats = new EncodeStats();
+        short[] last;
+
+        @Override
+        public void onCaptureStarted(int sampleRate, int channelCount) {
+        }
+
+        @Override
+        public void onFrame(short[] frame, int length) {
+            frames.add((int) frame[0]);
+            last = frame.clone();
+        }
+
+        @Override
+        public void onCaptureStopped() {
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void discard() {
+        }
+
+        @Override
+        public File getOutputFile() {
+            return null;
+        }
+
+        @Override
+        public EncodeStats getCaptureStats() {
+            return stats;
+        }
+
+        @Override
+        public EncodeStats getEncodeStats() {
+            return stats;
+        }
+    }
+}
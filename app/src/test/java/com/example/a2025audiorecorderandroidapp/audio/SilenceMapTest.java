@@ -0,0 +1,58 @@
+package com.example.a2025audiorecorderandroidapp.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class SilenceMapTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sidecarRoundTrip() throws IOException {
+        SilenceMap map = new SilenceMap();
+        // More ranges than the initial capacity
+        for (int i = 0; i < 40; i++) {
+            map.add(i * 10_000L, i * 10_000L + 1500 + i);
+        }
+        map.add(500_000, 500_000); // empty, ignored
+        File file = new File(folder.getRoot(), "a.m4a.silence");
+        map.save(file);
+
+        SilenceMap loaded = SilenceMap.load(file);
+        assertEquals(40, loaded.getRangeCount());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(map.getStartMs(i), loaded.getStartMs(i));
+            assertEquals(map.getEndMs(i), loaded.getEndMs(i));
+        }
+        assertEquals(map.getElidedDurationMs(), loaded.getElidedDurationMs());
+        assertEquals(40 * 1500 + 39 * 40 / 2, loaded.getElidedDurationMs());
+    }
+
+    @Test
+    public void missingSidecarIsEmpty() throws IOException {
+        SilenceMap map = SilenceMap.load(new File(folder.getRoot(), "none.silence"));
+        assertEquals(0, map.getRangeCount());
+        assertEquals(0, map.getElidedDurationMs());
+    }
+
+    @Test
+    public void rejectsMalformedSidecar() throws IOException {
+        File file = new File(folder.getRoot(), "b.m4a.silence");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("100 200\n300 x\n");
+        }
+        try {
+            SilenceMap.load(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.FileObserver;
+
+import com.example.a2025audiorecorderandroidapp.FakeMainThread;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Inotify events for a real directory, fed to the watcher as the observer
+ * would, with the main thread on a clock of the test's own.
+ */
+public class LibraryWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private RecordingIndex recordingIndex;
+    private ExecutorService executor;
+    private FakeMainThread mainThread;
+    private FakeListener listener;
+    private LibraryWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("Recordings");
+        recordingIndex = new RecordingIndex(new File(folder.getRoot(), "index"));
+        executor = Executors.newSingleThreadExecutor();
+        mainThread = new FakeMainThread();
+        listener = new FakeListener();
+        watcher = new LibraryWatcher(directory, recordingIndex, listener, executor, mainThread);
+    }
+
+    @After
+    public void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    public void burstOfWritesIsOneChange() throws Exception {
+        File file = createFile("a.m4a", 100);
+        recordingIndex.put(file, 5000, 48000, 1);
+
+        // A file written in several goes, and its sidecars, which aren't recordings
+        for (int i = 0; i < 5; i++) {
+            watcher.onFileEvent(FileObserver.CLOSE_WRITE, "a.m4a");
+            watcher.onFileEvent(FileObserver.CLOSE_WRITE, "a.m4a.peaks");
+        }
+        mainThread.advance(LibraryWatcher.COALESCE_MS - 1);
+        settle();
+        assertEquals(0, listener.changes.size());
+
+        mainThread.advance(1);
+        settle();
+        assertEquals(1, listener.changes.size());
+        assertEquals(0, listener.removed().size());
+        List<Recording> updated = listener.updated();
+        assertEquals(1, updated.size());
+        assertEquals(file.getAbsolutePath(), updated.get(0).getFilePath());
+        assertEquals(5000, updated.get(0).getDuration());
+        assertEquals(0, mainThread.getPendingCount());
+    }
+
+    @Test
+    public void createdAndDeletedFiles() throws Exception {
+        File kept = createFile("kept.m4a", 10);
+        File deleted = createFile("deleted.m4a", 20);
+        recordingIndex.put(deleted, 1000, 48000, 1);
+        File shortLived = createFile("short.m4a", 30);
+
+        watcher.onFileEvent(FileObserver.CLOSE_WRITE, "kept.m4a");
+        assertTrue(deleted.delete());
+        watcher.onFileEvent(FileObserver.DELETE, "deleted.m4a");
+        // Created and deleted within one window resolves once, as gone
+        watcher.onFileEvent(FileObserver.CLOSE_WRITE, "short.m4a");
+        assertTrue(shortLived.delete());
+        watcher.onFileEvent(FileObserver.DELETE, "short.m4a");
+        mainThread.advance(LibraryWatcher.COALESCE_MS);
+        settle();
+
+        assertEquals(1, listener.changes.size());
+        List<String> removed = listener.removed();
+        assertEquals(2, removed.size());
+        assertTrue(removed.contains(deleted.getAbsolutePath()));
+        assertTrue(removed.contains(shortLived.getAbsolutePath()));
+        assertEquals(1, listener.updated().size());
+        assertEquals(kept.getAbsolutePath(), listener.updated().get(0).getFilePath());
+        assertNull(recordingIndex.remove("deleted.m4a"));
+    }
+
+    @Test
+    public void renameKeepsIndexEntry() throws Exception {
+        File before = createFile("before.m4a", 100);
+        recordingIndex.put(before, 12_345, 44100, 2);
+        File after = new File(directory, "after.m4a");
+        assertTrue(before.renameTo(after));
+
+        watcher.onFileEvent(FileObserver.MOVED_FROM, "before.m4a");
+        watcher.onFileEvent(FileObserver.MOVED_TO, "after.m4a");
+        mainThread.advance(LibraryWatcher.COALESCE_MS);
+        settle();
+
+        assertEquals(1, listener.changes.size());
+        assertEquals(List.of(before.getAbsolutePath()), listener.removed());
+        Recording recording = listener.updated().get(0);
+        assertEquals(after.getAbsolutePath(), recording.getFilePath());
+        // Taken over from the old name, the file itself can't be probed
+        assertEquals(12_345, recording.getDuration());
+        assertEquals(44100, recording.getSampleRate());
+        assertEquals(12_345, recordingIndex.get(after).duration);
+    }
+
+    @Test
+    public void pausedChangesWaitForResume() throws Exception {
+        createFile("a.m4a", 10);
+        watcher.pause();
+        watcher.onFileEvent(FileObserver.CLOSE_WRITE, "a.m4a");
+        mainThread.advance(LibraryWatcher.COALESCE_MS);
+        settle();
+        assertEquals(0, listener.changes.size());
+
+        watcher.resume();
+        mainThread.advance(LibraryWatcher.COALESCE_MS);
+        settle();
+        assertEquals(1, listener.changes.size());
+        assertEquals(1, listener.updated().size());
+    }
+
+    @Test
+    public void lostEventsAskForReconcile() throws Exception {
+        createFile("a.m4a", 10);
+        watcher.onFileEvent(FileObserver.CLOSE_WRITE, "a.m4a");
+        watcher.onFileEvent(LibraryWatcher.IN_Q_OVERFLOW, null);
+        mainThread.advance(LibraryWatcher.COALESCE_MS);
+        settle();
+
+        // The reconcile covers the pending file as well
+        assertEquals(1, listener.overflows);
+        assertEquals(0, listener.changes.size());
+    }
+
+    /**
+     * Wait for the resolve running in the background, then deliver its result
+     */
+    private void settle() throws Exception {
+        executor.submit(() -> { }).get();
+        mainThread.runDue();
+    }
+
+    private File createFile(String name, int length) throws IOException {
+        File file = new File(directory, name);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+        return file;
+    }
+
+    private static class FakeListener implements LibraryWatcher.Listener {
+        final List<List<String>> changes = new ArrayList<>();
+        final List<List<Recording>> updates = new ArrayList<>();
+        int overflows;
+
+        @Override
+        public void onChanges(List<String> removedPaths, List<Recording> updated) {
+            changes.add(removedPaths);
+            updates.add(updated);
+        }
+
+        @Override
+        public void onOverflow() {
+            overflows++;
+        }
+
+        List<String> removed() {
+            return changes.get(changes.size() - 1);
+        }
+
+        List<Recording> updated() {
+            return updates.get(updates.size() - 1);
+        }
+    }
+}
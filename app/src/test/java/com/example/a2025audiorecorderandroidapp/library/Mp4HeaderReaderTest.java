@@ -0,0 +1,214 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class Mp4HeaderReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Mp4HeaderReader reader = new Mp4HeaderReader();
+
+    @Test
+    public void readsMoovAtEnd() throws IOException {
+        File file = write(ftyp(), box("mdat", new byte[16000]),
+            moov(mvhd(0, 1000, 10_000), audioTrak(0, 44100, 441_000, 2, 128_000, false)));
+
+        Mp4HeaderReader.Info info = reader.read(file);
+
+        assertNotNull(info);
+        assertEquals(10_000, info.duration);
+        assertEquals(44100, info.timescale);
+        assertEquals(44100, info.sampleRate);
+        assertEquals(2, info.channelCount);
+        assertEquals(128_000, info.bitRate);
+    }
+
+    @Test
+    public void readsMoovBeforeMdat() throws IOException {
+        File file = write(ftyp(),
+            moov(mvhd(0, 1000, 2_500), audioTrak(0, 16000, 40_000, 1, 32_000, false)),
+            box("mdat", new byte[10_000]));
+
+        Mp4HeaderReader.Info info = reader.read(file);
+
+        assertNotNull(info);
+        assertEquals(2_500, info.duration);
+        assertEquals(16000, info.sampleRate);
+        assertEquals(1, info.channelCount);
+        assertEquals(32_000, info.bitRate);
+    }
+
+    @Test
+    public void usesTheAudioTrackOverAnEarlierOne() throws IOException {
+        File file = write(ftyp(), moov(mvhd(0, 600, 6_000),
+            box("trak", box("mdia", mdhd(0, 90_000, 900_000), hdlr("vide"))),
+            audioTrak(0, 48000, 480_000, 2, 96_000, false)));
+
+        Mp4HeaderReader.Info info = reader.read(file);
+
+        assertNotNull(info);
+        assertEquals(10_000, info.duration);
+        assertEquals(48000, info.timescale);
+        assertEquals(48000, info.sampleRate);
+    }
+
+    @Test
+    public void readsLargesizeMdatAndCo64() throws IOException {
+        // 30 hours at 48 kHz overflow the 32-bit durations of version 0 headers
+        long mediaDuration = 48000L * 3600 * 30;
+        long payload = (1L << 32) + 4096;
+        byte[] moov = moov(mvhd(1, 1000, 30L * 3600 * 1000),
+            audioTrak(1, 48000, mediaDuration, 2, 0, true));
+
+        File file = folder.newFile("large.m4a");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(ftyp());
+            long mdatStart = raf.getFilePointer();
+            raf.writeInt(1);
+            raf.write(type("mdat"));
+            raf.writeLong(16 + payload);
+            // Sparse, only the headers take space on disk
+            raf.seek(mdatStart + 16 + payload);
+            raf.write(moov);
+        }
+
+        Mp4HeaderReader.Info info = reader.read(file);
+
+        assertNotNull(info);
+        assertEquals(30L * 3600 * 1000, info.duration);
+        assertEquals(48000, info.timescale);
+        assertEquals(2, info.channelCount);
+        // No bitrate in esds, so it comes from the mdat size
+        assertEquals((int) (payload * 8 * 1000 / info.duration), info.bitRate);
+    }
+
+    @Test
+    public void returnsNullForTruncatedMoov() throws IOException {
+        byte[] complete = concat(ftyp(), box("mdat", new byte[4000]),
+            moov(mvhd(0, 1000, 10_000), audioTrak(0, 44100, 441_000, 2, 128_000, false)));
+        File file = write(Arrays.copyOf(complete, complete.length - 40));
+
+        assertNull(reader.read(file));
+    }
+
+    @Test
+    public void returnsNullWithoutMoov() throws IOException {
+        // A muxer that never stopped leaves ftyp and a growing mdat
+        File file = write(ftyp(), box("mdat", new byte[4000]));
+
+        assertNull(reader.read(file));
+    }
+
+    @Test
+    public void returnsNullForNonMp4() throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + 100);
+        wav.put(type("RIFF")).putInt(36 + 100).put(type("WAVE")).put(type("fmt "));
+        File file = write(wav.array());
+
+        assertNull(reader.read(file));
+        assertNull(reader.read(write(new byte[4])));
+        assertNull(reader.read(write(new byte[0])));
+    }
+
+    private File write(byte[]... parts) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+        return file;
+    }
+
+    private static byte[] ftyp() {
+        return box("ftyp", concat(type("M4A "), new byte[4], type("isom"), type("M4A ")));
+    }
+
+    private static byte[] moov(byte[]... children) {
+        return box("moov", children);
+    }
+
+    private static byte[] mvhd(int version, long timescale, long duration) {
+        return fullBox("mvhd", version, concat(times(version, timescale, duration), new byte[80]));
+    }
+
+    private static byte[] mdhd(int version, long timescale, long duration) {
+        return fullBox("mdhd", version, concat(times(version, timescale, duration), new byte[4]));
+    }
+
+    private static byte[] times(int version, long timescale, long duration) {
+        ByteBuffer body = ByteBuffer.allocate(version == 1 ? 28 : 16);
+        if (version == 1) {
+            body.putLong(0).putLong(0).putInt((int) timescale).putLong(duration);
+        } else {
+            body.putInt(0).putInt(0).putInt((int) timescale).putInt((int) duration);
+        }
+        return body.array();
+    }
+
+    private static byte[] hdlr(String handler) {
+        return fullBox("hdlr", 0, concat(new byte[4], type(handler), new byte[12],
+            "Handler\0".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static byte[] audioTrak(int version, int sampleRate, long duration, int channelCount,
+                                    int bitRate, boolean co64) {
+        ByteBuffer entry = ByteBuffer.allocate(28);
+        entry.put(new byte[6]).putShort((short) 1).put(new byte[8]);
+        entry.putShort((short) channelCount).putShort((short) 16).putInt(0);
+        entry.putInt(sampleRate << 16);
+        byte[] mp4a = box("mp4a", concat(entry.array(), esds(bitRate)));
+        byte[] stsd = fullBox("stsd", 0, concat(ByteBuffer.allocate(4).putInt(1).array(), mp4a));
+        byte[] offsets = co64
+            ? fullBox("co64", 0, ByteBuffer.allocate(12).putInt(1).putLong(1L << 32).array())
+            : fullBox("stco", 0, ByteBuffer.allocate(8).putInt(1).putInt(40).array());
+        return box("trak", box("mdia", mdhd(version, sampleRate, duration), hdlr("soun"),
+            box("minf", box("stbl", stsd, offsets))));
+    }
+
+    private static byte[] esds(int bitRate) {
+        ByteBuffer body = ByteBuffer.allocate(32);
+        body.put((byte) 0x03).put((byte) 25).putShort((short) 0).put((byte) 0);
+        body.put((byte) 0x04).put((byte) 17).put((byte) 0x40).put((byte) 0x15);
+        body.put(new byte[3]).putInt(bitRate).putInt(bitRate);
+        body.put((byte) 0x05).put((byte) 2).put((byte) 0x12).put((byte) 0x10);
+        body.put((byte) 0x06).put((byte) 1).put((byte) 0x02);
+        return fullBox("esds", 0, Arrays.copyOf(body.array(), body.position()));
+    }
+
+    private static byte[] fullBox(String type, int version, byte[] body) {
+        return box(type, concat(ByteBuffer.allocate(4).putInt(version << 24).array(), body));
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        byte[] body = concat(children);
+        return concat(ByteBuffer.allocate(8).putInt(8 + body.length).put(type(type)).array(), body);
+    }
+
+    private static byte[] type(String type) {
+        return type.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
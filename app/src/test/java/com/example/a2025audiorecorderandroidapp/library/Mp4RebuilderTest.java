@@ -0,0 +1,144 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.example.a2025audiorecorderandroidapp.audio.RecordingJournal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Mp4RebuilderTest {
+    private static final int SAMPLE_COUNT = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rebuildsIndexOfUnfinishedFile() throws IOException {
+        int[] sizes = sampleSizes();
+        int written = 0;
+        for (int size : sizes) {
+            written += size;
+        }
+        // The last sample only made it to disk in part
+        byte[] payload = randomBytes(written - sizes[SAMPLE_COUNT - 1] / 2);
+        File file = writeUnfinished(payload);
+        RecordingJournal.Contents journal = journal(file, sizes);
+
+        Mp4Rebuilder.Result result = Mp4Rebuilder.rebuild(file, journal);
+
+        assertEquals(SAMPLE_COUNT - 1, result.sampleCount);
+        assertEquals(written - sizes[SAMPLE_COUNT - 1], result.payloadBytes);
+        long mediaDuration = (long) (SAMPLE_COUNT - 1) * RecordingJournal.AAC_SAMPLES_PER_FRAME;
+        assertEquals(mediaDuration * 1000 / 44100, result.durationMs);
+
+        Mp4HeaderReader.Info info = new Mp4HeaderReader().read(file);
+        assertNotNull(info);
+        assertEquals(result.durationMs, info.duration);
+        assertEquals(44100, info.timescale);
+        assertEquals(44100, info.sampleRate);
+        assertEquals(2, info.channelCount);
+        assertEquals(128_000, info.bitRate);
+
+        // The audio stays where it was, up to the last complete sample
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(headerLength());
+            assertEquals(8 + result.payloadBytes, raf.readInt());
+            raf.skipBytes(4);
+            byte[] kept = new byte[(int) result.payloadBytes];
+            raf.readFully(kept);
+            assertArrayEquals(Arrays.copyOf(payload, kept.length), kept);
+        }
+    }
+
+    @Test
+    public void rebuildsAgainAfterCutOffMoov() throws IOException {
+        int[] sizes = sampleSizes();
+        File file = writeUnfinished(randomBytes(sizes[0] + sizes[1] + sizes[2] / 2));
+        RecordingJournal.Contents journal = journal(file, sizes);
+        Mp4Rebuilder.Result first = Mp4Rebuilder.rebuild(file, journal);
+        long length = file.length();
+        // Killed while writing the moov, the rest of the journal would fit in what made it
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 40);
+        }
+
+        Mp4Rebuilder.Result second = Mp4Rebuilder.rebuild(file, journal);
+
+        assertEquals(2, first.sampleCount);
+        assertEquals(first.sampleCount, second.sampleCount);
+        assertEquals(first.payloadBytes, second.payloadBytes);
+        assertEquals(length, file.length());
+        assertNotNull(new Mp4HeaderReader().read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesFileWithoutCompleteSample() throws IOException {
+        int[] sizes = sampleSizes();
+        File file = writeUnfinished(randomBytes(sizes[0] - 1));
+
+        Mp4Rebuilder.rebuild(file, journal(file, sizes));
+    }
+
+    private RecordingJournal.Contents journal(File recording, int[] sizes) throws IOException {
+        File file = new File(recording.getPath() + ".journal");
+        RecordingJournal journal = new RecordingJournal(file, 44100, 2, 128_000,
+            RecordingJournal.AAC_SAMPLES_PER_FRAME);
+        journal.writeCodecConfig(new byte[] { 0x12, 0x10 });
+        for (int size : sizes) {
+            journal.addSample(size);
+        }
+        journal.close();
+        return RecordingJournal.read(file);
+    }
+
+    /**
+     * ftyp and an mdat whose size the muxer never filled in
+     */
+    private File writeUnfinished(byte[] payload) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            ByteBuffer header = ByteBuffer.allocate(headerLength() + 8);
+            header.putInt(24).put(type("ftyp")).put(type("M4A ")).putInt(0).put(type("isom")).put(type("M4A "));
+            header.putInt(0).put(type("mdat"));
+            out.write(header.array());
+            out.write(payload);
+        }
+        return file;
+    }
+
+    private static int headerLength() {
+        return 24;
+    }
+
+    private static int[] sampleSizes() {
+        Random random = new Random(11);
+        int[] sizes = new int[SAMPLE_COUNT];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = 300 + random.nextInt(200);
+        }
+        return sizes;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] type(String type) {
+        return type.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+import com.example.a2025audiorecorderandroidapp.model.RecordingStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Builds a search index over 50k synthetic recordings and times queries
+ * against the lower-case scan of every name that searching did before,
+ * checking that both find the same recordings. The queries only use words
+ * that cannot match a date or tag, where the two searches must agree.
+ */
+public class SearchIndexBenchmark {
+    private static final int RECORDINGS = 50_000;
+    private static final String[] SUBJECTS = {
+        "Interview", "Meeting", "Lecture", "Voice memo", "Podcast", "Rehearsal", "Call", "Idea", "Song", "Field"
+    };
+    private static final String[] PLACES = {
+        "Alice", "Bob", "Carol", "kitchen", "office", "studio", "garden", "Zo\u00eb", "car", "hall"
+    };
+    private static final String[] EXTENSIONS = { "m4a", "wav", "flac", "ogg" };
+    private static final String[] QUERIES = {
+        "interview", "meeting alice", "lecture studio", "memo", "zo\u00eb", "rehearsal garden", "xylophone"
+    };
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private final List<Recording> recordings = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+        Random random = new Random(5);
+        File directory = new File("/sdcard/Recordings");
+        File[] files = new File[RECORDINGS];
+        for (int i = 0; i < RECORDINGS; i++) {
+            String name = SUBJECTS[random.nextInt(SUBJECTS.length)] + " " + PLACES[random.nextInt(PLACES.length)]
+                + " " + i + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            // Two years of recordings, without touching the disk
+            long timestamp = 1700000000000L + (long) (random.nextDouble() * 2 * 365 * 24 * 3600_000L);
+            files[i] = new File(directory, name) {
+                @Override
+                public long lastModified() {
+                    return timestamp;
+                }
+            };
+        }
+        RecordingStore store = new RecordingStore(directory, files);
+        for (int i = 0; i < RECORDINGS; i++) {
+            Recording recording = store.get(i);
+            recording.setChannelCount(1 + random.nextInt(2));
+            recording.setDuration(random.nextInt(40 * 60_000));
+            recordings.add(recording);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void searchFiftyThousand() throws Exception {
+        double buildNanos = Benchmarks.nanosPerOp(() -> build().size());
+        Benchmarks.report("build index of 50k", String.format(Locale.ROOT, "%.0f ms", buildNanos / 1e6));
+
+        SearchIndex index = build();
+        for (String query : QUERIES) {
+            String[] terms = SearchIndex.terms(query);
+            int[] expected = scan(terms);
+            assertArrayEquals(query, expected, index.search(terms, null));
+            assertTrue(query, expected.length < RECORDINGS);
+
+            if (terms.length == 1) {
+                Benchmarks.compare("query \"" + query + "\" of 50k",
+                    () -> Legacy.filter(recordings, query).size(),
+                    () -> index.search(terms, null).length);
+            } else {
+                Benchmarks.report("query \"" + query + "\" of 50k", String.format(Locale.ROOT, "%.1f us",
+                    Benchmarks.nanosPerOp(() -> index.search(terms, null).length) / 1000));
+            }
+        }
+    }
+
+    private SearchIndex build() {
+        SearchIndex index = new SearchIndex();
+        for (Recording recording : recordings) {
+            index.add(recording);
+        }
+        return index;
+    }
+
+    /**
+     * Ids whose normalized name contains every term
+     */
+    private int[] scan(String[] terms) {
+        int[] matches = new int[RECORDINGS];
+        int count = 0;
+        for (int i = 0; i < RECORDINGS; i++) {
+            String name = SearchIndex.normalize(recordings.get(i).getFileName());
+            boolean all = true;
+            for (String term : terms) {
+                all &= name.contains(term);
+            }
+            if (all) {
+                matches[count++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * The search in MainActivity before the index, unchanged
+     */
+    static class Legacy {
+        static List<Recording> filter(List<Recording> allRecordings, String query) {
+            List<Recording> filteredRecordings = new ArrayList<>();
+            for (Recording recording : allRecordings) {
+                if (recording.getFileName().toLowerCase().contains(query.toLowerCase())) {
+                    filteredRecordings.add(recording);
+                }
+            }
+            return filteredRecordings;
+        }
+    }
+}
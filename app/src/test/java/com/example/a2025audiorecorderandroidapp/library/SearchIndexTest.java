@@ -0,0 +1,133 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.a2025audiorecorderandroidapp.model.RecordingStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class SearchIndexTest {
+    // 2025-03-14 12:00 UTC
+    private static final long TIMESTAMP = 1741953600000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+    private SearchIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+
+        File[] files = {
+            newFile("Interview Caf\u00e9.m4a"),
+            newFile("Meeting notes.wav"),
+            newFile("song.flac"),
+        };
+        RecordingStore store = new RecordingStore(folder.getRoot(), files);
+        store.get(0).setChannelCount(2);
+        store.get(0).setDuration(20 * 60_000);
+        store.get(1).setChannelCount(1);
+        store.get(1).setDuration(30_000);
+
+        index = new SearchIndex();
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(i, index.add(store.get(i)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void normalizesTerms() {
+        assertArrayEquals(new String[] { "cafe", "notes" }, SearchIndex.terms("  Caf\u00e9 \tNOTES "));
+        assertArrayEquals(new String[0], SearchIndex.terms("   "));
+    }
+
+    @Test
+    public void findsNamesWithoutAccentsOrCase() {
+        assertArrayEquals(new int[] { 0 }, search("CAFE"));
+        assertArrayEquals(new int[] { 0 }, search("caf\u00e9"));
+        assertArrayEquals(new int[] { 1 }, search("meeting"));
+        assertArrayEquals(new int[0], search("podcast"));
+    }
+
+    @Test
+    public void findsShortTermsWithoutTrigrams() {
+        assertArrayEquals(new int[] { 2 }, search("so"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, search(""));
+    }
+
+    @Test
+    public void findsTags() {
+        assertArrayEquals(new int[] { 0 }, search("#m4a"));
+        assertArrayEquals(new int[] { 1 }, search("#mono"));
+        assertArrayEquals(new int[] { 0 }, search("#stereo"));
+        assertArrayEquals(new int[] { 1 }, search("#short"));
+        assertArrayEquals(new int[] { 0 }, search("#long"));
+        assertArrayEquals(new int[] { 2 }, search("#flac"));
+    }
+
+    @Test
+    public void findsDates() {
+        assertArrayEquals(new int[] { 0, 1, 2 }, search("2025-03-14"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, search("march"));
+        assertArrayEquals(new int[0], search("april"));
+    }
+
+    @Test
+    public void matchesEveryTerm() {
+        assertArrayEquals(new int[] { 1 }, search("notes #mono"));
+        assertArrayEquals(new int[0], search("notes #stereo"));
+    }
+
+    @Test
+    public void refinesPreviousResult() {
+        int[] previous = search("mee");
+        assertArrayEquals(new int[] { 1 }, index.search(SearchIndex.terms("meeting"), previous));
+        // Candidates outside the previous result are never confirmed
+        assertArrayEquals(new int[0], index.search(SearchIndex.terms("song"), previous));
+    }
+
+    @Test
+    public void removedRecordingsAreNotFound() {
+        index.remove(1);
+        index.remove(1);
+
+        assertNull(index.get(1));
+        assertEquals(3, index.size());
+        assertEquals(1, index.removedCount());
+        assertArrayEquals(new int[0], search("meeting"));
+        assertArrayEquals(new int[] { 0, 2 }, search("march"));
+    }
+
+    private int[] search(String query) {
+        return index.search(SearchIndex.terms(query), null);
+    }
+
+    private File newFile(String name) throws IOException {
+        File file = folder.newFile(name);
+        file.setLastModified(TIMESTAMP);
+        return file;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.a2025audiorecorderandroidapp.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Sort orders against a stable sort of the recordings themselves, which is
+ * what the precomputed keys and ranks replace.
+ */
+public class SortPermutationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void numericOrdersMatchStableSort() throws IOException {
+        // Few distinct values, so most keys tie
+        Random random = new Random(7);
+        List<Recording> recordings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Recording recording = new Recording(createFile("r" + i + ".m4a", random.nextInt(5) * 100,
+                1_600_000_000_000L + random.nextInt(5) * 60_000L));
+            recording.setDuration(random.nextInt(5) * 1000L);
+            recordings.add(recording);
+        }
+        SortPermutation permutation = new SortPermutation(Collator.getInstance(Locale.ENGLISH));
+
+        assertOrder(recordings, permutation, RecordingSorter.DATE_NEWEST,
+            Comparator.comparingLong(Recording::getTimestamp).reversed());
+        assertOrder(recordings, permutation, RecordingSorter.DATE_OLDEST,
+            Comparator.comparingLong(Recording::getTimestamp));
+        assertOrder(recordings, permutation, RecordingSorter.SIZE_LARGEST,
+            Comparator.comparingLong(Recording::getFileSize).reversed());
+        assertOrder(recordings, permutation, RecordingSorter.SIZE_SMALLEST,
+            Comparator.comparingLong(Recording::getFileSize));
+        assertOrder(recordings, permutation, RecordingSorter.DURATION_LONGEST,
+            Comparator.comparingLong(Recording::getDuration).reversed());
+        assertOrder(recordings, permutation, RecordingSorter.DURATION_SHORTEST,
+            Comparator.comparingLong(Recording::getDuration));
+    }
+
+    @Test
+    public void namesSortByCollationKeys() throws IOException {
+        Collator collator = Collator.getInstance(Locale.ENGLISH);
+        List<Recording> recordings = new ArrayList<>();
+        String[] names = { "zeta.m4a", "Zeta.m4a", "ärger.m4a", "apfel.m4a", "Banane.m4a", "10 b.m4a",
+            "2 b.m4a", "Émile.m4a", "emu.m4a" };
+        for (String name : names) {
+            recordings.add(new Recording(createFile(name, 1, 1_600_000_000_000L)));
+        }
+        // The same names in another folder, which have to stay after their twins
+        for (String name : names) {
+            recordings.add(new Recording(createFile("copy/" + name, 1, 1_600_000_000_000L)));
+        }
+        SortPermutation permutation = new SortPermutation(collator);
+
+        Comparator<Recording> byName = (a, b) -> collator.compare(a.getFileName(), b.getFileName());
+        assertOrder(recordings, permutation, RecordingSorter.NAME_ASCENDING, byName);
+        assertOrder(recordings, permutation, RecordingSorter.NAME_DESCENDING, byName.reversed());
+
+        // Accented letters sort with their base letter, where String order puts them after z
+        int[] order = permutation.compute(recordings, RecordingSorter.NAME_ASCENDING);
+        assertEquals("apfel.m4a", recordings.get(order[4]).getFileName());
+        assertEquals("ärger.m4a", recordings.get(order[6]).getFileName());
+    }
+
+    @Test
+    public void reusesAndPrunesNameKeys() throws IOException {
+        CountingCollator collator = new CountingCollator();
+        SortPermutation permutation = new SortPermutation(collator);
+        Recording a = new Recording(createFile("a.m4a", 1, 1_600_000_000_000L));
+        Recording b = new Recording(createFile("b.m4a", 1, 1_600_000_000_000L));
+        Recording c = new Recording(createFile("c.m4a", 1, 1_600_000_000_000L));
+
+        permutation.compute(List.of(a, b, c), RecordingSorter.NAME_ASCENDING);
+        assertEquals(3, collator.keysBuilt);
+        assertEquals(3, permutation.getCachedNameKeyCount());
+
+        // Kept for the next name sort, and untouched by other orders
+        permutation.compute(List.of(c, b, a), RecordingSorter.NAME_DESCENDING);
+        permutation.compute(List.of(a, b, c), RecordingSorter.SIZE_LARGEST);
+        assertEquals(3, collator.keysBuilt);
+        assertEquals(3, permutation.getCachedNameKeyCount());
+
+        // A deleted recording's key is dropped and built again if it comes back
+        permutation.compute(List.of(a, c), RecordingSorter.NAME_ASCENDING);
+        assertEquals(3, collator.keysBuilt);
+        assertEquals(2, permutation.getCachedNameKeyCount());
+        int[] order = permutation.compute(List.of(c, b, a), RecordingSorter.NAME_ASCENDING);
+        assertEquals(4, collator.keysBuilt);
+        assertArrayEquals(new int[] { 2, 1, 0 }, order);
+    }
+
+    private static void assertOrder(List<Recording> recordings, SortPermutation permutation, int sortOrder,
+                                    Comparator<Recording> comparator) {
+        List<Recording> expected = new ArrayList<>(recordings);
+        expected.sort(comparator);
+        int[] order = permutation.compute(recordings, sortOrder);
+        assertEquals(recordings.size(), order.length);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals("order " + sortOrder + " at " + i, expected.get(i).getFilePath(),
+                recordings.get(order[i]).getFilePath());
+        }
+    }
+
+    private File createFile(String name, int length, long lastModified) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        file.getParentFile().mkdirs();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+    /**
+     * Counts the name keys built, the expensive part of a name sort
+     */
+    private static class CountingCollator extends Collator {
+        private final Collator collator = Collator.getInstance(Locale.ENGLISH);
+        int keysBuilt;
+
+        @Override
+        public int compare(String source, String target) {
+            return collator.compare(source, target);
+        }
+
+        @Override
+        public CollationKey getCollationKey(String source) {
+            keysBuilt++;
+            return collator.getCollationKey(source);
+        }
+
+        @Override
+        public int hashCode() {
+            return collator.hashCode();
+        }
+    }
+}
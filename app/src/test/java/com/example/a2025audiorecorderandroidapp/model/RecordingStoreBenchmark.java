@@ -0,0 +1,139 @@
+package com.example.a2025audiorecorderandroidapp.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the heap retained by a library of 50k recordings with realistic
+ * app paths: the column store with a view per row, as MainActivity keeps it,
+ * against the per-recording objects it replaced, kept below as
+ * {@link Legacy}, together with the adapter's copy of the list. Sizes are
+ * taken from the used heap after a full GC, so they are for this JVM; ART
+ * lays objects out somewhat tighter.
+ */
+public class RecordingStoreBenchmark {
+    private static final int RECORDINGS = 50_000;
+    private static final File DIRECTORY = new File(
+        "/storage/emulated/0/Android/data/com.example.a2025audiorecorderandroidapp/files/Recordings");
+
+    @Test
+    public void heapPerRecording() {
+        long before = usedHeap();
+        List<List<Legacy>> legacyLibrary = legacyLibrary();
+        long legacyBytes = usedHeap() - before;
+        assertEquals(RECORDINGS, legacyLibrary.get(1).size());
+        legacyLibrary = null;
+
+        before = usedHeap();
+        List<Recording> library = library();
+        long storeBytes = usedHeap() - before;
+
+        // Same contents as the files they came from
+        File[] files = files();
+        for (int i = 0; i < RECORDINGS; i += 999) {
+            assertEquals(files[i].getName(), library.get(i).getFileName());
+            assertEquals(files[i].getPath(), library.get(i).getFilePath());
+        }
+
+        Benchmarks.report("heap per recording of 50k", String.format(Locale.ROOT, "%d B -> %d B, %.1fx",
+            legacyBytes / RECORDINGS, storeBytes / RECORDINGS, (double) legacyBytes / storeBytes));
+        if (Benchmarks.ENABLED) {
+            assertTrue(storeBytes * 2 < legacyBytes);
+        }
+    }
+
+    /**
+     * Built in a method of its own so the listed files are garbage once it
+     * returns, as they are after a scan
+     * @return allRecordings and the adapter's copy of it
+     */
+    private static List<List<Legacy>> legacyLibrary() {
+        List<Legacy> allRecordings = new ArrayList<>(RECORDINGS);
+        for (File file : files()) {
+            allRecordings.add(new Legacy(file));
+        }
+        List<List<Legacy>> lists = new ArrayList<>();
+        lists.add(allRecordings);
+        lists.add(new ArrayList<>(allRecordings));
+        return lists;
+    }
+
+    /**
+     * @return allRecordings, a view of every row of one store
+     */
+    private static List<Recording> library() {
+        RecordingStore store = new RecordingStore(DIRECTORY, files());
+        List<Recording> allRecordings = new ArrayList<>(RECORDINGS);
+        for (int i = 0; i < store.size(); i++) {
+            allRecordings.add(store.get(i));
+        }
+        return allRecordings;
+    }
+
+    private static File[] files() {
+        File[] files = new File[RECORDINGS];
+        long timestamp = 1741953600000L;
+        for (int i = 0; i < RECORDINGS; i++) {
+            String name = String.format(Locale.ROOT, "Recording_%tY%<tm%<td_%<tH%<tM%<tS.m4a", timestamp);
+            long time = timestamp;
+            files[i] = new File(DIRECTORY, name) {
+                @Override
+                public long lastModified() {
+                    return time;
+                }
+
+                @Override
+                public long length() {
+                    return 1_500_000;
+                }
+            };
+            timestamp -= 600_000;
+        }
+        return files;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Some collectors need more than one full GC to settle
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Recording before the column store: every field its own, the name and
+     * path as two strings
+     */
+    static class Legacy {
+        private final String fileName;
+        private final String filePath;
+        private long duration;
+        private final long fileSize;
+        private final long timestamp;
+        private int sampleRate = 0;
+        private int channelCount = 0;
+        private String formattedDuration;
+        private String formattedDate;
+        private String formattedFileSize;
+
+        Legacy(File file) {
+            this.fileName = file.getName();
+            this.filePath = file.getAbsolutePath();
+            this.fileSize = file.length();
+            this.timestamp = file.lastModified();
+            this.duration = 0;
+        }
+    }
+}
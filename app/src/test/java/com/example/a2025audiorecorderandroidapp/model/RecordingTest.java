@@ -0,0 +1,87 @@
+package com.example.a2025audiorecorderandroidapp.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Single-file recordings against rows of a store built from the same files.
+ */
+public class RecordingTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleFileMatchesStoreRow() throws IOException {
+        File a = createFile("Interview.m4a", 1234);
+        File b = createFile("Lecture ü.ogg", 99);
+        RecordingStore store = new RecordingStore(folder.getRoot(), new File[] { a, b });
+
+        for (int i = 0; i < 2; i++) {
+            File file = i == 0 ? a : b;
+            Recording row = store.get(i);
+            Recording single = new Recording(file);
+            assertEquals(row.getFileName(), single.getFileName());
+            assertEquals(row.getFilePath(), single.getFilePath());
+            assertEquals(file.getAbsolutePath(), single.getFilePath());
+            assertEquals(row.getFileSize(), single.getFileSize());
+            assertEquals(row.getTimestamp(), single.getTimestamp());
+            assertEquals(row.getFormattedFileSize(), single.getFormattedFileSize());
+
+            StringBuilder name = new StringBuilder();
+            single.appendFileName(name);
+            assertEquals(file.getName(), name.toString());
+
+            assertTrue(single.isSameFile(row));
+            assertTrue(row.isSameFile(single));
+            assertTrue(single.hasPath(file.getAbsolutePath()));
+            assertFalse(single.hasPath(file.getAbsolutePath() + ".peaks"));
+        }
+        assertFalse(new Recording(a).isSameFile(store.get(1)));
+    }
+
+    @Test
+    public void singleFileKeepsMetadata() throws IOException {
+        Recording recording = new Recording(createFile("a.m4a", 10));
+        recording.setDuration(61_000);
+        recording.setSampleRate(48000);
+        recording.setChannelCount(2);
+
+        assertEquals(61_000, recording.getDuration());
+        assertEquals(48000, recording.getSampleRate());
+        assertEquals(2, recording.getChannelCount());
+        assertEquals("01:01", recording.getFormattedDuration());
+        recording.setDuration(0);
+        assertEquals("00:00", recording.getFormattedDuration());
+    }
+
+    @Test
+    public void pathIsKeptOnceDisplayed() throws IOException {
+        RecordingStore store = new RecordingStore(folder.getRoot(), new File[] { createFile("a.m4a", 10) });
+        Recording row = store.get(0);
+
+        // Not displayed yet, built on every call
+        assertNotSame(row.getFilePath(), row.getFilePath());
+        row.getFileName();
+        String path = row.getFilePath();
+        assertSame(path, row.getFilePath());
+    }
+
+    private File createFile(String name, int length) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+        return file;
+    }
+}
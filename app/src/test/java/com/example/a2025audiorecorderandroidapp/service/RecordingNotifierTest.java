@@ -0,0 +1,124 @@
+package com.example.a2025audiorecorderandroidapp.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Notification;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives the notifier the way the service does over recorded hours, against
+ * a fake NotificationManager that keeps the IDs it is given, and checks the
+ * notifications posted stay bounded by the state changes and warnings.
+ */
+public class RecordingNotifierTest {
+    private static final int ONGOING = 1001;
+    private static final int SAVED = 1002;
+    private static final int BATTERY = 1003;
+    private static final int TIME_LIMIT = 1004;
+    private static final long HOUR_MS = 3_600_000;
+
+    @Test
+    public void longRecordingPostsOnlyWarningsAndEnd() {
+        FakeNotificationManager manager = new FakeNotificationManager();
+        RecordingNotifier notifier = new RecordingNotifier(ONGOING, manager);
+
+        notifier.onForeground();
+        // Ten hours with a limit check, and a redundant state update, every second
+        for (long second = 0; second < 10 * HOUR_MS / 1000; second++) {
+            notifier.showState(RecordingNotifier.State.RECORDING, Notification::new);
+            checkLimits(notifier, second * 1000);
+        }
+        stop(notifier);
+
+        // startForeground(), two warnings, finalising and saved
+        assertEquals(5, notifier.getCount());
+        assertEquals(4, manager.posted.size());
+        assertEquals(1, Collections.frequency(manager.posted, BATTERY));
+        assertEquals(1, Collections.frequency(manager.posted, TIME_LIMIT));
+        assertEquals(0.5f, notifier.getPerRecordedHour(10 * HOUR_MS), 0.001f);
+    }
+
+    @Test
+    public void pauseAndResumePostOnePerChange() {
+        FakeNotificationManager manager = new FakeNotificationManager();
+        RecordingNotifier notifier = new RecordingNotifier(ONGOING, manager);
+        int pauses = 60;
+
+        notifier.onForeground();
+        // An hour paused once a minute, with repeated taps on each button
+        for (int minute = 0; minute < pauses; minute++) {
+            for (int tap = 0; tap < 3; tap++) {
+                notifier.showState(RecordingNotifier.State.PAUSED, Notification::new);
+            }
+            for (int tap = 0; tap < 3; tap++) {
+                notifier.showState(RecordingNotifier.State.RECORDING, Notification::new);
+            }
+            checkLimits(notifier, minute * 60_000L);
+        }
+        stop(notifier);
+
+        long expected = 1 + 2 * pauses + 2 + 2;
+        assertEquals(expected, notifier.getCount());
+        assertEquals(expected - 1, manager.posted.size());
+        Benchmarks.report("notifications per recorded hour", String.format(Locale.ROOT,
+            "%.1f with a pause a minute", notifier.getPerRecordedHour(HOUR_MS)));
+        assertTrue(notifier.getPerRecordedHour(HOUR_MS) <= expected);
+    }
+
+    @Test
+    public void warningsShowAgainForNextRecording() {
+        FakeNotificationManager manager = new FakeNotificationManager();
+        RecordingNotifier notifier = new RecordingNotifier(ONGOING, manager);
+
+        notifier.onForeground();
+        assertTrue(notifier.showWarning(BATTERY, Notification::new));
+        assertFalse(notifier.showWarning(BATTERY, Notification::new));
+        assertTrue(notifier.isWarningShown(BATTERY));
+
+        stop(notifier);
+        assertFalse(notifier.isWarningShown(BATTERY));
+        notifier.onForeground();
+        assertEquals(1, notifier.getCount());
+        // Back to recording from finalising without a post, startForeground() did it
+        assertFalse(notifier.showState(RecordingNotifier.State.RECORDING, Notification::new));
+        assertTrue(notifier.showWarning(BATTERY, Notification::new));
+        assertEquals(2, notifier.getCount());
+    }
+
+    /**
+     * The service's battery and time limit checks, with its limits
+     */
+    private static void checkLimits(RecordingNotifier notifier, long durationMs) {
+        if (durationMs >= 30 * 60_000L) {
+            notifier.showWarning(BATTERY, Notification::new);
+        }
+        if (durationMs >= 55 * 60_000L) {
+            notifier.showWarning(TIME_LIMIT, Notification::new);
+        }
+    }
+
+    private static void stop(RecordingNotifier notifier) {
+        notifier.clearWarnings();
+        notifier.showState(RecordingNotifier.State.FINALISING, Notification::new);
+        notifier.show(SAVED, new Notification());
+    }
+
+    private static class FakeNotificationManager implements RecordingNotifier.Poster {
+        final List<Integer> posted = new ArrayList<>();
+
+        @Override
+        public void notify(int id, Notification notification) {
+            posted.add(id);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.a2025audiorecorderandroidapp.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Compares AudioAmplitudeExtractor with the implementation it replaced, kept
+ * below as {@link Legacy}, on one second of 48 kHz stereo. Checks that both
+ * give the same values and prints the speedup of every method.
+ *
+ * The rewrite aimed for 5x. Over three runs on a JDK 17 JVM, reading byte
+ * data as whole little-endian shorts instead of assembling each sample from
+ * two bytes brought calculateRMSAmplitude(byte[]) to 3.7-5.9x and
+ * extractAmplitudes() to 4.8-5.7x. Peak and the short[] methods stay at
+ * 2.3-5x, and analyze(ByteBuffer) at 2.4-4.2x, though that is about 6x
+ * faster than its earlier two-reads-per-sample loop. What remains is one
+ * multiply-add per sample, which that JIT doesn't vectorize; device numbers
+ * under ART were not measured.
+ */
+public class AudioAmplitudeExtractorBenchmark {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final short[] samples = new short[SAMPLE_RATE * CHANNELS];
+    private final byte[] bytes = new byte[samples.length * 2];
+
+    public AudioAmplitudeExtractorBenchmark() {
+        Random random = new Random(7);
+        for (int i = 0; i < samples.length; i++) {
+            double tone = 9000 * Math.sin(i * 2 * Math.PI * 440 / SAMPLE_RATE);
+            samples[i] = (short) (tone + random.nextGaussian() * 2000);
+            bytes[i * 2] = (byte) samples[i];
+            bytes[i * 2 + 1] = (byte) (samples[i] >> 8);
+        }
+    }
+
+    @Test
+    public void calculateRmsAmplitudeBytes() throws Exception {
+        assertEquals(Legacy.calculateRMSAmplitude(bytes, SAMPLE_RATE, CHANNELS),
+            AudioAmplitudeExtractor.calculateRMSAmplitude(bytes, SAMPLE_RATE, CHANNELS), 1e-6f);
+        Benchmarks.compare("calculateRMSAmplitude(byte[])",
+            () -> Float.floatToIntBits(Legacy.calculateRMSAmplitude(bytes, SAMPLE_RATE, CHANNELS)),
+            () -> Float.floatToIntBits(AudioAmplitudeExtractor.calculateRMSAmplitude(bytes, SAMPLE_RATE, CHANNELS)));
+    }
+
+    @Test
+    public void calculatePeakAmplitude() throws Exception {
+        assertEquals(Legacy.calculatePeakAmplitude(bytes, SAMPLE_RATE, CHANNELS),
+            AudioAmplitudeExtractor.calculatePeakAmplitude(bytes, SAMPLE_RATE, CHANNELS), 0f);
+        Benchmarks.compare("calculatePeakAmplitude(byte[])",
+            () -> Float.floatToIntBits(Legacy.calculatePeakAmplitude(bytes, SAMPLE_RATE, CHANNELS)),
+            () -> Float.floatToIntBits(AudioAmplitudeExtractor.calculatePeakAmplitude(bytes, SAMPLE_RATE, CHANNELS)));
+    }
+
+    @Test
+    public void extractAmplitudes() throws Exception {
+        assertArrayEquals(Legacy.extractAmplitudes(bytes, SAMPLE_RATE, CHANNELS, CHUNK_SIZE),
+            AudioAmplitudeExtractor.extractAmplitudes(bytes, SAMPLE_RATE, CHANNELS, CHUNK_SIZE), 1e-6f);
+        Benchmarks.compare("extractAmplitudes(byte[])",
+            () -> Legacy.extractAmplitudes(bytes, SAMPLE_RATE, CHANNELS, CHUNK_SIZE).length,
+            () -> AudioAmplitudeExtractor.extractAmplitudes(bytes, SAMPLE_RATE, CHANNELS, CHUNK_SIZE).length);
+    }
+
+    @Test
+    public void calculateRmsAmplitudeShorts() throws Exception {
+        assertEquals(Legacy.calculateRMSAmplitude(samples, 0, samples.length),
+            AudioAmplitudeExtractor.calculateRMSAmplitude(samples, 0, samples.length), 1e-6f);
+        Benchmarks.compare("calculateRMSAmplitude(short[])",
+            () -> Float.floatToIntBits(Legacy.calculateRMSAmplitude(samples, 0, samples.length)),
+            () -> Float.floatToIntBits(AudioAmplitudeExtractor.calculateRMSAmplitude(samples, 0, samples.length)));
+    }
+
+    @Test
+    public void analyzeStereo() throws Exception {
+        AudioAmplitudeExtractor.AmplitudeResult result = new AudioAmplitudeExtractor.AmplitudeResult(CHANNELS);
+        AudioAmplitudeExtractor.analyze(samples, 0, samples.length, CHANNELS, result);
+        assertEquals(Legacy.calculateRMSAmplitude(samples, 0, samples.length) / 2, result.overallRms, 1e-6f);
+        // The legacy code had no per-channel values, so the baseline is its RMS and
+        // peak of the mix; the sample rate makes its ~100 ms window the whole buffer
+        Benchmarks.compare("analyze(short[]) stereo RMS and peak",
+            () -> Float.floatToIntBits(Legacy.calculateRMSAmplitude(samples, 0, samples.length))
+                + Float.floatToIntBits(Legacy.calculatePeakAmplitude(bytes, samples.length * 10, 1)),
+            () -> {
+                AudioAmplitudeExtractor.analyze(samples, 0, samples.length, CHANNELS, result);
+                return Float.floatToIntBits(result.rms[0]) + Float.floatToIntBits(result.peak[1]);
+            });
+    }
+
+    @Test
+    public void analyzeDirectBuffer() throws Exception {
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.BIG_ENDIAN);
+        direct.put(bytes).flip();
+        AudioAmplitudeExtractor.AmplitudeResult expected = new AudioAmplitudeExtractor.AmplitudeResult(CHANNELS);
+        AudioAmplitudeExtractor.analyze(samples, 0, samples.length, CHANNELS, expected);
+        AudioAmplitudeExtractor.AmplitudeResult result = new AudioAmplitudeExtractor.AmplitudeResult(CHANNELS);
+        AudioAmplitudeExtractor.analyze(direct, CHANNELS, result);
+        assertArrayEquals(expected.rms, result.rms, 0f);
+        assertArrayEquals(expected.peak, result.peak, 0f);
+        // Read through a view, the caller's buffer is left as it was
+        assertEquals(0, direct.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, direct.order());
+
+        // Same baseline as analyzeStereo, the legacy code only read byte arrays
+        Benchmarks.compare("analyze(ByteBuffer) direct stereo RMS and peak",
+            () -> Float.floatToIntBits(Legacy.calculateRMSAmplitude(bytes, samples.length * 10, 1))
+                + Float.floatToIntBits(Legacy.calculatePeakAmplitude(bytes, samples.length * 10, 1)),
+            () -> {
+                AudioAmplitudeExtractor.analyze(direct, CHANNELS, result);
+                return Float.floatToIntBits(result.rms[0]) + Float.floatToIntBits(result.peak[1]);
+            });
+    }
+
+    /**
+     * AudioAmplitudeExtractor before the rewrite, unchanged
+     */
+    static class Legacy {
+        static float calculateRMSAmplitude(byte[] pcmData, int sampleRate, int channelCount) {
+            if (pcmData == null || pcmData.length == 0) {
+                return 0.0f;
+            }
+
+            int bytesPerSample = 2;
+            int samplesToProcess = Math.min(pcmData.length / bytesPerSample, sampleRate / 10);
+
+            double sum = 0.0;
+            int sampleCount = 0;
+
+            for (int i = 0; i < samplesToProcess * bytesPerSample && i < pcmData.length - 1; i += bytesPerSample) {
+                short sample = (short) ((pcmData[i] & 0xFF) | (pcmData[i + 1] << 8));
+                float normalizedSample = sample / 32768.0f;
+                sum += normalizedSample * normalizedSample;
+                sampleCount++;
+            }
+
+            if (sampleCount == 0) {
+                return 0.0f;
+            }
+
+            double rms = Math.sqrt(sum / sampleCount);
+            return (float) Math.min(1.0, rms * 2.0);
+        }
+
+        static float calculateRMSAmplitude(short[] pcm, int offset, int length) {
+            if (pcm == null || length <= 0) {
+                return 0.0f;
+            }
+
+            double sum = 0.0;
+            for (int i = offset; i < offset + length; i++) {
+                float normalizedSample = pcm[i] / 32768.0f;
+                sum += normalizedSample * normalizedSample;
+            }
+
+            double rms = Math.sqrt(sum / length);
+            return (float) Math.min(1.0, rms * 2.0);
+        }
+
+        static float calculatePeakAmplitude(byte[] pcmData, int sampleRate, int channelCount) {
+            if (pcmData == null || pcmData.length == 0) {
+                return 0.0f;
+            }
+
+            int bytesPerSample = 2;
+            int samplesToProcess = Math.min(pcmData.length / bytesPerSample, sampleRate / 10);
+
+            float maxAmplitude = 0.0f;
+
+            for (int i = 0; i < samplesToProcess * bytesPerSample && i < pcmData.length - 1; i += bytesPerSample) {
+                short sample = (short) ((pcmData[i] & 0xFF) | (pcmData[i + 1] << 8));
+                float normalizedSample = Math.abs(sample) / 32768.0f;
+                maxAmplitude = Math.max(maxAmplitude, normalizedSample);
+            }
+
+            return maxAmplitude;
+        }
+
+        static float[] extractAmplitudes(byte[] pcmData, int sampleRate, int channelCount, int chunkSize) {
+            if (pcmData == null || pcmData.length == 0) {
+                return new float[0];
+            }
+
+            int bytesPerSample = 2;
+            int totalSamples = pcmData.length / bytesPerSample;
+            int numChunks = totalSamples / chunkSize;
+
+            if (numChunks == 0) {
+                return new float[]{calculateRMSAmplitude(pcmData, sampleRate, channelCount)};
+            }
+
+            float[] amplitudes = new float[numChunks];
+
+            for (int i = 0; i < numChunks; i++) {
+                int startByte = i * chunkSize * bytesPerSample;
+                int endByte = Math.min(startByte + chunkSize * bytesPerSample, pcmData.length);
+
+                byte[] chunk = new byte[endByte - startByte];
+                System.arraycopy(pcmData, startByte, chunk, 0, chunk.length);
+
+                amplitudes[i] = calculateRMSAmplitude(chunk, sampleRate, channelCount);
+            }
+
+            return amplitudes;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.a2025audiorecorderandroidapp.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Renaming and deleting segmented recordings with their sidecars.
+ */
+public class FileUtilsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void segmentFilesMapBackToRecording() {
+        File recording = new File(folder.getRoot(), "a.m4a");
+        assertEquals(recording, FileUtils.getSegmentFile(recording, 0));
+        File third = FileUtils.getSegmentFile(recording, 2);
+        assertEquals("a.m4a.part003", third.getName());
+        assertEquals(2, FileUtils.getSegmentIndex(third));
+        assertEquals(recording, FileUtils.getRecordingOfSegment(third));
+        assertEquals(0, FileUtils.getSegmentIndex(recording));
+    }
+
+    @Test
+    public void renameMovesSegmentsAndSidecars() throws IOException {
+        File recording = createSegmented("a.m4a");
+
+        assertTrue(FileUtils.renameRecording(recording.getPath(), "b"));
+
+        assertArrayEquals(new String[] {
+            "b.m4a", "b.m4a.part002", "b.m4a.part002.journal", "b.m4a.part003", "b.m4a.part003.journal",
+            "b.m4a.peaks", "b.m4a.playlist"
+        }, listFolder());
+    }
+
+    @Test
+    public void renameRefusesExistingName() throws IOException {
+        File recording = createSegmented("a.m4a");
+        new File(folder.getRoot(), "b.m4a").createNewFile();
+
+        assertFalse(FileUtils.renameRecording(recording.getPath(), "b"));
+        assertTrue(FileUtils.getSegmentFile(recording, 2).exists());
+    }
+
+    @Test
+    public void deleteRemovesSegmentsAndSidecars() throws IOException {
+        File recording = createSegmented("a.m4a");
+        File other = new File(folder.getRoot(), "b.m4a");
+        other.createNewFile();
+
+        assertTrue(FileUtils.deleteRecording(recording.getPath()));
+
+        assertArrayEquals(new String[] { "b.m4a" }, listFolder());
+    }
+
+    /**
+     * A recording of three segments whose last two still have their journals
+     */
+    private File createSegmented(String name) throws IOException {
+        File recording = new File(folder.getRoot(), name);
+        recording.createNewFile();
+        FileUtils.getSidecarFile(recording, FileUtils.SEGMENT_PLAYLIST_EXTENSION).createNewFile();
+        FileUtils.getSidecarFile(recording, FileUtils.PEAKS_EXTENSION).createNewFile();
+        for (int segment = 1; segment < 3; segment++) {
+            File file = FileUtils.getSegmentFile(recording, segment);
+            file.createNewFile();
+            FileUtils.getSidecarFile(file, FileUtils.JOURNAL_EXTENSION).createNewFile();
+        }
+        return recording;
+    }
+
+    private String[] listFolder() {
+        String[] names = folder.getRoot().list();
+        Arrays.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.a2025audiorecorderandroidapp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.example.a2025audiorecorderandroidapp.Benchmarks;
+import com.example.a2025audiorecorderandroidapp.model.Recording;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+public class FormatUtilsTest {
+    private static final int REBINDS = 10_000;
+
+    @Test
+    public void minutesSecondsMatchesStringFormat() {
+        long[] durations = { 0, 999, 1000, 59_999, 60_000, 61_000, 3_599_999, 5_999_999, 6_000_000, 600_000_000 };
+        char[] buffer = new char[FormatUtils.TIME_BUFFER_LENGTH];
+        for (long duration : durations) {
+            String expected = String.format(Locale.ROOT, "%02d:%02d", duration / 60_000, duration / 1000 % 60);
+            assertEquals(expected, FormatUtils.formatMinutesSeconds(duration));
+            assertEquals(expected, new String(buffer, 0, FormatUtils.formatMinutesSeconds(duration, buffer)));
+        }
+        assertEquals("00:00", FormatUtils.formatMinutesSeconds(-5000));
+        String longest = FormatUtils.formatMinutesSeconds(Long.MAX_VALUE);
+        assertTrue(longest.length() <= FormatUtils.TIME_BUFFER_LENGTH);
+    }
+
+    @Test
+    public void rebindAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null);
+
+        Recording recording = new Recording(new File("/sdcard/Recordings/Interview.m4a"));
+        recording.setDuration(754_000);
+        char[] positionText = new char[FormatUtils.TIME_BUFFER_LENGTH];
+        // What a row reads on a rebind during playback; the first call builds the strings
+        long sink = rebind(recording, positionText, 1);
+        sink += rebind(recording, positionText, REBINDS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        sink += rebind(recording, positionText, REBINDS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REBINDS; i++) {
+            sink += Legacy.formatDuration(i * 500L).length() + Legacy.formatDate(recording.getTimestamp()).length()
+                + Legacy.formatFileSize(recording.getFileSize()).length();
+        }
+        long legacyAllocated = threads.getThreadAllocatedBytes(threadId) - before;
+        Benchmarks.sink += sink;
+        Benchmarks.report("bytes allocated per rebind",
+            legacyAllocated / REBINDS + " B -> " + allocated / REBINDS + " B");
+
+        // Allow for the measurement itself, not for anything per rebind
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static long rebind(Recording recording, char[] positionText, int count) {
+        long sink = 0;
+        for (int i = 0; i < count; i++) {
+            sink += recording.getFormattedDate().length() + recording.getFormattedFileSize().length()
+                + recording.getFormattedDuration().length();
+            sink += FormatUtils.formatMinutesSeconds(i * 500L, positionText);
+        }
+        return sink;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreads;
+                }
+            }
+        } catch (LinkageError e) {
+            // Not a HotSpot JVM
+        }
+        return null;
+    }
+
+    /**
+     * The formatting in Recording before display strings were cached, unchanged
+     */
+    static class Legacy {
+        static String formatDuration(long durationMs) {
+            long seconds = durationMs / 1000;
+            long minutes = seconds / 60;
+            seconds = seconds % 60;
+            return String.format(Locale.getDefault(), "%02d:%02d", minutes, seconds);
+        }
+
+        static String formatDate(long timestamp) {
+            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+            return sdf.format(new Date(timestamp));
+        }
+
+        static String formatFileSize(long fileSize) {
+            if (fileSize < 1024) {
+                return fileSize + " B";
+            } else if (fileSize < 1024 * 1024) {
+                return String.format(Locale.getDefault(), "%.1f KB", fileSize / 1024.0);
+            } else {
+                return String.format(Locale.getDefault(), "%.1f MB", fileSize / (1024.0 * 1024.0));
+            }
+        }
+    }
+}